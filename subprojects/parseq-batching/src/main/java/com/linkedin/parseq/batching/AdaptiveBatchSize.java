@@ -0,0 +1,220 @@
+package com.linkedin.parseq.batching;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.linkedin.parseq.internal.ArgumentUtil;
+
+/**
+ * {@code AdaptiveBatchSize} chooses maximum batch size for every group based on observed latency of batches
+ * instead of a static number. It learns latency of batches as a function of their size and picks the size that
+ * maximizes throughput, measured as number of keys resolved per unit of time, while keeping 99th percentile
+ * of batch latency under a target.
+ * <p>
+ * Sizes are powers of two, capped by {@link BatchingStrategy#maxBatchSizeForGroup(Object)}. For every size the
+ * most recent {@value #WINDOW} batches are remembered. Once {@value #MIN_SAMPLES} batches of currently chosen size
+ * completed, the size is reconsidered:
+ * <ul>
+ *   <li>if p99 latency of the current size exceeds the target, the size is halved,</li>
+ *   <li>if twice the size has not been measured yet, or it meets the target with higher throughput,
+ *   the size is doubled,</li>
+ *   <li>if half the size has higher throughput, the size is halved.</li>
+ * </ul>
+ * Failed batches are counted as batches that exceeded the target latency. Measurements of the next larger
+ * size are discarded every {@value #REPROBE_INTERVAL} decisions so that it is eventually probed again when
+ * conditions change.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ *  strategy.setAdaptiveBatchSize(new AdaptiveBatchSize{@code <>}(50, TimeUnit.MILLISECONDS));
+ * </pre></blockquote>
+ *
+ * @param <G> Type of a Group
+ *
+ * @see BatchingStrategy#setAdaptiveBatchSize(AdaptiveBatchSize)
+ */
+public class AdaptiveBatchSize<G> {
+
+  public static final int DEFAULT_INITIAL_BATCH_SIZE = 16;
+
+  static final int WINDOW = 128;
+  static final int MIN_SAMPLES = 16;
+  static final int REPROBE_INTERVAL = 8;
+
+  private static final int MAX_BUCKETS = 31;
+
+  private final long _targetLatencyNano;
+  private final int _initialBucket;
+  private final ConcurrentMap<G, GroupState> _groups = new ConcurrentHashMap<>();
+  private final BatchSizeMetric _batchSizeMetric = new BatchSizeMetric();
+
+  /**
+   * Creates adaptive batch size with initial batch size {@value #DEFAULT_INITIAL_BATCH_SIZE}.
+   * @param targetLatency target 99th percentile of batch latency
+   * @param unit time unit of the target latency
+   */
+  public AdaptiveBatchSize(final long targetLatency, final TimeUnit unit) {
+    this(targetLatency, unit, DEFAULT_INITIAL_BATCH_SIZE);
+  }
+
+  /**
+   * @param targetLatency target 99th percentile of batch latency
+   * @param unit time unit of the target latency
+   * @param initialBatchSize batch size used for a group before any batches completed, it is rounded up to a power of two
+   */
+  public AdaptiveBatchSize(final long targetLatency, final TimeUnit unit, final int initialBatchSize) {
+    ArgumentUtil.requirePositive(targetLatency, "target latency");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    ArgumentUtil.requirePositive(initialBatchSize, "initial batch size");
+    _targetLatencyNano = unit.toNanos(targetLatency);
+    _initialBucket = bucket(initialBatchSize);
+  }
+
+  /**
+   * Returns batch size currently chosen for a given group.
+   * This method is thread safe.
+   * @param group group
+   * @param maxBatchSize maximum batch size for a group
+   * @return batch size currently chosen for a given group, not greater than {@code maxBatchSize}
+   */
+  int batchSize(final G group, final int maxBatchSize) {
+    return groupState(group).batchSize(maxBatchSize);
+  }
+
+  /**
+   * Records latency of a completed batch.
+   * This method is thread safe.
+   * @param group group of the batch
+   * @param batchSize size of the batch
+   * @param latencyNano time it took to execute the batch
+   * @param failed whether the batch failed
+   */
+  void record(final G group, final int batchSize, final long latencyNano, final boolean failed) {
+    final GroupState state = groupState(group);
+    state.record(batchSize, failed ? Math.max(latencyNano, _targetLatencyNano + 1) : latencyNano);
+    _batchSizeMetric.record(state.currentBatchSize());
+  }
+
+  /**
+   * Returns batch size currently chosen for a given group or initial batch size if no batches of the group
+   * have been created yet.
+   * @param group group
+   * @return batch size currently chosen for a given group
+   */
+  public int getBatchSize(final G group) {
+    final GroupState state = _groups.get(group);
+    return state != null ? state.currentBatchSize() : 1 << _initialBucket;
+  }
+
+  /**
+   * Returns metric that records batch size chosen for a group every time a batch of that group completes.
+   * @return metric that records chosen batch sizes
+   */
+  public BatchSizeMetric getBatchSizeMetric() {
+    return _batchSizeMetric;
+  }
+
+  private GroupState groupState(final G group) {
+    final GroupState state = _groups.get(group);
+    return state != null ? state : _groups.computeIfAbsent(group, g -> new GroupState());
+  }
+
+  /**
+   * Returns index of the smallest power of two that is not less than a given size.
+   */
+  private static int bucket(final int size) {
+    return Math.min(MAX_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(Math.max(1, size) - 1));
+  }
+
+  private class GroupState {
+    private final long[][] _latencies = new long[MAX_BUCKETS][];
+    private final int[][] _sizes = new int[MAX_BUCKETS][];
+    private final int[] _counts = new int[MAX_BUCKETS];
+    private final int[] _positions = new int[MAX_BUCKETS];
+    private int _current = _initialBucket;
+    private int _maxBucket = MAX_BUCKETS - 1;
+    private int _maxBatchSize = Integer.MAX_VALUE;
+    private int _samplesSinceDecision = 0;
+    private int _decisions = 0;
+
+    synchronized int batchSize(final int maxBatchSize) {
+      _maxBatchSize = maxBatchSize;
+      _maxBucket = bucket(maxBatchSize);
+      if (_current > _maxBucket) {
+        _current = _maxBucket;
+        _samplesSinceDecision = 0;
+      }
+      return currentBatchSize();
+    }
+
+    synchronized int currentBatchSize() {
+      return Math.min(1 << _current, _maxBatchSize);
+    }
+
+    synchronized void record(final int batchSize, final long latencyNano) {
+      final int bucket = bucket(batchSize);
+      if (_latencies[bucket] == null) {
+        _latencies[bucket] = new long[WINDOW];
+        _sizes[bucket] = new int[WINDOW];
+      }
+      final int position = _positions[bucket];
+      _latencies[bucket][position] = latencyNano;
+      _sizes[bucket][position] = batchSize;
+      _positions[bucket] = (position + 1) % WINDOW;
+      _counts[bucket] = Math.min(WINDOW, _counts[bucket] + 1);
+      if (bucket == _current && ++_samplesSinceDecision >= MIN_SAMPLES) {
+        decide();
+      }
+    }
+
+    private void decide() {
+      _samplesSinceDecision = 0;
+      if (++_decisions % REPROBE_INTERVAL == 0 && _current < _maxBucket) {
+        _counts[_current + 1] = 0;
+        _positions[_current + 1] = 0;
+      }
+      if (p99(_current) > _targetLatencyNano) {
+        if (_current > 0) {
+          _current--;
+        }
+        return;
+      }
+      final double throughput = throughput(_current);
+      if (_current < _maxBucket) {
+        final int up = _current + 1;
+        if (_counts[up] < MIN_SAMPLES || (p99(up) <= _targetLatencyNano && throughput(up) > throughput)) {
+          _current = up;
+          return;
+        }
+      }
+      if (_current > 0) {
+        final int down = _current - 1;
+        if (_counts[down] >= MIN_SAMPLES && p99(down) <= _targetLatencyNano && throughput(down) > throughput) {
+          _current = down;
+        }
+      }
+    }
+
+    private long p99(final int bucket) {
+      final int count = _counts[bucket];
+      final long[] latencies = Arrays.copyOf(_latencies[bucket], count);
+      Arrays.sort(latencies);
+      return latencies[(int) Math.ceil(count * 0.99) - 1];
+    }
+
+    /**
+     * Returns number of keys resolved per nanosecond.
+     */
+    private double throughput(final int bucket) {
+      long sizes = 0;
+      long latencies = 0;
+      for (int i = 0; i < _counts[bucket]; i++) {
+        sizes += _sizes[bucket][i];
+        latencies += _latencies[bucket][i];
+      }
+      return latencies == 0 ? Double.MAX_VALUE : (double) sizes / latencies;
+    }
+  }
+}
@@ -16,7 +16,7 @@ public class BatchAggregationTimeMetric {
   private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
   private static final int NUMBER_OF_FIGNIFICANT_VALUE_DIGITS = 3;
 
-  private Recorder _recorder = null;
+  private volatile Recorder _recorder = null;
 
   private Histogram _recycle;
 
@@ -41,29 +41,35 @@ public class BatchAggregationTimeMetric {
     return batchAggregationTimeNano;
   }
 
-  private void initializeRecorder() {
-    if (_recorder == null) {
-      _recorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE, NUMBER_OF_FIGNIFICANT_VALUE_DIGITS);
+  private Recorder recorder() {
+    Recorder recorder = _recorder;
+    if (recorder == null) {
+      synchronized (this) {
+        recorder = _recorder;
+        if (recorder == null) {
+          recorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE, NUMBER_OF_FIGNIFICANT_VALUE_DIGITS);
+          _recorder = recorder;
+        }
+      }
     }
+    return recorder;
   }
 
-  private synchronized void recordSafeValue(long batchAggregationTimeNano) {
-    initializeRecorder();
-    _recorder.recordValue(batchAggregationTimeNano);
+  private void recordSafeValue(long batchAggregationTimeNano) {
+    recorder().recordValue(batchAggregationTimeNano);
   }
 
   /**
    * Allows consuming histogram and returning a result.
    * Histogram passed to the consumer includes stable, consistent view
    * of all values accumulated since last harvest.
-   * This method is thread safe.
+   * This method is thread safe. Concurrent harvests are serialized but they do not block recording.
    * @param consumer consumer for a harvested histogram
    * @param <T> return type of a passed in function
    * @return a result of a passed in function
    */
   public synchronized <T> T harvest(Function<Histogram, T> consumer) {
-    initializeRecorder();
-    _recycle = _recorder.getIntervalHistogram(_recycle);
+    _recycle = recorder().getIntervalHistogram(_recycle);
     return consumer.apply(_recycle);
   }
 }
@@ -0,0 +1,41 @@
+package com.linkedin.parseq.batching;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Metric that counts distinct keys of executed batches and number of times these keys were requested.
+ * Ratio of keys to requests shows how effective de-duplication of keys is: ratio of 1 means that no key
+ * was requested more than once while the batch was being aggregated.
+ */
+public class BatchDeduplicationMetric {
+
+  private final LongAdder _keys = new LongAdder();
+  private final LongAdder _requests = new LongAdder();
+
+  /**
+   * Records number of distinct keys in a batch and number of times they were requested.
+   * This method is thread safe.
+   * @param keys number of distinct keys in a batch
+   * @param requests number of times keys in a batch were requested
+   */
+  public void record(int keys, int requests) {
+    _keys.add(keys);
+    _requests.add(requests);
+  }
+
+  /**
+   * Allows consuming number of keys and number of requests accumulated since last harvest
+   * and returning a result. Values recorded concurrently with harvest may be split between
+   * this and the next harvest.
+   * This method is thread safe. Concurrent harvests are serialized but they do not block recording.
+   * @param consumer consumer for number of keys and number of requests
+   * @param <T> return type of a passed in function
+   * @return a result of a passed in function
+   */
+  public synchronized <T> T harvest(BiFunction<Long, Long, T> consumer) {
+    final long requests = _requests.sumThenReset();
+    final long keys = _keys.sumThenReset();
+    return consumer.apply(keys, requests);
+  }
+}
@@ -140,6 +140,10 @@ public class BatchImpl<K, T> implements Batch<K, T> {
       return _promise;
     }
 
+    long getCreationTimeNano() {
+      return _creationTimeNano;
+    }
+
     List<ShallowTraceBuilder> getShallowTraceBuilders() {
       return _shallowTraceBuilders;
     }
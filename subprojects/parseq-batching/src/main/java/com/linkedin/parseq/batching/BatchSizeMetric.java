@@ -15,7 +15,7 @@ public class BatchSizeMetric {
   private static final int HIGHEST_TRACKABLE_VALUE = 10_000;
   private static final int NUMBER_OF_FIGNIFICANT_VALUE_DIGITS = 3;
 
-  private Recorder _recorder = null;
+  private volatile Recorder _recorder = null;
 
   private Histogram _recycle;
 
@@ -40,29 +40,35 @@ public class BatchSizeMetric {
     return batchSize;
   }
 
-  private void initializeRecorder() {
-    if (_recorder == null) {
-      _recorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE, NUMBER_OF_FIGNIFICANT_VALUE_DIGITS);
+  private Recorder recorder() {
+    Recorder recorder = _recorder;
+    if (recorder == null) {
+      synchronized (this) {
+        recorder = _recorder;
+        if (recorder == null) {
+          recorder = new Recorder(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE, NUMBER_OF_FIGNIFICANT_VALUE_DIGITS);
+          _recorder = recorder;
+        }
+      }
     }
+    return recorder;
   }
 
-  private synchronized void recordSafeValue(int batchSize) {
-    initializeRecorder();
-    _recorder.recordValue(batchSize);
+  private void recordSafeValue(int batchSize) {
+    recorder().recordValue(batchSize);
   }
 
   /**
    * Allows consuming histogram and returning a result.
    * Histogram passed to the consumer includes stable, consistent view
    * of all values accumulated since last harvest.
-   * This method is thread safe.
+   * This method is thread safe. Concurrent harvests are serialized but they do not block recording.
    * @param consumer consumer for a harvested histogram
    * @param <T> return type of a passed in function
    * @return a result of a passed in function
    */
   public synchronized <T> T harvest(Function<Histogram, T> consumer) {
-    initializeRecorder();
-    _recycle = _recorder.getIntervalHistogram(_recycle);
+    _recycle = recorder().getIntervalHistogram(_recycle);
     return consumer.apply(_recycle);
   }
 
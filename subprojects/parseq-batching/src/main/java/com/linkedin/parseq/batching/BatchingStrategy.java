@@ -1,19 +1,34 @@
 package com.linkedin.parseq.batching;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linkedin.parseq.Cancellable;
 import com.linkedin.parseq.Context;
+import com.linkedin.parseq.Exceptions;
 import com.linkedin.parseq.Task;
 import com.linkedin.parseq.batching.BatchImpl.BatchBuilder;
 import com.linkedin.parseq.batching.BatchImpl.BatchEntry;
 import com.linkedin.parseq.batching.BatchImpl.BatchPromise;
+import com.linkedin.parseq.internal.ArgumentUtil;
 import com.linkedin.parseq.internal.ContextImpl;
+import com.linkedin.parseq.internal.InternalUtil;
 import com.linkedin.parseq.internal.PlanContext;
 import com.linkedin.parseq.promise.CountDownPromiseListener;
 import com.linkedin.parseq.promise.PromiseListener;
@@ -81,6 +96,18 @@ import com.linkedin.parseq.trace.TraceBuilder;
  *   is a synchronous and fast operation whilst {@code executeBatch(G group, Batch<K, T> batch)} returns quickly and completes
  *   promises asynchronously.
  * </ol>
+ * <p>
+ * By default keys are batched only within a plan. When many concurrent plans request few keys each, overriding
+ * {@link #crossPlanMaxWaitNanoForGroup(Object)} enables engine-wide batching for a group: keys of the group
+ * requested by all plans are pooled in a shared batch. The shared batch is executed when it becomes full, when the
+ * given time has elapsed since its first key was added or when {@link #flushCrossPlanBatches()} signals that no
+ * more keys are expected soon. Batch is executed in one of the plans that contributed keys to it and every
+ * contributing plan's trace contains a relationship between its tasks and the task that executed the batch.
+ * <p>
+ * Overriding {@link #maxInFlightBatchesForGroup(Object)} limits number of batches of a group that are executed
+ * concurrently. Batches that exceed the limit are queued and started, in order, when previous batches of the group
+ * complete. Until a queued batch is started, keys of the same group requested by the plan that the batch belongs to
+ * are added to it, as long as it does not exceed maximum batch size.
  *
  * @author Jaroslaw Odzga (jodzga@linkedin.com)
  *
@@ -101,8 +128,19 @@ public abstract class BatchingStrategy<G, K, T> {
   private final ConcurrentMap<Long, GroupBatchBuilder> _batches =
       new ConcurrentHashMap<>();
 
+  private final ConcurrentMap<G, PooledBatch> _pooledBatches =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<G, InFlightBatches> _inFlightBatches =
+      new ConcurrentHashMap<>();
+
   private final BatchSizeMetric _batchSizeMetric = new BatchSizeMetric();
   private final BatchAggregationTimeMetric _batchAggregationTimeMetric = new BatchAggregationTimeMetric();
+  private final BatchDeduplicationMetric _batchDeduplicationMetric = new BatchDeduplicationMetric();
+  private final ConcurrentMap<G, BatchAggregationTimeMetric> _groupWaitTimeMetrics = new ConcurrentHashMap<>();
+  private final BatchSizeMetric _crossPlanBatchPlansMetric = new BatchSizeMetric();
+
+  private volatile AdaptiveBatchSize<G> _adaptiveBatchSize = null;
 
   /**
    * This method returns Task that returns value for a single key allowing this strategy to batch operations.
@@ -113,18 +151,21 @@ public abstract class BatchingStrategy<G, K, T> {
   public Task<T> batchable(final String desc, final K key) {
     Task<T> batchableTask = Task.async(desc, ctx -> {
       final BatchPromise<T> result = new BatchPromise<>();
+      final G group = classify(key);
+      final long maxWaitNano = crossPlanMaxWaitNanoForGroup(group);
+      if (maxWaitNano > 0) {
+        addToPooledBatch(ctx, group, key, result, maxWaitNano);
+        return result;
+      }
       final Long planId = ctx.getPlanId();
+      final InFlightBatches inFlight = inFlightBatches(group);
+      if (inFlight != null && inFlight.merge(planId, key, ctx.getShallowTraceBuilder(), result)) {
+        return result;
+      }
       final GroupBatchBuilder builder = _batches.computeIfAbsent(planId, k -> new GroupBatchBuilder());
-      final G group = classify(key);
-      Batch<K, T> fullBatch = builder.add(group, key, ctx.getShallowTraceBuilder(), result);
+      BatchBuilder<K, T> fullBatch = builder.add(group, key, ctx.getShallowTraceBuilder(), result);
       if (fullBatch != null) {
-        try {
-          ctx.run(taskForBatch(group, fullBatch, true));
-        } catch (Throwable t) {
-          //we don't care if some of promises have already been completed
-          //all we care is that all remaining promises have been failed
-          fullBatch.failAll(t);
-        }
+        runInContext(ctx, group, fullBatch, null);
       }
       return result;
     });
@@ -152,8 +193,14 @@ public abstract class BatchingStrategy<G, K, T> {
           new CountDownPromiseListener<>(batch.keySize(), result, null);
 
       boolean assignedParent = false;
+      int requests = 0;
+      final long startedNano = System.nanoTime();
+      final BatchAggregationTimeMetric waitTimeMetric = groupWaitTimeMetric(group);
       final TraceBuilder traceBuilder = ctx.getTraceBuilder();
       for (BatchEntry<T> entry : batch.values()) {
+        final long waitTimeNano = startedNano - entry.getCreationTimeNano();
+        waitTimeMetric.record(waitTimeNano > 0 ? waitTimeNano : 0);
+        requests += entry.getShallowTraceBuilders().size();
         for (ShallowTraceBuilder shallowTraceBuilder: entry.getShallowTraceBuilders()) {
           if (!assignedParent && !hasParent) {
             traceBuilder.addRelationship(Relationship.CHILD_OF, ctx.getShallowTraceBuilder(), shallowTraceBuilder);
@@ -166,6 +213,14 @@ public abstract class BatchingStrategy<G, K, T> {
         promise.getInternal().addListener(countDownListener);
         result.addListener(v -> promise.trigger());
       }
+      _batchDeduplicationMetric.record(batch.keySize(), requests);
+
+      final AdaptiveBatchSize<G> adaptiveBatchSize = _adaptiveBatchSize;
+      if (adaptiveBatchSize != null) {
+        final long startNano = System.nanoTime();
+        result.addListener(p -> adaptiveBatchSize.record(group, batch.batchSize(), System.nanoTime() - startNano,
+            batch.values().stream().allMatch(entry -> entry.getPromise().isFailed())));
+      }
 
       try {
         executeBatchWithContext(group, batch, ctx);
@@ -179,25 +234,146 @@ public abstract class BatchingStrategy<G, K, T> {
     });
   }
 
-  private void runBatch(final PlanContext planContext, G group, final Batch<K, T> batch) {
+  /**
+   * Runs batch as a sub-task of a task with a given context or queues it if the group has reached its limit
+   * of batches in flight. Batch pooled across plans is run as a side effect, in its own forked plan, so that
+   * cancellation of the task that happened to fill it does not cancel the batch for other contributing plans.
+   * Returns the task that executes the batch or null if the batch has been queued.
+   */
+  private Task<?> runInContext(final Context ctx, final G group, final BatchBuilder<K, T> builder,
+      final PooledBatch pooled) {
+    final InFlightBatches inFlight = inFlightBatches(group);
+    if (inFlight != null && !inFlight.tryAcquire()) {
+      inFlight.enqueue(ctx.getPlanId(), null, builder, pooled);
+      return null;
+    }
+    final Batch<K, T> batch = builder.build();
+    boolean started = false;
+    try {
+      final Task<?> batchTask = taskForBatch(group, batch, true);
+      if (pooled != null) {
+        pooled.addRelationships(batchTask, ctx.getTraceBuilder());
+      }
+      if (inFlight != null) {
+        batchTask.addListener(p -> inFlight.release());
+      }
+      if (pooled != null) {
+        ctx.runSideEffect(batchTask);
+      } else {
+        ctx.run(batchTask);
+      }
+      started = true;
+      return batchTask;
+    } catch (Throwable t) {
+      //we don't care if some of promises have already been completed
+      //all we care is that all remaining promises have been failed
+      batch.failAll(t);
+      return null;
+    } finally {
+      if (inFlight != null && !started) {
+        inFlight.release();
+      }
+    }
+  }
+
+  /**
+   * Runs batch in a plan forked from a given plan or queues it if the group has reached its limit
+   * of batches in flight.
+   */
+  private void runInPlan(final PlanContext planContext, final G group, final BatchBuilder<K, T> builder) {
+    final InFlightBatches inFlight = inFlightBatches(group);
+    if (inFlight != null && !inFlight.tryAcquire()) {
+      inFlight.enqueue(planContext.getId(), planContext, builder, null);
+      return;
+    }
+    runBatch(planContext, group, builder.build(), null, inFlight);
+  }
+
+  /**
+   * Runs batch in a plan forked from a given plan. If {@code inFlight} is not null the batch holds one of
+   * its permits which is released when the batch completes.
+   * Queued batch may be started after the plan has completed, e.g. because it timed out. Batch pooled across
+   * plans is then run in another contributing plan and otherwise all its keys are failed.
+   */
+  private void runBatch(final PlanContext planContext, final G group, final Batch<K, T> batch,
+      final PooledBatch pooled, final InFlightBatches inFlight) {
+    boolean started = false;
     try {
       Task<?> batchedTask = taskForBatch(group, batch, false);
       PlanContext forkedPlan = planContext.fork(batchedTask);
+      if (forkedPlan == null && pooled != null) {
+        forkedPlan = pooled.forkIdlePlan(batchedTask);
+      }
+      if (forkedPlan == null) {
+        batch.failAll(new CancellationException("Plan of the batch has completed before the batch was started"));
+        return;
+      }
+      if (pooled != null) {
+        pooled.addRelationships(batchedTask, forkedPlan.getRelationshipsBuilder());
+      }
+      if (inFlight != null) {
+        batchedTask.addListener(p -> inFlight.release());
+      }
       new ContextImpl(forkedPlan, batchedTask).runTask();
+      started = true;
     } catch (Throwable t) {
       //we don't care if some of promises have already been completed
       //all we care is that all remaining promises have been failed
       batch.failAll(t);
+    } finally {
+      if (inFlight != null && !started) {
+        inFlight.release();
+      }
     }
   }
 
   void handleBatch(final PlanContext planContext) {
+    if (!_inFlightBatches.isEmpty()) {
+      _inFlightBatches.values().forEach(inFlight -> inFlight.planDeactivated(planContext));
+    }
     final GroupBatchBuilder batchBuilder = _batches.remove(planContext.getId());
     if (batchBuilder != null) {
-      batchBuilder.batches().forEach((group, builder) -> runBatch(planContext, group, builder.build()));
+      batchBuilder.batches().forEach((group, builder) -> runInPlan(planContext, group, builder));
+    }
+    if (!_pooledBatches.isEmpty()) {
+      _pooledBatches.values().forEach(pooled -> pooled.planDeactivated(planContext));
+    }
+  }
+
+  private void addToPooledBatch(final Context ctx, final G group, final K key, final BatchPromise<T> promise,
+      final long maxWaitNano) {
+    final int size = keySize(group, key);
+    final BatchEntry<T> entry = new BatchEntry<>(ctx.getShallowTraceBuilder(), promise);
+    boolean added = false;
+    while (!added) {
+      final PooledBatch pooled = _pooledBatches.computeIfAbsent(group, g -> new PooledBatch(g, maxWaitNano));
+      final BatchBuilder<K, T> batch;
+      synchronized (pooled) {
+        if (pooled.isTaken()) {
+          //batch has been taken by another thread right after it was looked up
+          continue;
+        }
+        added = pooled.add(ctx, key, entry, size);
+        //batch that the key does not fit into is executed and the key is added to a new one
+        batch = !added || pooled.isFull() ? pooled.take() : null;
+      }
+      if (batch != null) {
+        runInContext(ctx, group, batch, pooled);
+      }
     }
   }
 
+  /**
+   * Signals that no more keys are expected soon, for example because the application is idle. Executes
+   * shared batches of keys pooled across plans without waiting for them to become full or for their
+   * maximum wait time to elapse.
+   * This method is thread safe.
+   * @see #crossPlanMaxWaitNanoForGroup(Object)
+   */
+  public void flushCrossPlanBatches() {
+    _pooledBatches.values().forEach(PooledBatch::flush);
+  }
+
   private String debugInfo(G group, Batch<K, T> batch) {
     StringBuilder debugInfo = new StringBuilder("\n");
       debugInfo.append("group: ")
@@ -217,6 +393,62 @@ public abstract class BatchingStrategy<G, K, T> {
     return _batchAggregationTimeMetric;
   }
 
+  /**
+   * Returns metric that counts distinct keys of executed batches and number of times they were requested.
+   * @return metric that counts distinct keys of executed batches and number of times they were requested
+   */
+  public BatchDeduplicationMetric getBatchDeduplicationMetric() {
+    return _batchDeduplicationMetric;
+  }
+
+  /**
+   * Returns metrics that record, for every group, time that keys waited since they were requested until
+   * their batch was started. It includes time spent aggregating the batch and time it spent queued
+   * because the group reached its limit of batches in flight. Metric of a group is created when its first
+   * batch is started.
+   * @return unmodifiable view of wait time metrics by group
+   * @see #maxInFlightBatchesForGroup(Object)
+   */
+  public Map<G, BatchAggregationTimeMetric> getGroupWaitTimeMetrics() {
+    return Collections.unmodifiableMap(_groupWaitTimeMetrics);
+  }
+
+  private BatchAggregationTimeMetric groupWaitTimeMetric(final G group) {
+    //look up first to avoid locking in computeIfAbsent once the metric exists
+    final BatchAggregationTimeMetric metric = _groupWaitTimeMetrics.get(group);
+    return metric != null ? metric : _groupWaitTimeMetrics.computeIfAbsent(group, g -> new BatchAggregationTimeMetric());
+  }
+
+  /**
+   * Sets {@link AdaptiveBatchSize} that chooses maximum batch size for every group based on observed latency of
+   * batches. Chosen size never exceeds {@link #maxBatchSizeForGroup(Object)}. Passing {@code null} restores
+   * static batch sizes.
+   * @param adaptiveBatchSize adaptive batch size or {@code null}
+   */
+  public void setAdaptiveBatchSize(AdaptiveBatchSize<G> adaptiveBatchSize) {
+    _adaptiveBatchSize = adaptiveBatchSize;
+  }
+
+  public AdaptiveBatchSize<G> getAdaptiveBatchSize() {
+    return _adaptiveBatchSize;
+  }
+
+  private int batchSizeForGroup(G group) {
+    final AdaptiveBatchSize<G> adaptiveBatchSize = _adaptiveBatchSize;
+    return adaptiveBatchSize != null
+        ? adaptiveBatchSize.batchSize(group, maxBatchSizeForGroup(group))
+        : maxBatchSizeForGroup(group);
+  }
+
+  /**
+   * Returns metric that records number of plans that contributed keys to every shared batch.
+   * @return metric that records number of plans that contributed keys to every shared batch
+   * @see #crossPlanMaxWaitNanoForGroup(Object)
+   */
+  public BatchSizeMetric getCrossPlanBatchPlansMetric() {
+    return _crossPlanBatchPlansMetric;
+  }
+
   /**
    * This method will be called for every {@code Batch}.
    * Implementation of this method must make sure that all {@code SettablePromise} contained in the {@code Batch}
@@ -251,6 +483,53 @@ public abstract class BatchingStrategy<G, K, T> {
     return DEFAULT_MAX_BATCH_SIZE;
   }
 
+  /**
+   * Overriding this method with a positive value enables engine-wide batching for a given group: keys of the
+   * group requested by all plans are pooled in a shared batch instead of being batched within every plan.
+   * Shared batch is executed when it becomes full, when returned time has elapsed since its first key was added
+   * and at least one of the plans that contributed to it is waiting only for batched keys or when
+   * {@link #flushCrossPlanBatches()} is invoked.
+   * Default value is 0 which means that keys are batched only within a plan.
+   * @param group group for which maximum wait time needs to be decided
+   * @return maximum time in nanoseconds a shared batch waits for keys from other plans
+   */
+  public long crossPlanMaxWaitNanoForGroup(G group) {
+    return 0;
+  }
+
+  /**
+   * Overriding this method allows limiting number of batches of a given group that are executed concurrently.
+   * Batches that exceed the limit are queued and started when previous batches of the group complete. Until a
+   * queued batch is started, keys of the group requested by the plan that the batch belongs to are added to it.
+   * Default value is {@code Integer.MAX_VALUE} which means that number of batches in flight is not limited.
+   * @param group group for which maximum number of batches in flight needs to be decided
+   * @return maximum number of batches of a given group that are executed concurrently
+   */
+  public int maxInFlightBatchesForGroup(G group) {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns number of batches of a given group that are queued because the group has reached its limit
+   * of batches in flight.
+   * @param group group
+   * @return number of queued batches of a given group
+   * @see #maxInFlightBatchesForGroup(Object)
+   */
+  public int getQueuedBatchCount(G group) {
+    final InFlightBatches inFlight = _inFlightBatches.get(group);
+    return inFlight != null ? inFlight.queuedCount() : 0;
+  }
+
+  private InFlightBatches inFlightBatches(final G group) {
+    final int maxInFlight = maxInFlightBatchesForGroup(group);
+    if (maxInFlight == Integer.MAX_VALUE) {
+      return null;
+    }
+    final InFlightBatches inFlight = _inFlightBatches.get(group);
+    return inFlight != null ? inFlight : _inFlightBatches.computeIfAbsent(group, g -> new InFlightBatches(g, maxInFlight));
+  }
+
   /**
    * Overriding this method allows specifying size of the key for a given group.
    * Default value is 1. This method is used when calculating batch size and making sure
@@ -280,35 +559,35 @@ public abstract class BatchingStrategy<G, K, T> {
 
     /**
      * Adds new entry to a batch specified by a given group and returns
-     * list of batches that can be executed or null if batch is still not full.
-     * @return list of batches that can be executed or null otherwise
+     * builder of a batch that can be executed or null if batch is still not full.
+     * @return builder of a batch that can be executed or null otherwise
      */
-    Batch<K, T> add(G group, K key, ShallowTraceBuilder traceBuilder, BatchPromise<T> promise) {
+    BatchBuilder<K, T> add(G group, K key, ShallowTraceBuilder traceBuilder, BatchPromise<T> promise) {
       final int size = keySize(group, key);
       BatchBuilder<K, T> builder =
-        _batchesByGroup.computeIfAbsent(group, x -> new BatchBuilder<>(maxBatchSizeForGroup(group), _batchAggregationTimeMetric));
+        _batchesByGroup.computeIfAbsent(group, x -> new BatchBuilder<>(batchSizeForGroup(group), _batchAggregationTimeMetric));
       //invariant: builder is not full - it is maintained by the fact that max batch size >= 1
       //and that we remove builder from the map after adding to it entry that makes it full
       if (builder.add(key, traceBuilder, promise, size)) {
         if (builder.isFull()) {
           _batchesByGroup.remove(group);
-          return builder.build();
+          return builder;
         } else {
           return null;
         }
       } else {
-        BatchBuilder<K, T> newBuilder = new BatchBuilder<>(maxBatchSizeForGroup(group), _batchAggregationTimeMetric);
+        BatchBuilder<K, T> newBuilder = new BatchBuilder<>(batchSizeForGroup(group), _batchAggregationTimeMetric);
         //this will be successful because builder is empty and first add is always successful as per builder contract
         newBuilder.add(key, traceBuilder, promise, size);
         if (newBuilder.isFull()) {
-          return newBuilder.build();
+          return newBuilder;
         } else {
           //return larger batch
           if (builder.batchSize() > newBuilder.batchSize()) {
             _batchesByGroup.put(group, newBuilder);
-            return builder.build();
+            return builder;
           } else {
-            return newBuilder.build();
+            return newBuilder;
           }
         }
       }
@@ -320,4 +599,271 @@ public abstract class BatchingStrategy<G, K, T> {
 
   }
 
+  /**
+   * Batch of keys of a single group pooled across plans. All methods that access state of the batch
+   * synchronize on it.
+   */
+  private class PooledBatch {
+    private final G _group;
+    private final long _maxWaitNano;
+    private final long _startNano = System.nanoTime();
+    private final BatchBuilder<K, T> _builder;
+    private final Set<Long> _planIds = new HashSet<>();
+    private final List<TraceBuilder> _traceBuilders = new ArrayList<>();
+    private final List<ShallowTraceBuilder> _shallowTraceBuilders = new ArrayList<>();
+    //plans that contributed keys and have been deactivated since
+    private final Map<Long, PlanContext> _idlePlans = new LinkedHashMap<>();
+    private Cancellable _timer = null;
+    private boolean _flushRequested = false;
+    private boolean _taken = false;
+
+    private PooledBatch(final G group, final long maxWaitNano) {
+      _group = group;
+      _maxWaitNano = maxWaitNano;
+      _builder = new BatchBuilder<>(batchSizeForGroup(group), _batchAggregationTimeMetric);
+    }
+
+    boolean isTaken() {
+      return _taken;
+    }
+
+    boolean isFull() {
+      return _builder.isFull();
+    }
+
+    boolean add(final Context ctx, final K key, final BatchEntry<T> entry, final int size) {
+      if (_builder.add(key, entry, size)) {
+        _planIds.add(ctx.getPlanId());
+        _traceBuilders.add(ctx.getTraceBuilder());
+        _shallowTraceBuilders.add(ctx.getShallowTraceBuilder());
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    /**
+     * Removes this batch from the pool and returns its builder. Must be called at most once.
+     */
+    BatchBuilder<K, T> take() {
+      _taken = true;
+      _pooledBatches.remove(_group, this);
+      if (_timer != null) {
+        _timer.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+        _timer = null;
+      }
+      _crossPlanBatchPlansMetric.record(_planIds.size());
+      return _builder;
+    }
+
+    /**
+     * Adds relationships with the task that executes this batch to traces of all contributing plans
+     * other than the one that runs it.
+     */
+    void addRelationships(final Task<?> batchTask, final TraceBuilder runningTraceBuilder) {
+      for (int i = 0; i < _traceBuilders.size(); i++) {
+        final TraceBuilder traceBuilder = _traceBuilders.get(i);
+        if (traceBuilder != runningTraceBuilder) {
+          traceBuilder.addRelationship(Relationship.POTENTIAL_CHILD_OF, batchTask.getShallowTraceBuilder(),
+              _shallowTraceBuilders.get(i));
+        }
+      }
+    }
+
+    void planDeactivated(final PlanContext planContext) {
+      boolean flushNow = false;
+      synchronized (this) {
+        if (_taken || !_planIds.contains(planContext.getId())) {
+          return;
+        }
+        _idlePlans.putIfAbsent(planContext.getId(), planContext);
+        final long waitedNano = System.nanoTime() - _startNano;
+        if (_flushRequested || waitedNano >= _maxWaitNano) {
+          flushNow = true;
+        } else if (_timer == null) {
+          _timer = planContext.schedule(_maxWaitNano - waitedNano, TimeUnit.NANOSECONDS, this::flush);
+        }
+      }
+      if (flushNow) {
+        flush();
+      }
+    }
+
+    /**
+     * Forks one of the idle contributing plans that has not completed yet for a given root task.
+     * @return forked plan or null if there is no such plan
+     */
+    PlanContext forkIdlePlan(final Task<?> root) {
+      final List<PlanContext> idlePlans;
+      synchronized (this) {
+        idlePlans = new ArrayList<>(_idlePlans.values());
+      }
+      for (PlanContext planContext : idlePlans) {
+        final PlanContext forkedPlan = planContext.fork(root);
+        if (forkedPlan != null) {
+          return forkedPlan;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Runs this batch in one of the idle contributing plans. If there is no such plan, batch
+     * is executed when the next contributing plan gets deactivated.
+     */
+    void flush() {
+      synchronized (this) {
+        _timer = null;
+        if (_taken) {
+          return;
+        }
+        _flushRequested = true;
+      }
+      final Task<Object> flushTask = Task.async("flushBatch", ctx -> {
+        final BatchBuilder<K, T> batch;
+        synchronized (PooledBatch.this) {
+          if (_taken) {
+            return Promises.value(null);
+          }
+          batch = take();
+        }
+        final Task<?> batchTask = runInContext(ctx, _group, batch, PooledBatch.this);
+        return batchTask != null ? InternalUtil.unwildcardTask(batchTask) : Promises.value(null);
+      });
+      flushTask.getShallowTraceBuilder().setSystemHidden(true);
+      final PlanContext forkedPlan = forkIdlePlan(flushTask);
+      if (forkedPlan != null) {
+        new ContextImpl(forkedPlan, flushTask).runTask();
+      }
+    }
+  }
+
+  /**
+   * Batches of a single group that are in flight and batches queued until the number of batches in flight drops
+   * below the limit. All methods that access state synchronize on it. Batches are never started while holding
+   * the lock.
+   */
+  private class InFlightBatches {
+    private final G _group;
+    private final int _maxInFlight;
+    private final Deque<QueuedBatch> _queue = new ArrayDeque<>();
+    //batches that have been granted a permit but whose plans have not been deactivated since they were queued
+    private final List<QueuedBatch> _granted = new ArrayList<>();
+    private int _inFlight = 0;
+
+    private InFlightBatches(final G group, final int maxInFlight) {
+      ArgumentUtil.requirePositive(maxInFlight, "max in flight batches");
+      _group = group;
+      _maxInFlight = maxInFlight;
+    }
+
+    synchronized boolean tryAcquire() {
+      if (_inFlight < _maxInFlight) {
+        _inFlight++;
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    synchronized void enqueue(final Long planId, final PlanContext planContext, final BatchBuilder<K, T> builder,
+        final PooledBatch pooled) {
+      _queue.add(new QueuedBatch(planId, planContext, builder, pooled));
+    }
+
+    synchronized int queuedCount() {
+      return _queue.size();
+    }
+
+    /**
+     * Adds key to the most recently queued batch of a given plan if there is one and the key fits into it.
+     * @return true if key has been added to a queued batch
+     */
+    synchronized boolean merge(final Long planId, final K key, final ShallowTraceBuilder traceBuilder,
+        final BatchPromise<T> promise) {
+      if (_queue.isEmpty()) {
+        return false;
+      }
+      final Iterator<QueuedBatch> iterator = _queue.descendingIterator();
+      while (iterator.hasNext()) {
+        final QueuedBatch queued = iterator.next();
+        if (queued._pooled == null && queued._planId.equals(planId)) {
+          return queued._builder.add(key, traceBuilder, promise, keySize(_group, key));
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Releases permit of a completed batch. If there are queued batches the permit is handed over to
+     * the oldest one. It is started right away if its plan is known and otherwise when the plan is deactivated.
+     */
+    void release() {
+      final QueuedBatch next;
+      synchronized (this) {
+        next = _queue.poll();
+        if (next == null) {
+          _inFlight--;
+          return;
+        }
+        if (next._planContext == null) {
+          _granted.add(next);
+          return;
+        }
+      }
+      next.start();
+    }
+
+    void planDeactivated(final PlanContext planContext) {
+      List<QueuedBatch> toStart = null;
+      synchronized (this) {
+        if (_queue.isEmpty() && _granted.isEmpty()) {
+          return;
+        }
+        for (QueuedBatch queued : _queue) {
+          if (queued._planContext == null && queued._planId.equals(planContext.getId())) {
+            queued._planContext = planContext;
+          }
+        }
+        final Iterator<QueuedBatch> iterator = _granted.iterator();
+        while (iterator.hasNext()) {
+          final QueuedBatch granted = iterator.next();
+          if (granted._planId.equals(planContext.getId())) {
+            iterator.remove();
+            granted._planContext = planContext;
+            if (toStart == null) {
+              toStart = new ArrayList<>();
+            }
+            toStart.add(granted);
+          }
+        }
+      }
+      if (toStart != null) {
+        toStart.forEach(QueuedBatch::start);
+      }
+    }
+
+    private class QueuedBatch {
+      private final Long _planId;
+      private final BatchBuilder<K, T> _builder;
+      private final PooledBatch _pooled;
+      private PlanContext _planContext;
+
+      private QueuedBatch(final Long planId, final PlanContext planContext, final BatchBuilder<K, T> builder,
+          final PooledBatch pooled) {
+        _planId = planId;
+        _planContext = planContext;
+        _builder = builder;
+        _pooled = pooled;
+      }
+
+      /**
+       * Starts batch that holds a permit. Batch is no longer in the queue so no keys can be added to it.
+       */
+      void start() {
+        runBatch(_planContext, _group, _builder.build(), _pooled, InFlightBatches.this);
+      }
+    }
+  }
+
 }
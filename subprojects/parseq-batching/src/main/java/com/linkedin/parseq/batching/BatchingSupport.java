@@ -33,6 +33,15 @@ public class BatchingSupport implements PlanDeactivationListener {
     _strategies.add(strategy);
   }
 
+  /**
+   * Signals all registered strategies that no more keys are expected soon, for example because the
+   * application is idle, so that keys pooled across plans are executed without further waiting.
+   * @see BatchingStrategy#flushCrossPlanBatches()
+   */
+  public void flushCrossPlanBatches() {
+    _strategies.forEach(BatchingStrategy::flushCrossPlanBatches);
+  }
+
   @Override
   public void onPlanDeactivated(final PlanContext planContext) {
     _strategies.forEach(strategy -> strategy.handleBatch(planContext));
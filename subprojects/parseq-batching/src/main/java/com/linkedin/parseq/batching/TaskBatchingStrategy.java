@@ -1,10 +1,14 @@
 package com.linkedin.parseq.batching;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.linkedin.parseq.Context;
 import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Failure;
 import com.linkedin.parseq.function.Try;
 
 /**
@@ -66,7 +70,7 @@ public abstract class TaskBatchingStrategy<G, K, T> extends BatchingStrategy<G,
 
   @Override
   protected void executeBatchWithContext(final G group, final Batch<K, T> batch, final Context ctx) {
-    Task<Map<K, Try<T>>> task = taskForBatch(group, batch.keys());
+    Task<Map<K, Try<T>>> task = splittingTaskForBatch(group, batch.keys(), maxSplitDepthForGroup(group));
 
     Task<Map<K, Try<T>>> completing = task.andThen("completePromises", map -> {
       batch.foreach((key, promise) -> {
@@ -92,6 +96,67 @@ public abstract class TaskBatchingStrategy<G, K, T> extends BatchingStrategy<G,
     ctx.run(withFailureHandling);
   }
 
+  private Task<Map<K, Try<T>>> splittingTaskForBatch(final G group, final Set<K> keys, final int splitDepth) {
+    Task<Map<K, Try<T>>> task = taskForBatch(group, keys);
+    final long timeoutNano = batchTimeoutNanoForGroup(group);
+    if (timeoutNano > 0) {
+      task = task.withTimeout(timeoutNano, TimeUnit.NANOSECONDS);
+    }
+    if (splitDepth <= 0 || keys.size() < 2) {
+      return task;
+    }
+    return task.recoverWith("split", e -> {
+      final Set<K> left = new LinkedHashSet<>();
+      final Set<K> right = new LinkedHashSet<>();
+      for (K key : keys) {
+        (left.size() < keys.size() / 2 ? left : right).add(key);
+      }
+      return Task.par(splitTaskForBatch(group, left, splitDepth - 1),
+          splitTaskForBatch(group, right, splitDepth - 1)).map("merge", (leftResult, rightResult) -> {
+            final Map<K, Try<T>> result = new HashMap<>(leftResult);
+            result.putAll(rightResult);
+            return result;
+          });
+    });
+  }
+
+  /**
+   * Returns task for a part of a split batch that fails keys of the part instead of failing
+   * so that failure of one part does not fail keys of the other part.
+   */
+  private Task<Map<K, Try<T>>> splitTaskForBatch(final G group, final Set<K> keys, final int splitDepth) {
+    return splittingTaskForBatch(group, keys, splitDepth).recover("failKeys", e -> {
+      final Map<K, Try<T>> result = new HashMap<>();
+      keys.forEach(key -> result.put(key, Failure.of(e)));
+      return result;
+    });
+  }
+
+  /**
+   * Overriding this method allows retrying batches that failed or timed out. Keys of a failed batch are split
+   * into two halves that are retried as separate batches, which are split again if they fail, until batches
+   * consist of a single key or given depth of splitting is reached. This isolates keys that cause a batch to
+   * fail and lets smaller batches succeed when large batches time out.
+   * Default value is 0 which means that failed batches are not retried.
+   * @param group group
+   * @return maximum number of times keys of a batch are split
+   */
+  public int maxSplitDepthForGroup(G group) {
+    return 0;
+  }
+
+  /**
+   * Overriding this method allows specifying timeout of a task that executes a batch of a given group.
+   * Timed out batches are treated as failed.
+   * Default value is 0 which means that there is no timeout.
+   * @param group group
+   * @return timeout in nanoseconds
+   * @see #maxSplitDepthForGroup(Object)
+   */
+  public long batchTimeoutNanoForGroup(G group) {
+    return 0;
+  }
+
   @Override
   final public String getBatchName(G group, Batch<K, T> batch) {
     return getBatchName(group, batch.keys());
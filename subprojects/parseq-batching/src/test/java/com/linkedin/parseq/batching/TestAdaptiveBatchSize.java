@@ -0,0 +1,81 @@
+package com.linkedin.parseq.batching;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.testng.annotations.Test;
+
+public class TestAdaptiveBatchSize {
+
+  private static final long TARGET_NANO = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private static void completeBatches(AdaptiveBatchSize<Integer> adaptive, int count, int maxBatchSize,
+      IntToLongFunction latency, boolean failed) {
+    for (int i = 0; i < count; i++) {
+      final int size = adaptive.batchSize(0, maxBatchSize);
+      adaptive.record(0, size, latency.applyAsLong(size), failed);
+    }
+  }
+
+  @Test
+  public void testInitialBatchSize() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 10);
+    assertEquals(adaptive.getBatchSize(0), 16);
+    assertEquals(adaptive.batchSize(0, 1024), 16);
+    assertEquals(adaptive.batchSize(0, 12), 12);
+  }
+
+  @Test
+  public void testGrowsWhileUnderTarget() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 1);
+    completeBatches(adaptive, AdaptiveBatchSize.MIN_SAMPLES, 1024, size -> TimeUnit.MILLISECONDS.toNanos(1), false);
+    assertEquals(adaptive.getBatchSize(0), 2);
+    completeBatches(adaptive, AdaptiveBatchSize.MIN_SAMPLES * 20, 1024, size -> TimeUnit.MILLISECONDS.toNanos(1), false);
+    assertEquals(adaptive.getBatchSize(0), 1024);
+  }
+
+  @Test
+  public void testShrinksWhenOverTarget() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 64);
+    completeBatches(adaptive, AdaptiveBatchSize.MIN_SAMPLES, 1024, size -> TARGET_NANO * 2, false);
+    assertEquals(adaptive.getBatchSize(0), 32);
+  }
+
+  @Test
+  public void testFailuresCountAsOverTarget() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 64);
+    completeBatches(adaptive, AdaptiveBatchSize.MIN_SAMPLES, 1024, size -> 1, true);
+    assertEquals(adaptive.getBatchSize(0), 32);
+  }
+
+  @Test
+  public void testConvergesToLargestSizeUnderTarget() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 1);
+    // fixed cost of 1ms and 0.1ms per key: throughput grows with size, sizes above 190 exceed the target
+    final IntToLongFunction latency = size -> TimeUnit.MICROSECONDS.toNanos(1000 + 100 * size);
+    completeBatches(adaptive, 5000, 1024, latency, false);
+
+    // size 256 is probed again periodically
+    int atBest = 0;
+    for (int i = 0; i < 1000; i++) {
+      completeBatches(adaptive, 1, 1024, latency, false);
+      final int size = adaptive.getBatchSize(0);
+      assertTrue(size == 128 || size == 256, "batch size: " + size);
+      if (size == 128) {
+        atBest++;
+      }
+    }
+    assertTrue(atBest > 800, "batches of size 128: " + atBest);
+    assertTrue(adaptive.getBatchSizeMetric().harvest(histogram -> histogram.getMaxValue()) >= 128);
+  }
+
+  @Test
+  public void testCappedByMaxBatchSize() {
+    AdaptiveBatchSize<Integer> adaptive = new AdaptiveBatchSize<>(20, TimeUnit.MILLISECONDS, 1);
+    completeBatches(adaptive, AdaptiveBatchSize.MIN_SAMPLES * 20, 100, size -> 1, false);
+    assertEquals(adaptive.getBatchSize(0), 100);
+  }
+}
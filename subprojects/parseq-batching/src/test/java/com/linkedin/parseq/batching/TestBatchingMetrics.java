@@ -0,0 +1,89 @@
+package com.linkedin.parseq.batching;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+
+public class TestBatchingMetrics extends BaseEngineTest {
+
+  private final BatchingSupport _batchingSupport = new BatchingSupport();
+  private final Strategy _strategy = new Strategy();
+
+  private class Strategy extends SimpleBatchingStrategy<Integer, String> {
+    @Override
+    public void executeBatch(Batch<Integer, String> batch) {
+      batch.foreach((k, p) -> p.done(String.valueOf(k)));
+    }
+  }
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setPlanDeactivationListener(_batchingSupport);
+    _batchingSupport.registerStrategy(_strategy);
+  }
+
+  @Test
+  public void testConcurrentRecordingAndHarvest() throws InterruptedException {
+    final BatchSizeMetric metric = new BatchSizeMetric();
+    final AtomicBoolean harvesting = new AtomicBoolean(true);
+    final long[] harvested = new long[1];
+    final Thread harvester = new Thread(() -> {
+      while (harvesting.get()) {
+        harvested[0] += metric.harvest(histogram -> histogram.getTotalCount());
+      }
+    });
+    harvester.start();
+
+    final List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final Thread writer = new Thread(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          metric.record(j % 100 + 1);
+        }
+      });
+      writers.add(writer);
+      writer.start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    harvesting.set(false);
+    harvester.join();
+
+    final long remaining = metric.harvest(histogram -> histogram.getTotalCount());
+    assertEquals(harvested[0] + remaining, 40_000);
+  }
+
+  @Test
+  public void testDeduplication() {
+    _strategy.getBatchDeduplicationMetric().harvest((keys, requests) -> null);
+
+    Task<String> task = Task.par(_strategy.batchable(0), _strategy.batchable(0), _strategy.batchable(1))
+        .map("concat", (s0, s1, s2) -> s0 + s1 + s2);
+
+    assertEquals(runAndWait("TestBatchingMetrics.testDeduplication", task), "001");
+    assertEquals(_strategy.getBatchDeduplicationMetric().harvest((keys, requests) -> keys + "/" + requests), "2/3");
+  }
+
+  @Test
+  public void testGroupWaitTime() {
+    Task<String> task = Task.par(delayedValue("0", 10, TimeUnit.MILLISECONDS), _strategy.batchable(1))
+        .map("concat", (s0, s1) -> s0 + s1);
+
+    assertEquals(runAndWait("TestBatchingMetrics.testGroupWaitTime", task), "01");
+    assertEquals(_strategy.getGroupWaitTimeMetrics().size(), 1);
+    final BatchAggregationTimeMetric metric = _strategy.getGroupWaitTimeMetrics().values().iterator().next();
+    final long count = metric.harvest(histogram -> histogram.getTotalCount());
+    assertTrue(count >= 1);
+  }
+}
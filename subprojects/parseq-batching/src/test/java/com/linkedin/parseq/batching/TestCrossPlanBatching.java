@@ -0,0 +1,189 @@
+package com.linkedin.parseq.batching;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Success;
+import com.linkedin.parseq.function.Try;
+import com.linkedin.parseq.trace.Trace;
+import com.linkedin.parseq.trace.TraceRelationship;
+
+public class TestCrossPlanBatching extends BaseEngineTest {
+
+  private final BatchingSupport _batchingSupport = new BatchingSupport();
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setPlanDeactivationListener(_batchingSupport);
+  }
+
+  private static class CrossPlanStrategy extends BatchingStrategy<Integer, Integer, String> {
+
+    private final List<Batch<Integer, String>> _executedBatches = new CopyOnWriteArrayList<>();
+    private final long _maxWaitNano;
+    private final int _maxBatchSize;
+
+    private CrossPlanStrategy(long maxWait, TimeUnit unit, int maxBatchSize) {
+      _maxWaitNano = unit.toNanos(maxWait);
+      _maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void executeBatch(Integer group, Batch<Integer, String> batch) {
+      _executedBatches.add(batch);
+      batch.foreach((key, promise) -> promise.done(String.valueOf(key)));
+    }
+
+    @Override
+    public Integer classify(Integer key) {
+      return 0;
+    }
+
+    @Override
+    public long crossPlanMaxWaitNanoForGroup(Integer group) {
+      return _maxWaitNano;
+    }
+
+    @Override
+    public int maxBatchSizeForGroup(Integer group) {
+      return _maxBatchSize;
+    }
+  }
+
+  private List<Task<String>> runPlans(CrossPlanStrategy strategy, int count) {
+    final List<Task<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Task<String> task = strategy.batchable(i);
+      tasks.add(task);
+      getEngine().run(task);
+    }
+    return tasks;
+  }
+
+  @Test
+  public void testKeysOfManyPlansAreBatched() throws InterruptedException {
+    CrossPlanStrategy strategy = new CrossPlanStrategy(100, TimeUnit.MILLISECONDS, 1024);
+    _batchingSupport.registerStrategy(strategy);
+
+    List<Task<String>> tasks = runPlans(strategy, 10);
+    for (int i = 0; i < tasks.size(); i++) {
+      assertTrue(tasks.get(i).await(5, TimeUnit.SECONDS));
+      assertEquals(tasks.get(i).get(), String.valueOf(i));
+    }
+    assertTrue(strategy._executedBatches.size() < 10);
+    assertEquals(strategy._executedBatches.stream().mapToInt(Batch::keySize).sum(), 10);
+    assertTrue(strategy.getCrossPlanBatchPlansMetric().harvest(histogram -> histogram.getMaxValue()) > 1);
+  }
+
+  @Test
+  public void testFlushWhenFull() throws InterruptedException {
+    CrossPlanStrategy strategy = new CrossPlanStrategy(1, TimeUnit.HOURS, 3);
+    _batchingSupport.registerStrategy(strategy);
+
+    List<Task<String>> tasks = runPlans(strategy, 3);
+    for (Task<String> task : tasks) {
+      assertTrue(task.await(5, TimeUnit.SECONDS));
+    }
+    assertEquals(strategy._executedBatches.size(), 1);
+    assertEquals(strategy._executedBatches.get(0).keySize(), 3);
+  }
+
+  @Test
+  public void testFlushAfterMaxWait() throws InterruptedException {
+    CrossPlanStrategy strategy = new CrossPlanStrategy(20, TimeUnit.MILLISECONDS, 1024);
+    _batchingSupport.registerStrategy(strategy);
+
+    final long start = System.nanoTime();
+    Task<String> task = runPlans(strategy, 1).get(0);
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    assertEquals(task.get(), "0");
+  }
+
+  @Test
+  public void testFlushWhenIdle() throws InterruptedException {
+    CrossPlanStrategy strategy = new CrossPlanStrategy(1, TimeUnit.HOURS, 1024);
+    _batchingSupport.registerStrategy(strategy);
+
+    Task<String> task = runPlans(strategy, 1).get(0);
+    assertFalse(task.await(50, TimeUnit.MILLISECONDS));
+    _batchingSupport.flushCrossPlanBatches();
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    assertEquals(task.get(), "0");
+  }
+
+  @Test
+  public void testTraceOfEveryPlan() throws InterruptedException {
+    CrossPlanStrategy strategy = new CrossPlanStrategy(1, TimeUnit.HOURS, 2);
+    _batchingSupport.registerStrategy(strategy);
+
+    List<Task<String>> tasks = runPlans(strategy, 2);
+    for (Task<String> task : tasks) {
+      assertTrue(task.await(5, TimeUnit.SECONDS));
+      final Trace trace = task.getTrace();
+      boolean hasBatchRelationship = false;
+      for (TraceRelationship relationship : trace.getRelationships()) {
+        if (relationship.getFrom().equals(task.getId())
+            && trace.getTraceMap().get(relationship.getTo()).getName().startsWith("batch(")) {
+          hasBatchRelationship = true;
+        }
+      }
+      assertTrue(hasBatchRelationship);
+    }
+  }
+
+  @Test
+  public void testTimeoutOfContributingPlanDoesNotCancelBatch() throws InterruptedException {
+    TaskBatchingStrategy<Integer, Integer, String> strategy = new TaskBatchingStrategy<Integer, Integer, String>() {
+      @Override
+      public Task<Map<Integer, Try<String>>> taskForBatch(Integer group, Set<Integer> keys) {
+        return delayedValue(keys.stream().collect(Collectors.toMap(key -> key, key -> Success.of(String.valueOf(key)))),
+            300, TimeUnit.MILLISECONDS);
+      }
+
+      @Override
+      public Integer classify(Integer key) {
+        return 0;
+      }
+
+      @Override
+      public long crossPlanMaxWaitNanoForGroup(Integer group) {
+        return TimeUnit.HOURS.toNanos(1);
+      }
+
+      @Override
+      public int maxBatchSizeForGroup(Integer group) {
+        return 2;
+      }
+    };
+    _batchingSupport.registerStrategy(strategy);
+
+    final Task<String> first = strategy.batchable(1);
+    getEngine().run(first);
+    // key of the second plan fills the batch and the second plan times out while the batch is running
+    final Task<String> second = delayedValue(2, 20, TimeUnit.MILLISECONDS)
+        .flatMap(strategy::batchable)
+        .withTimeout(100, TimeUnit.MILLISECONDS);
+    getEngine().run(second);
+
+    assertTrue(second.await(5, TimeUnit.SECONDS));
+    assertTrue(second.getError() instanceof TimeoutException);
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    assertEquals(first.get(), "1");
+  }
+}
@@ -0,0 +1,222 @@
+package com.linkedin.parseq.batching;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+
+public class TestInFlightBatches extends BaseEngineTest {
+
+  private final BatchingSupport _batchingSupport = new BatchingSupport();
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setPlanDeactivationListener(_batchingSupport);
+  }
+
+  private static class LimitedStrategy extends BatchingStrategy<Integer, Integer, String> {
+
+    private final List<Batch<Integer, String>> _executedBatches = new CopyOnWriteArrayList<>();
+    private final int _maxBatchSize;
+    private final int _maxInFlight;
+
+    private LimitedStrategy(int maxBatchSize, int maxInFlight) {
+      _maxBatchSize = maxBatchSize;
+      _maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void executeBatch(Integer group, Batch<Integer, String> batch) {
+      _executedBatches.add(batch);
+    }
+
+    @Override
+    public Integer classify(Integer key) {
+      return 0;
+    }
+
+    @Override
+    public int maxBatchSizeForGroup(Integer group) {
+      return _maxBatchSize;
+    }
+
+    @Override
+    public int maxInFlightBatchesForGroup(Integer group) {
+      return _maxInFlight;
+    }
+
+    void complete(Batch<Integer, String> batch) {
+      batch.foreach((key, promise) -> promise.done(String.valueOf(key)));
+    }
+  }
+
+  private static void waitForBatches(LimitedStrategy strategy, int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (strategy._executedBatches.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(strategy._executedBatches.size(), count);
+  }
+
+  private static void waitForQueuedBatches(LimitedStrategy strategy, int count) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (strategy.getQueuedBatchCount(0) < count && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(strategy.getQueuedBatchCount(0), count);
+  }
+
+  @Test
+  public void testMaxInFlight() throws InterruptedException {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    LimitedStrategy strategy = new LimitedStrategy(2, 2) {
+      @Override
+      public void executeBatch(Integer group, Batch<Integer, String> batch) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        getScheduler().schedule(() -> {
+          inFlight.decrementAndGet();
+          complete(batch);
+        }, 1, TimeUnit.MILLISECONDS);
+      }
+    };
+    _batchingSupport.registerStrategy(strategy);
+
+    final List<Task<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      tasks.add(strategy.batchable(i));
+    }
+    final List<String> result = runAndWait("TestInFlightBatches.testMaxInFlight", Task.par(tasks));
+    for (int i = 0; i < 20; i++) {
+      assertEquals(result.get(i), String.valueOf(i));
+    }
+    assertEquals(maxInFlight.get(), 2);
+    assertEquals(strategy.getQueuedBatchCount(0), 0);
+  }
+
+  @Test
+  public void testQueuedBatchesStartInOrder() throws InterruptedException {
+    LimitedStrategy strategy = new LimitedStrategy(1, 1);
+    _batchingSupport.registerStrategy(strategy);
+
+    final List<Task<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final Task<String> task = strategy.batchable(i);
+      tasks.add(task);
+      getEngine().run(task);
+    }
+    waitForBatches(strategy, 1);
+    waitForQueuedBatches(strategy, 2);
+
+    for (int i = 0; i < 3; i++) {
+      waitForBatches(strategy, i + 1);
+      final Batch<Integer, String> batch = strategy._executedBatches.get(i);
+      assertEquals(batch.keySize(), 1);
+      strategy.complete(batch);
+    }
+    for (int i = 0; i < 3; i++) {
+      assertTrue(tasks.get(i).await(5, TimeUnit.SECONDS));
+      assertEquals(tasks.get(i).get(), String.valueOf(i));
+    }
+    assertEquals(strategy.getQueuedBatchCount(0), 0);
+  }
+
+  @Test
+  public void testKeysAreMergedIntoQueuedBatch() throws InterruptedException {
+    LimitedStrategy strategy = new LimitedStrategy(10, 1);
+    _batchingSupport.registerStrategy(strategy);
+
+    final Task<String> first = strategy.batchable(0);
+    getEngine().run(first);
+    waitForBatches(strategy, 1);
+
+    // key 2 is requested after the batch with key 1 has been queued
+    final Task<String> second = Task.par(strategy.batchable(1),
+        delayedValue(2, 20, TimeUnit.MILLISECONDS).flatMap(strategy::batchable))
+        .map((one, two) -> one + two);
+    getEngine().run(second);
+    assertFalse(second.await(100, TimeUnit.MILLISECONDS));
+    assertEquals(strategy.getQueuedBatchCount(0), 1);
+    assertEquals(strategy._executedBatches.size(), 1);
+
+    strategy.complete(strategy._executedBatches.get(0));
+    waitForBatches(strategy, 2);
+    final Batch<Integer, String> merged = strategy._executedBatches.get(1);
+    assertEquals(merged.keySize(), 2);
+    strategy.complete(merged);
+
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    assertTrue(second.await(5, TimeUnit.SECONDS));
+    assertEquals(second.get(), "12");
+  }
+
+  @Test
+  public void testFullBatchesAreQueuedWithinPlan() throws InterruptedException {
+    LimitedStrategy strategy = new LimitedStrategy(2, 1);
+    _batchingSupport.registerStrategy(strategy);
+
+    final List<Task<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      tasks.add(strategy.batchable(i));
+    }
+    final Task<List<String>> par = Task.par(tasks);
+    getEngine().run(par);
+    waitForBatches(strategy, 1);
+    waitForQueuedBatches(strategy, 2);
+
+    for (int i = 0; i < 3; i++) {
+      waitForBatches(strategy, i + 1);
+      strategy.complete(strategy._executedBatches.get(i));
+    }
+    assertTrue(par.await(5, TimeUnit.SECONDS));
+    assertEquals(par.get().size(), 6);
+  }
+
+  @Test
+  public void testQueuedSharedBatchRunsAfterItsPlanTimesOut() throws InterruptedException {
+    LimitedStrategy strategy = new LimitedStrategy(2, 1) {
+      @Override
+      public long crossPlanMaxWaitNanoForGroup(Integer group) {
+        return TimeUnit.HOURS.toNanos(1);
+      }
+    };
+    _batchingSupport.registerStrategy(strategy);
+
+    // first shared batch holds the only permit
+    final Task<?> first = Task.par(strategy.batchable(0), strategy.batchable(1));
+    getEngine().run(first);
+    waitForBatches(strategy, 1);
+
+    // key of the third plan fills the second shared batch which is queued and the third plan times out
+    final Task<String> second = strategy.batchable(2);
+    getEngine().run(second);
+    final Task<String> third = delayedValue(3, 20, TimeUnit.MILLISECONDS)
+        .flatMap(strategy::batchable)
+        .withTimeout(100, TimeUnit.MILLISECONDS);
+    getEngine().run(third);
+    waitForQueuedBatches(strategy, 1);
+    assertTrue(third.await(5, TimeUnit.SECONDS));
+    assertTrue(third.getError() instanceof TimeoutException);
+
+    // queued batch is run in the plan of the second task
+    strategy.complete(strategy._executedBatches.get(0));
+    waitForBatches(strategy, 2);
+    assertEquals(strategy._executedBatches.get(1).keySize(), 2);
+    strategy.complete(strategy._executedBatches.get(1));
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    assertTrue(second.await(5, TimeUnit.SECONDS));
+    assertEquals(second.get(), "2");
+  }
+}
@@ -325,4 +325,85 @@ public class TestTaskBatchingStrategy extends BaseEngineTest {
     assertEquals(strategy.getExecutedSingletons().size(), 1);
   }
 
+  @Test
+  public void testFailedBatchIsSplit() {
+    RecordingTaskStrategy<Integer, Integer, String> strategy =
+        new RecordingTaskStrategy<Integer, Integer, String>(key -> Success.of(String.valueOf(key)), key -> 0) {
+          @Override
+          public Task<Map<Integer, Try<String>>> taskForBatch(Integer group, Set<Integer> keys) {
+            if (keys.contains(3)) {
+              return Task.failure(new IllegalArgumentException("poison"));
+            }
+            return super.taskForBatch(group, keys);
+          }
+
+          @Override
+          public int maxSplitDepthForGroup(Integer group) {
+            return 3;
+          }
+        };
+
+    _batchingSupport.registerStrategy(strategy);
+
+    Task<String> task = Task.par(strategy.batchable(0), strategy.batchable(1), strategy.batchable(2),
+        strategy.batchable(3).recover(e -> e.getMessage()))
+        .map("concat", (s0, s1, s2, s3) -> s0 + s1 + s2 + s3);
+
+    String result = runAndWait("TestTaskBatchingStrategy.testFailedBatchIsSplit", task);
+
+    assertEquals(result, "012poison");
+  }
+
+  @Test
+  public void testTimedOutBatchIsSplit() {
+    RecordingTaskStrategy<Integer, Integer, String> strategy =
+        new RecordingTaskStrategy<Integer, Integer, String>(key -> Success.of(String.valueOf(key)), key -> 0) {
+          @Override
+          public Task<Map<Integer, Try<String>>> taskForBatch(Integer group, Set<Integer> keys) {
+            final Task<Map<Integer, Try<String>>> task = super.taskForBatch(group, keys);
+            return keys.size() > 1 ? delayedValue("delay", 1, TimeUnit.SECONDS).flatMap(x -> task) : task;
+          }
+
+          @Override
+          public int maxSplitDepthForGroup(Integer group) {
+            return 1;
+          }
+
+          @Override
+          public long batchTimeoutNanoForGroup(Integer group) {
+            return TimeUnit.MILLISECONDS.toNanos(50);
+          }
+        };
+
+    _batchingSupport.registerStrategy(strategy);
+
+    Task<String> task = Task.par(strategy.batchable(0), strategy.batchable(1))
+        .map("concat", (s0, s1) -> s0 + s1);
+
+    String result = runAndWait("TestTaskBatchingStrategy.testTimedOutBatchIsSplit", task);
+
+    assertEquals(result, "01");
+    assertEquals(strategy.getExecutedSingletons().size(), 2);
+  }
+
+  @Test
+  public void testAdaptiveBatchSize() {
+    RecordingTaskStrategy<Integer, Integer, String> strategy =
+        new RecordingTaskStrategy<Integer, Integer, String>(key -> Success.of(String.valueOf(key)), key -> 0);
+    strategy.setAdaptiveBatchSize(new AdaptiveBatchSize<>(1, TimeUnit.SECONDS, 2));
+
+    _batchingSupport.registerStrategy(strategy);
+
+    Task<String> task = Task.par(strategy.batchable(0), strategy.batchable(1), strategy.batchable(2),
+        strategy.batchable(3))
+        .map("concat", (s0, s1, s2, s3) -> s0 + s1 + s2 + s3);
+
+    String result = runAndWait("TestTaskBatchingStrategy.testAdaptiveBatchSize", task);
+
+    assertEquals(result, "0123");
+    assertEquals(strategy.getExecutedBatches().size(), 2);
+    long recorded = strategy.getAdaptiveBatchSize().getBatchSizeMetric().harvest(histogram -> histogram.getTotalCount());
+    assertEquals(recorded, 2);
+  }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * Measures cost of scheduling a timer and cancelling it before it expires, which is what
+ * {@code Task.withTimeout()} does for tasks that complete in time. Every operation schedules
+ * {@code timers} timers, so that they are pending at the same time, and then cancels all of them.
+ * Timers are scheduled through {@link IndirectDelayedExecutor} when engine would do so.
+ */
+@State(Scope.Thread)
+public class DelayedExecutorBenchmark {
+
+  private static final Runnable NOOP = () -> { };
+  private static final Exception REASON = new Exception();
+
+  @Param({"ScheduledThreadPoolExecutor", "HashedWheelDelayedExecutor"})
+  public String executor;
+
+  @Param({"1", "1024"})
+  public int timers;
+
+  private ScheduledThreadPoolExecutor _scheduler;
+  private HashedWheelDelayedExecutor _wheel;
+  private DelayedExecutor _delayedExecutor;
+  private Cancellable[] _cancellables;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    switch (executor) {
+      case "ScheduledThreadPoolExecutor":
+        _scheduler = new ScheduledThreadPoolExecutor(1);
+        _scheduler.setRemoveOnCancelPolicy(true);
+        _delayedExecutor = new IndirectDelayedExecutor(new DelayedExecutorAdapter(_scheduler));
+        break;
+      case "HashedWheelDelayedExecutor":
+        _wheel = new HashedWheelDelayedExecutor();
+        _delayedExecutor = _wheel;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown executor: " + executor);
+    }
+    _cancellables = new Cancellable[timers];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (_scheduler != null) {
+      _scheduler.shutdownNow();
+    }
+    if (_wheel != null) {
+      _wheel.shutdown();
+    }
+  }
+
+  @Benchmark
+  public int scheduleAndCancel() {
+    int cancelled = 0;
+    for (int i = 0; i < timers; i++) {
+      _cancellables[i] = _delayedExecutor.schedule(1, TimeUnit.SECONDS, NOOP);
+    }
+    for (int i = 0; i < timers; i++) {
+      if (_cancellables[i].cancel(REASON)) {
+        cancelled++;
+      }
+      _cancellables[i] = null;
+    }
+    return cancelled;
+  }
+}
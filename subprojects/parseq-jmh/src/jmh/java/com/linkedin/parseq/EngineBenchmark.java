@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+
+/**
+ * Measures cost of starting and completing a trivial plan on an {@link Engine} shared
+ * by multiple threads, which is dominated by engine level plan accounting.
+ */
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+  @Param({"2147483647", "1024"})
+  public int maxConcurrentPlans;
+
+  private ScheduledExecutorService _scheduler;
+  private Engine _engine;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    _scheduler = Executors.newSingleThreadScheduledExecutor();
+    _engine = new EngineBuilder()
+        .setTaskExecutor(Runnable::run)
+        .setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.MAX_CONCURRENT_PLANS, maxConcurrentPlans)
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    _engine.shutdown();
+    _engine.awaitTermination(1, TimeUnit.SECONDS);
+    _scheduler.shutdownNow();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Integer runPlan() {
+    return run();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer runPlanContended() {
+    return run();
+  }
+
+  private Integer run() {
+    final Task<Integer> task = Task.value("value", 1);
+    _engine.run(task);
+    return task.get();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * Engine shared by benchmarks that run whole plans. Tasks are executed on the calling
+ * thread so that a plan consisting of synchronous tasks completes before {@link #run(Task)}
+ * returns and measurements are not dominated by thread hand-offs.
+ */
+@State(Scope.Thread)
+public class EngineState {
+
+  /* fraction of plans that are traced, see Engine#TRACE_SAMPLING_RATE */
+  @Param({"1.0", "0.0"})
+  public double traceSamplingRate;
+
+  private ScheduledExecutorService _scheduler;
+  private Engine _engine;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    _scheduler = Executors.newSingleThreadScheduledExecutor();
+    _engine = new EngineBuilder()
+        .setTaskExecutor(Runnable::run)
+        .setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.TRACE_SAMPLING_RATE, traceSamplingRate)
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    _engine.shutdown();
+    _engine.awaitTermination(1, TimeUnit.SECONDS);
+    _scheduler.shutdownNow();
+  }
+
+  public Engine getEngine() {
+    return _engine;
+  }
+
+  /**
+   * Runs given task and returns its value. Task is expected to be completed
+   * by the time this method returns.
+   */
+  public <T> T run(final Task<T> task) {
+    _engine.run(task);
+    return task.get();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Measures cost of {@code Task.map} and {@code Task.flatMap} chains of increasing length.
+ * Chains of {@code map} are fused into a single {@link FusionTask}.
+ */
+@State(Scope.Thread)
+public class FusionTaskBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int length;
+
+  @Benchmark
+  public Integer map(final EngineState engine) {
+    Task<Integer> task = Task.value("value", 0);
+    for (int i = 0; i < length; i++) {
+      task = task.map("inc", x -> x + 1);
+    }
+    return engine.run(task);
+  }
+
+  @Benchmark
+  public Integer flatMap(final EngineState engine) {
+    Task<Integer> task = Task.value("value", 0);
+    for (int i = 0; i < length; i++) {
+      task = task.flatMap("inc", x -> Task.value("value", x + 1));
+    }
+    return engine.run(task);
+  }
+
+  @Benchmark
+  public Integer andThenRecover(final EngineState engine) {
+    Task<Integer> task = Task.value("value", 0);
+    for (int i = 0; i < length; i++) {
+      task = task.andThen("noop", x -> {}).recover("recover", e -> -1).map("inc", x -> x + 1);
+    }
+    return engine.run(task);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.linkedin.parseq.function.Tuple15;
+import com.linkedin.parseq.function.Tuple2;
+
+
+/**
+ * Measures cost of {@code Task.par} fan-out: {@link ParTaskImpl} created from a collection
+ * of tasks, {@link FastFailParTask} and the fixed arity {@code Tuple2Task}..{@code Tuple15Task}.
+ */
+public class ParTaskBenchmark {
+
+  @State(Scope.Thread)
+  public static class FanOut {
+    @Param({"2", "16", "256", "4096", "65536"})
+    public int size;
+  }
+
+  @Benchmark
+  public List<Integer> parIterable(final EngineState engine, final FanOut fanOut) {
+    final List<Task<Integer>> tasks = new ArrayList<>(fanOut.size);
+    for (int i = 0; i < fanOut.size; i++) {
+      tasks.add(Task.value("value", i));
+    }
+    return engine.run(Task.par(tasks));
+  }
+
+  @Benchmark
+  public List<Integer> parFastFail(final EngineState engine, final FanOut fanOut) {
+    final List<Task<Integer>> tasks = new ArrayList<>(fanOut.size);
+    for (int i = 0; i < fanOut.size; i++) {
+      tasks.add(Task.value("value", i));
+    }
+    return engine.run(Task.parFastFail(tasks));
+  }
+
+  @Benchmark
+  public Tuple2<Integer, Integer> tuple2(final EngineState engine) {
+    return engine.run(Task.par(value(0), value(1)));
+  }
+
+  @Benchmark
+  public Tuple15<Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer,
+      Integer, Integer, Integer, Integer> tuple15(final EngineState engine) {
+    return engine.run(Task.par(value(0), value(1), value(2), value(3), value(4), value(5), value(6), value(7),
+        value(8), value(9), value(10), value(11), value(12), value(13), value(14)));
+  }
+
+  private static Task<Integer> value(final int i) {
+    return Task.value("value", i);
+  }
+}
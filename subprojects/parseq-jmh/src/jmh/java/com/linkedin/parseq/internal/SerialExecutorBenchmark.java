@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.linkedin.parseq.Priority;
+import com.linkedin.parseq.internal.SerialExecutor.TaskQueue;
+
+
+/**
+ * Measures cost of {@link SerialExecutor#execute(PrioritizableRunnable)} with different
+ * {@link TaskQueue} implementations. Every operation creates a new executor (like every
+ * plan does) and submits a root runnable which in turn submits {@code runnables - 1}
+ * runnables, so that they are queued before being drained. Every fourth runnable has
+ * {@link Priority#MAX_PRIORITY}, which is what timeouts use.
+ */
+@State(Scope.Thread)
+public class SerialExecutorBenchmark {
+
+  @Param({"LIFOBiPriorityQueue", "ChunkedLIFOBiPriorityQueue", "FIFOPriorityQueue", "BucketedFIFOPriorityQueue"})
+  public String queue;
+
+  @Param({"1", "16", "256", "4096"})
+  public int runnables;
+
+  private int _executed;
+
+  @Benchmark
+  public int execute() {
+    final SerialExecutor executor = new SerialExecutor(Runnable::run, t -> {}, () -> {}, newQueue(), true, null);
+    executor.execute(() -> {
+      _executed++;
+      for (int i = 1; i < runnables; i++) {
+        executor.execute(new CountingRunnable(i % 4 == 0 ? Priority.MAX_PRIORITY : Priority.DEFAULT_PRIORITY));
+      }
+    });
+    return _executed;
+  }
+
+  private TaskQueue<PrioritizableRunnable> newQueue() {
+    switch (queue) {
+      case "LIFOBiPriorityQueue":
+        return new LIFOBiPriorityQueue<>();
+      case "ChunkedLIFOBiPriorityQueue":
+        return new ChunkedLIFOBiPriorityQueue<>();
+      case "FIFOPriorityQueue":
+        return new FIFOPriorityQueue<>();
+      case "BucketedFIFOPriorityQueue":
+        return new BucketedFIFOPriorityQueue<>();
+      default:
+        throw new IllegalArgumentException("Unknown queue: " + queue);
+    }
+  }
+
+  private class CountingRunnable implements PrioritizableRunnable {
+    private final int _priority;
+
+    private CountingRunnable(final int priority) {
+      _priority = priority;
+    }
+
+    @Override
+    public void run() {
+      _executed++;
+    }
+
+    @Override
+    public int getPriority() {
+      return _priority;
+    }
+  }
+}
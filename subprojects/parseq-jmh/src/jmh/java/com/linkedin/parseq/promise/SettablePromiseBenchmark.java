@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.promise;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Measures cost of creating and resolving {@link SettablePromiseImpl} with listeners
+ * registered before and after resolution.
+ */
+@State(Scope.Thread)
+public class SettablePromiseBenchmark {
+
+  @Param({"0", "1", "4"})
+  public int listeners;
+
+  private int _resolved;
+  private PromiseListener<Integer> _listener;
+
+  @Setup
+  public void setUp() {
+    _listener = promise -> _resolved += promise.get();
+  }
+
+  @Benchmark
+  public int addListenerThenDone() {
+    final SettablePromise<Integer> promise = Promises.settable();
+    for (int i = 0; i < listeners; i++) {
+      promise.addListener(_listener);
+    }
+    promise.done(1);
+    return _resolved;
+  }
+
+  @Benchmark
+  public int doneThenAddListener() {
+    final SettablePromise<Integer> promise = Promises.settable();
+    promise.done(1);
+    for (int i = 0; i < listeners; i++) {
+      promise.addListener(_listener);
+    }
+    return _resolved;
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.reactive;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.linkedin.parseq.EngineState;
+import com.linkedin.parseq.Task;
+
+
+/**
+ * Compares bridges of {@link ReactiveTasks} with bridging through {@link CompletableFuture}, the way
+ * {@code Mono.toFuture()} and {@code Mono.fromFuture()} are typically combined with
+ * {@link Task#fromCompletionStage(java.util.concurrent.Callable)}.
+ */
+@State(Scope.Thread)
+public class ReactiveTasksBenchmark {
+
+  private final Publisher<Integer> _publisher = new JustPublisher<>(1);
+
+  @Benchmark
+  public Integer fromPublisher(final EngineState engine) {
+    return engine.run(ReactiveTasks.fromPublisher("fromPublisher", _publisher).map("inc", x -> x + 1));
+  }
+
+  @Benchmark
+  public Integer fromPublisherViaCompletableFuture(final EngineState engine) {
+    return engine.run(Task.<Integer>fromCompletionStage("fromCompletionStage", () -> toFuture(_publisher))
+        .map("inc", x -> x + 1));
+  }
+
+  @Benchmark
+  public Integer toPublisher(final EngineState engine) {
+    final Task<Integer> task = Task.value("value", 1);
+    final ValueSubscriber<Integer> subscriber = new ValueSubscriber<>();
+    ReactiveTasks.toPublisher(engine.getEngine(), task).subscribe(subscriber);
+    return subscriber._value;
+  }
+
+  @Benchmark
+  public Integer toPublisherViaCompletableFuture(final EngineState engine) {
+    final Task<Integer> task = Task.value("value", 1);
+    final CompletableFuture<Integer> future = new CompletableFuture<>();
+    task.addListener(p -> {
+      if (p.isFailed()) {
+        future.completeExceptionally(p.getError());
+      } else {
+        future.complete(p.get());
+      }
+    });
+    final ValueSubscriber<Integer> subscriber = new ValueSubscriber<>();
+    new FuturePublisher<>(future).subscribe(subscriber);
+    engine.run(task);
+    return subscriber._value;
+  }
+
+  private static <T> CompletableFuture<T> toFuture(final Publisher<T> publisher) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    publisher.subscribe(new Subscriber<T>() {
+      @Override
+      public void onSubscribe(final Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(final T element) {
+        future.complete(element);
+      }
+
+      @Override
+      public void onError(final Throwable error) {
+        future.completeExceptionally(error);
+      }
+
+      @Override
+      public void onComplete() {
+        future.complete(null);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Publishes a single element synchronously when it is requested.
+   */
+  private static class JustPublisher<T> implements Publisher<T> {
+    private final T _value;
+
+    private JustPublisher(final T value) {
+      _value = value;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+      subscriber.onSubscribe(new Subscription() {
+        private boolean _done;
+
+        @Override
+        public void request(final long n) {
+          if (!_done) {
+            _done = true;
+            subscriber.onNext(_value);
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          _done = true;
+        }
+      });
+    }
+  }
+
+  /**
+   * Publishes the value of a future when it is requested.
+   */
+  private static class FuturePublisher<T> implements Publisher<T> {
+    private final CompletableFuture<T> _future;
+
+    private FuturePublisher(final CompletableFuture<T> future) {
+      _future = future;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(final long n) {
+          _future.whenComplete((value, error) -> {
+            if (error != null) {
+              subscriber.onError(error);
+            } else {
+              subscriber.onNext(value);
+              subscriber.onComplete();
+            }
+          });
+        }
+
+        @Override
+        public void cancel() {
+          _future.cancel(false);
+        }
+      });
+    }
+  }
+
+  private static class ValueSubscriber<T> implements Subscriber<T> {
+    private T _value;
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      subscription.request(1);
+    }
+
+    @Override
+    public void onNext(final T element) {
+      _value = element;
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.trace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Measures cost of {@link TraceBuilder#build()} for a trace with a parent task and
+ * {@code tasks} children, where every child is a successor of the previous one.
+ */
+@State(Scope.Thread)
+public class TraceBuilderBenchmark {
+
+  @Param({"16", "256", "4096"})
+  public int tasks;
+
+  private TraceBuilder _traceBuilder;
+
+  @Setup
+  public void setUp() {
+    _traceBuilder = new TraceBuilder(Integer.MAX_VALUE, "benchmark", 0L);
+    final ShallowTraceBuilder parent = shallowTraceBuilder(0);
+    _traceBuilder.addShallowTrace(parent);
+    ShallowTraceBuilder predecessor = null;
+    for (int i = 1; i <= tasks; i++) {
+      final ShallowTraceBuilder child = shallowTraceBuilder(i);
+      _traceBuilder.addShallowTrace(child);
+      _traceBuilder.addRelationship(Relationship.PARENT_OF, parent, child);
+      if (predecessor != null) {
+        _traceBuilder.addRelationship(Relationship.SUCCESSOR_OF, child, predecessor);
+      }
+      predecessor = child;
+    }
+  }
+
+  @Benchmark
+  public Trace build() {
+    return _traceBuilder.build();
+  }
+
+  private static ShallowTraceBuilder shallowTraceBuilder(final long id) {
+    return new ShallowTraceBuilder(id).setName("task" + id).setValue(Long.toString(id))
+        .setResultType(ResultType.SUCCESS);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.reactive;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.linkedin.parseq.Engine;
+import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.PromiseListener;
+
+
+/**
+ * {@link Publisher} of the value of a {@link Promise}. A {@code null} value is published as an empty stream.
+ * <p>
+ * If the publisher has been created with an engine then the promise is a task which is run when the first element
+ * is requested and cancelled when the subscription is cancelled. Such a publisher accepts only one subscriber.
+ * Otherwise any number of subscribers is accepted and cancellation of a subscription does not affect the promise.
+ * <p>
+ * Signals are delivered by the thread that resolves the promise, e.g. the plan's thread, or by the thread that
+ * requests the element if the promise is already resolved.
+ */
+class PromisePublisher<T> implements Publisher<T> {
+
+  private static final int REQUESTED = 1;
+  private static final int RESOLVED = 2;
+  private static final int TERMINATED = 4;
+
+  private static final Subscription NOOP = new Subscription() {
+    @Override
+    public void request(final long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  };
+
+  private final Promise<T> _promise;
+  private final Engine _engine;
+  private final AtomicBoolean _subscribed = new AtomicBoolean();
+
+  @SuppressWarnings("unchecked")
+  PromisePublisher(final Promise<? extends T> promise, final Engine engine) {
+    _promise = (Promise<T>) promise;
+    _engine = engine;
+  }
+
+  @Override
+  public void subscribe(final Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (_engine != null && !_subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(NOOP);
+      subscriber.onError(new IllegalStateException("Publisher of a task accepts only one subscriber"));
+      return;
+    }
+    final PromiseSubscription subscription = new PromiseSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    _promise.addListener(subscription);
+  }
+
+  private class PromiseSubscription implements Subscription, PromiseListener<T> {
+    private final Subscriber<? super T> _subscriber;
+    private final AtomicInteger _state = new AtomicInteger();
+
+    private PromiseSubscription(final Subscriber<? super T> subscriber) {
+      _subscriber = subscriber;
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        if (terminate()) {
+          cancelTask();
+          _subscriber.onError(new IllegalArgumentException("Number of requested elements must be positive, but is: " + n));
+        }
+        return;
+      }
+      final int state = _state.getAndUpdate(s -> s | REQUESTED);
+      if ((state & REQUESTED) != 0) {
+        return;
+      }
+      if ((state & RESOLVED) != 0) {
+        emit();
+      } else if (_engine != null && !_promise.isDone()) {
+        try {
+          _engine.run((Task<?>) _promise);
+        } catch (Throwable t) {
+          if (terminate()) {
+            _subscriber.onError(t);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void cancel() {
+      if (terminate()) {
+        cancelTask();
+      }
+    }
+
+    @Override
+    public void onResolved(final Promise<T> resolvedPromise) {
+      final int state = _state.getAndUpdate(s -> s | RESOLVED);
+      if ((state & REQUESTED) != 0) {
+        emit();
+      }
+    }
+
+    private void emit() {
+      if (!terminate()) {
+        return;
+      }
+      if (_promise.isFailed()) {
+        _subscriber.onError(_promise.getError());
+      } else {
+        final T value = _promise.get();
+        if (value != null) {
+          _subscriber.onNext(value);
+        }
+        _subscriber.onComplete();
+      }
+    }
+
+    private boolean terminate() {
+      return (_state.getAndUpdate(s -> s | TERMINATED) & TERMINATED) == 0;
+    }
+
+    private void cancelTask() {
+      if (_engine != null) {
+        ((Task<?>) _promise).cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+      }
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * Subscriber that resolves a promise with the result of a {@link org.reactivestreams.Publisher}.
+ * Signals are delivered sequentially by the publisher, {@link #cancel()} can be called concurrently.
+ *
+ * @param <T> type of elements
+ * @param <R> type of the result
+ */
+abstract class PromiseSubscriber<T, R> implements Subscriber<T> {
+
+  private static final Subscription CANCELLED = new Subscription() {
+    @Override
+    public void request(final long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  };
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<PromiseSubscriber, Subscription> SUBSCRIPTION =
+      AtomicReferenceFieldUpdater.newUpdater(PromiseSubscriber.class, Subscription.class, "_subscription");
+
+  private volatile Subscription _subscription;
+  private final SettablePromise<R> _promise = Promises.settable();
+  private boolean _done;
+
+  Promise<R> getPromise() {
+    return _promise;
+  }
+
+  /**
+   * @return number of elements requested when subscribed
+   */
+  abstract long initialRequest();
+
+  abstract void accept(T element);
+
+  /**
+   * @return result after publisher completed
+   */
+  abstract R result();
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    if (subscription == null) {
+      throw new NullPointerException("subscription");
+    }
+    if (SUBSCRIPTION.compareAndSet(this, null, subscription)) {
+      subscription.request(initialRequest());
+    } else {
+      // cancelled before subscribed or subscribed more than once
+      subscription.cancel();
+    }
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (element == null) {
+      throw new NullPointerException("element");
+    }
+    if (!_done) {
+      accept(element);
+    }
+  }
+
+  @Override
+  public void onError(final Throwable error) {
+    if (!_done) {
+      _done = true;
+      _subscription = CANCELLED;
+      _promise.fail(error);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (!_done) {
+      _done = true;
+      _subscription = CANCELLED;
+      _promise.done(result());
+    }
+  }
+
+  /**
+   * Resolves the promise before publisher completed and cancels the subscription.
+   */
+  void complete(final R value) {
+    if (!_done) {
+      _done = true;
+      cancel();
+      _promise.done(value);
+    }
+  }
+
+  /**
+   * Cancels the subscription, if the publisher has not subscribed yet then it will be cancelled on subscription.
+   */
+  void cancel() {
+    final Subscription subscription = SUBSCRIPTION.getAndSet(this, CANCELLED);
+    if (subscription != null) {
+      subscription.cancel();
+    }
+  }
+
+  /**
+   * Resolves the promise with the first element or {@code null} if publisher completed without elements.
+   */
+  static class First<T> extends PromiseSubscriber<T, T> {
+    @Override
+    long initialRequest() {
+      return 1;
+    }
+
+    @Override
+    void accept(final T element) {
+      complete(element);
+    }
+
+    @Override
+    T result() {
+      return null;
+    }
+  }
+
+  /**
+   * Resolves the promise with the list of all elements.
+   */
+  static class All<T> extends PromiseSubscriber<T, List<T>> {
+    private final List<T> _elements = new ArrayList<>();
+
+    @Override
+    long initialRequest() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    void accept(final T element) {
+      _elements.add(element);
+    }
+
+    @Override
+    List<T> result() {
+      return _elements;
+    }
+  }
+}
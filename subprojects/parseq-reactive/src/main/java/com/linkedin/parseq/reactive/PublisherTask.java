@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.reactive;
+
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+
+import com.linkedin.parseq.BaseTask;
+import com.linkedin.parseq.Context;
+import com.linkedin.parseq.promise.Promise;
+
+
+/**
+ * A {@link com.linkedin.parseq.Task} that subscribes to a {@link Publisher} when it is run.
+ * If the task completes before the publisher, e.g. because it is cancelled or timed out,
+ * the subscription is cancelled.
+ * <p>
+ * Subscriber resolves the task's promise directly from the publisher's signals, so if the publisher
+ * completes synchronously on the plan's thread the task completes before {@link #run(Context)} returns
+ * and no cancellation listener is registered.
+ */
+class PublisherTask<T, R> extends BaseTask<R> {
+
+  private final Publisher<? extends T> _publisher;
+  private final Supplier<PromiseSubscriber<T, R>> _subscriberFactory;
+
+  PublisherTask(final String name, final Publisher<? extends T> publisher,
+      final Supplier<PromiseSubscriber<T, R>> subscriberFactory) {
+    super(name);
+    _publisher = publisher;
+    _subscriberFactory = subscriberFactory;
+  }
+
+  @Override
+  protected Promise<? extends R> run(final Context context) throws Throwable {
+    final PromiseSubscriber<T, R> subscriber = _subscriberFactory.get();
+    _publisher.subscribe(subscriber);
+    final Promise<R> promise = subscriber.getPromise();
+    if (!promise.isDone()) {
+      // listener is invoked immediately if this task has been cancelled in the meantime
+      addListener(resolvedPromise -> subscriber.cancel());
+    }
+    return promise;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.reactive;
+
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+
+import com.linkedin.parseq.Engine;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.internal.ArgumentUtil;
+import com.linkedin.parseq.promise.Promise;
+
+
+/**
+ * Bridges between ParSeq {@link Task}s and <a href="http://www.reactive-streams.org/">Reactive Streams</a>
+ * {@link Publisher}s. Reactor's {@code Mono} and {@code Flux} are publishers, RxJava's {@code Single} can be
+ * converted with {@code Single.fromPublisher()} and {@code single.toFlowable()}.
+ * <p>
+ * Bridges deliver results directly, without intermediate futures and executors: a task created from a publisher
+ * is resolved on the thread on which the publisher signals its result, so a publisher that completes while it is being
+ * subscribed completes the task within the plan's thread. A publisher created from a task signals on the thread that
+ * completed the task.
+ * <p>
+ * Cancellation is propagated both ways: a task created from a publisher cancels its subscription if it completes
+ * before the publisher, e.g. because of a timeout, and cancelling the subscription of a publisher created from a task
+ * cancels the task.
+ */
+public final class ReactiveTasks {
+
+  private ReactiveTasks() {
+  }
+
+  /**
+   * Creates a task that subscribes to the given publisher when it is run and completes with its first element.
+   * The subscription is cancelled after the first element has been received. If the publisher completes
+   * without elements then the task completes with {@code null}.
+   *
+   * @param desc description of the task
+   * @param publisher publisher of at most one element, e.g. a {@code Mono}
+   * @return task that completes with the first element of the publisher
+   */
+  public static <T> Task<T> fromPublisher(final String desc, final Publisher<? extends T> publisher) {
+    ArgumentUtil.requireNotNull(publisher, "publisher");
+    return new PublisherTask<T, T>(desc, publisher, PromiseSubscriber.First::new);
+  }
+
+  /**
+   * Equivalent to {@code fromPublisher("fromPublisher", publisher)}.
+   * @see #fromPublisher(String, Publisher)
+   */
+  public static <T> Task<T> fromPublisher(final Publisher<? extends T> publisher) {
+    return fromPublisher("fromPublisher", publisher);
+  }
+
+  /**
+   * Creates a task that subscribes to the given publisher when it is run and completes with the list of all
+   * its elements when the publisher completes.
+   *
+   * @param desc description of the task
+   * @param publisher publisher of a finite number of elements, e.g. a {@code Flux}
+   * @return task that completes with all elements of the publisher
+   */
+  public static <T> Task<List<T>> collect(final String desc, final Publisher<? extends T> publisher) {
+    ArgumentUtil.requireNotNull(publisher, "publisher");
+    return new PublisherTask<T, List<T>>(desc, publisher, PromiseSubscriber.All::new);
+  }
+
+  /**
+   * Equivalent to {@code collect("collect", publisher)}.
+   * @see #collect(String, Publisher)
+   */
+  public static <T> Task<List<T>> collect(final Publisher<? extends T> publisher) {
+    return collect("collect", publisher);
+  }
+
+  /**
+   * Creates a publisher of the value of the given task. The task is run by the given engine when the element is
+   * requested and it is cancelled when the subscription is cancelled before the task completes. A {@code null} value
+   * is published as an empty stream. The publisher accepts only one subscriber and the task must not be run
+   * by other means.
+   *
+   * @param engine engine that runs the task
+   * @param task task to run
+   * @return publisher of at most one element
+   */
+  public static <T> Publisher<T> toPublisher(final Engine engine, final Task<? extends T> task) {
+    ArgumentUtil.requireNotNull(engine, "engine");
+    ArgumentUtil.requireNotNull(task, "task");
+    return new PromisePublisher<T>(task, engine);
+  }
+
+  /**
+   * Creates a publisher of the value of the given promise, e.g. of a task that is run by other means. A {@code null}
+   * value is published as an empty stream. The publisher accepts any number of subscribers, cancellation of
+   * a subscription does not affect the promise.
+   *
+   * @param promise promise
+   * @return publisher of at most one element
+   */
+  public static <T> Publisher<T> toPublisher(final Promise<? extends T> promise) {
+    ArgumentUtil.requireNotNull(promise, "promise");
+    return new PromisePublisher<T>(promise, null);
+  }
+}
@@ -0,0 +1,292 @@
+package com.linkedin.parseq.reactive;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+public class TestReactiveTasks extends BaseEngineTest {
+
+  /**
+   * Publishes elements synchronously as they are requested.
+   */
+  private static class IterablePublisher<T> implements Publisher<T> {
+    private final List<T> _elements;
+    private final AtomicBoolean _cancelled = new AtomicBoolean();
+
+    private IterablePublisher(final List<T> elements) {
+      _elements = elements;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+      subscriber.onSubscribe(new Subscription() {
+        private int _next = 0;
+        private boolean _done = false;
+
+        @Override
+        public void request(final long n) {
+          for (long i = 0; i < n && !_done; i++) {
+            if (_next < _elements.size()) {
+              subscriber.onNext(_elements.get(_next++));
+            } else {
+              break;
+            }
+          }
+          if (!_done && _next == _elements.size()) {
+            _done = true;
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          _done = true;
+          _cancelled.set(true);
+        }
+      });
+    }
+  }
+
+  /**
+   * Publishes a single element or error on the scheduler's thread.
+   */
+  private class DelayedPublisher<T> implements Publisher<T> {
+    private final T _value;
+    private final Throwable _error;
+    private final long _delayMillis;
+    private final CountDownLatch _cancelled = new CountDownLatch(1);
+
+    private DelayedPublisher(final T value, final Throwable error, final long delayMillis) {
+      _value = value;
+      _error = error;
+      _delayMillis = delayMillis;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+      final AtomicBoolean done = new AtomicBoolean();
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(final long n) {
+          getScheduler().schedule(() -> {
+            if (done.compareAndSet(false, true)) {
+              if (_error != null) {
+                subscriber.onError(_error);
+              } else {
+                subscriber.onNext(_value);
+                subscriber.onComplete();
+              }
+            }
+          }, _delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void cancel() {
+          if (done.compareAndSet(false, true)) {
+            _cancelled.countDown();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Records signals received from a publisher.
+   */
+  private static class RecordingSubscriber<T> implements Subscriber<T> {
+    private final long _initialRequest;
+    private final List<T> _elements = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<Throwable> _error = new AtomicReference<>();
+    private final CountDownLatch _terminated = new CountDownLatch(1);
+    private volatile Subscription _subscription;
+
+    private RecordingSubscriber(final long initialRequest) {
+      _initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+      _subscription = subscription;
+      if (_initialRequest > 0) {
+        subscription.request(_initialRequest);
+      }
+    }
+
+    @Override
+    public void onNext(final T element) {
+      _elements.add(element);
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+      _error.set(error);
+      _terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      _terminated.countDown();
+    }
+
+    private boolean await() throws InterruptedException {
+      return await(5000);
+    }
+
+    private boolean await(final long millis) throws InterruptedException {
+      return _terminated.await(millis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void testFromPublisherSynchronous() {
+    final IterablePublisher<String> publisher = new IterablePublisher<>(Arrays.asList("a", "b"));
+    final Task<String> task = ReactiveTasks.fromPublisher("first", publisher);
+
+    assertEquals(runAndWait("TestReactiveTasks.testFromPublisherSynchronous", task), "a");
+    assertTrue(publisher._cancelled.get());
+  }
+
+  @Test
+  public void testFromPublisherEmpty() {
+    final Task<String> task = ReactiveTasks.fromPublisher(new IterablePublisher<>(Collections.<String>emptyList()));
+    assertNull(runAndWait("TestReactiveTasks.testFromPublisherEmpty", task));
+  }
+
+  @Test
+  public void testFromPublisherAsynchronous() {
+    final Task<Integer> task = ReactiveTasks.fromPublisher(new DelayedPublisher<>(42, null, 10))
+        .map("plusOne", i -> i + 1);
+    assertEquals(runAndWait("TestReactiveTasks.testFromPublisherAsynchronous", task), (Integer) 43);
+  }
+
+  @Test
+  public void testFromPublisherError() {
+    final Task<Integer> task =
+        ReactiveTasks.fromPublisher(new DelayedPublisher<Integer>(null, new IllegalStateException("expected"), 10));
+    runAndWaitException("TestReactiveTasks.testFromPublisherError", task, IllegalStateException.class);
+    assertEquals(task.getError().getMessage(), "expected");
+  }
+
+  @Test
+  public void testFromPublisherTimeoutCancelsSubscription() throws InterruptedException {
+    final DelayedPublisher<Integer> publisher = new DelayedPublisher<>(42, null, 10000);
+    final Task<Integer> task = ReactiveTasks.fromPublisher(publisher).withTimeout(10, TimeUnit.MILLISECONDS);
+
+    runAndWaitException("TestReactiveTasks.testFromPublisherTimeoutCancelsSubscription", task, TimeoutException.class);
+    assertTrue(publisher._cancelled.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCollect() {
+    final Task<List<Integer>> task = ReactiveTasks.collect(new IterablePublisher<>(Arrays.asList(1, 2, 3)));
+    assertEquals(runAndWait("TestReactiveTasks.testCollect", task), Arrays.asList(1, 2, 3));
+  }
+
+  @Test
+  public void testToPublisher() throws InterruptedException {
+    final AtomicInteger runs = new AtomicInteger();
+    final Task<String> task = Task.callable("task", () -> {
+      runs.incrementAndGet();
+      return "value";
+    });
+    final Publisher<String> publisher = ReactiveTasks.toPublisher(getEngine(), task);
+
+    final RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0);
+    publisher.subscribe(subscriber);
+    // task is run only when element is requested
+    assertFalse(subscriber.await(0));
+    assertEquals(runs.get(), 0);
+
+    subscriber._subscription.request(1);
+    assertTrue(subscriber.await());
+    assertEquals(subscriber._elements, Collections.singletonList("value"));
+    assertNull(subscriber._error.get());
+    assertEquals(runs.get(), 1);
+
+    // only one subscriber is accepted
+    final RecordingSubscriber<String> second = new RecordingSubscriber<>(1);
+    publisher.subscribe(second);
+    assertTrue(second.await());
+    assertTrue(second._error.get() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void testToPublisherFailure() throws InterruptedException {
+    final Task<String> task = Task.failure(new IllegalStateException("expected"));
+    final RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1);
+    ReactiveTasks.toPublisher(getEngine(), task).subscribe(subscriber);
+
+    assertTrue(subscriber.await());
+    assertTrue(subscriber._elements.isEmpty());
+    assertEquals(subscriber._error.get().getMessage(), "expected");
+  }
+
+  @Test
+  public void testToPublisherCancelCancelsTask() throws InterruptedException {
+    final Task<String> task = Task.async("never", () -> Promises.<String>settable());
+    final RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1);
+    ReactiveTasks.toPublisher(getEngine(), task).subscribe(subscriber);
+
+    subscriber._subscription.cancel();
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    assertTrue(Exceptions.isCancellation(task.getError()));
+    assertFalse(subscriber.await(0));
+  }
+
+  @Test
+  public void testToPublisherInvalidRequest() throws InterruptedException {
+    final RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(0);
+    ReactiveTasks.toPublisher(getEngine(), Task.value("value")).subscribe(subscriber);
+
+    subscriber._subscription.request(0);
+    assertTrue(subscriber.await());
+    assertTrue(subscriber._error.get() instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void testPromiseToPublisher() throws InterruptedException {
+    final SettablePromise<String> promise = Promises.settable();
+    final Publisher<String> publisher = ReactiveTasks.toPublisher(promise);
+    final RecordingSubscriber<String> first = new RecordingSubscriber<>(1);
+    final RecordingSubscriber<String> second = new RecordingSubscriber<>(1);
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+
+    promise.done(null);
+    assertTrue(first.await());
+    assertTrue(second.await());
+    assertTrue(first._elements.isEmpty());
+    assertNull(first._error.get());
+  }
+
+  @Test
+  public void testRoundTrip() {
+    final Task<String> task = ReactiveTasks.fromPublisher(
+        ReactiveTasks.toPublisher(getEngine(), delayedValue("value", 10, TimeUnit.MILLISECONDS)));
+    assertEquals(runAndWait("TestReactiveTasks.testRoundTrip", task), "value");
+  }
+}
@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import com.linkedin.restli.client.Request;
 import com.linkedin.restli.client.config.RequestConfig;
 import com.linkedin.restli.client.config.RequestConfigProvider;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 
 class MultipleRequestConfigProvider implements RequestConfigProvider {
 
@@ -17,14 +18,17 @@ class MultipleRequestConfigProvider implements RequestConfigProvider {
   private final Map<String, ParSeqRestliClientConfig> _configs;
   private final ParSeqRestliClientConfigChooser _chooser;
   private final InboundRequestContextFinder _inboundRequestContextFinder;
+  private final RequestConfigCacheMetrics _cacheMetrics;
 
   private final ConcurrentHashMap<String, RequestConfigProvider> _providers = new ConcurrentHashMap<>();
 
   public MultipleRequestConfigProvider(Map<String, ParSeqRestliClientConfig> configs,
-      ParSeqRestliClientConfigChooser chooser, InboundRequestContextFinder inboundRequestContextFinder) {
+      ParSeqRestliClientConfigChooser chooser, InboundRequestContextFinder inboundRequestContextFinder,
+      RequestConfigCacheMetrics cacheMetrics) {
     _configs = configs;
     _chooser = chooser;
     _inboundRequestContextFinder = inboundRequestContextFinder;
+    _cacheMetrics = cacheMetrics;
     //initialize RequestConfigProviders at construction time to
     //avoid failures at runtime
     _configs.keySet().forEach(type -> {
@@ -34,7 +38,7 @@ class MultipleRequestConfigProvider implements RequestConfigProvider {
   }
 
   private RequestConfigProvider getProvider(String type) {
-    return RequestConfigProvider.build(_configs.get(type), _inboundRequestContextFinder);
+    return RequestConfigProvider.build(_configs.get(type), _inboundRequestContextFinder, _cacheMetrics);
   }
 
   @Override
@@ -16,6 +16,7 @@
 
 package com.linkedin.restli.client;
 
+import com.linkedin.parseq.Context;
 import com.linkedin.parseq.Exceptions;
 import com.linkedin.parseq.function.Failure;
 import com.linkedin.parseq.function.Success;
@@ -46,6 +47,7 @@ import com.linkedin.restli.client.config.RequestConfigOverrides;
 import com.linkedin.restli.client.config.RequestConfigProvider;
 import com.linkedin.restli.client.metrics.BatchingMetrics;
 import com.linkedin.restli.client.metrics.Metrics;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 import com.linkedin.restli.common.OperationNameGenerator;
 
 
@@ -74,16 +76,20 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
   private final Client _client;
   private final BatchingMetrics _batchingMetrics = new BatchingMetrics();
   private final RequestConfigProvider _requestConfigProvider;
+  private final RequestConfigCacheMetrics _requestConfigCacheMetrics;
   private final boolean _d2RequestTimeoutEnabled;
   private final Function<Request<?>, RequestContext> _requestContextProvider;
 
   ParSeqRestClient(final Client client, final RequestConfigProvider requestConfigProvider,
+      final RequestConfigCacheMetrics requestConfigCacheMetrics,
       Function<Request<?>, RequestContext> requestContextProvider, final boolean d2RequestTimeoutEnabled) {
     ArgumentUtil.requireNotNull(client, "client");
     ArgumentUtil.requireNotNull(requestConfigProvider, "requestConfigProvider");
+    ArgumentUtil.requireNotNull(requestConfigCacheMetrics, "requestConfigCacheMetrics");
     ArgumentUtil.requireNotNull(requestContextProvider, "requestContextProvider");
     _client = client;
     _requestConfigProvider = requestConfigProvider;
+    _requestConfigCacheMetrics = requestConfigCacheMetrics;
     _requestContextProvider = requestContextProvider;
     _d2RequestTimeoutEnabled = d2RequestTimeoutEnabled;
   }
@@ -97,7 +103,9 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
   public ParSeqRestClient(final Client client) {
     ArgumentUtil.requireNotNull(client, "client");
     _client = client;
-    _requestConfigProvider = RequestConfigProvider.build(new ParSeqRestliClientConfigBuilder().build(), () -> Optional.empty());
+    _requestConfigCacheMetrics = new RequestConfigCacheMetrics();
+    _requestConfigProvider = RequestConfigProvider.build(new ParSeqRestliClientConfigBuilder().build(), () -> Optional.empty(),
+        _requestConfigCacheMetrics);
     _requestContextProvider = request -> new RequestContext();
     _d2RequestTimeoutEnabled = false;
   }
@@ -111,7 +119,9 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
   public ParSeqRestClient(final RestClient client) {
     ArgumentUtil.requireNotNull(client, "client");
     _client = client;
-    _requestConfigProvider = RequestConfigProvider.build(new ParSeqRestliClientConfigBuilder().build(), () -> Optional.empty());
+    _requestConfigCacheMetrics = new RequestConfigCacheMetrics();
+    _requestConfigProvider = RequestConfigProvider.build(new ParSeqRestliClientConfigBuilder().build(), () -> Optional.empty(),
+        _requestConfigCacheMetrics);
     _requestContextProvider = request -> new RequestContext();
     _d2RequestTimeoutEnabled = false;
   }
@@ -234,6 +244,31 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
     return (requestTimeout instanceof Number) && (((Number)requestTimeout).intValue() > 0);
   }
 
+  /**
+   * Sends request making sure that R2 does not wait for the response longer than the remaining time of
+   * the deadline of the plan, see {@link Task#withDeadline(long, TimeUnit)}. Per-request timeout specified
+   * in request context is lowered if necessary. If there was none it is ignored by D2 when it is higher than
+   * the default one, so that the deadline does not impact lower layer load balancing behavior.
+   * Timeout is set on a copy of the request context so that the one supplied by the caller is not modified.
+   */
+  private <T> Promise<Response<T>> sendRequestWithinDeadline(final Context ctx, final Request<T> request,
+      final RequestContext requestContext) {
+    if (ctx.hasDeadline()) {
+      final int remainingMs = (int) Math.max(1, Math.min(ctx.getRemainingTime(TimeUnit.MILLISECONDS), Integer.MAX_VALUE));
+      if (!hasRequestContextTimeout(requestContext)) {
+        final RequestContext deadlineRequestContext = new RequestContext(requestContext);
+        deadlineRequestContext.putLocalAttr(R2Constants.REQUEST_TIMEOUT, remainingMs);
+        deadlineRequestContext.putLocalAttr(R2Constants.REQUEST_TIMEOUT_IGNORE_IF_HIGHER_THAN_DEFAULT, true);
+        return sendRequest(request, deadlineRequestContext);
+      } else if (((Number) requestContext.getLocalAttr(R2Constants.REQUEST_TIMEOUT)).intValue() > remainingMs) {
+        final RequestContext deadlineRequestContext = new RequestContext(requestContext);
+        deadlineRequestContext.putLocalAttr(R2Constants.REQUEST_TIMEOUT, remainingMs);
+        return sendRequest(request, deadlineRequestContext);
+      }
+    }
+    return sendRequest(request, requestContext);
+  }
+
   // check whether we need to apply timeout to a rest.li request task.
   private boolean needApplyTaskTimeout(RequestContext requestContext, ConfigValue<Long> timeout) {
     // if no timeout configured or per-request timeout already specified in request context
@@ -248,7 +283,7 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
     if (RequestGroup.isBatchable(request, config)) {
       requestTask = createBatchableTask(name, request, requestContext, config);
     } else {
-      requestTask = Task.async(name, () -> sendRequest(request, requestContext));
+      requestTask = Task.async(name, ctx -> sendRequestWithinDeadline(ctx, request, requestContext));
     }
     if (!needApplyTaskTimeout(requestContext, timeout)) {
       return requestTask;
@@ -284,7 +319,7 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
     if (RequestGroup.isBatchable(request, config)) {
       requestTask = createBatchableTask(name, request, requestContext, config);
     } else {
-      requestTask = Task.async(name, () -> sendRequest(request, requestContext));
+      requestTask = Task.async(name, ctx -> sendRequestWithinDeadline(ctx, request, requestContext));
     }
     if (!taskNeedTimeout) {
       return requestTask;
@@ -344,7 +379,17 @@ public class ParSeqRestClient extends BatchingStrategy<RequestGroup, RestRequest
 
   @Override
   public Metrics getMetrics() {
-    return () -> _batchingMetrics;
+    return new Metrics() {
+      @Override
+      public BatchingMetrics getBatchingMetrics() {
+        return _batchingMetrics;
+      }
+
+      @Override
+      public RequestConfigCacheMetrics getRequestConfigCacheMetrics() {
+        return _requestConfigCacheMetrics;
+      }
+    };
   }
 
 }
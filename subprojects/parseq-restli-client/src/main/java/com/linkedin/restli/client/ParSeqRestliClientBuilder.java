@@ -12,6 +12,7 @@ import com.linkedin.parseq.batching.BatchingSupport;
 import com.linkedin.parseq.internal.ArgumentUtil;
 import com.linkedin.r2.message.RequestContext;
 import com.linkedin.restli.client.config.RequestConfigProvider;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 
 
 /**
@@ -60,12 +61,15 @@ public class ParSeqRestliClientBuilder {
       LOGGER.debug("Multiple configs specified");
     }
 
-    RequestConfigProvider configProvider = new MultipleRequestConfigProvider(_configs, _configChooser, inboundRequestContextFinder);
+    RequestConfigCacheMetrics cacheMetrics = new RequestConfigCacheMetrics();
+    RequestConfigProvider configProvider =
+        new MultipleRequestConfigProvider(_configs, _configChooser, inboundRequestContextFinder, cacheMetrics);
     Function<Request<?>, RequestContext> requestContextProvider = (_requestContextProvider == null) ?
         request -> new RequestContext() :
         _requestContextProvider;
 
-    ParSeqRestClient parseqClient = new ParSeqRestClient(_client, configProvider, requestContextProvider, _d2RequestTimeoutEnabled);
+    ParSeqRestClient parseqClient =
+        new ParSeqRestClient(_client, configProvider, cacheMetrics, requestContextProvider, _d2RequestTimeoutEnabled);
     if (_batchingSupport != null) {
       LOGGER.debug("Found batching support");
       _batchingSupport.registerStrategy(parseqClient);
@@ -0,0 +1,91 @@
+package com.linkedin.restli.client.config;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import com.linkedin.parseq.internal.ArgumentUtil;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
+
+/**
+ * Bounded cache that evicts entries using CLOCK algorithm, an approximation of LRU.
+ * <p>
+ * Hits do not take a lock, they only mark entry as used. Misses compute the value without holding
+ * a lock and then insert it under a lock. When the cache exceeds its maximum size the clock hand sweeps
+ * entries in insertion order: an entry that has been used since it was last swept gets a second chance,
+ * otherwise it is evicted. Concurrent misses of the same key may compute the value more than once, only
+ * one of the values is cached.
+ */
+class ClockCache<K, V> {
+
+  private final int _maxSize;
+  private final Function<K, V> _loader;
+  private final RequestConfigCacheMetrics _metrics;
+  private final ConcurrentMap<K, Entry<K, V>> _entries = new ConcurrentHashMap<>();
+  //guarded by itself, head of the queue is under the clock hand
+  private final ArrayDeque<Entry<K, V>> _clock = new ArrayDeque<>();
+
+  ClockCache(int maxSize, Function<K, V> loader, RequestConfigCacheMetrics metrics) {
+    ArgumentUtil.requirePositive(maxSize, "max size");
+    ArgumentUtil.requireNotNull(loader, "loader");
+    ArgumentUtil.requireNotNull(metrics, "metrics");
+    _maxSize = maxSize;
+    _loader = loader;
+    _metrics = metrics;
+  }
+
+  V get(K key) {
+    final Entry<K, V> entry = _entries.get(key);
+    if (entry != null) {
+      //avoid writing to a shared field when entry is already marked
+      if (!entry._used) {
+        entry._used = true;
+      }
+      _metrics.recordHit();
+      return entry._value;
+    }
+    _metrics.recordMiss();
+    final Entry<K, V> newEntry = new Entry<>(key, _loader.apply(key));
+    synchronized (_clock) {
+      final Entry<K, V> existing = _entries.putIfAbsent(key, newEntry);
+      if (existing != null) {
+        return existing._value;
+      }
+      _clock.addLast(newEntry);
+      while (_clock.size() > _maxSize) {
+        evict();
+      }
+    }
+    return newEntry._value;
+  }
+
+  int size() {
+    return _entries.size();
+  }
+
+  private void evict() {
+    while (true) {
+      final Entry<K, V> entry = _clock.pollFirst();
+      if (entry._used) {
+        entry._used = false;
+        _clock.addLast(entry);
+      } else {
+        _entries.remove(entry._key, entry);
+        _metrics.recordEviction();
+        return;
+      }
+    }
+  }
+
+  private static class Entry<K, V> {
+    private final K _key;
+    private final V _value;
+    private volatile boolean _used = false;
+
+    private Entry(K key, V value) {
+      _key = key;
+      _value = value;
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.function.Function;
 import com.linkedin.restli.client.InboundRequestContextFinder;
 import com.linkedin.restli.client.ParSeqRestliClientConfig;
 import com.linkedin.restli.client.Request;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 
 @FunctionalInterface
 public interface RequestConfigProvider extends Function<Request<?>, RequestConfig> {
@@ -16,9 +17,22 @@ public interface RequestConfigProvider extends Function<Request<?>, RequestConfi
    * @return instance of RequestConfigProvider
    */
   public static RequestConfigProvider build(ParSeqRestliClientConfig config, InboundRequestContextFinder inboundRequestContextFinder) {
+    return build(config, inboundRequestContextFinder, new RequestConfigCacheMetrics());
+  }
+
+  /**
+   * @param config configuration
+   * @param inboundRequestContextFinder request config finder
+   * @param cacheMetrics metrics of the cache of resolved request configs
+   * @throws RuntimeException throws exception if config provider could not be built
+   * @return instance of RequestConfigProvider
+   */
+  public static RequestConfigProvider build(ParSeqRestliClientConfig config, InboundRequestContextFinder inboundRequestContextFinder,
+      RequestConfigCacheMetrics cacheMetrics) {
     try {
       RequestConfigProviderBuilder builder = new RequestConfigProviderBuilder();
       builder.setInboundRequestFinder(inboundRequestContextFinder)
+        .setCacheMetrics(cacheMetrics)
         .addConfig(getDefaultConfig());
       if (config != null) {
         builder.addConfig(config);
@@ -3,14 +3,16 @@ package com.linkedin.restli.client.config;
 import com.linkedin.restli.client.InboundRequestContextFinder;
 import com.linkedin.restli.client.ParSeqRestliClientConfig;
 import com.linkedin.restli.client.ParSeqRestliClientConfigBuilder;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 
 class RequestConfigProviderBuilder {
 
   private final ParSeqRestliClientConfigBuilder _config = new ParSeqRestliClientConfigBuilder();
   private InboundRequestContextFinder _inboundRequestFinder;
+  private RequestConfigCacheMetrics _cacheMetrics = new RequestConfigCacheMetrics();
 
   public RequestConfigProvider build() throws RequestConfigKeyParsingException {
-    return new RequestConfigProviderImpl(_inboundRequestFinder, _config.build());
+    return new RequestConfigProviderImpl(_inboundRequestFinder, _config.build(), _cacheMetrics);
   }
 
   public RequestConfigProviderBuilder addConfig(ParSeqRestliClientConfig config) {
@@ -23,4 +25,9 @@ class RequestConfigProviderBuilder {
     return this;
   }
 
+  public RequestConfigProviderBuilder setCacheMetrics(RequestConfigCacheMetrics cacheMetrics) {
+    _cacheMetrics = cacheMetrics;
+    return this;
+  }
+
 }
@@ -4,8 +4,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +12,7 @@ import com.linkedin.restli.client.InboundRequestContextFinder;
 import com.linkedin.restli.client.ParSeqRestliClientConfig;
 import com.linkedin.restli.client.ParSeqRestliClientConfigBuilder;
 import com.linkedin.restli.client.Request;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 
 class RequestConfigProviderImpl implements RequestConfigProvider {
 
@@ -30,10 +29,12 @@ class RequestConfigProviderImpl implements RequestConfigProvider {
   private final RequestConfigTree<Long> _timeoutMs = new RequestConfigTree<>();
   private final RequestConfigTree<Boolean> _batchingEnabled = new RequestConfigTree<>();
   private final RequestConfigTree<Integer> _maxBatchSize = new RequestConfigTree<>();
-  private final ConcurrentMap<RequestConfigCacheKey, RequestConfig> _cache = new ConcurrentHashMap<>();
+  private final ClockCache<RequestConfigCacheKey, RequestConfig> _cache;
 
-  public RequestConfigProviderImpl(InboundRequestContextFinder inboundRequestContextFinder, ParSeqRestliClientConfig config) throws RequestConfigKeyParsingException {
+  public RequestConfigProviderImpl(InboundRequestContextFinder inboundRequestContextFinder, ParSeqRestliClientConfig config,
+      RequestConfigCacheMetrics cacheMetrics) throws RequestConfigKeyParsingException {
     _inboundRequestContextFinder = inboundRequestContextFinder;
+    _cache = new ClockCache<>(CONFIG_CACHE_SIZE, this::resolve, cacheMetrics);
     initialize(config);
   }
 
@@ -84,13 +85,7 @@ class RequestConfigProviderImpl implements RequestConfigProvider {
   @Override
   public RequestConfig apply(Request<?> request) {
     RequestConfigCacheKey cacheKey = new RequestConfigCacheKey(_inboundRequestContextFinder.find(), request);
-    RequestConfig config = _cache.computeIfAbsent(cacheKey, this::resolve);
-    if (_cache.size() > CONFIG_CACHE_SIZE) {
-      //we might need a better strategy if cache fills up frequently
-      //the expectation is that it will fill up very rarely
-      _cache.clear();
-    }
-    return config;
+    return _cache.get(cacheKey);
   }
 
   private RequestConfig resolve(RequestConfigCacheKey cacheKey) {
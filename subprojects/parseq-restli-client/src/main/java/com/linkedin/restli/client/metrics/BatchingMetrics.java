@@ -30,11 +30,15 @@ public class BatchingMetrics {
       new ConcurrentLinkedQueue<>();
 
   public void recordBatchSize(String endpoint, int batchSize) {
-    final BatchSizeMetric metric = batchSizePerEndpoint.computeIfAbsent(endpoint, k -> {
-      final BatchSizeMetric newMetric = new BatchSizeMetric();
-      _metricsConsumers.forEach(consumer -> consumer.accept(k, newMetric));
-      return newMetric;
-    });
+    //look up first because computeIfAbsent locks even if the endpoint already has a metric
+    BatchSizeMetric metric = batchSizePerEndpoint.get(endpoint);
+    if (metric == null) {
+      metric = batchSizePerEndpoint.computeIfAbsent(endpoint, k -> {
+        final BatchSizeMetric newMetric = new BatchSizeMetric();
+        _metricsConsumers.forEach(consumer -> consumer.accept(k, newMetric));
+        return newMetric;
+      });
+    }
     metric.record(batchSize);
   }
 
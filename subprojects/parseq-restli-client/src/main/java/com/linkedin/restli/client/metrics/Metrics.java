@@ -20,4 +20,13 @@ public interface Metrics {
 
   public BatchingMetrics getBatchingMetrics();
 
+  /**
+   * Returns metrics of the cache of resolved request configs. Implementations that do not cache
+   * request configs return metrics with no recorded values.
+   * @return metrics of the cache of resolved request configs
+   */
+  default RequestConfigCacheMetrics getRequestConfigCacheMetrics() {
+    return new RequestConfigCacheMetrics();
+  }
+
 }
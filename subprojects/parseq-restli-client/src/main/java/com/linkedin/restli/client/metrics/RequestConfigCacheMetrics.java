@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.linkedin.restli.client.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts hits, misses and evictions of the cache of request configs resolved for
+ * combinations of inbound and outbound requests.
+ */
+public class RequestConfigCacheMetrics {
+  private final LongAdder _hits = new LongAdder();
+  private final LongAdder _misses = new LongAdder();
+  private final LongAdder _evictions = new LongAdder();
+
+  public void recordHit() {
+    _hits.increment();
+  }
+
+  public void recordMiss() {
+    _misses.increment();
+  }
+
+  public void recordEviction() {
+    _evictions.increment();
+  }
+
+  public long getHitCount() {
+    return _hits.sum();
+  }
+
+  public long getMissCount() {
+    return _misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return _evictions.sum();
+  }
+
+  /**
+   * Returns ratio of hits to all lookups or 1.0 if there were no lookups.
+   * @return ratio of hits to all lookups
+   */
+  public double getHitRate() {
+    final long hits = getHitCount();
+    final long lookups = hits + getMissCount();
+    return lookups == 0 ? 1.0 : (double) hits / lookups;
+  }
+
+}
@@ -0,0 +1,64 @@
+package com.linkedin.restli.client.config;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
+
+
+public class TestClockCache {
+
+  @Test
+  public void testHitAndMiss() {
+    final AtomicInteger loads = new AtomicInteger();
+    final RequestConfigCacheMetrics metrics = new RequestConfigCacheMetrics();
+    final ClockCache<Integer, String> cache = new ClockCache<>(10, key -> {
+      loads.incrementAndGet();
+      return String.valueOf(key);
+    }, metrics);
+
+    assertEquals(cache.get(1), "1");
+    assertEquals(cache.get(1), "1");
+    assertEquals(cache.get(2), "2");
+    assertEquals(loads.get(), 2);
+    assertEquals(metrics.getHitCount(), 1);
+    assertEquals(metrics.getMissCount(), 2);
+    assertEquals(metrics.getHitRate(), 1.0 / 3);
+  }
+
+  @Test
+  public void testSizeIsBounded() {
+    final RequestConfigCacheMetrics metrics = new RequestConfigCacheMetrics();
+    final ClockCache<Integer, String> cache = new ClockCache<>(10, String::valueOf, metrics);
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(cache.get(i), String.valueOf(i));
+      assertEquals(cache.size(), Math.min(i + 1, 10));
+    }
+    assertEquals(metrics.getEvictionCount(), 90);
+  }
+
+  @Test
+  public void testUsedEntriesSurviveEviction() {
+    final AtomicInteger loads = new AtomicInteger();
+    final RequestConfigCacheMetrics metrics = new RequestConfigCacheMetrics();
+    final ClockCache<Integer, String> cache = new ClockCache<>(4, key -> {
+      loads.incrementAndGet();
+      return String.valueOf(key);
+    }, metrics);
+
+    for (int i = 0; i < 4; i++) {
+      cache.get(i);
+    }
+    // key 0 is used repeatedly while keys that are used once pass through the cache
+    for (int i = 4; i < 20; i++) {
+      cache.get(0);
+      cache.get(i);
+    }
+    assertEquals(loads.get(), 20);
+    assertEquals(metrics.getHitCount(), 16);
+  }
+}
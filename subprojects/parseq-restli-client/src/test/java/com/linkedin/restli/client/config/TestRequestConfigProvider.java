@@ -12,6 +12,7 @@ import org.testng.annotations.Test;
 import com.linkedin.restli.client.InboundRequestContext;
 import com.linkedin.restli.client.InboundRequestContextFinder;
 import com.linkedin.restli.client.ParSeqRestliClientConfigBuilder;
+import com.linkedin.restli.client.metrics.RequestConfigCacheMetrics;
 import com.linkedin.restli.common.ResourceMethod;
 import com.linkedin.restli.examples.greetings.client.AssociationsSubBuilders;
 import com.linkedin.restli.examples.greetings.client.GreetingsBuilders;
@@ -378,6 +379,20 @@ public class TestRequestConfigProvider {
     assertEquals(rc.getMaxBatchSize().getValue(), Integer.valueOf(RequestConfigProviderImpl.DEFAULT_MAX_BATCH_SIZE));
   }
 
+  @Test
+  public void testCacheMetrics() throws RequestConfigKeyParsingException {
+    RequestConfigCacheMetrics metrics = new RequestConfigCacheMetrics();
+    RequestConfigProvider provider =
+        RequestConfigProvider.build(new ParSeqRestliClientConfigBuilder().build(), () -> Optional.empty(), metrics);
+
+    RequestConfig rc = provider.apply(new GreetingsBuilders().get().id(0L).build());
+    assertEquals(provider.apply(new GreetingsBuilders().get().id(1L).build()), rc);
+    provider.apply(new GroupsBuilders().get().id(0).build());
+    assertEquals(metrics.getHitCount(), 1);
+    assertEquals(metrics.getMissCount(), 2);
+    assertEquals(metrics.getEvictionCount(), 0);
+  }
+
 
   private InboundRequestContextFinder requestContextFinder(String name, String method, Optional<String> finderName,
       Optional<String> actionName) {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * Groups elements into lists of {@code size} elements. A list is emitted earlier if {@code time} has
+ * elapsed since its first element has been received or when the upstream completes.
+ * Elements are requested from the upstream only when there is demand for a list.
+ */
+class BatchOperator<T> extends Operator<T, List<T>> {
+
+  private final StreamContext _context;
+  private final int _size;
+  private final long _time;
+  private final TimeUnit _unit;
+
+  private List<T> _buffer;
+  /* number of elements requested from the upstream and not received yet */
+  private long _outstanding;
+  private long _demand;
+  private Task<Void> _timer;
+  private boolean _expired;
+  private boolean _upstreamDone;
+  private boolean _draining;
+  private boolean _missed;
+
+  BatchOperator(final StreamContext context, final int size, final long time, final TimeUnit unit,
+      final Subscriber<? super List<T>> downstream) {
+    super(downstream);
+    _context = context;
+    _size = size;
+    _time = time;
+    _unit = unit;
+    _buffer = new ArrayList<>(size);
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (_done) {
+      return;
+    }
+    _outstanding--;
+    _buffer.add(element);
+    if (_buffer.size() == 1 && _size > 1) {
+      startTimer();
+    }
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    _upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void request(final long n) {
+    _demand = Subscription.addDemand(_demand, n);
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    cancelTimer();
+  }
+
+  private void drain() {
+    if (_draining) {
+      _missed = true;
+      return;
+    }
+    _draining = true;
+    do {
+      _missed = false;
+      while (!_done && _demand > 0 && !_buffer.isEmpty() && (_buffer.size() >= _size || _expired || _upstreamDone)) {
+        emit();
+      }
+      if (!_done) {
+        if (_upstreamDone && _buffer.isEmpty()) {
+          _done = true;
+          _downstream.onComplete();
+        } else if (!_upstreamDone && _demand > 0) {
+          final long missing = _size - _buffer.size() - _outstanding;
+          if (missing > 0) {
+            _outstanding += missing;
+            _upstream.request(missing);
+          }
+        }
+      }
+    } while (_missed);
+    _draining = false;
+  }
+
+  private void emit() {
+    cancelTimer();
+    _expired = false;
+    final List<T> batch = _buffer;
+    _buffer = new ArrayList<>(_size);
+    _demand--;
+    _downstream.onNext(batch);
+  }
+
+  private void startTimer() {
+    final Task<Void> timer = Task.async("batchTimeout", ctx -> {
+      final SettablePromise<Void> expired = Promises.settable();
+      ctx.createTimer(_time, _unit, Task.action("expire", () -> expired.done(null)));
+      return expired;
+    });
+    _timer = timer;
+    _context.run(timer, result -> {
+      if (_timer == timer) {
+        _timer = null;
+        _expired = true;
+        drain();
+      }
+    });
+  }
+
+  private void cancelTimer() {
+    if (_timer != null) {
+      final Task<Void> timer = _timer;
+      _timer = null;
+      timer.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+    }
+  }
+}
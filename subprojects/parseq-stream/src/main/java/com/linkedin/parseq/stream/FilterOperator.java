@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import com.linkedin.parseq.function.Function1;
+
+
+class FilterOperator<T> extends Operator<T, T> {
+
+  private final Function1<? super T, Boolean> _predicate;
+
+  FilterOperator(final Function1<? super T, Boolean> predicate, final Subscriber<? super T> downstream) {
+    super(downstream);
+    _predicate = predicate;
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (_done) {
+      return;
+    }
+    final boolean accepted;
+    try {
+      accepted = _predicate.apply(element);
+    } catch (Throwable t) {
+      fail(t);
+      return;
+    }
+    if (accepted) {
+      _downstream.onNext(element);
+    } else {
+      // element was requested by the downstream, replace it with the next one
+      _upstream.request(1);
+    }
+  }
+}
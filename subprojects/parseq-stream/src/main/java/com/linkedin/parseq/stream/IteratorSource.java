@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+import java.util.Iterator;
+
+
+/**
+ * Emits elements of an iterator as they are requested.
+ */
+class IteratorSource<T> implements Subscription {
+
+  private final Iterator<? extends T> _iterator;
+  private final Subscriber<? super T> _subscriber;
+
+  private long _demand;
+  private boolean _emitting;
+  private boolean _done;
+
+  IteratorSource(final Iterator<? extends T> iterator, final Subscriber<? super T> subscriber) {
+    _iterator = iterator;
+    _subscriber = subscriber;
+  }
+
+  void start() {
+    _subscriber.onSubscribe(this);
+  }
+
+  @Override
+  public void request(final long n) {
+    _demand = Subscription.addDemand(_demand, n);
+    if (_emitting) {
+      // elements are emitted by the loop below, request came from onNext
+      return;
+    }
+    _emitting = true;
+    try {
+      while (_demand > 0 && !_done) {
+        final T next;
+        try {
+          if (!_iterator.hasNext()) {
+            _done = true;
+            _subscriber.onComplete();
+            return;
+          }
+          next = _iterator.next();
+        } catch (Throwable t) {
+          _done = true;
+          _subscriber.onError(t);
+          return;
+        }
+        _demand--;
+        _subscriber.onNext(next);
+      }
+    } finally {
+      _emitting = false;
+    }
+  }
+
+  @Override
+  public void cancel() {
+    _done = true;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import java.util.ArrayDeque;
+
+import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Function1;
+import com.linkedin.parseq.function.Try;
+
+
+/**
+ * Maps elements to tasks and emits their results in the order of elements. At most {@code parallelism}
+ * elements are requested from the upstream ahead of the downstream demand, so there are at most
+ * {@code parallelism} tasks running or completed tasks waiting to be emitted. Fails as soon as any task
+ * fails, running tasks are then cancelled.
+ */
+class MapAsyncOperator<T, R> extends Operator<T, R> {
+
+  private final StreamContext _context;
+  private final int _parallelism;
+  private final Function1<? super T, Task<R>> _func;
+  private final ArrayDeque<Slot<R>> _slots = new ArrayDeque<>();
+
+  private long _demand;
+  private boolean _upstreamDone;
+  private boolean _draining;
+  private boolean _missed;
+
+  MapAsyncOperator(final StreamContext context, final int parallelism, final Function1<? super T, Task<R>> func,
+      final Subscriber<? super R> downstream) {
+    super(downstream);
+    _context = context;
+    _parallelism = parallelism;
+    _func = func;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    super.onSubscribe(subscription);
+    if (!_done) {
+      _upstream.request(_parallelism);
+    }
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (_done) {
+      return;
+    }
+    final Task<R> task;
+    try {
+      task = _func.apply(element);
+    } catch (Throwable t) {
+      fail(t);
+      return;
+    }
+    final Slot<R> slot = new Slot<>(task);
+    _slots.add(slot);
+    _context.run(task, result -> {
+      if (result.isFailed()) {
+        // fail without waiting for results of preceding elements
+        fail(result.getError());
+      } else {
+        slot._result = result;
+        drain();
+      }
+    });
+  }
+
+  @Override
+  public void onComplete() {
+    _upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void request(final long n) {
+    _demand = Subscription.addDemand(_demand, n);
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    Slot<R> slot;
+    while ((slot = _slots.poll()) != null) {
+      slot._task.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+    }
+  }
+
+  private void drain() {
+    if (_draining) {
+      _missed = true;
+      return;
+    }
+    _draining = true;
+    do {
+      _missed = false;
+      while (!_done && _demand > 0 && !_slots.isEmpty() && _slots.peek()._result != null) {
+        final Try<R> result = _slots.poll()._result;
+        _demand--;
+        _downstream.onNext(result.get());
+        if (!_upstreamDone && !_done) {
+          _upstream.request(1);
+        }
+      }
+      if (!_done && _upstreamDone && _slots.isEmpty()) {
+        _done = true;
+        _downstream.onComplete();
+      }
+    } while (_missed);
+    _draining = false;
+  }
+
+  private static class Slot<R> {
+    private final Task<R> _task;
+    private Try<R> _result;
+
+    private Slot(final Task<R> task) {
+      _task = task;
+    }
+  }
+}
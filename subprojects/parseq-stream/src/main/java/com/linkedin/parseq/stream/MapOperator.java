@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import com.linkedin.parseq.function.Function1;
+
+
+class MapOperator<T, R> extends Operator<T, R> {
+
+  private final Function1<? super T, ? extends R> _func;
+
+  MapOperator(final Function1<? super T, ? extends R> func, final Subscriber<? super R> downstream) {
+    super(downstream);
+    _func = func;
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (_done) {
+      return;
+    }
+    final R result;
+    try {
+      result = _func.apply(element);
+    } catch (Throwable t) {
+      fail(t);
+      return;
+    }
+    _downstream.onNext(result);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+/**
+ * Base class of stream operators: subscribes to the upstream and passes demand and cancellation
+ * through to it. Subclasses transform elements in {@link #onNext(Object)}.
+ *
+ * @param <T> type of upstream elements
+ * @param <R> type of downstream elements
+ */
+abstract class Operator<T, R> implements Subscriber<T>, Subscription {
+
+  protected final Subscriber<? super R> _downstream;
+  protected Subscription _upstream;
+  protected boolean _done;
+
+  Operator(final Subscriber<? super R> downstream) {
+    _downstream = downstream;
+  }
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    _upstream = subscription;
+    _downstream.onSubscribe(this);
+  }
+
+  @Override
+  public void onError(final Throwable error) {
+    fail(error);
+  }
+
+  @Override
+  public void onComplete() {
+    if (!_done) {
+      _done = true;
+      _downstream.onComplete();
+    }
+  }
+
+  @Override
+  public void request(final long n) {
+    _upstream.request(n);
+  }
+
+  @Override
+  public void cancel() {
+    _done = true;
+    _upstream.cancel();
+  }
+
+  /**
+   * Cancels the upstream, releasing resources of this operator, and signals error to the downstream.
+   */
+  protected void fail(final Throwable error) {
+    if (!_done) {
+      cancel();
+      _downstream.onError(error);
+    }
+  }
+}
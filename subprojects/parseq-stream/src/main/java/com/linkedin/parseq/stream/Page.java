@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.linkedin.parseq.internal.ArgumentUtil;
+
+
+/**
+ * A page of elements returned by a paged producer together with the cursor of the next page.
+ *
+ * @param <T> type of elements
+ * @param <C> type of the cursor
+ * @see TaskStream#paginate(String, Object, com.linkedin.parseq.function.Function1)
+ */
+public final class Page<T, C> {
+
+  private final List<T> _items;
+  private final C _nextCursor;
+
+  private Page(final List<T> items, final C nextCursor) {
+    ArgumentUtil.requireNotNull(items, "items");
+    _items = items;
+    _nextCursor = nextCursor;
+  }
+
+  /**
+   * Creates a page followed by the page identified by {@code nextCursor}.
+   * A {@code null} cursor means that this is the last page.
+   */
+  public static <T, C> Page<T, C> of(final List<T> items, final C nextCursor) {
+    return new Page<>(items, nextCursor);
+  }
+
+  /**
+   * Creates the last page.
+   */
+  public static <T, C> Page<T, C> last(final List<T> items) {
+    return new Page<>(items, null);
+  }
+
+  public List<T> getItems() {
+    return Collections.unmodifiableList(_items);
+  }
+
+  /**
+   * @return cursor of the next page or {@code null} if this is the last page
+   */
+  public C getNextCursor() {
+    return _nextCursor;
+  }
+
+  public boolean isLast() {
+    return _nextCursor == null;
+  }
+
+  @Override
+  public String toString() {
+    return "Page [items=" + _items + ", nextCursor=" + _nextCursor + "]";
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Function1;
+
+
+/**
+ * Emits elements of pages returned by tasks of a paged producer. The next page is fetched
+ * only when all elements of the current page have been emitted and more elements are requested,
+ * at most one page is fetched at a time.
+ */
+class PaginatedSource<T, C> implements Subscription {
+
+  private final StreamContext _context;
+  private final Function1<? super C, Task<Page<T, C>>> _fetch;
+  private final Subscriber<? super T> _subscriber;
+
+  private C _cursor;
+  private boolean _hasMore = true;
+  private Iterator<T> _items = Collections.emptyIterator();
+  private Task<Page<T, C>> _fetching;
+  private long _demand;
+  private boolean _emitting;
+  private boolean _done;
+
+  PaginatedSource(final StreamContext context, final C initialCursor, final Function1<? super C, Task<Page<T, C>>> fetch,
+      final Subscriber<? super T> subscriber) {
+    _context = context;
+    _cursor = initialCursor;
+    _fetch = fetch;
+    _subscriber = subscriber;
+  }
+
+  void start() {
+    _subscriber.onSubscribe(this);
+  }
+
+  @Override
+  public void request(final long n) {
+    _demand = Subscription.addDemand(_demand, n);
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    _done = true;
+    if (_fetching != null) {
+      _fetching.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+      _fetching = null;
+    }
+  }
+
+  private void drain() {
+    if (_emitting) {
+      return;
+    }
+    _emitting = true;
+    try {
+      while (_demand > 0 && !_done) {
+        if (_items.hasNext()) {
+          _demand--;
+          _subscriber.onNext(_items.next());
+        } else if (_hasMore) {
+          if (_fetching == null) {
+            fetch();
+          }
+          return;
+        } else {
+          _done = true;
+          _subscriber.onComplete();
+          return;
+        }
+      }
+    } finally {
+      _emitting = false;
+    }
+  }
+
+  private void fetch() {
+    final Task<Page<T, C>> task;
+    try {
+      task = _fetch.apply(_cursor);
+    } catch (Throwable t) {
+      _done = true;
+      _subscriber.onError(t);
+      return;
+    }
+    _fetching = task;
+    _context.run(task, result -> {
+      if (_fetching != task) {
+        // cancelled
+        return;
+      }
+      _fetching = null;
+      if (result.isFailed()) {
+        _done = true;
+        _subscriber.onError(result.getError());
+      } else {
+        final Page<T, C> page = result.get();
+        if (page == null) {
+          _done = true;
+          _subscriber.onError(new NullPointerException("page returned by task " + task.getName() + " is null"));
+          return;
+        }
+        _items = page.getItems().iterator();
+        _cursor = page.getNextCursor();
+        _hasMore = !page.isLast();
+        drain();
+      }
+    });
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+import java.util.function.Consumer;
+
+import com.linkedin.parseq.SubTaskRunner;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Try;
+
+
+/**
+ * Runs tasks on behalf of operators of a stream. Tasks are run as sub-tasks of the task
+ * that consumes the stream, callbacks are invoked by the plan once the task is done,
+ * so all operators of a stream are invoked sequentially.
+ */
+class StreamContext {
+
+  private final SubTaskRunner _runner;
+
+  StreamContext(final SubTaskRunner runner) {
+    _runner = runner;
+  }
+
+  <T> void run(final Task<T> task, final Consumer<Try<T>> callback) {
+    _runner.run(task.transform("stream", result -> {
+      callback.accept(result);
+      return result;
+    }));
+  }
+}
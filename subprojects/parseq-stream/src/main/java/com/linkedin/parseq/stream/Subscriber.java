@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+/**
+ * Receives elements of a {@link TaskStream}. Elements are delivered only after they have been
+ * requested through the {@link Subscription} passed to {@link #onSubscribe(Subscription)}.
+ * <p>
+ * All methods are invoked sequentially by the plan that runs the stream, implementations don't
+ * need to be thread safe but have to be reentrant: a call to {@link Subscription#request(long)}
+ * may synchronously result in a call to {@link #onNext(Object)}.
+ */
+interface Subscriber<T> {
+
+  void onSubscribe(Subscription subscription);
+
+  void onNext(T element);
+
+  void onError(Throwable error);
+
+  void onComplete();
+}
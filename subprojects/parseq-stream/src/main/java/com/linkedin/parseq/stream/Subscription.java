@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.stream;
+
+/**
+ * Link between a stream and its {@link Subscriber} used to signal demand and cancellation.
+ */
+interface Subscription {
+
+  /**
+   * Requests {@code n} more elements, {@code n} has to be positive.
+   */
+  void request(long n);
+
+  /**
+   * Stops delivery of elements, releases resources and cancels pending tasks.
+   */
+  void cancel();
+
+  /**
+   * Adds requested elements to demand, capping the result at {@link Long#MAX_VALUE}.
+   */
+  static long addDemand(final long demand, final long n) {
+    final long result = demand + n;
+    return result < 0 ? Long.MAX_VALUE : result;
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.batching.BatchingStrategy;
+import com.linkedin.parseq.function.Consumer1;
+import com.linkedin.parseq.function.Function1;
+import com.linkedin.parseq.function.Function2;
+import com.linkedin.parseq.internal.ArgumentUtil;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * A lazy, finite stream of elements processed by ParSeq tasks with demand-driven backpressure.
+ * <p>
+ * A stream does not do anything until it is consumed by one of the terminal operations:
+ * {@link #reduce(String, Object, Function2)}, {@link #toList(String)} or {@link #forEach(String, Consumer1)}.
+ * Terminal operations return a task which, when run, pulls elements through the stream one at a time.
+ * Every operator requests from its upstream only as many elements as it can process, e.g.
+ * {@link #mapAsync(int, Function1)} runs at most {@code parallelism} tasks at a time and a paged source
+ * fetches the next page only after all elements of the current page have been consumed:
+ * <blockquote><pre>
+ *  Task{@code <Integer>} count = TaskStream.paginate("fetchPage", null, cursor {@code ->} fetchPage(cursor))
+ *      .filter(Member::isActive)
+ *      .mapAsync(10, member {@code ->} fetchProfile(member.getId()))
+ *      .reduce("count", 0, (count, profile) {@code ->} count + 1);
+ * </pre></blockquote>
+ * <p>
+ * Tasks created by the stream are run as sub-tasks of the terminal task, they are executed by the plan
+ * and inherit its deadline. All operators and callbacks are invoked sequentially by the plan, so functions
+ * passed to operators don't need to be thread safe. Unlike a recursive chain of {@code flatMap} a stream does not
+ * hold references to tasks that have completed, however each task is still recorded in the plan's trace,
+ * which is bounded by {@link com.linkedin.parseq.Engine#MAX_RELATIONSHIPS_PER_TRACE}. Trace collection can be
+ * reduced further with {@link com.linkedin.parseq.Engine#TRACE_SAMPLING_RATE}.
+ * <p>
+ * A stream can be consumed many times unless it has been created from an {@link Iterator}.
+ * Every consumption starts from the beginning of the source.
+ *
+ * @param <T> type of elements
+ */
+public abstract class TaskStream<T> {
+
+  TaskStream() {
+  }
+
+  /**
+   * Subscribes the given subscriber to this stream, the subscriber receives
+   * {@link Subscriber#onSubscribe(Subscription)} before this method returns.
+   */
+  abstract void subscribe(StreamContext context, Subscriber<? super T> subscriber);
+
+  /**
+   * Creates a stream of elements of the given iterable. A new iterator is created
+   * every time the stream is consumed.
+   */
+  public static <T> TaskStream<T> fromIterable(final Iterable<? extends T> iterable) {
+    ArgumentUtil.requireNotNull(iterable, "iterable");
+    return new TaskStream<T>() {
+      @Override
+      void subscribe(final StreamContext context, final Subscriber<? super T> subscriber) {
+        new IteratorSource<T>(iterable.iterator(), subscriber).start();
+      }
+    };
+  }
+
+  /**
+   * Creates a stream of elements of the given iterator. The stream can be consumed only once.
+   */
+  public static <T> TaskStream<T> fromIterator(final Iterator<? extends T> iterator) {
+    ArgumentUtil.requireNotNull(iterator, "iterator");
+    return new TaskStream<T>() {
+      @Override
+      void subscribe(final StreamContext context, final Subscriber<? super T> subscriber) {
+        new IteratorSource<T>(iterator, subscriber).start();
+      }
+    };
+  }
+
+  /**
+   * Creates a stream of elements of pages returned by tasks created by the given function.
+   * The first page is fetched with {@code initialCursor}, which can be {@code null}, every following page
+   * is fetched with the cursor returned by the previous page. The stream completes after the page
+   * with a {@code null} cursor. A page is fetched only when the previous one has been consumed.
+   *
+   * @param desc description of the stream, used in exception messages
+   * @param initialCursor cursor of the first page
+   * @param fetch function that given a cursor returns a task that fetches the page
+   */
+  public static <T, C> TaskStream<T> paginate(final String desc, final C initialCursor,
+      final Function1<? super C, Task<Page<T, C>>> fetch) {
+    ArgumentUtil.requireNotNull(desc, "desc");
+    ArgumentUtil.requireNotNull(fetch, "fetch");
+    return new TaskStream<T>() {
+      @Override
+      void subscribe(final StreamContext context, final Subscriber<? super T> subscriber) {
+        new PaginatedSource<T, C>(context, initialCursor, cursor -> {
+          final Task<Page<T, C>> task = fetch.apply(cursor);
+          if (task == null) {
+            throw new NullPointerException(desc + " returned null task for cursor: " + cursor);
+          }
+          return task;
+        }, subscriber).start();
+      }
+    };
+  }
+
+  /**
+   * Creates a stream of values returned by the given function.
+   */
+  public <R> TaskStream<R> map(final Function1<? super T, ? extends R> func) {
+    ArgumentUtil.requireNotNull(func, "function");
+    return lift((context, downstream) -> new MapOperator<T, R>(func, downstream));
+  }
+
+  /**
+   * Creates a stream of elements that match the given predicate.
+   */
+  public TaskStream<T> filter(final Function1<? super T, Boolean> predicate) {
+    ArgumentUtil.requireNotNull(predicate, "predicate");
+    return lift((context, downstream) -> new FilterOperator<T>(predicate, downstream));
+  }
+
+  /**
+   * Creates a stream of values of tasks returned by the given function. At most {@code parallelism} tasks are
+   * running or waiting to be consumed at any time. Values are emitted in the order of elements of this stream.
+   * The stream fails as soon as any of the tasks fails, tasks that are still running are then cancelled.
+   *
+   * @param parallelism maximum number of tasks running at the same time
+   * @param func function that returns task for an element
+   */
+  public <R> TaskStream<R> mapAsync(final int parallelism, final Function1<? super T, Task<R>> func) {
+    ArgumentUtil.requirePositive(parallelism, "parallelism");
+    ArgumentUtil.requireNotNull(func, "function");
+    return lift((context, downstream) -> new MapAsyncOperator<T, R>(context, parallelism, func, downstream));
+  }
+
+  /**
+   * Creates a stream of values returned by the given batching strategy for elements of this stream.
+   * Tasks are created with {@link BatchingStrategy#batchable(Object)}, so up to {@code parallelism} elements
+   * are fetched in batches. {@link com.linkedin.parseq.batching.BatchingSupport} with the strategy registered
+   * has to be set as the engine's plan deactivation listener for batching to happen.
+   *
+   * @param parallelism maximum number of elements being fetched at the same time
+   * @param strategy batching strategy
+   * @see #mapAsync(int, Function1)
+   */
+  public <R> TaskStream<R> mapBatched(final int parallelism, final BatchingStrategy<?, ? super T, R> strategy) {
+    ArgumentUtil.requireNotNull(strategy, "strategy");
+    return mapAsync(parallelism, strategy::batchable);
+  }
+
+  /**
+   * Creates a stream of lists of up to {@code size} consecutive elements of this stream. A list with
+   * less than {@code size} elements is emitted when {@code time} has elapsed since its first element
+   * has been received or when this stream completes.
+   *
+   * @param size maximum number of elements in a list
+   * @param time maximum time to wait for a list to become full
+   * @param unit unit of time
+   */
+  public TaskStream<List<T>> batch(final int size, final long time, final TimeUnit unit) {
+    ArgumentUtil.requirePositive(size, "size");
+    ArgumentUtil.requirePositive(time, "time");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    return lift((context, downstream) -> new BatchOperator<T>(context, size, time, unit, downstream));
+  }
+
+  /**
+   * Returns a task that consumes this stream and combines its elements with the given function,
+   * starting with {@code seed}.
+   *
+   * @param desc description of the task
+   * @param seed initial value
+   * @param func function that combines an accumulated value with an element
+   */
+  public <R> Task<R> reduce(final String desc, final R seed, final Function2<R, ? super T, R> func) {
+    ArgumentUtil.requireNotNull(func, "function");
+    return consume(desc, result -> new TerminalSubscriber<T, R>(result) {
+      private R _value = seed;
+
+      @Override
+      void accept(final T element) throws Exception {
+        _value = func.apply(_value, element);
+      }
+
+      @Override
+      R result() {
+        return _value;
+      }
+    });
+  }
+
+  /**
+   * Equivalent to {@code reduce("reduce", seed, func)}.
+   * @see #reduce(String, Object, Function2)
+   */
+  public <R> Task<R> reduce(final R seed, final Function2<R, ? super T, R> func) {
+    return reduce("reduce", seed, func);
+  }
+
+  /**
+   * Returns a task that consumes this stream and collects all its elements into a list.
+   *
+   * @param desc description of the task
+   */
+  public Task<List<T>> toList(final String desc) {
+    return consume(desc, result -> new TerminalSubscriber<T, List<T>>(result) {
+      private final List<T> _list = new ArrayList<>();
+
+      @Override
+      void accept(final T element) {
+        _list.add(element);
+      }
+
+      @Override
+      List<T> result() {
+        return _list;
+      }
+    });
+  }
+
+  /**
+   * Equivalent to {@code toList("toList")}.
+   * @see #toList(String)
+   */
+  public Task<List<T>> toList() {
+    return toList("toList");
+  }
+
+  /**
+   * Returns a task that consumes this stream and invokes the given consumer for every element.
+   *
+   * @param desc description of the task
+   * @param consumer consumer of elements
+   */
+  public Task<Void> forEach(final String desc, final Consumer1<? super T> consumer) {
+    ArgumentUtil.requireNotNull(consumer, "consumer");
+    return consume(desc, result -> new TerminalSubscriber<T, Void>(result) {
+      @Override
+      void accept(final T element) throws Exception {
+        consumer.accept(element);
+      }
+
+      @Override
+      Void result() {
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Equivalent to {@code forEach("forEach", consumer)}.
+   * @see #forEach(String, Consumer1)
+   */
+  public Task<Void> forEach(final Consumer1<? super T> consumer) {
+    return forEach("forEach", consumer);
+  }
+
+  private <R> TaskStream<R> lift(
+      final BiFunction<StreamContext, Subscriber<? super R>, Subscriber<? super T>> operator) {
+    final TaskStream<T> upstream = this;
+    return new TaskStream<R>() {
+      @Override
+      void subscribe(final StreamContext context, final Subscriber<? super R> subscriber) {
+        upstream.subscribe(context, operator.apply(context, subscriber));
+      }
+    };
+  }
+
+  private <R> Task<R> consume(final String desc, final Function<SettablePromise<R>, TerminalSubscriber<T, R>> terminal) {
+    ArgumentUtil.requireNotNull(desc, "desc");
+    return Task.async(desc, ctx -> {
+      final SettablePromise<R> result = Promises.settable();
+      subscribe(new StreamContext(ctx.createSubTaskRunner()), terminal.apply(result));
+      return result;
+    });
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.stream;
+
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * Consumes a stream one element at a time and completes a promise with the result.
+ *
+ * @param <T> type of elements
+ * @param <R> type of the result
+ */
+abstract class TerminalSubscriber<T, R> implements Subscriber<T> {
+
+  private final SettablePromise<R> _result;
+  private Subscription _subscription;
+  private boolean _done;
+
+  TerminalSubscriber(final SettablePromise<R> result) {
+    _result = result;
+  }
+
+  abstract void accept(T element) throws Exception;
+
+  abstract R result();
+
+  @Override
+  public void onSubscribe(final Subscription subscription) {
+    _subscription = subscription;
+    subscription.request(1);
+  }
+
+  @Override
+  public void onNext(final T element) {
+    if (_done) {
+      return;
+    }
+    try {
+      accept(element);
+    } catch (Throwable t) {
+      _done = true;
+      _subscription.cancel();
+      _result.fail(t);
+      return;
+    }
+    _subscription.request(1);
+  }
+
+  @Override
+  public void onError(final Throwable error) {
+    if (!_done) {
+      _done = true;
+      _result.fail(error);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (!_done) {
+      _done = true;
+      _result.done(result());
+    }
+  }
+}
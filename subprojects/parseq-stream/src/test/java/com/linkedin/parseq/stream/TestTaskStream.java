@@ -0,0 +1,183 @@
+package com.linkedin.parseq.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.batching.Batch;
+import com.linkedin.parseq.batching.BatchingSupport;
+import com.linkedin.parseq.batching.SimpleBatchingStrategy;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+public class TestTaskStream extends BaseEngineTest {
+
+  private final BatchingSupport _batchingSupport = new BatchingSupport();
+  private final Strategy _strategy = new Strategy();
+
+  private static class Strategy extends SimpleBatchingStrategy<Integer, String> {
+    private final List<Integer> _batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void executeBatch(Batch<Integer, String> batch) {
+      _batchSizes.add(batch.keySize());
+      batch.foreach((key, promise) -> promise.done(String.valueOf(key)));
+    }
+  }
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setPlanDeactivationListener(_batchingSupport);
+    _batchingSupport.registerStrategy(_strategy);
+  }
+
+  private static List<Integer> range(final int size) {
+    return IntStream.range(0, size).boxed().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testMapFilterReduce() {
+    Task<Integer> task = TaskStream.fromIterable(range(10))
+        .filter(i -> i % 2 == 0)
+        .map(i -> i * 10)
+        .reduce(0, (sum, i) -> sum + i);
+
+    assertEquals(runAndWait("TestTaskStream.testMapFilterReduce", task), (Integer) 200);
+  }
+
+  @Test
+  public void testReusable() {
+    TaskStream<Integer> stream = TaskStream.fromIterable(range(3));
+
+    assertEquals(runAndWait("TestTaskStream.testReusable", stream.toList()), range(3));
+    assertEquals(runAndWait("TestTaskStream.testReusable", stream.toList()), range(3));
+  }
+
+  @Test
+  public void testLongSynchronousStream() {
+    Task<Integer> task = TaskStream.fromIterator(range(100000).iterator())
+        .filter(i -> i % 3 != 0)
+        .reduce(0, (count, i) -> count + 1);
+
+    assertEquals(runAndWait("TestTaskStream.testLongSynchronousStream", task), (Integer) 66666);
+  }
+
+  @Test
+  public void testPaginate() {
+    final AtomicInteger fetched = new AtomicInteger();
+    Task<List<Integer>> task = TaskStream.<Integer, Integer>paginate("fetchPage", null, cursor -> {
+      final int page = cursor == null ? 0 : cursor;
+      return delayedValue(Page.of(Arrays.asList(page * 2, page * 2 + 1), page < 4 ? page + 1 : null), 1,
+          TimeUnit.MILLISECONDS).andThen(result -> fetched.incrementAndGet());
+    }).toList();
+
+    assertEquals(runAndWait("TestTaskStream.testPaginate", task), range(10));
+    assertEquals(fetched.get(), 5);
+  }
+
+  @Test
+  public void testPaginateIsDemandDriven() {
+    final AtomicInteger fetched = new AtomicInteger();
+    Task<Void> task = TaskStream.<Integer, Integer>paginate("fetchPage", 0, cursor -> {
+      fetched.incrementAndGet();
+      return Task.value(Page.of(Arrays.asList(cursor, cursor + 1), cursor + 2));
+    }).forEach(i -> {
+      if (i == 4) {
+        throw new IllegalStateException("stop");
+      }
+    });
+
+    runAndWaitException("TestTaskStream.testPaginateIsDemandDriven", task, IllegalStateException.class);
+    assertEquals(fetched.get(), 3);
+  }
+
+  @Test
+  public void testPaginateFailure() {
+    Task<List<Integer>> task = TaskStream.<Integer, Integer>paginate("fetchPage", 0, cursor -> cursor < 2
+        ? Task.value(Page.of(Collections.singletonList(cursor), cursor + 1))
+        : Task.failure(new IllegalStateException("failed page"))).toList();
+
+    runAndWaitException("TestTaskStream.testPaginateFailure", task, IllegalStateException.class);
+    assertEquals(task.getError().getMessage(), "failed page");
+  }
+
+  @Test
+  public void testMapAsyncKeepsOrderAndParallelism() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    Task<List<Integer>> task = TaskStream.fromIterable(range(50))
+        .mapAsync(4, i -> Task.async("task", () -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          final SettablePromise<Integer> promise = Promises.settable();
+          getScheduler().schedule(() -> {
+            inFlight.decrementAndGet();
+            promise.done(i);
+          }, 50 - i, TimeUnit.MICROSECONDS);
+          return promise;
+        }))
+        .toList();
+
+    assertEquals(runAndWait("TestTaskStream.testMapAsyncKeepsOrderAndParallelism", task), range(50));
+    assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+  }
+
+  @Test
+  public void testMapAsyncFailFast() throws InterruptedException {
+    final Task<Integer> running = Task.async("running", () -> Promises.<Integer>settable());
+    Task<List<Integer>> task = TaskStream.fromIterable(range(10))
+        .mapAsync(2, i -> i == 0 ? running : delayedFailure(new IllegalStateException("expected"), 10,
+            TimeUnit.MILLISECONDS))
+        .toList();
+
+    runAndWaitException("TestTaskStream.testMapAsyncFailFast", task, IllegalStateException.class);
+    assertTrue(running.await(5, TimeUnit.SECONDS));
+    assertTrue(running.isFailed());
+  }
+
+  @Test
+  public void testMapBatched() {
+    Task<List<String>> task = TaskStream.fromIterable(range(10))
+        .mapBatched(5, _strategy)
+        .toList();
+
+    assertEquals(runAndWait("TestTaskStream.testMapBatched", task),
+        range(10).stream().map(String::valueOf).collect(Collectors.toList()));
+    assertEquals(_strategy._batchSizes.size(), 2);
+    assertEquals(_strategy._batchSizes.get(0), (Integer) 5);
+  }
+
+  @Test
+  public void testBatchBySize() {
+    Task<List<List<Integer>>> task = TaskStream.fromIterable(range(7))
+        .batch(3, 1, TimeUnit.MINUTES)
+        .toList();
+
+    assertEquals(runAndWait("TestTaskStream.testBatchBySize", task),
+        Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3, 4, 5), Collections.singletonList(6)));
+  }
+
+  @Test
+  public void testBatchByTime() {
+    Task<List<List<Integer>>> task = TaskStream.<Integer, Integer>paginate("fetchPage", 0, cursor -> {
+      final Page<Integer, Integer> page = Page.of(Arrays.asList(cursor, cursor + 1), cursor < 2 ? cursor + 2 : null);
+      return cursor == 0 ? Task.value(page) : delayedValue(page, 200, TimeUnit.MILLISECONDS);
+    }).batch(10, 20, TimeUnit.MILLISECONDS).toList();
+
+    assertEquals(runAndWait("TestTaskStream.testBatchByTime", task),
+        Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2, 3)));
+  }
+}
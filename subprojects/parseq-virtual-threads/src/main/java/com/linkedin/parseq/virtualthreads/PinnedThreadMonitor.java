@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.virtualthreads;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.parseq.trace.ShallowTraceBuilder;
+
+
+/**
+ * Subscribes to {@code jdk.VirtualThreadPinned} JFR events using a {@code jdk.jfr.consumer.RecordingStream}
+ * and attributes them to blocking tasks running on pinned threads. JFR API is called reflectively
+ * because this module is compiled for Java 8.
+ * <p>
+ * Events are delivered on the stream's thread after they have been flushed, which can happen after
+ * the blocking task completed. Executions are therefore kept until the second flush that follows
+ * their completion: every event committed before completion must have been delivered by then.
+ */
+class PinnedThreadMonitor implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final long RUNNING = -1;
+
+  private final ConcurrentMap<Long, Execution> _executions = new ConcurrentHashMap<>();
+  private final LongAdder _pinnedCount = new LongAdder();
+
+  private final Object _stream;
+  private final Method _close;
+  private final Method _getThread;
+  private final Method _getJavaThreadId;
+  private final Method _getDuration;
+
+  // incremented by the stream thread
+  private volatile long _flushes = 0;
+
+  PinnedThreadMonitor(final Duration threshold) throws ReflectiveOperationException {
+    final Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+    final Class<?> eventSettingsClass = Class.forName("jdk.jfr.EventSettings");
+    final Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+    final Class<?> recordedThreadClass = Class.forName("jdk.jfr.consumer.RecordedThread");
+    _getThread = recordedEventClass.getMethod("getThread");
+    _getDuration = recordedEventClass.getMethod("getDuration");
+    _getJavaThreadId = recordedThreadClass.getMethod("getJavaThreadId");
+    _close = streamClass.getMethod("close");
+
+    _stream = streamClass.getConstructor().newInstance();
+    final Object eventSettings = streamClass.getMethod("enable", String.class).invoke(_stream, PINNED_EVENT);
+    eventSettingsClass.getMethod("withThreshold", Duration.class).invoke(eventSettings, threshold);
+    streamClass.getMethod("onEvent", String.class, Consumer.class)
+        .invoke(_stream, PINNED_EVENT, (Consumer<Object>) this::onPinned);
+    streamClass.getMethod("onFlush", Runnable.class).invoke(_stream, (Runnable) this::onFlush);
+    streamClass.getMethod("startAsync").invoke(_stream);
+  }
+
+  Execution register(final long threadId, final ShallowTraceBuilder shallowTraceBuilder) {
+    final Execution execution = new Execution(shallowTraceBuilder);
+    _executions.put(threadId, execution);
+    return execution;
+  }
+
+  void unregister(final Execution execution) {
+    execution._completedAtFlush = _flushes;
+  }
+
+  long getPinnedCount() {
+    return _pinnedCount.sum();
+  }
+
+  private void onPinned(final Object event) {
+    _pinnedCount.increment();
+    try {
+      final Object thread = _getThread.invoke(event);
+      if (thread == null) {
+        return;
+      }
+      final Execution execution = _executions.get((Long) _getJavaThreadId.invoke(thread));
+      if (execution != null) {
+        execution.pinned((Duration) _getDuration.invoke(event));
+      }
+    } catch (ReflectiveOperationException e) {
+      LOGGER.warn("Failed to read virtual thread pinning event", e);
+    }
+  }
+
+  private void onFlush() {
+    final long flushes = _flushes + 1;
+    _flushes = flushes;
+    _executions.values().removeIf(execution -> {
+      final long completedAtFlush = execution._completedAtFlush;
+      return completedAtFlush != RUNNING && completedAtFlush < flushes - 1;
+    });
+  }
+
+  @Override
+  public void close() {
+    try {
+      _close.invoke(_stream);
+    } catch (ReflectiveOperationException e) {
+      LOGGER.warn("Failed to close JFR recording stream", e);
+    }
+    _executions.clear();
+  }
+
+  static class Execution {
+    private final ShallowTraceBuilder _shallowTraceBuilder;
+    private volatile long _completedAtFlush = RUNNING;
+
+    // accessed only by the stream thread
+    private long _pinnedCount = 0;
+    private long _pinnedNanos = 0;
+
+    private Execution(final ShallowTraceBuilder shallowTraceBuilder) {
+      _shallowTraceBuilder = shallowTraceBuilder;
+    }
+
+    private void pinned(final Duration duration) {
+      _pinnedCount++;
+      _pinnedNanos += duration.toNanos();
+      _shallowTraceBuilder.addAttribute(VirtualThreadBlockingExecutor.PINNED_COUNT_ATTRIBUTE, Long.toString(_pinnedCount));
+      _shallowTraceBuilder.addAttribute(VirtualThreadBlockingExecutor.PINNED_MILLIS_ATTRIBUTE,
+          Long.toString(_pinnedNanos / 1_000_000));
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.virtualthreads;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.linkedin.parseq.BlockingExecutor;
+import com.linkedin.parseq.internal.ArgumentUtil;
+import com.linkedin.parseq.trace.ShallowTraceBuilder;
+
+
+/**
+ * {@link BlockingExecutor} that runs every command on a new virtual thread. It replaces
+ * bounded thread pools that otherwise have to be sized for every kind of blocking call,
+ * e.g. JDBC requests: blocking tasks created with
+ * {@link com.linkedin.parseq.Task#blocking(String, java.util.concurrent.Callable)} run on the
+ * executor registered with {@link com.linkedin.parseq.EngineBuilder#setBlockingExecutor(java.util.concurrent.Executor)}:
+ *
+ * <blockquote><pre>
+ *  VirtualThreadBlockingExecutor blockingExecutor = new VirtualThreadBlockingExecutor();
+ *  Engine engine = new EngineBuilder()
+ *      .setTaskExecutor(taskScheduler)
+ *      .setTimerScheduler(timerScheduler)
+ *      .setBlockingExecutor(blockingExecutor)
+ *      .build();
+ *
+ *  Task{@code <User>} user = Task.blocking("fetchUser", () {@code ->} userDao.fetch(id));
+ * </pre></blockquote>
+ *
+ * Virtual thread gets pinned to its carrier thread when it blocks inside a {@code synchronized}
+ * block or a native frame, which reduces parallelism of all virtual threads. When pinning reporting
+ * is enabled the executor subscribes to {@code jdk.VirtualThreadPinned} JFR events and adds
+ * {@value #PINNED_COUNT_ATTRIBUTE} and {@value #PINNED_MILLIS_ATTRIBUTE} attributes to the trace
+ * of the blocking task whose callable got pinned. JFR delivers events asynchronously, roughly once
+ * a second, so attributes of short lived tasks are often added after their plan has completed and
+ * show up only in the task's {@link ShallowTraceBuilder}. Every event is counted by
+ * {@link #getPinnedCount()} regardless.
+ * <p>
+ * Virtual threads require Java 21 or later. This class is compiled for Java 8 and calls Java 21 API
+ * reflectively, use {@link #isSupported()} to check if the current JVM supports it.
+ * <p>
+ * The lifecycle of the executor is not managed by the engine, use {@link #close()} to shut it down.
+ */
+public class VirtualThreadBlockingExecutor implements BlockingExecutor, AutoCloseable {
+
+  public static final String DEFAULT_THREAD_NAME_PREFIX = "parseq-blocking-";
+  public static final long DEFAULT_PINNED_THRESHOLD_MS = 20;
+
+  public static final String PINNED_COUNT_ATTRIBUTE = "virtualThreadPinnedCount";
+  public static final String PINNED_MILLIS_ATTRIBUTE = "virtualThreadPinnedMillis";
+
+  private final ExecutorService _executor;
+  private final PinnedThreadMonitor _pinnedThreadMonitor;
+
+  /**
+   * Creates executor that reports pinning longer than {@value #DEFAULT_PINNED_THRESHOLD_MS}ms.
+   */
+  public VirtualThreadBlockingExecutor() {
+    this(DEFAULT_THREAD_NAME_PREFIX);
+  }
+
+  /**
+   * Creates executor that reports pinning longer than {@value #DEFAULT_PINNED_THRESHOLD_MS}ms.
+   *
+   * @param threadNamePrefix prefix of names of virtual threads, followed by a sequence number
+   */
+  public VirtualThreadBlockingExecutor(final String threadNamePrefix) {
+    this(threadNamePrefix, true, DEFAULT_PINNED_THRESHOLD_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param threadNamePrefix prefix of names of virtual threads, followed by a sequence number
+   * @param reportPinning whether pinning of virtual threads should be reported in traces
+   * @param pinnedThreshold minimum duration of pinning that is reported
+   * @param unit unit of the {@code pinnedThreshold}
+   * @throws UnsupportedOperationException if the current JVM does not support virtual threads
+   */
+  public VirtualThreadBlockingExecutor(final String threadNamePrefix, final boolean reportPinning,
+      final long pinnedThreshold, final TimeUnit unit) {
+    ArgumentUtil.requireNotNull(threadNamePrefix, "threadNamePrefix");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    if (pinnedThreshold < 0) {
+      throw new IllegalArgumentException("pinnedThreshold must not be negative: " + pinnedThreshold);
+    }
+    try {
+      _executor = newThreadPerTaskExecutor(threadNamePrefix);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require Java 21 or later, current Java version: " + System.getProperty("java.version"), e);
+    }
+    try {
+      _pinnedThreadMonitor = reportPinning ? new PinnedThreadMonitor(Duration.ofNanos(unit.toNanos(pinnedThreshold))) : null;
+    } catch (ReflectiveOperationException e) {
+      _executor.shutdown();
+      throw new UnsupportedOperationException("Failed to subscribe to virtual thread pinning events", e);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the current JVM supports virtual threads.
+   */
+  public static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    _executor.execute(command);
+  }
+
+  @Override
+  public void execute(final Runnable command, final ShallowTraceBuilder shallowTraceBuilder) {
+    if (_pinnedThreadMonitor == null) {
+      _executor.execute(command);
+    } else {
+      _executor.execute(() -> {
+        final PinnedThreadMonitor.Execution execution =
+            _pinnedThreadMonitor.register(Thread.currentThread().getId(), shallowTraceBuilder);
+        try {
+          command.run();
+        } finally {
+          _pinnedThreadMonitor.unregister(execution);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns number of pinning events observed since this executor was created, including
+   * events that could not be attributed to a task. Returns 0 if pinning reporting is disabled.
+   */
+  public long getPinnedCount() {
+    return _pinnedThreadMonitor == null ? 0 : _pinnedThreadMonitor.getPinnedCount();
+  }
+
+  /**
+   * Blocks until all commands have completed after {@link #close()}, or the timeout occurs.
+   *
+   * @return {@code true} if all commands have completed
+   */
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return _executor.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Stops accepting new commands and stops pinning reporting. Commands that have
+   * already been submitted are not interrupted.
+   */
+  @Override
+  public void close() {
+    _executor.shutdown();
+    if (_pinnedThreadMonitor != null) {
+      _pinnedThreadMonitor.close();
+    }
+  }
+
+  private static ExecutorService newThreadPerTaskExecutor(final String threadNamePrefix)
+      throws ReflectiveOperationException {
+    final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+    Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+    builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+    final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+        .invoke(null, threadFactory);
+  }
+}
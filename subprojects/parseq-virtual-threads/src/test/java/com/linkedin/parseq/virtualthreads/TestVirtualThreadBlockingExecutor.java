@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.virtualthreads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+
+
+public class TestVirtualThreadBlockingExecutor extends BaseEngineTest {
+
+  private VirtualThreadBlockingExecutor _blockingExecutor;
+
+  @BeforeClass
+  public void setUpExecutor() {
+    if (!VirtualThreadBlockingExecutor.isSupported()) {
+      throw new SkipException("Virtual threads are not supported by Java " + System.getProperty("java.version"));
+    }
+    _blockingExecutor = new VirtualThreadBlockingExecutor("test-blocking-", true, 5, TimeUnit.MILLISECONDS);
+  }
+
+  @AfterClass(alwaysRun = true)
+  public void tearDownExecutor() throws InterruptedException {
+    if (_blockingExecutor != null) {
+      _blockingExecutor.close();
+      assertTrue(_blockingExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    if (_blockingExecutor != null) {
+      engineBuilder.setBlockingExecutor(_blockingExecutor);
+    }
+  }
+
+  @Test
+  public void testRunsOnVirtualThread() {
+    Task<String> task = Task.blocking("threadName", () -> Thread.currentThread().getName());
+    runAndWait("TestVirtualThreadBlockingExecutor.testRunsOnVirtualThread", task);
+    assertTrue(task.get().startsWith("test-blocking-"), task.get());
+  }
+
+  @Test
+  public void testManyConcurrentBlockingTasks() {
+    List<Task<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final int value = i;
+      tasks.add(Task.blocking("sleep", () -> {
+        Thread.sleep(100);
+        return value;
+      }));
+    }
+    Task<List<Integer>> task = Task.par(tasks);
+    // 1000 tasks sleeping 100ms each would take much longer than 5 seconds on a bounded pool
+    runAndWait("TestVirtualThreadBlockingExecutor.testManyConcurrentBlockingTasks", task, 5, TimeUnit.SECONDS);
+    assertEquals(task.get().size(), 1000);
+  }
+
+  @Test
+  public void testReportsPinning() throws InterruptedException {
+    final Object lock = new Object();
+    Task<String> task = Task.blocking("pinned", () -> {
+      synchronized (lock) {
+        // sleeping while holding a monitor pins the virtual thread to its carrier
+        Thread.sleep(50);
+      }
+      return "done";
+    });
+    runAndWait("TestVirtualThreadBlockingExecutor.testReportsPinning", task);
+
+    // JFR delivers events asynchronously
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (task.getShallowTraceBuilder().getAttributes().get(VirtualThreadBlockingExecutor.PINNED_COUNT_ATTRIBUTE) == null
+        && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    assertEquals(task.getShallowTraceBuilder().getAttributes().get(VirtualThreadBlockingExecutor.PINNED_COUNT_ATTRIBUTE), "1");
+    assertTrue(_blockingExecutor.getPinnedCount() >= 1);
+  }
+
+  @Test
+  public void testNotPinned() {
+    Task<String> task = Task.blocking("notPinned", () -> {
+      Thread.sleep(50);
+      return "done";
+    });
+    runAndWait("TestVirtualThreadBlockingExecutor.testNotPinned", task);
+    assertFalse(task.getShallowTraceBuilder().getAttributes().containsKey(VirtualThreadBlockingExecutor.PINNED_COUNT_ATTRIBUTE));
+  }
+}
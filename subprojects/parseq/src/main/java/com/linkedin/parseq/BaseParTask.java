@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Base class of {@link ParTask} implementations, it holds the constructor-supplied tasks in an array.
+ *
+ * @see ParTaskImpl
+ * @see FastFailParTask
+ * @see BoundedParTask
+ */
+/* package private */ abstract class BaseParTask<T> extends BaseTask<List<T>> implements ParTask<T> {
+
+  @SuppressWarnings("rawtypes")
+  private static final Task<?>[] EMPTY = new Task[0];
+
+  protected final Task<? extends T>[] _tasks;
+
+  @SuppressWarnings("unchecked")
+  BaseParTask(final String name) {
+    super(name);
+    _tasks = (Task<? extends T>[]) EMPTY;
+  }
+
+  BaseParTask(final String name, final Iterable<? extends Task<? extends T>> tasks) {
+    super(name);
+    _tasks = toArray(tasks);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <T> Task<? extends T>[] toArray(final Iterable<? extends Task<? extends T>> tasks) {
+    if (tasks instanceof Collection) {
+      return ((Collection<? extends Task<? extends T>>) tasks).toArray(new Task[0]);
+    }
+    final List<Task<? extends T>> taskList = new ArrayList<>();
+    for (Task<? extends T> task : tasks) {
+      taskList.add(task);
+    }
+    return taskList.toArray(new Task[0]);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public List<Task<T>> getTasks() {
+    final List<Task<T>> tasks = new ArrayList<>(_tasks.length);
+    for (Task<? extends T> task : _tasks) {
+      // Safe to coerce Task<? extends T> to Task<T>
+      tasks.add((Task<T>) task);
+    }
+    return tasks;
+  }
+
+  @Override
+  public List<T> getSuccessful() {
+    if (!this.isFailed()) {
+      return this.get();
+    }
+    final List<T> taskResult = new ArrayList<>();
+    for (Task<? extends T> task : _tasks) {
+      if (task.isDone() && !task.isFailed()) {
+        taskResult.add(task.get());
+      }
+    }
+    return taskResult;
+  }
+}
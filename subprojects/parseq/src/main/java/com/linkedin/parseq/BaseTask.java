@@ -18,7 +18,7 @@ package com.linkedin.parseq;
 
 import java.util.Collection;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -53,35 +53,52 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   static final Logger LOGGER = LoggerFactory.getLogger(BaseTask.class);
   private static final String CANONICAL_NAME = BaseTask.class.getCanonicalName();
 
+  /*
+   * State of the task is packed into a single long updated through STATE, so that state transitions
+   * do not allocate: type of the state is kept in the lower 32 bits and priority in the upper 32 bits.
+   */
+
+  // The initial state of the task.
+  //
+  // A task in this state can be cancelled and have its priority changed.
+  private static final int INIT = 0;
+
+  // The task is currently executing. That is, a thread is in the run()
+  // method for the TaskDef.
+  //
+  // A task in this state in not cancellable and cannot have its priority
+  // changed.
+  private static final int RUN = 1;
+
+  // The task has finished running, but the result has not yet been set.
+  // This occurs for Tasks with AsyncTaskDefs.
+  //
+  // A task in this state in cancellable, and cannot have its priority
+  // changed.
+  private static final int PENDING = 2;
+
+  // The task is resolved.
+  //
+  // A task in this state in not cancellable and cannot have its priority
+  // changed.
+  private static final int DONE = 3;
+
+  private static final long TYPE_MASK = 0xFFFFFFFFL;
+
+  /* Type of the state exposed by deprecated State, ordinals match the constants above */
   private static enum StateType {
-    // The initial state of the task.
-    //
-    // A task in this state can be cancelled and have its priority changed.
     INIT,
-
-    // The task is currently executing. That is, a thread is in the run()
-    // method for the TaskDef.
-    //
-    // A task in this state in not cancellable and cannot have its priority
-    // changed.
     RUN,
-
-    // The task has finished running, but the result has not yet been set.
-    // This occurs for Tasks with AsyncTaskDefs.
-    //
-    // A task in this state in cancellable, and cannot have its priority
-    // changed.
     PENDING,
-
-    // The task is resolved.
-    //
-    // A task in this state in not cancellable and cannot have its priority
-    // changed.
     DONE
   }
 
+  @SuppressWarnings("rawtypes")
+  private static final AtomicLongFieldUpdater<BaseTask> STATE =
+      AtomicLongFieldUpdater.newUpdater(BaseTask.class, "_state");
+
   private final Long _id = IdGenerator.getNextId();
-  private final AtomicReference<State> _stateRef;
+  private volatile long _state;
   private final String _name;
   protected final ShallowTraceBuilder _shallowTraceBuilder;
 
@@ -118,14 +135,13 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   public BaseTask(final String name, final String taskType) {
     super(Promises.settable());
     _name = truncate(name);
-    final State state = State.INIT;
     _shallowTraceBuilder = new ShallowTraceBuilder(_id);
     _shallowTraceBuilder.setName(getName());
     _shallowTraceBuilder.setResultType(ResultType.UNFINISHED);
     if (taskType != null) {
       _shallowTraceBuilder.setTaskType(taskType);
     }
-    _stateRef = new AtomicReference<>(state);
+    _state = state(INIT, Priority.DEFAULT_PRIORITY);
 
     if (ParSeqGlobalConfiguration.isCrossThreadStackTracesEnabled()) {
       _taskStackTraceHolder = new Throwable();
@@ -149,7 +165,7 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
 
   @Override
   public int getPriority() {
-    return _stateRef.get().getPriority();
+    return priority(_state);
   }
 
   @Override
@@ -158,16 +174,13 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
       throw new IllegalArgumentException("Priority out of bounds: " + priority);
     }
 
-    State state;
-    State newState;
+    long state;
     do {
-      state = _stateRef.get();
-      if (state.getType() != StateType.INIT) {
+      state = _state;
+      if (type(state) != INIT) {
         return false;
       }
-
-      newState = new State(state.getType(), priority);
-    } while (!_stateRef.compareAndSet(state, newState));
+    } while (!STATE.compareAndSet(this, state, state(INIT, priority)));
 
     return true;
   }
@@ -282,8 +295,10 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   @Override
   public Trace getTrace() {
     TraceBuilder traceBuilder = getTraceBuilder();
-    if (traceBuilder != null) {
+    if (traceBuilder != null && traceBuilder.isEnabled()) {
       return traceBuilder.build();
+    } else if (traceBuilder != null) {
+      return Trace.single(getShallowTrace(), traceBuilder.getPlanClass(), traceBuilder.getPlanId());
     } else {
       return Trace.single(getShallowTrace(), "none", 0L);
     }
@@ -302,11 +317,7 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
     _shallowTraceBuilder.setResultType(ResultType.SUCCESS);
     final Function<T, String> traceValueProvider = _traceValueProvider;
     if (traceValueProvider != null) {
-      try {
-        _shallowTraceBuilder.setValue(traceValueProvider.apply(value));
-      } catch (Exception e) {
-        _shallowTraceBuilder.setValue(Exceptions.failureToString(e));
-      }
+      _shallowTraceBuilder.setValue(value, traceValueProvider);
     }
   }
 
@@ -390,15 +401,13 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   }
 
   protected boolean transitionRun(final TraceBuilder traceBuilder) {
-    State state;
-    State newState;
+    long state;
     do {
-      state = _stateRef.get();
-      if (state.getType() != StateType.INIT) {
+      state = _state;
+      if (type(state) != INIT) {
         return false;
       }
-      newState = state.transitionRun();
-    } while (!_stateRef.compareAndSet(state, newState));
+    } while (!STATE.compareAndSet(this, state, withType(state, RUN)));
     _traceBuilder = traceBuilder;
     traceBuilder.addShallowTrace(_shallowTraceBuilder);
     return true;
@@ -409,15 +418,13 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   }
 
   protected void transitionPending() {
-    State state;
-    State newState;
+    long state;
     do {
-      state = _stateRef.get();
-      if (state.getType() != StateType.RUN) {
+      state = _state;
+      if (type(state) != RUN) {
         return;
       }
-      newState = state.transitionPending();
-    } while (!_stateRef.compareAndSet(state, newState));
+    } while (!STATE.compareAndSet(this, state, withType(state, PENDING)));
     markTaskPending();
   }
 
@@ -426,29 +433,25 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
   }
 
   protected boolean transitionCancel(final Exception reason) {
-    State state;
-    State newState;
+    long state;
     do {
-      state = _stateRef.get();
-      final StateType type = state.getType();
-      if (type == StateType.RUN || type == StateType.DONE) {
+      state = _state;
+      final int type = type(state);
+      if (type == RUN || type == DONE) {
         return false;
       }
-      newState = state.transitionDone();
-    } while (!_stateRef.compareAndSet(state, newState));
+    } while (!STATE.compareAndSet(this, state, withType(state, DONE)));
     return true;
   }
 
   protected boolean transitionDone() {
-    State state;
-    State newState;
+    long state;
     do {
-      state = _stateRef.get();
-      if (state.getType() == StateType.DONE) {
+      state = _state;
+      if (type(state) == DONE) {
         return false;
       }
-      newState = state.transitionDone();
-    } while (!_stateRef.compareAndSet(state, newState));
+    } while (!STATE.compareAndSet(this, state, withType(state, DONE)));
     return true;
   }
 
@@ -456,6 +459,40 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
     return (SettablePromise<T>) super.getDelegate();
   }
 
+  private static long state(final int type, final int priority) {
+    return ((long) priority << 32) | type;
+  }
+
+  private static long withType(final long state, final int type) {
+    return (state & ~TYPE_MASK) | type;
+  }
+
+  private static int type(final long state) {
+    return (int) (state & TYPE_MASK);
+  }
+
+  private static int priority(final long state) {
+    return (int) (state >> 32);
+  }
+
+  /**
+   * Returns snapshot of the current state of this task.
+   *
+   * @deprecated state is no longer tracked with {@link State}, returned object is created on every invocation.
+   */
+  @Deprecated
+  protected State getState() {
+    final long state = _state;
+    return new State(StateType.values()[type(state)], priority(state));
+  }
+
+  /**
+   * Snapshot of the state of a task.
+   *
+   * @deprecated state of the task is packed into a single long and is no longer tracked with this class,
+   * instances are only created as views of the current state by {@link BaseTask#getState()}.
+   */
+  @Deprecated
   protected static class State {
     private final StateType _type;
     private final int _priority;
@@ -569,6 +606,24 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
       return cancellable;
     }
 
+    @Override
+    public Cancellable createDeadline(final long time, final TimeUnit unit, final Task<?> task) {
+      final Cancellable cancellable = _context.createDeadline(time, unit, task);
+      getTraceBuilder().addRelationship(Relationship.POTENTIAL_PARENT_OF, getShallowTraceBuilder(),
+          task.getShallowTraceBuilder());
+      return cancellable;
+    }
+
+    @Override
+    public boolean hasDeadline() {
+      return _context.hasDeadline();
+    }
+
+    @Override
+    public long getRemainingTime(final TimeUnit unit) {
+      return _context.getRemainingTime(unit);
+    }
+
     @Override
     public void run(final Task<?>... tasks) {
       _context.run(tasks);
@@ -583,6 +638,21 @@ public abstract class BaseTask<T> extends DelegatingPromise<T>implements Task<T>
       return new WrappedAfter(_context.after(promises));
     }
 
+    @Override
+    public SubTaskRunner createSubTaskRunner() {
+      final SubTaskRunner runner = _context.createSubTaskRunner();
+      return task -> {
+        runner.run(task);
+        getTraceBuilder().addRelationship(Relationship.POTENTIAL_PARENT_OF, getShallowTraceBuilder(),
+            task.getShallowTraceBuilder());
+      };
+    }
+
+    @Override
+    public <R> Task<R> memoize(final Object key, final Supplier<Task<R>> supplier) {
+      return _context.memoize(key, supplier);
+    }
+
     @Override
     public Object getEngineProperty(String key) {
       return _context.getEngineProperty(key);
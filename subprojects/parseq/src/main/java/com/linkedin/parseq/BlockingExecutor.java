@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.linkedin.parseq.trace.ShallowTraceBuilder;
+
+
+/**
+ * An {@link Executor} for callables of blocking tasks that is aware of the task it runs
+ * a callable for. Blocking tasks created with {@link Task#blocking(String, Callable, Executor)}
+ * or {@link Task#blocking(String, Callable)} pass their {@link ShallowTraceBuilder} to
+ * {@link #execute(Runnable, ShallowTraceBuilder)} so that an implementation can add attributes
+ * describing the execution to the trace.
+ * <p>
+ * The same rules as for any executor used by blocking tasks apply: rejection must be signalled
+ * by throwing an exception and the callable must never be run on the calling thread.
+ */
+public interface BlockingExecutor extends Executor {
+
+  /**
+   * Executes the given command on behalf of a blocking task. Default implementation
+   * ignores the trace builder and calls {@link #execute(Runnable)}.
+   *
+   * @param command the command to run
+   * @param shallowTraceBuilder trace builder of the blocking task
+   */
+  default void execute(Runnable command, ShallowTraceBuilder shallowTraceBuilder) {
+    execute(command);
+  }
+}
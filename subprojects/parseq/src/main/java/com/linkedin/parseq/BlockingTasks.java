@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * Runs callables of blocking tasks, see {@link Task#blocking(String, Callable, Executor)}.
+ */
+final class BlockingTasks {
+
+  private BlockingTasks() {
+  }
+
+  static <T> Promise<T> execute(final Context context, final Callable<? extends T> callable, final Executor executor) {
+    final SettablePromise<T> promise = Promises.settable();
+    final Runnable runnable = () -> {
+      try {
+        promise.done(callable.call());
+      } catch (Throwable t) {
+        promise.fail(t);
+      }
+    };
+    if (executor instanceof BlockingExecutor) {
+      ((BlockingExecutor) executor).execute(runnable, context.getShallowTraceBuilder());
+    } else {
+      executor.execute(runnable);
+    }
+    return promise;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.linkedin.parseq.internal.InternalUtil;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.PromiseListener;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * A {@link Task} that runs the constructor-supplied tasks in parallel, keeping at most
+ * {@code maxInFlight} of them running at any time.
+ * <p>
+ * The first {@code maxInFlight} tasks are started when this task runs, every completion of a task
+ * starts the next task that has not been started yet. Tasks are started as sub-tasks of this task
+ * through a {@link SubTaskRunner} so they are executed by the plan's executor and appear in the trace
+ * as children of this task, and no state is allocated for tasks that have not been started yet.
+ * <p>
+ * Unless partial results are requested, the task fails as soon as any of the tasks fails: tasks that
+ * have not been started are cancelled and running tasks are cancelled when this task completes.
+ * With partial results failed tasks are skipped and the result contains values of successful tasks.
+ * <p>
+ * Use {@link Task#parBounded(int, Iterable)} to create an instance of this class.
+ */
+/* package private */ class BoundedParTask<T> extends BaseParTask<T> {
+
+  private static final Object FAILED = new Object();
+
+  private final int _maxInFlight;
+  private final ResultOrder _resultOrder;
+  private final boolean _partialResults;
+
+  BoundedParTask(final String name, final int maxInFlight, final ResultOrder resultOrder,
+      final boolean partialResults, final Iterable<? extends Task<? extends T>> tasks) {
+    super(name, tasks);
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("maxInFlight must be positive, but is: " + maxInFlight);
+    }
+    _maxInFlight = maxInFlight;
+    _resultOrder = resultOrder;
+    _partialResults = partialResults;
+    getShallowTraceBuilder().addAttribute("maxInFlight", String.valueOf(maxInFlight));
+  }
+
+  @Override
+  protected Promise<List<T>> run(final Context context) throws Exception {
+    if (_tasks.length == 0) {
+      return Promises.value(Collections.emptyList());
+    }
+    final Execution execution = new Execution(context.createSubTaskRunner());
+    final int initial = Math.min(_maxInFlight, _tasks.length);
+    for (int i = 0; i < initial; i++) {
+      execution.startNextTask();
+    }
+    return execution._result;
+  }
+
+  /**
+   * State of a single run of this task.
+   */
+  private class Execution {
+    private final SettablePromise<List<T>> _result = Promises.settable();
+    private final SubTaskRunner _runner;
+    private final Object[] _values = new Object[_tasks.length];
+    /* index of the next task to start */
+    private final AtomicInteger _next = new AtomicInteger();
+    private final AtomicInteger _completed = new AtomicInteger();
+    private final AtomicInteger _succeeded = new AtomicInteger();
+    private final AtomicBoolean _failed = new AtomicBoolean();
+
+    private Execution(final SubTaskRunner runner) {
+      _runner = runner;
+    }
+
+    /**
+     * Starts the next task if there is one that has not been started yet.
+     */
+    private void startNextTask() {
+      final int index = _next.getAndIncrement();
+      if (index < _tasks.length) {
+        final Task<? extends T> task = _tasks[index];
+        InternalUtil.unwildcardTask(task).addListener(new TaskListener(index));
+        _runner.run(task);
+      }
+    }
+
+    private void taskResolved(final int index, final Promise<Object> resolvedPromise) {
+      if (resolvedPromise.isFailed()) {
+        if (!_partialResults) {
+          fail(resolvedPromise.getError());
+          return;
+        }
+        if (_resultOrder == ResultOrder.TASK_ORDER) {
+          _values[index] = FAILED;
+        }
+      } else {
+        final int position = _resultOrder == ResultOrder.TASK_ORDER ? index : _succeeded.getAndIncrement();
+        _values[position] = resolvedPromise.get();
+      }
+      if (_completed.incrementAndGet() == _tasks.length) {
+        done();
+      } else {
+        startNextTask();
+      }
+    }
+
+    private void fail(final Throwable error) {
+      if (_failed.compareAndSet(false, true)) {
+        final int notStarted = _next.getAndSet(_tasks.length);
+        _result.fail(error);
+        for (int i = notStarted; i < _tasks.length; i++) {
+          _tasks[i].cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void done() {
+      final List<Object> values;
+      if (_resultOrder == ResultOrder.COMPLETION_ORDER) {
+        values = Arrays.asList(_values).subList(0, _succeeded.get());
+      } else if (_partialResults) {
+        values = new ArrayList<>(_values.length);
+        for (Object value : _values) {
+          if (value != FAILED) {
+            values.add(value);
+          }
+        }
+      } else {
+        values = Arrays.asList(_values);
+      }
+      _result.done((List<T>) Collections.unmodifiableList(values));
+    }
+
+    private class TaskListener implements PromiseListener<Object> {
+      private final int _index;
+
+      private TaskListener(final int index) {
+        _index = index;
+      }
+
+      @Override
+      public void onResolved(final Promise<Object> resolvedPromise) {
+        taskResolved(_index, resolvedPromise);
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.linkedin.parseq.trace.ShallowTraceBuilder;
 import com.linkedin.parseq.trace.TraceBuilder;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 
 /**
@@ -47,6 +48,46 @@ public interface Context {
    */
   Cancellable createTimer(long time, TimeUnit unit, Task<?> task);
 
+  /**
+   * Sets a deadline for the calling task that will invoke the given task if the calling
+   * task has not yet finished by then, like {@link #createTimer(long, TimeUnit, Task)}.
+   * <p>
+   * Unlike a timer, the deadline is inherited by all tasks run by the calling task, which
+   * can read the time they have left with {@link #getRemainingTime(TimeUnit)}. If the calling
+   * task already inherited a deadline which is not later than the new one then the inherited
+   * deadline stays in effect, no timer is created and the given task never runs. All deadlines
+   * of a plan share a single timer.
+   * <p>
+   * Default implementation falls back to {@link #createTimer(long, TimeUnit, Task)}.
+   *
+   * @param time the time until the deadline
+   * @param unit the unit of the time
+   * @param task the task to run if the deadline expires
+   * @return a handle that can be used to explicitly cancel the deadline
+   */
+  default Cancellable createDeadline(long time, TimeUnit unit, Task<?> task) {
+    return createTimer(time, unit, task);
+  }
+
+  /**
+   * Returns {@code true} if the calling task has a deadline, either set by
+   * {@link #createDeadline(long, TimeUnit, Task)} or inherited from one of its parents.
+   */
+  default boolean hasDeadline() {
+    return false;
+  }
+
+  /**
+   * Returns time left until the deadline of the calling task, see {@link #createDeadline(long, TimeUnit, Task)}.
+   *
+   * @param unit the unit of the returned time
+   * @return time left until the deadline, {@code 0} if the deadline has passed or
+   *         {@code Long.MAX_VALUE} if the calling task has no deadline
+   */
+  default long getRemainingTime(TimeUnit unit) {
+    return Long.MAX_VALUE;
+  }
+
   /**
    * Runs one or more tasks in parallel.
    *
@@ -67,6 +108,36 @@ public interface Context {
    */
   After after(Promise<?>... promises);
 
+  /**
+   * Creates a {@link SubTaskRunner} that can be used to run sub-tasks of the
+   * current task after its run method has returned, for example to start
+   * the next sub-task when the previous one completes.
+   * <p>
+   * Default implementation runs sub-tasks with {@link #run(Task...)}, so the returned
+   * runner can be used only until the run method of the current task returns.
+   *
+   * @return a runner of sub-tasks of the current task
+   */
+  default SubTaskRunner createSubTaskRunner() {
+    return task -> run(task);
+  }
+
+  /**
+   * Returns the task memoized under the given key in the current plan. If there is no such task then
+   * the task returned by the supplier is memoized and returned. Memoized tasks are released when the plan completes.
+   * Memoized task is not run by this method.
+   * <p>
+   * Default implementation does not memoize tasks, it returns the task returned by the supplier.
+   *
+   * @param key key that identifies the task within the plan
+   * @param supplier supplier of the task, invoked only if there is no task memoized under the key
+   * @return memoized task
+   * @see Task#memoized(Object, Supplier)
+   */
+  default <T> Task<T> memoize(Object key, Supplier<Task<T>> supplier) {
+    return supplier.get();
+  }
+
   /**
    * Provides a mechanism for "plugins" to generate data which should be passed in via the context.
    * The intent is that the "plugin" registers engine specific data it needed via the engine builder.
@@ -17,10 +17,10 @@
 package com.linkedin.parseq;
 
 import com.linkedin.parseq.internal.PlanBasedRateLimiter;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -32,13 +32,22 @@ import org.slf4j.event.Level;
 import com.linkedin.parseq.internal.ArgumentUtil;
 import com.linkedin.parseq.internal.ContextImpl;
 import com.linkedin.parseq.internal.ExecutionMonitor;
+import com.linkedin.parseq.internal.PlanAdmissionQueue;
+import com.linkedin.parseq.internal.PlanAdmissionQueue.AdmittedPlan;
+import com.linkedin.parseq.internal.PlanAdmissionQueue.QueuedPlan;
 import com.linkedin.parseq.internal.LIFOBiPriorityQueue;
 import com.linkedin.parseq.internal.PlanCompletionListener;
 import com.linkedin.parseq.internal.PlanDeactivationListener;
+import com.linkedin.parseq.internal.PlanPermits;
+import com.linkedin.parseq.internal.PlanPermits.Admission;
 import com.linkedin.parseq.internal.PlatformClock;
 import com.linkedin.parseq.internal.SerialExecutor;
 import com.linkedin.parseq.internal.SerialExecutor.TaskQueue;
 import com.linkedin.parseq.internal.PlanContext;
+import com.linkedin.parseq.internal.TraceSampler;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
 
 
 /**
@@ -57,16 +66,49 @@ public class Engine {
   public static final String MAX_RELATIONSHIPS_PER_TRACE = "_MaxRelationshipsPerTrace_";
   private static final int DEFUALT_MAX_RELATIONSHIPS_PER_TRACE = 65536;
 
+  /*
+   * Fraction of plans, between 0 and 1, that are traced. Trace builders of plans that are not traced are
+   * disabled: tasks do not record their traces nor relationships. By default all plans are traced.
+   */
+  public static final String TRACE_SAMPLING_RATE = "_TraceSamplingRate_";
+  private static final double DEFAULT_TRACE_SAMPLING_RATE = 1.0;
+
+  /*
+   * If enabled, plans that are not sampled are traced too, but their traces are retained only if the
+   * plan failed or its duration exceeded the latency threshold of its plan class. Traces that are not
+   * retained are discarded when the plan completes, before plan completion listener is notified.
+   */
+  public static final String TRACE_TAIL_RETENTION = "_TraceTailRetention_";
+  private static final boolean DEFAULT_TRACE_TAIL_RETENTION = false;
+
+  public static final String TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO = "_TraceTailRetentionLatencyThresholdNano_";
+  private static final long DEFAULT_TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO = Long.MAX_VALUE;
+
+  // Map<String, Long> of latency thresholds of individual plan classes
+  public static final String TRACE_TAIL_RETENTION_LATENCY_THRESHOLDS_NANO = "_TraceTailRetentionLatencyThresholdsNano_";
+
   public static final String MAX_CONCURRENT_PLANS = "_MaxConcurrentPlans_";
   private static final int DEFUALT_MAX_CONCURRENT_PLANS = Integer.MAX_VALUE;
 
+  public static final String MAX_QUEUED_PLANS = "_MaxQueuedPlans_";
+  private static final int DEFAULT_MAX_QUEUED_PLANS = Integer.MAX_VALUE;
+
+  public static final String MAX_QUEUED_PLANS_PER_PLAN_CLASS = "_MaxQueuedPlansPerPlanClass_";
+  private static final int DEFAULT_MAX_QUEUED_PLANS_PER_PLAN_CLASS = Integer.MAX_VALUE;
+
   public static final String DRAIN_SERIAL_EXECUTOR_QUEUE = "_DrainSerialExecutorQueue_";
   private static final boolean DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE = true;
 
+  public static final String DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES = "_DrainSerialExecutorQueueMaxRunnables_";
+  private static final int DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES = Integer.MAX_VALUE;
+
+  public static final String DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO = "_DrainSerialExecutorQueueMaxNano_";
+  private static final long DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO = Long.MAX_VALUE;
+
   public static final String DEFAULT_TASK_QUEUE = "_DefaultTaskQueue_";
 
-  private static final State INIT = new State(StateName.RUN, 0);
-  private static final State TERMINATED = new State(StateName.TERMINATED, 0);
+  public static final String BLOCKING_EXECUTOR = "_BlockingExecutor_";
+
   private static final Logger LOG = LoggerFactory.getLogger(LOGGER_BASE);
 
   public static final String MAX_EXECUTION_MONITORS = "_MaxExecutionMonitors_";
@@ -107,18 +149,23 @@ public class Engine {
   private final ILoggerFactory _loggerFactory;
   private final TaskQueueFactory _taskQueueFactory;
 
-  private final AtomicReference<State> _stateRef = new AtomicReference<State>(INIT);
+  private final AtomicReference<StateName> _stateRef = new AtomicReference<StateName>(StateName.RUN);
   private final CountDownLatch _terminated = new CountDownLatch(1);
 
   private final Map<String, Object> _properties;
 
   private final int _maxRelationshipsPerTrace;
+  private final TraceSampler _traceSampler;
 
   private final int _maxConcurrentPlans;
-  private final Semaphore _concurrentPlans;
+  private final PlanPermits _planPermits;
   private final PlanBasedRateLimiter _planBasedRateLimiter;
+  private final PlanAdmissionQueue _admissionQueue;
+  private final PlanAdmissionQueue.Permits _admissionPermits;
 
   private final boolean _drainSerialExecutorQueue;
+  private final int _drainSerialExecutorQueueMaxRunnables;
+  private final long _drainSerialExecutorQueueMaxNano;
 
   private final ExecutionMonitor _executionMonitor;
 
@@ -155,12 +202,36 @@ public class Engine {
       _maxRelationshipsPerTrace = DEFUALT_MAX_RELATIONSHIPS_PER_TRACE;
     }
 
+    _traceSampler = createTraceSampler(properties);
+
     if (_properties.containsKey(MAX_CONCURRENT_PLANS)) {
       _maxConcurrentPlans = (Integer) getProperty(MAX_CONCURRENT_PLANS);
     } else {
       _maxConcurrentPlans = DEFUALT_MAX_CONCURRENT_PLANS;
     }
-    _concurrentPlans = new Semaphore(_maxConcurrentPlans);
+    _planPermits = new PlanPermits(_maxConcurrentPlans);
+
+    final int maxQueuedPlans = _properties.containsKey(MAX_QUEUED_PLANS)
+        ? (Integer) getProperty(MAX_QUEUED_PLANS) : DEFAULT_MAX_QUEUED_PLANS;
+    final int maxQueuedPlansPerPlanClass = _properties.containsKey(MAX_QUEUED_PLANS_PER_PLAN_CLASS)
+        ? (Integer) getProperty(MAX_QUEUED_PLANS_PER_PLAN_CLASS) : DEFAULT_MAX_QUEUED_PLANS_PER_PLAN_CLASS;
+    _admissionQueue = new PlanAdmissionQueue(maxQueuedPlans, maxQueuedPlansPerPlanClass);
+    _admissionPermits = new PlanAdmissionQueue.Permits() {
+      @Override
+      public Admission tryAcquire() {
+        return _planPermits.tryAcquire();
+      }
+
+      @Override
+      public boolean tryAcquire(String planClass) {
+        return _planBasedRateLimiter == null || _planBasedRateLimiter.tryAcquire(planClass);
+      }
+
+      @Override
+      public void release() {
+        releasePermit();
+      }
+    };
 
     if (_properties.containsKey(DRAIN_SERIAL_EXECUTOR_QUEUE)) {
       _drainSerialExecutorQueue = (Boolean) getProperty(DRAIN_SERIAL_EXECUTOR_QUEUE);
@@ -168,24 +239,29 @@ public class Engine {
       _drainSerialExecutorQueue = DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE;
     }
 
-    _taskDoneListener = resolvedPromise -> {
-      assert _stateRef.get()._pendingCount > 0;
-      assert _stateRef.get()._stateName != StateName.TERMINATED;
+    if (_properties.containsKey(DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES)) {
+      _drainSerialExecutorQueueMaxRunnables = (Integer) getProperty(DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES);
+    } else {
+      _drainSerialExecutorQueueMaxRunnables = DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES;
+    }
 
-      State currState;
-      State newState;
-      do {
-        currState = _stateRef.get();
-        newState = new State(currState._stateName, currState._pendingCount - 1);
-      } while (!_stateRef.compareAndSet(currState, newState));
+    if (_properties.containsKey(DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO)) {
+      _drainSerialExecutorQueueMaxNano = (Long) getProperty(DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO);
+    } else {
+      _drainSerialExecutorQueueMaxNano = DEFAULT_DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO;
+    }
+    ArgumentUtil.requirePositive(_drainSerialExecutorQueueMaxRunnables, DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES);
+    ArgumentUtil.requirePositive(_drainSerialExecutorQueueMaxNano, DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO);
+
+    _taskDoneListener = resolvedPromise -> {
+      assert _stateRef.get() != StateName.TERMINATED;
 
-      _concurrentPlans.release();
       if (planClassRateLimiter != null) {
-        _planBasedRateLimiter.release(resolvedPromise.getPlanClass());
+        _planBasedRateLimiter.release(resolvedPromise.getPlanClass(), System.nanoTime() - resolvedPromise.getStartNano());
       }
-
-      if (newState._stateName == StateName.SHUTDOWN && newState._pendingCount == 0) {
-        tryTransitionTerminate();
+      releasePermit();
+      if (!_admissionQueue.isEmpty()) {
+        startQueuedPlans();
       }
     };
 
@@ -249,6 +325,23 @@ public class Engine {
             loggingIntervalNano, minStallNano, stallsHistorySize, level, new PlatformClock()) : null;
   }
 
+  @SuppressWarnings("unchecked")
+  private static TraceSampler createTraceSampler(final Map<String, Object> properties) {
+    final double samplingRate = properties.containsKey(TRACE_SAMPLING_RATE)
+        ? (Double) properties.get(TRACE_SAMPLING_RATE) : DEFAULT_TRACE_SAMPLING_RATE;
+    final boolean tailRetention = properties.containsKey(TRACE_TAIL_RETENTION)
+        ? (Boolean) properties.get(TRACE_TAIL_RETENTION) : DEFAULT_TRACE_TAIL_RETENTION;
+    if (samplingRate >= 1 && !tailRetention) {
+      return TraceSampler.ALWAYS;
+    }
+    final long latencyThresholdNano = properties.containsKey(TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO)
+        ? (Long) properties.get(TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO)
+        : DEFAULT_TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO;
+    final Map<String, Long> latencyThresholdsNano = properties.containsKey(TRACE_TAIL_RETENTION_LATENCY_THRESHOLDS_NANO)
+        ? (Map<String, Long>) properties.get(TRACE_TAIL_RETENTION_LATENCY_THRESHOLDS_NANO) : Collections.emptyMap();
+    return new TraceSampler(samplingRate, tailRetention, latencyThresholdNano, latencyThresholdsNano);
+  }
+
   @SuppressWarnings({ "rawtypes", "unchecked" })
   private TaskQueueFactory createTaskQueueFactory(final Map<String, Object> properties, final TaskQueueFactory taskQueueFactory) {
     if (taskQueueFactory == null) {
@@ -351,9 +444,10 @@ public class Engine {
    * Trace and can be used to group traces into "classes" when traces are statistically analyzed.
    */
   public void blockingRun(final Task<?> task, final String planClass) {
+    ArgumentUtil.requireNotNull(task, "task");
+    ArgumentUtil.requireNotNull(planClass, "planClass");
     try {
-      acquirePermit(planClass);
-      runWithPermit(task, planClass);
+      startPlan(acquirePermit(planClass), task, planClass);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     }
@@ -387,12 +481,9 @@ public class Engine {
    * @return true if Plan was started
    */
   public boolean tryRun(final Task<?> task, final String planClass) {
-    if (tryAcquirePermit(planClass)) {
-      runWithPermit(task, planClass);
-      return true;
-    } else {
-      return false;
-    }
+    ArgumentUtil.requireNotNull(task, "task");
+    ArgumentUtil.requireNotNull(planClass, "planClass");
+    return startPlan(tryAcquirePermit(planClass), task, planClass);
   }
 
   /**
@@ -433,11 +524,103 @@ public class Engine {
    * been {@linkplain Thread#interrupt interrupted}.
   */
   public boolean tryRun(final Task<?> task, final String planClass, final long timeout, final TimeUnit unit) throws InterruptedException {
-    if (tryAcquirePermit(planClass, timeout, unit)) {
-      runWithPermit(task, planClass);
-      return true;
+    ArgumentUtil.requireNotNull(task, "task");
+    ArgumentUtil.requireNotNull(planClass, "planClass");
+    return startPlan(tryAcquirePermit(planClass, timeout, unit), task, planClass);
+  }
+
+  /**
+   * Equivalent to {@code submit(task, defaultPlanClass(task))}.
+   * @see #submit(Task, String)
+   */
+  public Promise<Void> submit(final Task<?> task) {
+    return submit(task, defaultPlanClass(task));
+  }
+
+  /**
+   * Runs the given task as soon as Engine has a capacity to start new plan as specified by
+   * {@value #MAX_CONCURRENT_PLANS} configuration property and plan class rate limiter.
+   * Task passed in as a parameter becomes a root on a new Plan.
+   * All tasks created and started as a consequence of a root task will belong to that plan and will share a Trace.
+   * <p>
+   * This method never blocks. If Engine does not have capacity to start the task it is put in an admission
+   * queue and is started when one of the running plans completes. Queued plans are started in FIFO order,
+   * unless the oldest plan's class is rate limited. The queue is bounded by {@value #MAX_QUEUED_PLANS} and
+   * {@value #MAX_QUEUED_PLANS_PER_PLAN_CLASS} configuration properties, by default it is unbounded.
+   * Use {@link #getAdmissionQueueStats()} to monitor the queue, e.g. time spent by plans waiting for admission.
+   * <p>
+   * Returned promise is resolved when the plan has been started. It fails with {@code IllegalStateException}
+   * if the queue is full, in which case the task is not started, and with {@link EngineShutdownException}
+   * if the engine has been shut down, in which case the task is cancelled. The result of the plan is
+   * provided by the task itself.
+   *
+   * @param task the task to run
+   * @param planClass string that identifies a "class" of the Plan
+   * @return promise resolved when the plan has been started
+   */
+  public Promise<Void> submit(final Task<?> task, final String planClass) {
+    ArgumentUtil.requireNotNull(task, "task");
+    ArgumentUtil.requireNotNull(planClass, "planClass");
+    final SettablePromise<Void> admission = Promises.settable();
+    // do not overtake queued plans
+    if (_admissionQueue.isEmpty()) {
+      final Admission result = tryAcquirePermit(planClass);
+      if (result != Admission.REJECTED) {
+        startAdmittedPlan(result, task, planClass, admission);
+        return admission;
+      }
+    }
+    if (_admissionQueue.offer(task, planClass, admission)) {
+      // a permit might have been released before the plan was queued
+      startQueuedPlans();
+    } else {
+      admission.fail(new IllegalStateException("Starting new plan rejected, exceeded limit of queued plans for plan class: "
+          + planClass));
+    }
+    return admission;
+  }
+
+  /**
+   * Returns metrics of the admission queue used by {@link #submit(Task, String)}.
+   */
+  public PlanAdmissionQueue.Stats getAdmissionQueueStats() {
+    return _admissionQueue.getStats();
+  }
+
+  private void startQueuedPlans() {
+    AdmittedPlan admitted;
+    while ((admitted = _admissionQueue.poll(_admissionPermits)) != null) {
+      final QueuedPlan plan = admitted.getPlan();
+      startAdmittedPlan(admitted.getAdmission(), plan.getTask(), plan.getPlanClass(), plan.getAdmission());
+    }
+  }
+
+  private void startAdmittedPlan(final Admission admission, final Task<?> task, final String planClass,
+      final SettablePromise<Void> admissionPromise) {
+    startPlan(admission, task, planClass);
+    if (admission == Admission.ADMITTED) {
+      admissionPromise.done(null);
     } else {
-      return false;
+      admissionPromise.fail(new EngineShutdownException("Task submitted after engine shutdown"));
+    }
+  }
+
+  /**
+   * Starts a plan if a permit to run it has been acquired. If engine is shutting down
+   * the task is cancelled.
+   *
+   * @return true if the task has been either started or cancelled
+   */
+  private boolean startPlan(final Admission admission, final Task<?> task, final String planClass) {
+    switch (admission) {
+      case ADMITTED:
+        runWithPermit(task, planClass);
+        return true;
+      case SHUTDOWN:
+        task.cancel(new EngineShutdownException("Task submitted after engine shutdown"));
+        return true;
+      default:
+        return false;
     }
   }
 
@@ -448,57 +631,80 @@ public class Engine {
    * @param task the task to run
    */
   private void runWithPermit(final Task<?> task, final String planClass) {
-    ArgumentUtil.requireNotNull(task, "task");
-    ArgumentUtil.requireNotNull(planClass, "planClass");
-    State currState, newState;
-    do {
-      currState = _stateRef.get();
-      if (currState._stateName != StateName.RUN) {
-        task.cancel(new EngineShutdownException("Task submitted after engine shutdown"));
-        return;
-      }
-      newState = new State(StateName.RUN, currState._pendingCount + 1);
-    } while (!_stateRef.compareAndSet(currState, newState));
-
     PlanContext planContext = new PlanContext(this, _taskExecutor, _timerExecutor, _loggerFactory, _allLogger,
-        _rootLogger, planClass, task, _maxRelationshipsPerTrace, _planDeactivationListener, _planCompletionListener,
-        _taskQueueFactory.newTaskQueue(), _drainSerialExecutorQueue, _executionMonitor);
+        _rootLogger, planClass, task, _maxRelationshipsPerTrace, _traceSampler, _planDeactivationListener, _planCompletionListener,
+        _taskQueueFactory.newTaskQueue(), _drainSerialExecutorQueue, _drainSerialExecutorQueueMaxRunnables,
+        _drainSerialExecutorQueueMaxNano, _executionMonitor);
     new ContextImpl(planContext, task).runTask();
   }
 
   // acquire a permit to run the given task plan. always acquire a permit first from engine level
-  // rate limiter and then from plan class level rate limit if specified.
-  private boolean tryAcquirePermit(String planClass) {
-    return _concurrentPlans.tryAcquire() &&
-        (_planBasedRateLimiter == null || _planBasedRateLimiter.tryAcquire(planClass));
+  // rate limiter and then from plan class level rate limit if specified. If the latter can't be
+  // acquired, the engine level permit is given back.
+  private Admission tryAcquirePermit(String planClass) {
+    final Admission admission = _planPermits.tryAcquire();
+    if (admission == Admission.ADMITTED && _planBasedRateLimiter != null
+        && !_planBasedRateLimiter.tryAcquire(planClass)) {
+      releasePermit();
+      return Admission.REJECTED;
+    }
+    return admission;
   }
 
-  private boolean tryAcquirePermit(String planClass, long timeout, TimeUnit unit)
+  private Admission tryAcquirePermit(String planClass, long timeout, TimeUnit unit)
       throws InterruptedException {
-    return _concurrentPlans.tryAcquire(timeout, unit) &&
-        (_planBasedRateLimiter == null || _planBasedRateLimiter.tryAcquire(planClass, timeout, unit));
+    final Admission admission = _planPermits.tryAcquire(timeout, unit);
+    if (admission == Admission.ADMITTED && _planBasedRateLimiter != null) {
+      boolean acquired = false;
+      try {
+        acquired = _planBasedRateLimiter.tryAcquire(planClass, timeout, unit);
+      } finally {
+        if (!acquired) {
+          releasePermit();
+        }
+      }
+      return acquired ? Admission.ADMITTED : Admission.REJECTED;
+    }
+    return admission;
   }
 
+  private Admission acquirePermit(String planClass) throws InterruptedException {
+    final Admission admission = _planPermits.acquire();
+    if (admission == Admission.ADMITTED && _planBasedRateLimiter != null) {
+      try {
+        _planBasedRateLimiter.acquire(planClass);
+      } catch (InterruptedException e) {
+        releasePermit();
+        throw e;
+      }
+    }
+    return admission;
+  }
 
-  private void acquirePermit(String planClass) throws InterruptedException {
-    _concurrentPlans.acquire();
-    if (_planBasedRateLimiter != null) {
-      _planBasedRateLimiter.acquire(planClass);
+  private void releasePermit() {
+    if (_planPermits.release()) {
+      tryTransitionTerminate();
     }
   }
 
   /**
    * If the engine is currently running, this method will initiate an orderly
    * shutdown. No new tasks will be accepted, but already running tasks will be
-   * allowed to finish. Use {@link #awaitTermination(int, java.util.concurrent.TimeUnit)}
+   * allowed to finish. Tasks waiting in the admission queue are cancelled.
+   * Use {@link #awaitTermination(int, java.util.concurrent.TimeUnit)}
    * to wait for the engine to shutdown.
    * <p>
    * If the engine is already shutting down or stopped this method will have
    * no effect.
    */
   public void shutdown() {
-    if (tryTransitionShutdown()) {
-      tryTransitionTerminate();
+    if (_stateRef.compareAndSet(StateName.RUN, StateName.SHUTDOWN)) {
+      final boolean noPendingPlans = _planPermits.shutdown();
+      // cancels queued plans
+      startQueuedPlans();
+      if (noPendingPlans) {
+        tryTransitionTerminate();
+      }
     }
   }
 
@@ -512,7 +718,7 @@ public class Engine {
    *         finished shutting down.
    */
   public boolean isShutdown() {
-    return _stateRef.get()._stateName != StateName.RUN;
+    return _stateRef.get() != StateName.RUN;
   }
 
   /**
@@ -523,7 +729,7 @@ public class Engine {
    * @return {@code true} if the engine has completed stopped.
    */
   public boolean isTerminated() {
-    return _stateRef.get()._stateName == StateName.TERMINATED;
+    return _stateRef.get() == StateName.TERMINATED;
   }
 
   /**
@@ -541,37 +747,13 @@ public class Engine {
     return _terminated.await(time, unit);
   }
 
-  private boolean tryTransitionShutdown() {
-    State currState, newState;
-    do {
-      currState = _stateRef.get();
-      if (currState._stateName != StateName.RUN) {
-        return false;
-      }
-      newState = new State(StateName.SHUTDOWN, currState._pendingCount);
-    } while (!_stateRef.compareAndSet(currState, newState));
-    return true;
-  }
-
+  /*
+   * Pending plans are counted by _planPermits. It is called only after _planPermits
+   * reported that there are no pending plans after shutdown.
+   */
   private void tryTransitionTerminate() {
-    State currState;
-    do {
-      currState = _stateRef.get();
-      if (currState._stateName != StateName.SHUTDOWN || currState._pendingCount != 0) {
-        return;
-      }
-    } while (!_stateRef.compareAndSet(currState, TERMINATED));
-
-    _terminated.countDown();
-  }
-
-  private static class State {
-    private final StateName _stateName;
-    private final long _pendingCount;
-
-    private State(final StateName stateName, final long pendingCount) {
-      _pendingCount = pendingCount;
-      _stateName = stateName;
+    if (_stateRef.compareAndSet(StateName.SHUTDOWN, StateName.TERMINATED)) {
+      _terminated.countDown();
     }
   }
 }
@@ -107,7 +107,8 @@ public class EngineBuilder {
   }
 
   /**
-   * Sets the timer scheduler for the engine.
+   * Sets the timer scheduler for the engine. Workloads that create many timers which are usually cancelled
+   * before they expire, e.g. timeouts, can use {@link HashedWheelDelayedExecutor}.
    * <p>
    * The lifecycle of the scheduler is not managed by the engine.
    *
@@ -134,6 +135,22 @@ public class EngineBuilder {
     return this;
   }
 
+  /**
+   * Sets the executor that runs callables of blocking tasks created without an explicit
+   * executor, see {@link Task#blocking(String, java.util.concurrent.Callable)}. If the executor implements
+   * {@link BlockingExecutor} it is given trace builders of blocking tasks.
+   * <p>
+   * The lifecycle of the executor is not managed by the engine.
+   *
+   * @param blockingExecutor the executor to use for blocking tasks
+   * @return this builder
+   */
+  public EngineBuilder setBlockingExecutor(final Executor blockingExecutor) {
+    ArgumentUtil.requireNotNull(blockingExecutor, "blockingExecutor");
+    _properties.put(Engine.BLOCKING_EXECUTOR, blockingExecutor);
+    return this;
+  }
+
   /**
    * Sets the logger factory that will be used by the engine. By default
    * the engine will use whatever log binding SLF4J has detected.
@@ -175,7 +192,11 @@ public class EngineBuilder {
       throw new IllegalStateException("Timer scheduler is required to create an Engine, but it is not set");
     }
 
-    return new Engine(_taskExecutor, new IndirectDelayedExecutor(_timerScheduler),
+    // timing wheel releases cancelled commands by itself, indirection would only add allocations
+    final DelayedExecutor timerScheduler = _timerScheduler instanceof HashedWheelDelayedExecutor
+        ? _timerScheduler : new IndirectDelayedExecutor(_timerScheduler);
+
+    return new Engine(_taskExecutor, timerScheduler,
         _loggerFactory != null ? _loggerFactory : new CachedLoggerFactory(LoggerFactory.getILoggerFactory()),
         _properties, _planDeactivationListener != null ? _planDeactivationListener : planContext -> {},
         _planCompletionListener != null ? _planCompletionListener : planContext -> {},
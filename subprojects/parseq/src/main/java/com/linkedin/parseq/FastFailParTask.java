@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.linkedin.parseq.internal.InternalUtil;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.PromiseListener;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * A {@link Task} that runs all of the constructor-supplied tasks in parallel and fails as soon
+ * as any of them fails. It is designed for a large number of tasks:
+ * <ul>
+ * <li>tasks are started in chunks of {@link #CHUNK_SIZE}, each chunk is started by a separate, system hidden,
+ * task so that starting tasks is spread across multiple turns of the plan's executor and cancellation
+ * of the remaining tasks visits only chunks rather than all tasks</li>
+ * <li>results are stored in a preallocated array as tasks complete, completion of a task is accounted
+ * for by decrementing a single counter</li>
+ * </ul>
+ * <p>
+ * Use {@link Task#parFastFail(Iterable)} to create an instance of this class.
+ *
+ * @see ParTaskImpl
+ */
+/* package private */ class FastFailParTask<T> extends BaseParTask<T> {
+
+  /* number of tasks started by a single chunk */
+  static final int CHUNK_SIZE = 256;
+
+  FastFailParTask(final String name, final Iterable<? extends Task<? extends T>> tasks) {
+    super(name, tasks);
+  }
+
+  @Override
+  protected Promise<List<T>> run(final Context context) throws Exception {
+    if (_tasks.length == 0) {
+      return Promises.value(Collections.emptyList());
+    }
+    final Completion<T> completion = new Completion<>(_tasks.length);
+    if (_tasks.length <= CHUNK_SIZE) {
+      completion.run(context, _tasks, 0, _tasks.length, null);
+    } else {
+      for (int from = 0; from < _tasks.length; from += CHUNK_SIZE) {
+        context.run(new ChunkTask<>(_tasks, from, Math.min(from + CHUNK_SIZE, _tasks.length), completion));
+      }
+    }
+    return completion._result;
+  }
+
+  /**
+   * Collects results of all tasks, completes the result once all tasks succeeded or any of them failed.
+   */
+  private static class Completion<T> {
+    private final Object[] _values;
+    private final AtomicInteger _remaining;
+    private final AtomicBoolean _failed = new AtomicBoolean();
+    private final SettablePromise<List<T>> _result = Promises.settable();
+
+    private Completion(final int size) {
+      _values = new Object[size];
+      _remaining = new AtomicInteger(size);
+    }
+
+    /**
+     * Starts tasks in the range [from, to) in the given context.
+     */
+    private void run(final Context context, final Task<? extends T>[] tasks, final int from, final int to,
+        final ChunkTask<T> chunk) {
+      for (int i = from; i < to; i++) {
+        InternalUtil.unwildcardTask(tasks[i]).addListener(new TaskListener<>(this, i, chunk));
+        context.run(tasks[i]);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void done(final int index, final Object value) {
+      _values[index] = value;
+      if (_remaining.decrementAndGet() == 0) {
+        _result.done((List<T>) Collections.unmodifiableList(Arrays.asList(_values)));
+      }
+    }
+
+    private void fail(final Throwable error) {
+      if (_failed.compareAndSet(false, true)) {
+        _result.fail(error);
+      }
+    }
+  }
+
+  private static class TaskListener<T> implements PromiseListener<Object> {
+    private final Completion<T> _completion;
+    private final int _index;
+    private final ChunkTask<T> _chunk;
+
+    private TaskListener(final Completion<T> completion, final int index, final ChunkTask<T> chunk) {
+      _completion = completion;
+      _index = index;
+      _chunk = chunk;
+    }
+
+    @Override
+    public void onResolved(final Promise<Object> resolvedPromise) {
+      if (resolvedPromise.isFailed()) {
+        _completion.fail(resolvedPromise.getError());
+      } else {
+        _completion.done(_index, resolvedPromise.get());
+        if (_chunk != null) {
+          _chunk.taskDone();
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts a chunk of tasks and completes once all of them succeeded. It is cancelled, together with tasks
+   * it started, when the parent task completes. Tasks of a chunk that has been cancelled before it started
+   * are cancelled by the chunk.
+   */
+  private static class ChunkTask<T> extends BaseTask<Void> {
+    private final Task<? extends T>[] _tasks;
+    private final int _from;
+    private final int _to;
+    private final Completion<T> _completion;
+    private final AtomicInteger _remaining;
+    private final SettablePromise<Void> _done = Promises.settable();
+    private volatile boolean _started = false;
+
+    private ChunkTask(final Task<? extends T>[] tasks, final int from, final int to, final Completion<T> completion) {
+      super("chunk [" + from + ", " + to + ")");
+      _tasks = tasks;
+      _from = from;
+      _to = to;
+      _completion = completion;
+      _remaining = new AtomicInteger(to - from);
+      getShallowTraceBuilder().setSystemHidden(true);
+      addListener(this::cancelNotStarted);
+    }
+
+    @Override
+    protected Promise<Void> run(final Context context) throws Exception {
+      _started = true;
+      _completion.run(context, _tasks, _from, _to, this);
+      return _done;
+    }
+
+    private void taskDone() {
+      if (_remaining.decrementAndGet() == 0) {
+        _done.done(null);
+      }
+    }
+
+    private void cancelNotStarted(final Promise<Void> resolvedPromise) {
+      if (!_started) {
+        for (int i = _from; i < _to; i++) {
+          _tasks[i].cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.parseq.internal.TaskLogger;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.PromiseException;
+import com.linkedin.parseq.promise.PromiseListener;
+import com.linkedin.parseq.promise.PromisePropagator;
+import com.linkedin.parseq.promise.PromiseResolvedException;
+import com.linkedin.parseq.promise.Settable;
+import com.linkedin.parseq.promise.SettablePromise;
+import com.linkedin.parseq.trace.TraceBuilder;
+
+
+/**
+ * Compiled form of a chain of {@link FusionTask}s: a flat array of stages, one per task in the chain,
+ * executed in a loop that keeps the result of the last stage in a single slot.
+ * <p>
+ * Pipeline does not allocate intermediate promises or closures and does not grow the stack with the
+ * length of the chain. Intermediate tasks go through the same state transitions as other tasks and their
+ * promises are completed with the results of their stages. Relationships between the tasks and the
+ * surrogate trace of the last transformation are recorded only when the plan is traced.
+ * <p>
+ * This is internal class and it should not be extended or used outside ParSeq.
+ * It may change or be removed at any time in a backwards incompatible way.
+ */
+class FusionPipeline {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FusionPipeline.class);
+
+  private final FusionTask<?, ?>[] _tasks;
+  private final PromisePropagator<Object, Object>[] _propagators;
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private FusionPipeline(final int length) {
+    _tasks = new FusionTask<?, ?>[length];
+    _propagators = new PromisePropagator[length];
+  }
+
+  /**
+   * Compiles chain of tasks that ends with given task.
+   */
+  @SuppressWarnings("unchecked")
+  static FusionPipeline compile(final FusionTask<?, ?> last) {
+    int length = 0;
+    for (FusionTask<?, ?> task = last; task != null; task = task.getPredecessor()) {
+      length++;
+    }
+    final FusionPipeline pipeline = new FusionPipeline(length);
+    FusionTask<?, ?> task = last;
+    for (int i = length - 1; i >= 0; i--) {
+      pipeline._tasks[i] = task;
+      pipeline._propagators[i] = (PromisePropagator<Object, Object>) task.getPropagator();
+      task = task.getPredecessor();
+    }
+    return pipeline;
+  }
+
+  int length() {
+    return _tasks.length;
+  }
+
+  /**
+   * Runs all stages, last stage completes the result instead of the promise of the last task.
+   *
+   * @param source promise of the async predecessor, can be null if the first stage does not depend on its source
+   */
+  @SuppressWarnings("unchecked")
+  <T> void run(final Context context, final Promise<?> source, final SettablePromise<T> result) {
+    final TraceBuilder traceBuilder = context.getTraceBuilder();
+    FusionTraceContext traceContext = null;
+    if (_tasks.length > 1 && traceBuilder != null && traceBuilder.isEnabled()) {
+      final FusionTask<?, ?> last = _tasks[_tasks.length - 1];
+      traceContext = new FusionTraceContext(context, last.getShallowTraceBuilder(), last.getName());
+      traceContext.createSurrogate();
+    }
+    new Execution(_tasks, _propagators, context, traceContext, source, (SettablePromise<Object>) result).runFrom(0);
+  }
+
+  /**
+   * State of a single execution of the pipeline. It is passed to the propagators both as the source,
+   * which holds result of the previous stage, and as the destination of the current stage.
+   */
+  private static final class Execution implements Promise<Object>, Settable<Object> {
+
+    private static final int PENDING = 0;
+    private static final int SUSPENDED = 1;
+    private static final int RESOLVING = 2;
+    private static final int RESOLVED = 3;
+
+    private static final AtomicIntegerFieldUpdater<Execution> DESTINATION_STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Execution.class, "_destinationState");
+
+    private final FusionTask<?, ?>[] _tasks;
+    private final PromisePropagator<Object, Object>[] _propagators;
+    private final Context _context;
+    /* null if the plan is not traced */
+    private final FusionTraceContext _traceContext;
+    private final Promise<?> _source;
+    private final SettablePromise<Object> _result;
+
+    /* result of the previous stage */
+    private Object _value;
+    private Throwable _error;
+
+    /* result of the current stage, published by _destinationState */
+    private int _stage;
+    private volatile int _destinationState;
+    private Object _destinationValue;
+    private Throwable _destinationError;
+
+    private Execution(final FusionTask<?, ?>[] tasks, final PromisePropagator<Object, Object>[] propagators,
+        final Context context, final FusionTraceContext traceContext, final Promise<?> source,
+        final SettablePromise<Object> result) {
+      _tasks = tasks;
+      _propagators = propagators;
+      _context = context;
+      _traceContext = traceContext;
+      _source = source;
+      _result = result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runFrom(final int first) {
+      final TraceBuilder traceBuilder = _context.getTraceBuilder();
+      final TaskLogger taskLogger = _context.getTaskLogger();
+      final int last = _tasks.length - 1;
+      for (int i = first; i <= last; i++) {
+        final FusionTask<?, ?> task = _tasks[i];
+        if (i < last) {
+          if (!task.transitionRun(traceBuilder)) {
+            /* task has already been run or cancelled, continue with its result */
+            if (_traceContext != null) {
+              task.addPotentialRelationships(_traceContext, traceBuilder);
+            }
+            if (task.isDone()) {
+              load(task);
+              continue;
+            }
+            final int next = i + 1;
+            ((Promise<Object>) task).addListener(resolved -> {
+              load(resolved);
+              runFrom(next);
+            });
+            return;
+          }
+          task.markTaskStarted();
+          taskLogger.logTaskStart(task);
+        } else if (_traceContext != null) {
+          _traceContext.getSurrogate().setStartNanos(System.nanoTime());
+        }
+        _stage = i;
+        _destinationState = PENDING;
+        try {
+          _propagators[i].accept(i == 0 ? (Promise<Object>) _source : this, this);
+        } catch (Throwable t) {
+          if (_destinationState == PENDING) {
+            fail(t);
+          } else {
+            /* This can only happen if there is an internal problem. Propagators should not throw any exceptions. */
+            LOGGER.error("ParSeq internal error. An exception was thrown by propagator.", t);
+          }
+        }
+        if (!awaitStage()) {
+          /* stage completes asynchronously, execution continues on the completing thread */
+          return;
+        }
+        completeStage(taskLogger);
+      }
+      if (_error != null) {
+        _result.fail(_error);
+      } else {
+        _result.done(_value);
+      }
+    }
+
+    /**
+     * Returns true if the current stage is resolved, false if the execution has been suspended.
+     */
+    private boolean awaitStage() {
+      while (true) {
+        final int state = _destinationState;
+        if (state == RESOLVED) {
+          return true;
+        } else if (state == PENDING) {
+          if (DESTINATION_STATE.compareAndSet(this, PENDING, SUSPENDED)) {
+            return false;
+          }
+        } else {
+          Thread.yield();
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeStage(final TaskLogger taskLogger) {
+      _value = _destinationValue;
+      _error = _destinationError;
+      _destinationValue = null;
+      _destinationError = null;
+      final FusionTask<?, Object> task = (FusionTask<?, Object>) _tasks[_stage];
+      if (_stage < _tasks.length - 1) {
+        task.completeStage(_traceContext, _value, _error, taskLogger);
+      } else if (_traceContext != null) {
+        task.completeSurrogate(_traceContext, _value, _error);
+      }
+    }
+
+    private void load(final Promise<?> promise) {
+      if (promise.isFailed()) {
+        _value = null;
+        _error = promise.getError();
+      } else {
+        _value = promise.get();
+        _error = null;
+      }
+    }
+
+    private void complete(final Object value, final Throwable error) {
+      int state;
+      do {
+        state = _destinationState;
+        if (state != PENDING && state != SUSPENDED) {
+          throw new PromiseResolvedException("Promise has already been satisfied");
+        }
+      } while (!DESTINATION_STATE.compareAndSet(this, state, RESOLVING));
+      _destinationValue = value;
+      _destinationError = error;
+      _destinationState = RESOLVED;
+      if (state == SUSPENDED) {
+        completeStage(_context.getTaskLogger());
+        runFrom(_stage + 1);
+      }
+    }
+
+    @Override
+    public void done(final Object value) throws PromiseResolvedException {
+      complete(value, null);
+    }
+
+    @Override
+    public void fail(final Throwable error) throws PromiseResolvedException {
+      complete(null, error);
+    }
+
+    @Override
+    public Object get() throws PromiseException {
+      if (_error != null) {
+        throw new PromiseException(_error);
+      }
+      return _value;
+    }
+
+    @Override
+    public Throwable getError() {
+      return _error;
+    }
+
+    @Override
+    public Object getOrDefault(final Object defaultValue) {
+      return _error != null ? defaultValue : _value;
+    }
+
+    @Override
+    public void await() {
+    }
+
+    @Override
+    public boolean await(final long time, final TimeUnit unit) {
+      return true;
+    }
+
+    @Override
+    public void addListener(final PromiseListener<Object> listener) {
+      listener.onResolved(this);
+    }
+
+    @Override
+    public boolean isDone() {
+      return true;
+    }
+
+    @Override
+    public boolean isFailed() {
+      return _error != null;
+    }
+  }
+}
@@ -2,18 +2,12 @@ package com.linkedin.parseq;
 
 import java.util.function.Function;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.linkedin.parseq.function.Consumer3;
 import com.linkedin.parseq.function.Function1;
 import com.linkedin.parseq.internal.ArgumentUtil;
-import com.linkedin.parseq.internal.Continuations;
+import com.linkedin.parseq.internal.TaskLogger;
 import com.linkedin.parseq.promise.Promise;
 import com.linkedin.parseq.promise.PromisePropagator;
-import com.linkedin.parseq.promise.PromiseResolvedException;
 import com.linkedin.parseq.promise.Promises;
-import com.linkedin.parseq.promise.Settable;
 import com.linkedin.parseq.promise.SettablePromise;
 import com.linkedin.parseq.trace.Relationship;
 import com.linkedin.parseq.trace.ResultType;
@@ -36,12 +30,8 @@ import com.linkedin.parseq.trace.TraceBuilder;
  */
 class FusionTask<S, T> extends BaseTask<T> {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(FusionTask.class);
-
-  private static final Continuations CONTINUATIONS = new Continuations();
-
-  /* Encapsulates transformation from source to target, includes all predecessors' transformations, can't be null */
-  private final Consumer3<FusionTraceContext, Promise<S>, Settable<T>> _propagator;
+  /* Transformation applied by this task alone, the chain is compiled into a FusionPipeline when it is run */
+  private final PromisePropagator<?, T> _propagator;
 
   /* Asynchronous task that will complete source promise, can be null in which case propagator must not depend on source */
   private final Task<S> _asyncTask;
@@ -49,34 +39,35 @@ class FusionTask<S, T> extends BaseTask<T> {
   /* Trace builder for the predecessor, used for building trace relationships, can be null */
   private final ShallowTraceBuilder _predecessorShallowTraceBuilder;
 
+  /* Predecessor in the chain of transformations, can be null */
+  private final FusionTask<S, ?> _predecessor;
+
+  /* Chain of transformations that ends with this task, compiled lazily when it is first run */
+  private volatile FusionPipeline _pipeline;
+
   private FusionTask(final String desc, final Task<S> task, final PromisePropagator<S, T> propagator) {
     super(desc, TaskType.FUSION.getName());
-    _propagator = completing(adaptToAcceptTraceContext(propagator));
+    _propagator = propagator;
     _asyncTask = task;
     _predecessorShallowTraceBuilder = null;
+    _predecessor = null;
   }
 
   private <R> FusionTask(final String desc, final FusionTask<S, R> predecessor,
       final PromisePropagator<R, T> propagator) {
     super(desc, TaskType.FUSION.getName());
+    _propagator = propagator;
     _asyncTask = predecessor._asyncTask;
     _predecessorShallowTraceBuilder = predecessor.getShallowTraceBuilder();
-    _propagator = completing(compose(predecessor._propagator, adaptToAcceptTraceContext(propagator)));
+    _predecessor = predecessor;
   }
 
-  /**
-   * Drops FusionTraceContext on the floor. This method adapts pure transformation to be used within FusionTask
-   * that needs additional information (FusionTraceContext) to build trace.
-   */
-  private static <A, B> Consumer3<FusionTraceContext, Promise<A>, Settable<B>> adaptToAcceptTraceContext(
-      final PromisePropagator<A, B> propagator) {
-    return (traceContext, src, dest) -> propagator.accept(src, dest);
+  FusionTask<S, ?> getPredecessor() {
+    return _predecessor;
   }
 
-  private void transitionDone(final FusionTraceContext traceContext) {
-    addRelationships(traceContext);
-    transitionPending();
-    transitionDone();
+  PromisePropagator<?, T> getPropagator() {
+    return _propagator;
   }
 
   /**
@@ -107,7 +98,7 @@ class FusionTask<S, T> extends BaseTask<T> {
     }
   }
 
-  private void addPotentialRelationships(final FusionTraceContext traceContext, final TraceBuilder builder) {
+  void addPotentialRelationships(final FusionTraceContext traceContext, final TraceBuilder builder) {
     final ShallowTraceBuilder effectoveShallowTraceBuilder = getEffectiveShallowTraceBuilder(traceContext);
     builder.addRelationship(Relationship.POTENTIAL_CHILD_OF, effectoveShallowTraceBuilder, traceContext.getParent().getShallowTraceBuilder());
     if (_predecessorShallowTraceBuilder != null) {
@@ -116,156 +107,54 @@ class FusionTask<S, T> extends BaseTask<T> {
   }
 
   /**
-   * Composes transformation with the transformation of the predecessor.
+   * Completes this task with the result of its transformation when it is run as an intermediate stage
+   * of a {@link FusionPipeline}. Relationships are recorded only if trace context is not null, that is
+   * when the plan is traced.
    */
-  private <R> Consumer3<FusionTraceContext, Promise<S>, Settable<T>> compose(
-      final Consumer3<FusionTraceContext, Promise<S>, Settable<R>> predecessor,
-      final Consumer3<FusionTraceContext, Promise<R>, Settable<T>> propagator) {
-
-    return (traceContext, src, dst) -> {
-
-      /*
-       * At this point we know that transformation chain's length > 1.
-       * This code is executed during task execution, not when task is constructed.
-       */
-      traceContext.createSurrogate();
-
-      predecessor.accept(traceContext, src, new Settable<R>() {
-
-        @Override
-        public void done(R value) throws PromiseResolvedException {
-          try {
-            /* Track start time of the transformation. End time is tracked by closure created by completing() */
-            getEffectiveShallowTraceBuilder(traceContext).setStartNanos(System.nanoTime());
-            propagator.accept(traceContext, Promises.value(value), dst);
-          } catch (Exception e) {
-            /* This can only happen if there is an internal problem. Propagators should not throw any exceptions. */
-            LOGGER.error("ParSeq ingternal error. An exception was thrown by propagator", e);
-          }
-        }
-
-        @Override
-        public void fail(Throwable error) throws PromiseResolvedException {
-          try {
-            /* Track start time of the transformation. End time is tracked by closure created by completing() */
-            getEffectiveShallowTraceBuilder(traceContext).setStartNanos(System.nanoTime());
-            propagator.accept(traceContext, Promises.error(error), dst);
-          } catch (Exception e) {
-            /* This can only happen if there is an internal problem. Propagators should not throw any exceptions. */
-            LOGGER.error("ParSeq ingternal error. An exception was thrown by propagator.", e);
-          }
+  void completeStage(final FusionTraceContext traceContext, final T value, final Throwable error,
+      final TaskLogger taskLogger) {
+    if (traceContext != null) {
+      addRelationships(traceContext);
+    }
+    transitionPending();
+    if (transitionDone()) {
+      if (error != null) {
+        traceFailure(error);
+        getSettableDelegate().fail(error);
+      } else {
+        _shallowTraceBuilder.setResultType(ResultType.SUCCESS);
+        final Function<T, String> traceValueProvider = _traceValueProvider;
+        if (traceValueProvider != null) {
+          _shallowTraceBuilder.setValue(value, traceValueProvider);
         }
-      });
-    };
+        getSettableDelegate().done(value);
+      }
+      taskLogger.logTaskEnd(this, _traceValueProvider);
+    }
   }
 
   /**
-   * Adds closure to the propagator that maintains correct state of the task e.g. transitions between states,
-   * adds trace etc.
+   * Records trace of the surrogate that represents transformation of this task when it is the last
+   * stage of a traced chain. State of this task itself is maintained by {@link BaseTask}.
    */
-  private Consumer3<FusionTraceContext, Promise<S>, Settable<T>> completing(
-      final Consumer3<FusionTraceContext, Promise<S>, Settable<T>> propagator) {
-    return (traceContext, src, dest) -> {
-      final SettablePromise<T> settable = FusionTask.this.getSettableDelegate();
-
-      if (isPropagationInitiator(traceContext)) {
-        /* BaseTask's code handles completing the parent task
-         * we need to handle tracing of a surrogate task here
-         */
-        propagator.accept(traceContext, src, new Settable<T>() {
-          @Override
-          public void done(T value) throws PromiseResolvedException {
-            final ShallowTraceBuilder shallowTraceBuilder = traceContext.getSurrogate();
-            if (shallowTraceBuilder != null) {
-              addRelationships(traceContext);
-              final long endNanos = System.nanoTime();
-              shallowTraceBuilder.setPendingNanos(endNanos);
-              shallowTraceBuilder.setEndNanos(endNanos);
-              final Function<T, String> traceValueProvider = _traceValueProvider;
-              shallowTraceBuilder.setResultType(ResultType.SUCCESS);
-              if (traceValueProvider != null) {
-                try {
-                  shallowTraceBuilder.setValue(traceValueProvider.apply(value));
-                } catch (Exception e) {
-                  shallowTraceBuilder.setValue(Exceptions.failureToString(e));
-                }
-              }
-            }
-            dest.done(value);
-          }
-
-          @Override
-          public void fail(Throwable error) throws PromiseResolvedException {
-            final ShallowTraceBuilder shallowTraceBuilder = traceContext.getSurrogate();
-            if (shallowTraceBuilder != null) {
-              addRelationships(traceContext);
-              final long endNanos = System.nanoTime();
-              shallowTraceBuilder.setPendingNanos(endNanos);
-              shallowTraceBuilder.setEndNanos(endNanos);
-              if (Exceptions.isEarlyFinish(error)) {
-                shallowTraceBuilder.setResultType(ResultType.EARLY_FINISH);
-              } else {
-                shallowTraceBuilder.setResultType(ResultType.ERROR);
-                shallowTraceBuilder.setValue(Exceptions.failureToString(error));
-              }
-            }
-            dest.fail(error);
-          }
-        });
-      } else if (transitionRun(traceContext.getParent().getTraceBuilder())) {
-        markTaskStarted();
-        //non-parent task executed for the first time
-        traceContext.getParent().getTaskLogger().logTaskStart(this);
-
-        Settable<T> next = new Settable<T>() {
-          @Override
-          public void done(final T value) throws PromiseResolvedException {
-            try {
-              transitionDone(traceContext);
-              final Function<T, String> traceValueProvider = _traceValueProvider;
-              _shallowTraceBuilder.setResultType(ResultType.SUCCESS);
-              if (traceValueProvider != null) {
-                try {
-                  _shallowTraceBuilder.setValue(traceValueProvider.apply(value));
-                } catch (Exception e) {
-                  _shallowTraceBuilder.setValue(Exceptions.failureToString(e));
-                }
-              }
-              settable.done(value);
-              traceContext.getParent().getTaskLogger().logTaskEnd(FusionTask.this, _traceValueProvider);
-              CONTINUATIONS.submit(() -> dest.done(value));
-            } catch (Exception e) {
-              CONTINUATIONS.submit(() -> dest.fail(e));
-            }
-          }
-
-          @Override
-          public void fail(final Throwable error) throws PromiseResolvedException {
-            try {
-              transitionDone(traceContext);
-              traceFailure(error);
-              settable.fail(error);
-              traceContext.getParent().getTaskLogger().logTaskEnd(FusionTask.this, _traceValueProvider);
-              CONTINUATIONS.submit(() -> dest.fail(error));
-            } catch (Exception e) {
-              CONTINUATIONS.submit(() -> dest.fail(e));
-            }
-          }
-        };
-        CONTINUATIONS.submit(() -> {
-          try {
-            propagator.accept(traceContext, src, next);
-          } catch (Exception e) {
-            /* This can only happen if there is an internal problem. Propagators should not throw any exceptions. */
-            LOGGER.error("ParSeq ingternal error. An exception was thrown by propagator.", e);
-          }
-        });
-      } else {
-        //non-parent tasks subsequent executions
-        addPotentialRelationships(traceContext, traceContext.getParent().getTraceBuilder());
-        Promises.propagateResult(settable, dest);
+  void completeSurrogate(final FusionTraceContext traceContext, final T value, final Throwable error) {
+    final ShallowTraceBuilder shallowTraceBuilder = traceContext.getSurrogate();
+    addRelationships(traceContext);
+    final long endNanos = System.nanoTime();
+    shallowTraceBuilder.setPendingNanos(endNanos);
+    shallowTraceBuilder.setEndNanos(endNanos);
+    if (error == null) {
+      final Function<T, String> traceValueProvider = _traceValueProvider;
+      shallowTraceBuilder.setResultType(ResultType.SUCCESS);
+      if (traceValueProvider != null) {
+        shallowTraceBuilder.setValue(value, traceValueProvider);
       }
-    };
+    } else if (Exceptions.isEarlyFinish(error)) {
+      shallowTraceBuilder.setResultType(ResultType.EARLY_FINISH);
+    } else {
+      shallowTraceBuilder.setResultType(ResultType.ERROR);
+      shallowTraceBuilder.setValue(Exceptions.failureToString(error));
+    }
   }
 
   /**
@@ -322,9 +211,25 @@ class FusionTask<S, T> extends BaseTask<T> {
     });
   }
 
-  private void propagate(final FusionTraceContext traceContext, final SettablePromise<T> result) {
+  /**
+   * Returns the chain of transformations that ends with this task compiled into a {@link FusionPipeline}.
+   * Pipeline is immutable so it is fine if it is compiled more than once by concurrent callers.
+   */
+  private FusionPipeline getPipeline() {
+    FusionPipeline pipeline = _pipeline;
+    if (pipeline == null) {
+      pipeline = FusionPipeline.compile(this);
+      _pipeline = pipeline;
+    }
+    return pipeline;
+  }
+
+  /**
+   * Runs the chain of transformations compiled into a {@link FusionPipeline}.
+   */
+  private void propagate(final Context context, final SettablePromise<T> result) {
     try {
-      _propagator.accept(traceContext, _asyncTask, result);
+      getPipeline().run(context, _asyncTask, result);
     } catch (Throwable t) {
       result.fail(t);
     }
@@ -336,16 +241,13 @@ class FusionTask<S, T> extends BaseTask<T> {
     String baseName = getName();
     if (_asyncTask == null) {
       /* There is no async predecessor, run propagation immediately */
-      FusionTraceContext traceContext = new FusionTraceContext(context,
-          FusionTask.this.getShallowTraceBuilder(), baseName);
-      propagate(traceContext, result);
+      propagate(context, result);
     } else {
       /* There is async predecessor, need to run it first
          PropagationTask will actually run propagation */
       final Task<T> propagationTask = Task.async(baseName, ctx -> {
         final SettablePromise<T> fusionResult = Promises.settable();
-        FusionTraceContext traceContext = new FusionTraceContext(ctx, FusionTask.this.getShallowTraceBuilder(), baseName);
-        propagate(traceContext, fusionResult);
+        propagate(ctx, fusionResult);
         return fusionResult;
       });
       propagationTask.getShallowTraceBuilder()
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.parseq.internal.ArgumentUtil;
+
+
+/**
+ * {@link DelayedExecutor} based on a hashed timing wheel, optimized for a large number of timers that are
+ * cancelled before they expire, such as timeouts.
+ * <p>
+ * Timers are kept in a circular array of buckets, each bucket covering one tick. A timer is put into the
+ * bucket of the tick in which it expires; timers that expire more than one revolution of the wheel ahead
+ * stay in the bucket for the remaining number of revolutions. Scheduling and cancelling a timer take
+ * constant time and allocate nothing but the timer itself:
+ * <ul>
+ * <li>{@link #schedule(long, TimeUnit, Runnable)} pushes the timer onto a lock-free stack which is moved
+ * to the buckets by the worker thread on every tick,</li>
+ * <li>{@link Cancellable#cancel(Exception)} releases the command immediately and pushes the timer onto
+ * another lock-free stack; the worker thread unlinks cancelled timers from their buckets on the next tick
+ * so that they do not occupy the wheel until their deadline.</li>
+ * </ul>
+ * Because cancelled timers do not keep a reference to the command, engine does not wrap this executor
+ * the way it wraps other {@link DelayedExecutor}s.
+ * <p>
+ * Timers expire with a precision of one tick: a command is never run before its delay elapses but it
+ * may be run up to one tick later. Expired commands are run on the worker thread, so they must be short
+ * and must not block. ParSeq timers only submit a task to the plan's executor, which satisfies this.
+ * <p>
+ * The worker thread is started by the constructor and is stopped by {@link #shutdown()}. Like any other
+ * timer scheduler the lifecycle of this executor is not managed by the engine.
+ */
+public class HashedWheelDelayedExecutor implements DelayedExecutor {
+
+  public static final long DEFAULT_TICK_DURATION_MS = 10;
+  public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelDelayedExecutor.class);
+
+  private final long _tickNano;
+  private final Bucket[] _wheel;
+  private final int _mask;
+  private final long _startNano;
+  private final Thread _worker;
+
+  private final AtomicReference<Timer> _scheduled = new AtomicReference<>();
+  private final AtomicReference<Timer> _cancelled = new AtomicReference<>();
+
+  private volatile boolean _shutdown = false;
+
+  public HashedWheelDelayedExecutor() {
+    this(DEFAULT_TICK_DURATION_MS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+  }
+
+  /**
+   * @param tickDuration duration of one tick, the precision of timers
+   * @param unit unit of tickDuration
+   * @param ticksPerWheel number of buckets, rounded up to a power of two
+   */
+  public HashedWheelDelayedExecutor(final long tickDuration, final TimeUnit unit, final int ticksPerWheel) {
+    this(tickDuration, unit, ticksPerWheel, runnable -> {
+      final Thread thread = new Thread(runnable, HashedWheelDelayedExecutor.class.getSimpleName());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param tickDuration duration of one tick, the precision of timers
+   * @param unit unit of tickDuration
+   * @param ticksPerWheel number of buckets, rounded up to a power of two
+   * @param threadFactory factory used to create the worker thread
+   */
+  public HashedWheelDelayedExecutor(final long tickDuration, final TimeUnit unit, final int ticksPerWheel,
+      final ThreadFactory threadFactory) {
+    ArgumentUtil.requirePositive(tickDuration, "tickDuration");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    ArgumentUtil.requirePositive(ticksPerWheel, "ticksPerWheel");
+    ArgumentUtil.requireNotNull(threadFactory, "threadFactory");
+    if (ticksPerWheel > 1 << 30) {
+      throw new IllegalArgumentException("ticksPerWheel must not be greater than 2^30, but is: " + ticksPerWheel);
+    }
+    _tickNano = unit.toNanos(tickDuration);
+    final int wheelSize = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+    _wheel = new Bucket[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      _wheel[i] = new Bucket();
+    }
+    _mask = wheelSize - 1;
+    _startNano = System.nanoTime();
+    _worker = threadFactory.newThread(this::runWorker);
+    _worker.start();
+  }
+
+  @Override
+  public Cancellable schedule(final long delay, final TimeUnit unit, final Runnable command) {
+    ArgumentUtil.requireNotNull(unit, "unit");
+    ArgumentUtil.requireNotNull(command, "command");
+    if (_shutdown) {
+      throw new RejectedExecutionException("Timer has been shut down");
+    }
+    // deadlines are relative to the start of the wheel, this does not overflow for ~146 years
+    final long delayNano = Math.max(0, Math.min(unit.toNanos(delay), Long.MAX_VALUE >> 1));
+    final long deadline = System.nanoTime() - _startNano + delayNano;
+    final Timer timer = new Timer(this, command, deadline);
+    Timer head;
+    do {
+      head = _scheduled.get();
+      timer._nextScheduled = head;
+    } while (!_scheduled.compareAndSet(head, timer));
+    return timer;
+  }
+
+  /**
+   * Stops the worker thread. Timers that have not expired yet are discarded and scheduling new timers fails
+   * with {@link RejectedExecutionException}.
+   */
+  public void shutdown() {
+    _shutdown = true;
+    LockSupport.unpark(_worker);
+  }
+
+  /**
+   * Waits for the worker thread to terminate after {@link #shutdown()}.
+   *
+   * @return {@code true} if the worker thread has terminated
+   */
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    _worker.join(Math.max(1, unit.toMillis(timeout)));
+    return !_worker.isAlive();
+  }
+
+  private void runWorker() {
+    long tick = 0;
+    while (!_shutdown) {
+      final long deadline = _tickNano * (tick + 1);
+      long sleepNano;
+      while ((sleepNano = deadline - (System.nanoTime() - _startNano)) > 0 && !_shutdown) {
+        LockSupport.parkNanos(this, sleepNano);
+      }
+      if (_shutdown) {
+        break;
+      }
+      unlinkCancelled();
+      addScheduled(tick);
+      _wheel[(int) (tick & _mask)].expire(deadline);
+      tick++;
+    }
+  }
+
+  private void unlinkCancelled() {
+    Timer timer = _cancelled.getAndSet(null);
+    while (timer != null) {
+      final Timer next = timer._nextCancelled;
+      timer._nextCancelled = null;
+      if (timer._bucket != null) {
+        timer._bucket.remove(timer);
+      }
+      timer = next;
+    }
+  }
+
+  private void addScheduled(final long currentTick) {
+    // timers are taken from a stack, reverse them so that timers with equal deadlines expire in FIFO order
+    Timer timer = _scheduled.getAndSet(null);
+    Timer reversed = null;
+    while (timer != null) {
+      final Timer next = timer._nextScheduled;
+      timer._nextScheduled = reversed;
+      reversed = timer;
+      timer = next;
+    }
+    while (reversed != null) {
+      final Timer next = reversed._nextScheduled;
+      reversed._nextScheduled = null;
+      if (reversed._state == Timer.PENDING) {
+        final long expirationTick = Math.max(reversed._deadline / _tickNano, currentTick);
+        reversed._remainingRounds = (expirationTick - currentTick) / _wheel.length;
+        _wheel[(int) (expirationTick & _mask)].add(reversed);
+      }
+      reversed = next;
+    }
+  }
+
+  /**
+   * Doubly linked list of timers, accessed only by the worker thread.
+   */
+  private static class Bucket {
+    private Timer _head;
+    private Timer _tail;
+
+    private void add(final Timer timer) {
+      timer._bucket = this;
+      if (_head == null) {
+        _head = _tail = timer;
+      } else {
+        _tail._next = timer;
+        timer._prev = _tail;
+        _tail = timer;
+      }
+    }
+
+    private void remove(final Timer timer) {
+      if (timer._prev != null) {
+        timer._prev._next = timer._next;
+      } else {
+        _head = timer._next;
+      }
+      if (timer._next != null) {
+        timer._next._prev = timer._prev;
+      } else {
+        _tail = timer._prev;
+      }
+      timer._prev = null;
+      timer._next = null;
+      timer._bucket = null;
+    }
+
+    private void expire(final long deadline) {
+      Timer timer = _head;
+      while (timer != null) {
+        final Timer next = timer._next;
+        if (timer._state != Timer.PENDING) {
+          remove(timer);
+        } else if (timer._remainingRounds <= 0 && timer._deadline <= deadline) {
+          remove(timer);
+          timer.expire();
+        } else {
+          timer._remainingRounds--;
+        }
+        timer = next;
+      }
+    }
+  }
+
+  private static class Timer implements Cancellable {
+    private static final AtomicIntegerFieldUpdater<Timer> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timer.class, "_state");
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final HashedWheelDelayedExecutor _executor;
+    private final long _deadline;
+    private volatile Runnable _command;
+    private volatile int _state = PENDING;
+
+    // accessed only by the worker thread after the timer has been published
+    private Timer _nextScheduled;
+    private Timer _nextCancelled;
+    private long _remainingRounds;
+    private Bucket _bucket;
+    private Timer _prev;
+    private Timer _next;
+
+    private Timer(final HashedWheelDelayedExecutor executor, final Runnable command, final long deadline) {
+      _executor = executor;
+      _command = command;
+      _deadline = deadline;
+    }
+
+    @Override
+    public boolean cancel(final Exception reason) {
+      if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        return false;
+      }
+      _command = null;
+      Timer head;
+      do {
+        head = _executor._cancelled.get();
+        _nextCancelled = head;
+      } while (!_executor._cancelled.compareAndSet(head, this));
+      return true;
+    }
+
+    private void expire() {
+      if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+        return;
+      }
+      final Runnable command = _command;
+      _command = null;
+      try {
+        command.run();
+      } catch (Throwable t) {
+        LOGGER.error("Timer command failed", t);
+      }
+    }
+  }
+}
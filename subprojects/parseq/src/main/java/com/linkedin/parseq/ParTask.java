@@ -40,4 +40,19 @@ public interface ParTask<T> extends Task<List<T>> {
    */
   List<T> getSuccessful();
 
+  /**
+   * Order of the values in the result of a ParTask.
+   *
+   * @see Task#parBounded(String, int, ResultOrder, boolean, Iterable)
+   */
+  enum ResultOrder {
+    /**
+     * Values are in the order of the tasks.
+     */
+    TASK_ORDER,
+    /**
+     * Values are in the order in which the tasks completed.
+     */
+    COMPLETION_ORDER
+  }
 }
@@ -17,7 +17,6 @@
 package com.linkedin.parseq;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,53 +38,20 @@ import com.linkedin.parseq.trace.ResultType;
  * @author Chi Chan (ckchan@linkedin.com)
  * @see Task#par(Task, Task) Task.par
  */
-/* package private */ class ParTaskImpl<T> extends BaseTask<List<T>>implements ParTask<T> {
-  private final Task<? extends Task<? extends T>>[] _tasks;
+/* package private */ class ParTaskImpl<T> extends BaseParTask<T> {
 
-  @SuppressWarnings("unchecked")
-  private static final Task<? extends Task<?>>[] EMPTY = new Task[0];
-
-  @SuppressWarnings("unchecked")
   public ParTaskImpl(final String name) {
     super(name);
-    _tasks = (Task<? extends Task<? extends T>>[]) EMPTY;
   }
 
   public ParTaskImpl(final String name, final Iterable<? extends Task<? extends T>> tasks) {
-    super(name);
-
-    if (tasks instanceof Collection) {
-      _tasks = tasksFromCollection((Collection<? extends Task<? extends T>>) tasks);
-    } else {
-      _tasks = tasksFromIterable(tasks);
-    }
+    super(name, tasks);
 
     if (_tasks.length == 0) {
       throw new IllegalArgumentException("No tasks to parallelize!");
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private Task<? extends Task<? extends T>>[] tasksFromIterable(Iterable<? extends Task<? extends T>> tasks) {
-    List<Task<T>> taskList = new ArrayList<Task<T>>();
-    for (Task<? extends T> task : tasks) {
-      // Safe to coerce Task<? extends T> to Task<T>
-      final Task<T> coercedTask = (Task<T>) task;
-      taskList.add(coercedTask);
-    }
-    return (Task<? extends Task<? extends T>>[]) taskList.toArray();
-  }
-
-  @SuppressWarnings("unchecked")
-  private Task<? extends Task<? extends T>>[] tasksFromCollection(Collection<? extends Task<? extends T>> tasks) {
-    Task<? extends Task<? extends T>>[] tasksArr = new Task[tasks.size()];
-    int i = 0;
-    for (@SuppressWarnings("rawtypes") Task task: tasks) {
-      tasksArr[i++] = task;
-    }
-    return tasksArr;
-  }
-
   @Override
   protected Promise<List<T>> run(final Context context) throws Exception {
     if (_tasks.length == 0) {
@@ -128,30 +94,4 @@ import com.linkedin.parseq.trace.ResultType;
 
     return result;
   }
-
-  @SuppressWarnings("unchecked")
-  @Override
-  public List<Task<T>> getTasks() {
-    List<Task<T>> tasks = new ArrayList<>(_tasks.length);
-    for (Task<?> task : _tasks) {
-      tasks.add((Task<T>) task);
-    }
-    return tasks;
-  }
-
-  @SuppressWarnings("unchecked")
-  @Override
-  public List<T> getSuccessful() {
-    if (!this.isFailed()) {
-      return this.get();
-    }
-
-    final List<T> taskResult = new ArrayList<>();
-    for (Task<?> task : _tasks) {
-      if (!task.isFailed()) {
-        taskResult.add((T) task.get());
-      }
-    }
-    return taskResult;
-  }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+/**
+ * An object that runs sub-tasks of a task after the task's run method has returned,
+ * e.g. from a callback of a task that has been run earlier.
+ * <p>
+ * Sub-tasks run by a runner behave like sub-tasks run with {@link Context#run(Task...)}:
+ * they are executed by the plan's executor, inherit the deadline of the parent task and
+ * are cancelled when the parent task completes. Unlike {@link Context#run(Task...)} a
+ * runner can be invoked from any thread and references to completed sub-tasks are
+ * released, so a runner can be used to run an unbounded number of sub-tasks over the
+ * lifetime of a task.
+ *
+ * @see Context#createSubTaskRunner()
+ */
+@FunctionalInterface
+public interface SubTaskRunner {
+  /**
+   * Runs the given task as a sub-task of the task that created this runner. If the
+   * parent task is already done then the given task is cancelled.
+   *
+   * @param task the task to run
+   */
+  void run(Task<?> task);
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +46,7 @@ import com.linkedin.parseq.promise.SettablePromise;
 import com.linkedin.parseq.retry.RetriableTask;
 import com.linkedin.parseq.retry.RetryPolicy;
 import com.linkedin.parseq.retry.RetryPolicyBuilder;
+import com.linkedin.parseq.trace.Relationship;
 import com.linkedin.parseq.trace.ShallowTrace;
 import com.linkedin.parseq.trace.ShallowTraceBuilder;
 import com.linkedin.parseq.trace.Trace;
@@ -107,6 +109,10 @@ public interface Task<T> extends Promise<T>, Cancellable {
    * When this task is finished successfully, value will be converted to String using given
    * serializer and it will be included in this task's trace.
    * <p>
+   * Value is converted lazily, when the trace is built, so serializer is not invoked for plans
+   * that are not traced, see {@link Engine#TRACE_SAMPLING_RATE}. Serializer should not depend
+   * on state of the value that may change after the task has finished.
+   * <p>
    * Failures are automatically included in a trace.
    * @param serializer serialized used for converting result of this task
    * to String that will be included in this task's trace.
@@ -135,6 +141,9 @@ public interface Task<T> extends Promise<T>, Cancellable {
   /**
    * Returns the Trace for this task. The Trace will be a point-in-time snapshot
    * and may change over time until the task is completed.
+   * <p>
+   * If the plan this task belongs to is not traced, see {@link Engine#TRACE_SAMPLING_RATE},
+   * the returned Trace contains only the shallow trace of this task.
    *
    * @return the Trace related to this task
    */
@@ -893,6 +902,74 @@ public interface Task<T> extends Promise<T>, Cancellable {
     return withTimeout;
   }
 
+  /**
+   * Equivalent to {@code withDeadline(null, time, unit)}.
+   * @see #withDeadline(String, long, TimeUnit)
+   */
+  default Task<T> withDeadline(final long time, final TimeUnit unit) {
+    return withDeadline(null, time, unit);
+  }
+
+  /**
+   * Creates a new task that has a deadline associated with it. If this task finishes
+   * before the deadline then returned task will be completed with the value of this task.
+   * If this task does not complete before the deadline then returned task will
+   * fail with a {@link TimeoutException} as a reason of failure and this task will be cancelled.
+   * <p>
+   * Unlike {@link #withTimeout(String, long, TimeUnit)} the deadline applies to all tasks run by this task,
+   * which can check how much time they have left using {@link Context#getRemainingTime(TimeUnit)}, e.g. to stop
+   * retrying or to pass the remaining time to a remote call:
+   * <blockquote><pre>
+   * final Task<Response> google = HttpClient.get("http://google.com").task()
+   *     .withDeadline(10, TimeUnit.MILLISECONDS);
+   * </pre></blockquote>
+   * Nested deadlines collapse onto the earliest one: if this task is run by a task whose deadline is not later than
+   * this one, no timer is created and this task is cancelled when the enclosing deadline expires. All deadlines of
+   * a plan share a single timer, see {@link Context#createDeadline(long, TimeUnit, Task)}.
+   *
+   * @param desc description of a deadline. There is no need to put deadline value here because it will be
+   * automatically included. Full description of a deadline will be: {@code "withDeadline " + time + " " +
+   * TimeUnitHelper.toString(unit) + (desc != null ? " " + desc : "")}.
+   * @param time the time until the deadline
+   * @param unit the units for the time
+   * @return the new task with a deadline
+   */
+  default Task<T> withDeadline(final String desc, final long time, final TimeUnit unit) {
+    final Task<T> that = this;
+    final String taskName = "withDeadline " + time + TimeUnitHelper.toString(unit) +
+        (desc != null ? " " + desc : "");
+    Task<T> withDeadline = async(taskName, ctx -> {
+      if (ctx.getRemainingTime(TimeUnit.NANOSECONDS) <= unit.toNanos(time)) {
+        //enclosing deadline expires first and will cancel this task
+        ctx.run(that);
+        return that;
+      }
+      final String timeoutExceptionMessage = "task: '" + that.getName() + "' " + taskName;
+      final AtomicBoolean committed = new AtomicBoolean();
+      final SettablePromise<T> result = Promises.settable();
+      final Task<?> timeoutTask = Task.action("deadline", () -> {
+        if (committed.compareAndSet(false, true)) {
+          result.fail(Exceptions.timeoutException(timeoutExceptionMessage));
+        }
+      } );
+      //timeout tasks should run as early as possible
+      timeoutTask.setPriority(Priority.MAX_PRIORITY);
+      timeoutTask.getShallowTraceBuilder().setTaskType(TaskType.TIMEOUT.getName());
+      ctx.createDeadline(time, unit, timeoutTask);
+      that.addListener(p -> {
+        if (committed.compareAndSet(false, true)) {
+          Promises.propagateResult(that, result);
+        }
+      } );
+      that.setPriority(Priority.MAX_PRIORITY);
+      ctx.run(that);
+      return result;
+    });
+    withDeadline.setPriority(getPriority());
+    withDeadline.getShallowTraceBuilder().setTaskType(TaskType.WITH_DEADLINE.getName());
+    return withDeadline;
+  }
+
   /**
    * Converts {@code Task<Task<R>>} into {@code Task<R>}.
    * @param <R> return type of nested <code>task</code>
@@ -1252,18 +1329,8 @@ public interface Task<T> extends Promise<T>, Cancellable {
    */
   public static <T> Task<T> blocking(final String name, final Callable<? extends T> callable, final Executor executor) {
     ArgumentUtil.requireNotNull(callable, "callable");
-    ArgumentUtil.requireNotNull(callable, "executor");
-    Task<T> blockingTask = async(name, () -> {
-      final SettablePromise<T> promise = Promises.settable();
-      executor.execute(() -> {
-        try {
-          promise.done(callable.call());
-        } catch (Throwable t) {
-          promise.fail(t);
-        }
-      } );
-      return promise;
-    });
+    ArgumentUtil.requireNotNull(executor, "executor");
+    Task<T> blockingTask = async(name, context -> BlockingTasks.execute(context, callable, executor));
     blockingTask.getShallowTraceBuilder().setTaskType(TaskType.BLOCKING.getName());
     return blockingTask;
   }
@@ -1276,6 +1343,107 @@ public interface Task<T> extends Promise<T>, Cancellable {
     return blocking("blocking: " + _taskDescriptor.getDescription(callable.getClass().getName()), callable, executor);
   }
 
+  /**
+   * Creates a new task that runs a blocking or long running callable, like a JDBC request,
+   * on the blocking executor of the engine that runs the task. See
+   * {@link #blocking(String, Callable, Executor)} for details about blocking tasks.
+   * <p>
+   * Blocking executor is registered with {@link EngineBuilder#setBlockingExecutor(Executor)}.
+   * Returned task fails with {@code IllegalStateException} if the engine does not have one.
+   * Sharing one executor across the application, e.g. an executor that runs every callable on
+   * a new virtual thread, removes the need to size a separate thread pool for every kind of
+   * blocking call.
+   *
+   * @param <T> the type of the return value for this task
+   * @param name a name that describes the task, it will show up in a trace
+   * @param callable a callable that will provide result
+   * @return a new task that will submit the callable to engine's blocking executor and complete
+   * with result returned by that callable
+   * @see EngineBuilder#setBlockingExecutor(Executor)
+   */
+  public static <T> Task<T> blocking(final String name, final Callable<? extends T> callable) {
+    ArgumentUtil.requireNotNull(callable, "callable");
+    Task<T> blockingTask = async(name, context -> {
+      final Executor executor = (Executor) context.getEngineProperty(Engine.BLOCKING_EXECUTOR);
+      if (executor == null) {
+        throw new IllegalStateException(
+            "To use Task.blocking() without an executor you must first register blocking executor using EngineBuilder.setBlockingExecutor()");
+      }
+      return BlockingTasks.execute(context, callable, executor);
+    });
+    blockingTask.getShallowTraceBuilder().setTaskType(TaskType.BLOCKING.getName());
+    return blockingTask;
+  }
+
+  /**
+   * Equivalent to {@code blocking("blocking: " + description, callable)}, where description is
+   * derived from the class of the callable, e.g. the lambda's source location.
+   * @see #blocking(String, Callable)
+   */
+  public static <T> Task<T> blocking(final Callable<? extends T> callable) {
+    return blocking("blocking: " + _taskDescriptor.getDescription(callable.getClass().getName()), callable);
+  }
+
+  /**
+   * Creates a new task that returns result of a task memoized under the given key in the plan
+   * that runs the returned task. The first task with a given key that is run in a plan invokes
+   * the supplier and runs the task it returns. Every following task with the same key completes with the
+   * result of that task, in-flight or completed, instead of running a new one:
+   *
+   * <blockquote><pre>
+   *  // the profile is fetched only once even though it is used by both tasks
+   *  Task{@code <Profile>} fetchProfile(long id) {
+   *    return Task.memoized("profile:" + id, () {@code ->} profileClient.fetch(id));
+   *  }
+   *
+   *  Task{@code <String>} summary = Task.par(fetchProfile(1).map(Profile::getName),
+   *      fetchProfile(1).map(Profile::getHeadline)).map((name, headline) {@code ->} name + ", " + headline);
+   * </pre></blockquote>
+   *
+   * The memoized task is run as a side effect of the first task, so cancellation of any of the tasks
+   * returned by this method does not cancel it and it does not inherit their deadlines. Tasks that reuse
+   * the memoized task point to it in the trace. Failed tasks remain memoized until the plan completes.
+   * Memoized tasks are released when the plan, including all side effects, completes, so keys are never
+   * shared between plans. Tasks memoized under the same key must have the same type of value.
+   *
+   * @param <T> the type of the return value for this task
+   * @param desc description of the task, it will show up in a trace
+   * @param key key that identifies the task within a plan
+   * @param supplier supplier of the task, invoked once per plan
+   * @return a new task that completes with the result of the task memoized under the given key
+   */
+  public static <T> Task<T> memoized(final String desc, final Object key, final Supplier<Task<T>> supplier) {
+    ArgumentUtil.requireNotNull(key, "key");
+    ArgumentUtil.requireNotNull(supplier, "supplier");
+    Task<T> memoizedTask = async(desc, context -> {
+      final AtomicBoolean created = new AtomicBoolean();
+      final Task<T> task = context.memoize(key, () -> {
+        created.set(true);
+        return supplier.get();
+      });
+      if (task == null) {
+        throw new NullPointerException("Supplier returned null task for key: " + key);
+      }
+      if (created.get()) {
+        context.runSideEffect(task);
+      } else {
+        context.getTraceBuilder().addRelationship(Relationship.POTENTIAL_PARENT_OF, context.getShallowTraceBuilder(),
+            task.getShallowTraceBuilder());
+      }
+      return task;
+    });
+    memoizedTask.getShallowTraceBuilder().setTaskType(TaskType.MEMOIZED.getName());
+    return memoizedTask;
+  }
+
+  /**
+   * Equivalent to {@code memoized("memoized: " + key, key, supplier)}.
+   * @see #memoized(String, Object, Supplier)
+   */
+  public static <T> Task<T> memoized(final Object key, final Supplier<Task<T>> supplier) {
+    return memoized("memoized: " + key, key, supplier);
+  }
+
   /**
    * Creates a new task that will run given tasks in parallel. Returned task
    * will be resolved with results of all tasks as soon as all of them has
@@ -1796,6 +1964,65 @@ public interface Task<T> extends Promise<T>, Cancellable {
         : new ParTaskImpl<T>("par");
   }
 
+  /**
+   * Creates a new task that will run each of the supplied tasks in parallel and fast-fails
+   * e.g. if one of the tasks fails the resulting task fails with the same error and the
+   * remaining tasks are cancelled.
+   * <p>
+   * This method is designed for a large number of tasks, e.g. tens of thousands. Tasks are
+   * started in chunks, each chunk by a separate system hidden task, results are collected into
+   * a preallocated array as tasks complete and cancellation of the remaining tasks does not
+   * visit all tasks.
+   * <p>
+   * If the Iterable of tasks is empty, {@link com.linkedin.parseq.ParTask#get()}
+   * will return an empty list.
+   *
+   * @param tasks the tasks to run in parallel
+   * @return The results of the tasks, in the order of the tasks
+   * @see #par(Iterable)
+   */
+  public static <T> ParTask<T> parFastFail(final Iterable<? extends Task<? extends T>> tasks) {
+    ArgumentUtil.requireNotNull(tasks, "tasks");
+    return new FastFailParTask<T>("parFastFail", tasks);
+  }
+
+  /**
+   * Equivalent to {@code parBounded("parBounded", maxInFlight, ResultOrder.TASK_ORDER, false, tasks)}.
+   * @see #parBounded(String, int, ParTask.ResultOrder, boolean, Iterable)
+   */
+  public static <T> ParTask<T> parBounded(final int maxInFlight, final Iterable<? extends Task<? extends T>> tasks) {
+    return parBounded("parBounded", maxInFlight, ParTask.ResultOrder.TASK_ORDER, false, tasks);
+  }
+
+  /**
+   * Creates a new task that will run the supplied tasks in parallel, keeping at most {@code maxInFlight}
+   * of them running at any time. The first {@code maxInFlight} tasks are started immediately,
+   * remaining tasks are started, in order, as running tasks complete. Tasks are run by the plan and
+   * appear in the trace as children of the resulting task.
+   * <p>
+   * Unless {@code partialResults} is {@code true} the resulting task fast-fails e.g. if one of the tasks
+   * fails the resulting task fails with the same error, tasks that have not been started are not started
+   * and running tasks are cancelled. If {@code partialResults} is {@code true} failed tasks are skipped
+   * and the result contains only values of successful tasks.
+   * <p>
+   * This method is useful when fanning out over a large number of keys e.g. to avoid overwhelming
+   * a downstream service with requests.
+   *
+   * @param desc description of the task, it will show up in a trace
+   * @param maxInFlight maximum number of tasks running at the same time, must be positive
+   * @param resultOrder order of the values in the result
+   * @param partialResults whether failed tasks are skipped instead of failing the resulting task
+   * @param tasks the tasks to run in parallel
+   * @return The results of the tasks
+   */
+  public static <T> ParTask<T> parBounded(final String desc, final int maxInFlight,
+      final ParTask.ResultOrder resultOrder, final boolean partialResults,
+      final Iterable<? extends Task<? extends T>> tasks) {
+    ArgumentUtil.requireNotNull(resultOrder, "resultOrder");
+    ArgumentUtil.requireNotNull(tasks, "tasks");
+    return new BoundedParTask<T>(desc, maxInFlight, resultOrder, partialResults, tasks);
+  }
+
   /**
    * Equivalent to {@code withRetryPolicy("operation", policy, taskSupplier)}.
    * @see #withRetryPolicy(String, RetryPolicy, Callable)
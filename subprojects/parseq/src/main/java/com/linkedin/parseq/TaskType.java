@@ -8,12 +8,14 @@ public enum TaskType {
   FUSION ("fusion"),
   BLOCKING ("blocking"),
   SHAREABLE ("shareable"),
+  MEMOIZED ("memoized"),
   FLATTEN ("flatten"),
   WITH_SIDE_EFFECT ("withSideEffect"),
   RETRY ("retry"),
   WITH_RETRY ("withRetry"),
   TIMEOUT ("timeout"),
   WITH_TIMEOUT ("withTimeout"),
+  WITH_DEADLINE ("withDeadline"),
   RECOVER ("recover"),
   WITH_RECOVER ("withRecover");
 
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.linkedin.parseq.Context;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Function1;
+import com.linkedin.parseq.function.Try;
+import com.linkedin.parseq.internal.ArgumentUtil;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.trace.Relationship;
+
+
+/**
+ * A cache of values loaded by tasks, shared by all plans that use it.
+ * <p>
+ * Lookup is a task returned by {@link #get(Object)}. When the value is missing or has expired it is
+ * loaded by a task created by the loader passed to {@link TaskCacheBuilder#build(Function1)}. Concurrent
+ * lookups of the same key coalesce into a single load, even if they belong to different plans: the
+ * load is run as a side effect of the lookup that started it, so cancellation of that lookup does not
+ * cancel the load, and other lookups wait for its result. Failed loads are not cached.
+ * <p>
+ * The cache can be bounded by the number of entries or by their total weight. Eviction uses a segmented
+ * LRU policy: new entries are admitted to a probationary segment and entries that are read again are
+ * promoted to a protected segment, which takes up to 80% of the capacity. Victims are taken from the
+ * least recently used end of the probationary segment first, so a burst of entries that are read only
+ * once does not flush the entries that are read repeatedly. Reads reorder the segments only when the lock
+ * that guards them is free, under contention the recency information is dropped rather than waited for.
+ * <p>
+ * Expired entries are removed when a lookup replaces them and from the least recently used ends of
+ * both segments on every write and reordering read, so a cache bounded only by
+ * {@link TaskCacheBuilder#setExpireAfterWrite(long, java.util.concurrent.TimeUnit) expiration} releases
+ * entries that are no longer read.
+ * <p>
+ * With {@link TaskCacheBuilder#setRefreshAfterWrite(long, java.util.concurrent.TimeUnit) refresh-ahead}
+ * enabled, the first lookup of an entry that is due for refresh returns the current value and starts
+ * loading a new one as a side effect, so entries that are read frequently are replaced before they expire
+ * and lookups of them never wait for a load.
+ * <p>
+ * Use {@link TaskCacheBuilder} to create an instance of this class and {@link #getStats()} to monitor it.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class TaskCache<K, V> {
+
+  /* share of the maximum weight that can be taken by the protected segment */
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final Function1<? super K, Task<V>> _loader;
+  private final long _maximumWeight;
+  private final long _maximumProtectedWeight;
+  private final Weigher<? super K, ? super V> _weigher;
+  private final long _expireAfterWriteNano;
+  private final long _refreshAfterWriteNano;
+  private final LongSupplier _ticker;
+
+  private final ConcurrentHashMap<K, Node<K, V>> _entries = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, Task<V>> _loading = new ConcurrentHashMap<>();
+
+  /* guards modifications of entries and of the segments */
+  private final ReentrantLock _evictionLock = new ReentrantLock();
+  private final Node<K, V> _probation = new Node<>();
+  private final Node<K, V> _protected = new Node<>();
+  private long _weightedSize = 0;
+  private long _protectedWeight = 0;
+
+  private final LongAdder _hitCount = new LongAdder();
+  private final LongAdder _missCount = new LongAdder();
+  private final LongAdder _coalescedLoadCount = new LongAdder();
+  private final LongAdder _loadSuccessCount = new LongAdder();
+  private final LongAdder _loadFailureCount = new LongAdder();
+  private final LongAdder _totalLoadTimeNano = new LongAdder();
+  private final LongAdder _refreshCount = new LongAdder();
+  private final LongAdder _evictionCount = new LongAdder();
+  private final LongAdder _evictionWeight = new LongAdder();
+
+  TaskCache(final Function1<? super K, Task<V>> loader, final long maximumWeight,
+      final Weigher<? super K, ? super V> weigher, final long expireAfterWriteNano, final long refreshAfterWriteNano,
+      final LongSupplier ticker) {
+    _loader = loader;
+    _maximumWeight = maximumWeight;
+    _maximumProtectedWeight = (long) (maximumWeight * PROTECTED_RATIO);
+    _weigher = weigher;
+    _expireAfterWriteNano = expireAfterWriteNano;
+    _refreshAfterWriteNano = refreshAfterWriteNano;
+    _ticker = ticker;
+  }
+
+  /**
+   * Returns a task that completes with the value cached under the given key, loading it if it is missing
+   * or has expired.
+   *
+   * @param desc description of the task, it will show up in a trace
+   * @param key key of the value
+   * @return a new task that completes with the value cached under the given key
+   */
+  public Task<V> get(final String desc, final K key) {
+    ArgumentUtil.requireNotNull(key, "key");
+    return Task.async(desc, context -> {
+      final long now = _ticker.getAsLong();
+      final Node<K, V> node = _entries.get(key);
+      if (node != null) {
+        final long writeNano = node._writeNano;
+        if (!isExpired(writeNano, now)) {
+          final V value = node._value;
+          _hitCount.increment();
+          afterRead(node, now);
+          if (isRefreshDue(writeNano, now)) {
+            load(context, key, true);
+          }
+          return Promises.value(value);
+        }
+      }
+      _missCount.increment();
+      return load(context, key, false);
+    });
+  }
+
+  /**
+   * Equivalent to {@code get("get: " + key, key)}.
+   * @see #get(String, Object)
+   */
+  public Task<V> get(final K key) {
+    return get("get: " + key, key);
+  }
+
+  /**
+   * Returns value cached under the given key or {@code null} if it is missing or has expired. Does not
+   * load the value and does not affect statistics.
+   *
+   * @param key key of the value
+   * @return value cached under the given key or {@code null}
+   */
+  public V getIfPresent(final K key) {
+    final Node<K, V> node = _entries.get(key);
+    if (node != null) {
+      final long writeNano = node._writeNano;
+      if (!isExpired(writeNano, _ticker.getAsLong())) {
+        return node._value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Caches the given value under the given key, replacing the current value.
+   *
+   * @param key key of the value
+   * @param value value to cache
+   */
+  public void put(final K key, final V value) {
+    ArgumentUtil.requireNotNull(key, "key");
+    ArgumentUtil.requireNotNull(value, "value");
+    final int weight = _weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("weight must not be negative, but is: " + weight);
+    }
+    final long now = _ticker.getAsLong();
+    _evictionLock.lock();
+    try {
+      Node<K, V> node = _entries.get(key);
+      if (node == null) {
+        node = new Node<>(key, value, now, weight);
+        node.linkBefore(_probation);
+        _entries.put(key, node);
+      } else {
+        _weightedSize -= node._weight;
+        node._value = value;
+        node._writeNano = now;
+        if (node._protected) {
+          _protectedWeight += weight - node._weight;
+        }
+        node._weight = weight;
+      }
+      _weightedSize += weight;
+      demoteProtected();
+      expire(now);
+      evict();
+    } finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Removes value cached under the given key. Does not affect a load that is in progress.
+   *
+   * @param key key of the value
+   */
+  public void invalidate(final K key) {
+    _evictionLock.lock();
+    try {
+      final Node<K, V> node = _entries.remove(key);
+      if (node != null) {
+        unlink(node);
+      }
+    } finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Removes all cached values. Does not affect loads that are in progress.
+   */
+  public void invalidateAll() {
+    _evictionLock.lock();
+    try {
+      for (K key : _entries.keySet()) {
+        invalidate(key);
+      }
+    } finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return number of cached entries, including expired entries that have not been removed yet
+   */
+  public long size() {
+    return _entries.size();
+  }
+
+  /**
+   * @return total weight of cached entries
+   */
+  public long weightedSize() {
+    _evictionLock.lock();
+    try {
+      return _weightedSize;
+    } finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return snapshot of statistics of this cache
+   */
+  public TaskCacheStats getStats() {
+    return new TaskCacheStats(_hitCount.sum(), _missCount.sum(), _coalescedLoadCount.sum(), _loadSuccessCount.sum(),
+        _loadFailureCount.sum(), _totalLoadTimeNano.sum(), _refreshCount.sum(), _evictionCount.sum(),
+        _evictionWeight.sum());
+  }
+
+  private boolean isExpired(final long writeNano, final long now) {
+    return _expireAfterWriteNano > 0 && now - writeNano >= _expireAfterWriteNano;
+  }
+
+  private boolean isRefreshDue(final long writeNano, final long now) {
+    return _refreshAfterWriteNano > 0 && now - writeNano >= _refreshAfterWriteNano;
+  }
+
+  /**
+   * Returns the load in progress for the given key or starts a new one as a side effect of the given context.
+   * Completed loads that have not been removed yet are replaced.
+   */
+  private Promise<V> load(final Context context, final K key, final boolean refresh) {
+    final Task<V> loading = _loading.get(key);
+    if (loading != null && !loading.isDone()) {
+      if (!refresh) {
+        _coalescedLoadCount.increment();
+        context.getTraceBuilder().addRelationship(Relationship.POTENTIAL_PARENT_OF, context.getShallowTraceBuilder(),
+            loading.getShallowTraceBuilder());
+      }
+      return loading;
+    }
+    final long start = _ticker.getAsLong();
+    /* value is stored before the task completes so that lookups that wait for it can not miss it */
+    final Task<V> task = createLoadTask(key).transform("cache: " + key, result -> loaded(key, result, start));
+    final boolean registered =
+        loading == null ? _loading.putIfAbsent(key, task) == null : _loading.replace(key, loading, task);
+    if (!registered) {
+      return load(context, key, refresh);
+    }
+    if (refresh) {
+      _refreshCount.increment();
+    } else {
+      /* a load might have stored its value and completed since the lookup */
+      final V value = getIfPresent(key);
+      if (value != null) {
+        _loading.remove(key, task);
+        _coalescedLoadCount.increment();
+        return Promises.value(value);
+      }
+    }
+    task.addListener(result -> _loading.remove(key, task));
+    context.runSideEffect(task);
+    return task;
+  }
+
+  private Task<V> createLoadTask(final K key) {
+    final Task<V> task;
+    try {
+      task = _loader.apply(key);
+    } catch (Throwable t) {
+      return Task.failure("load: " + key, t);
+    }
+    if (task == null) {
+      return Task.failure("load: " + key, new NullPointerException("Loader returned null task for key: " + key));
+    }
+    return task;
+  }
+
+  private Try<V> loaded(final K key, final Try<V> result, final long start) {
+    _totalLoadTimeNano.add(_ticker.getAsLong() - start);
+    if (result.isFailed()) {
+      _loadFailureCount.increment();
+    } else {
+      _loadSuccessCount.increment();
+      if (result.get() != null) {
+        put(key, result.get());
+      }
+    }
+    return result;
+  }
+
+  private void afterRead(final Node<K, V> node, final long now) {
+    if (_evictionLock.tryLock()) {
+      try {
+        /* node might have been removed since it was read */
+        if (node._next == null) {
+          return;
+        }
+        node.unlink();
+        node.linkBefore(_protected);
+        if (!node._protected) {
+          node._protected = true;
+          _protectedWeight += node._weight;
+          demoteProtected();
+        }
+        expire(now);
+      } finally {
+        _evictionLock.unlock();
+      }
+    }
+  }
+
+  /* must be called with eviction lock held */
+  private void demoteProtected() {
+    while (_protectedWeight > _maximumProtectedWeight && _protected._next != _protected) {
+      final Node<K, V> node = _protected._next;
+      node.unlink();
+      node.linkBefore(_probation);
+      node._protected = false;
+      _protectedWeight -= node._weight;
+    }
+  }
+
+  /* must be called with eviction lock held */
+  private void expire(final long now) {
+    if (_expireAfterWriteNano > 0) {
+      expire(_probation, now);
+      expire(_protected, now);
+    }
+  }
+
+  /* removes expired entries from the least recently used end of the segment, must be called with eviction lock held */
+  private void expire(final Node<K, V> segment, final long now) {
+    while (segment._next != segment && isExpired(segment._next._writeNano, now)) {
+      final Node<K, V> node = segment._next;
+      _entries.remove(node._key, node);
+      unlink(node);
+    }
+  }
+
+  /* must be called with eviction lock held */
+  private void evict() {
+    while (_weightedSize > _maximumWeight) {
+      final Node<K, V> victim = _probation._next != _probation ? _probation._next : _protected._next;
+      if (victim == _protected) {
+        return;
+      }
+      _entries.remove(victim._key, victim);
+      unlink(victim);
+      _evictionCount.increment();
+      _evictionWeight.add(victim._weight);
+    }
+  }
+
+  /* must be called with eviction lock held */
+  private void unlink(final Node<K, V> node) {
+    node.unlink();
+    _weightedSize -= node._weight;
+    if (node._protected) {
+      _protectedWeight -= node._weight;
+    }
+  }
+
+  /**
+   * Cache entry, also an element of a circular doubly linked list of a segment, ordered from the least
+   * recently used. Links and weight are guarded by the eviction lock.
+   */
+  private static class Node<K, V> {
+    private final K _key;
+    private volatile V _value;
+    private volatile long _writeNano;
+    private int _weight;
+    private boolean _protected;
+    private Node<K, V> _prev;
+    private Node<K, V> _next;
+
+    /* creates a sentinel of a segment */
+    private Node() {
+      _key = null;
+      _prev = this;
+      _next = this;
+    }
+
+    private Node(final K key, final V value, final long writeNano, final int weight) {
+      _key = key;
+      _value = value;
+      _writeNano = writeNano;
+      _weight = weight;
+    }
+
+    private void linkBefore(final Node<K, V> node) {
+      _prev = node._prev;
+      _next = node;
+      node._prev._next = this;
+      node._prev = this;
+    }
+
+    private void unlink() {
+      if (_next != null) {
+        _prev._next = _next;
+        _next._prev = _prev;
+        _prev = null;
+        _next = null;
+      }
+    }
+  }
+}
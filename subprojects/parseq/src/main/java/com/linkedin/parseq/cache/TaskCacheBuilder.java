@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.function.Function1;
+import com.linkedin.parseq.internal.ArgumentUtil;
+
+
+/**
+ * A configurable builder that makes {@link TaskCache}s.
+ * <p>
+ * Example:
+ * <blockquote><pre>
+ *  TaskCache{@code <Long, Profile>} profiles = new TaskCacheBuilder{@code <Long, Profile>}()
+ *      .setMaximumSize(10000)
+ *      .setExpireAfterWrite(10, TimeUnit.MINUTES)
+ *      .setRefreshAfterWrite(8, TimeUnit.MINUTES)
+ *      .build(id {@code ->} profileClient.fetch(id));
+ * </pre></blockquote>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class TaskCacheBuilder<K, V> {
+
+  private long _maximumWeight = Long.MAX_VALUE;
+  private Weigher<? super K, ? super V> _weigher = null;
+  private long _expireAfterWriteNano = 0;
+  private long _refreshAfterWriteNano = 0;
+  private LongSupplier _ticker = System::nanoTime;
+
+  /**
+   * Sets maximum number of entries in the cache. When the cache grows beyond this number, least
+   * valuable entries are evicted. By default the cache is not bounded.
+   *
+   * @param maximumSize maximum number of entries
+   * @return this builder
+   */
+  public TaskCacheBuilder<K, V> setMaximumSize(final long maximumSize) {
+    ArgumentUtil.requirePositive(maximumSize, "maximumSize");
+    _maximumWeight = maximumSize;
+    _weigher = null;
+    return this;
+  }
+
+  /**
+   * Sets maximum total weight of entries in the cache. When total weight of entries exceeds this number,
+   * least valuable entries are evicted. Overrides {@link #setMaximumSize(long)}.
+   *
+   * @param maximumWeight maximum total weight of entries
+   * @param weigher calculates weight of an entry
+   * @return this builder
+   */
+  public TaskCacheBuilder<K, V> setMaximumWeight(final long maximumWeight, final Weigher<? super K, ? super V> weigher) {
+    ArgumentUtil.requirePositive(maximumWeight, "maximumWeight");
+    ArgumentUtil.requireNotNull(weigher, "weigher");
+    _maximumWeight = maximumWeight;
+    _weigher = weigher;
+    return this;
+  }
+
+  /**
+   * Sets time after which an entry expires, measured from the time its value was loaded. Expired entries
+   * are never returned, lookup of an expired entry loads it again. By default entries do not expire.
+   *
+   * @param duration time after which an entry expires
+   * @param unit time unit of the duration
+   * @return this builder
+   */
+  public TaskCacheBuilder<K, V> setExpireAfterWrite(final long duration, final TimeUnit unit) {
+    ArgumentUtil.requirePositive(duration, "duration");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    _expireAfterWriteNano = unit.toNanos(duration);
+    return this;
+  }
+
+  /**
+   * Sets time after which an entry is refreshed ahead of its expiration, measured from the time its value
+   * was loaded. First lookup of such an entry returns the current value and starts loading a new one as a
+   * side effect of the plan that made the lookup. Must be shorter than the expiration time, if it is set.
+   * By default entries are not refreshed.
+   *
+   * @param duration time after which an entry is refreshed
+   * @param unit time unit of the duration
+   * @return this builder
+   */
+  public TaskCacheBuilder<K, V> setRefreshAfterWrite(final long duration, final TimeUnit unit) {
+    ArgumentUtil.requirePositive(duration, "duration");
+    ArgumentUtil.requireNotNull(unit, "unit");
+    _refreshAfterWriteNano = unit.toNanos(duration);
+    return this;
+  }
+
+  /* package private */ TaskCacheBuilder<K, V> setTicker(final LongSupplier ticker) {
+    _ticker = ticker;
+    return this;
+  }
+
+  /**
+   * Creates a cache that loads missing values using tasks created by the given loader.
+   *
+   * @param loader creates a task that loads value for a key
+   * @return a new cache
+   */
+  public TaskCache<K, V> build(final Function1<? super K, Task<V>> loader) {
+    ArgumentUtil.requireNotNull(loader, "loader");
+    if (_expireAfterWriteNano > 0 && _refreshAfterWriteNano >= _expireAfterWriteNano) {
+      throw new IllegalArgumentException("refreshAfterWrite must be shorter than expireAfterWrite");
+    }
+    final Weigher<? super K, ? super V> weigher = _weigher != null ? _weigher : (key, value) -> 1;
+    return new TaskCache<>(loader, _maximumWeight, weigher, _expireAfterWriteNano, _refreshAfterWriteNano, _ticker);
+  }
+}
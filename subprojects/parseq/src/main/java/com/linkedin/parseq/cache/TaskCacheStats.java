@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.cache;
+
+/**
+ * Snapshot of {@link TaskCache} statistics. All counts are cumulative since the cache was created.
+ */
+public final class TaskCacheStats {
+
+  private final long _hitCount;
+  private final long _missCount;
+  private final long _coalescedLoadCount;
+  private final long _loadSuccessCount;
+  private final long _loadFailureCount;
+  private final long _totalLoadTimeNano;
+  private final long _refreshCount;
+  private final long _evictionCount;
+  private final long _evictionWeight;
+
+  TaskCacheStats(final long hitCount, final long missCount, final long coalescedLoadCount,
+      final long loadSuccessCount, final long loadFailureCount, final long totalLoadTimeNano, final long refreshCount,
+      final long evictionCount, final long evictionWeight) {
+    _hitCount = hitCount;
+    _missCount = missCount;
+    _coalescedLoadCount = coalescedLoadCount;
+    _loadSuccessCount = loadSuccessCount;
+    _loadFailureCount = loadFailureCount;
+    _totalLoadTimeNano = totalLoadTimeNano;
+    _refreshCount = refreshCount;
+    _evictionCount = evictionCount;
+    _evictionWeight = evictionWeight;
+  }
+
+  /**
+   * @return number of lookups that found a value that has not expired
+   */
+  public long getHitCount() {
+    return _hitCount;
+  }
+
+  /**
+   * @return number of lookups that did not find a value, including lookups that joined a load in progress
+   */
+  public long getMissCount() {
+    return _missCount;
+  }
+
+  /**
+   * @return number of misses that joined a load started by another lookup or a refresh instead of starting one
+   */
+  public long getCoalescedLoadCount() {
+    return _coalescedLoadCount;
+  }
+
+  /**
+   * @return number of loads, including refreshes, that completed successfully
+   */
+  public long getLoadSuccessCount() {
+    return _loadSuccessCount;
+  }
+
+  /**
+   * @return number of loads, including refreshes, that failed
+   */
+  public long getLoadFailureCount() {
+    return _loadFailureCount;
+  }
+
+  /**
+   * @return total time spent loading values, in nanoseconds
+   */
+  public long getTotalLoadTimeNano() {
+    return _totalLoadTimeNano;
+  }
+
+  /**
+   * @return number of refreshes started before entries expired
+   */
+  public long getRefreshCount() {
+    return _refreshCount;
+  }
+
+  /**
+   * @return number of entries evicted because the cache exceeded its maximum size or weight
+   */
+  public long getEvictionCount() {
+    return _evictionCount;
+  }
+
+  /**
+   * @return total weight of evicted entries
+   */
+  public long getEvictionWeight() {
+    return _evictionWeight;
+  }
+
+  /**
+   * @return ratio of hits to all lookups or {@code 1.0} if there were no lookups
+   */
+  public double getHitRate() {
+    final long requests = _hitCount + _missCount;
+    return requests == 0 ? 1.0 : (double) _hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "TaskCacheStats [hitCount=" + _hitCount + ", missCount=" + _missCount + ", coalescedLoadCount="
+        + _coalescedLoadCount + ", loadSuccessCount=" + _loadSuccessCount + ", loadFailureCount=" + _loadFailureCount
+        + ", totalLoadTimeNano=" + _totalLoadTimeNano + ", refreshCount=" + _refreshCount + ", evictionCount="
+        + _evictionCount + ", evictionWeight=" + _evictionWeight + "]";
+  }
+}
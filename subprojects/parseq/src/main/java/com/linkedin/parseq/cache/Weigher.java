@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.linkedin.parseq.cache;
+
+/**
+ * Calculates weight of a cache entry, used to bound {@link TaskCache} by the total weight of its entries.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ * @see TaskCacheBuilder#setMaximumWeight(long, Weigher)
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * Returns weight of an entry, it must not be negative. Weight is calculated once, when the entry is stored.
+   *
+   * @param key key of the entry
+   * @param value value of the entry
+   * @return weight of the entry
+   */
+  int weigh(K key, V value);
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Plan based throttling that adapts concurrency limit of every plan class to observed plan latency,
+ * so that limits do not have to be tuned manually.
+ * <p>
+ * The limit of a plan class is adjusted using a gradient of latencies: latency of recently completed plans
+ * (short term latency) is compared with a slowly moving average of latency (long term latency). While short
+ * term latency stays within {@code tolerance} times long term latency the limit grows by a square root of the
+ * limit, which probes for additional capacity. Once plans become slower the limit is reduced proportionally
+ * to the increase of latency. This keeps the concurrency of a plan class near the point where latency starts
+ * growing faster than throughput. The limit does not grow while less than half of it is in use.
+ * <p>
+ * Limits are updated every {@value #WINDOW_SIZE} completed plans of a plan class. Latency of a plan is measured
+ * by the engine and passed to {@link #release(String, long)}. Plan classes are tracked independently and state
+ * for a plan class is created when its first permit is requested.
+ * <p>
+ * Current limit, number of plans in flight and number of rejected requests for a permit are available through
+ * {@link #getLimit(String)}, {@link #getInFlight(String)} and {@link #getRejectedCount(String)}.
+ */
+public class AdaptivePlanBasedRateLimiter implements PlanBasedRateLimiter {
+
+  public static final int DEFAULT_INITIAL_LIMIT = 20;
+  public static final int DEFAULT_MIN_LIMIT = 1;
+  public static final int DEFAULT_MAX_LIMIT = 1000;
+  public static final double DEFAULT_TOLERANCE = 2.0;
+
+  static final int WINDOW_SIZE = 10;
+  private static final int LONG_WINDOW_SIZE = 100;
+  private static final double SMOOTHING = 0.2;
+
+  private final ConcurrentMap<String, PlanClassLimit> _limits = new ConcurrentHashMap<>();
+
+  private final int _initialLimit;
+  private final int _minLimit;
+  private final int _maxLimit;
+  private final double _tolerance;
+
+  public AdaptivePlanBasedRateLimiter() {
+    this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * @param initialLimit limit of a plan class before any latency has been observed
+   * @param minLimit limit will never be lower than this value
+   * @param maxLimit limit will never be higher than this value
+   * @param tolerance ratio of short term to long term latency that is not considered an increase of latency,
+   * must be at least 1
+   */
+  public AdaptivePlanBasedRateLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+      final double tolerance) {
+    ArgumentUtil.requirePositive(minLimit, "minLimit");
+    if (maxLimit < minLimit) {
+      throw new IllegalArgumentException("maxLimit must not be lower than minLimit: " + maxLimit + " < " + minLimit);
+    }
+    if (initialLimit < minLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit, but is: " + initialLimit);
+    }
+    if (!(tolerance >= 1.0)) {
+      throw new IllegalArgumentException("tolerance must be at least 1, but is: " + tolerance);
+    }
+    _initialLimit = initialLimit;
+    _minLimit = minLimit;
+    _maxLimit = maxLimit;
+    _tolerance = tolerance;
+  }
+
+  @Override
+  public boolean tryAcquire(final String planClass) {
+    final PlanClassLimit limit = limitFor(planClass);
+    if (limit.tryAcquire()) {
+      return true;
+    }
+    limit._rejected.increment();
+    return false;
+  }
+
+  @Override
+  public boolean tryAcquire(final String planClass, final long timeout, final TimeUnit unit)
+      throws InterruptedException {
+    final PlanClassLimit limit = limitFor(planClass);
+    if (limit.tryAcquire()) {
+      return true;
+    }
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (limit) {
+      limit._waiters++;
+      try {
+        while (!limit.tryAcquire()) {
+          final long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            limit._rejected.increment();
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(limit, remaining);
+        }
+        return true;
+      } finally {
+        limit._waiters--;
+      }
+    }
+  }
+
+  @Override
+  public void acquire(final String planClass) throws InterruptedException {
+    final PlanClassLimit limit = limitFor(planClass);
+    if (limit.tryAcquire()) {
+      return;
+    }
+    synchronized (limit) {
+      limit._waiters++;
+      try {
+        while (!limit.tryAcquire()) {
+          limit.wait();
+        }
+      } finally {
+        limit._waiters--;
+      }
+    }
+  }
+
+  @Override
+  public void release(final String planClass) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    if (limit != null) {
+      limit.release();
+    }
+  }
+
+  @Override
+  public void release(final String planClass, final long planDurationNano) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    if (limit != null) {
+      limit.sample(planDurationNano);
+      limit.release();
+    }
+  }
+
+  /**
+   * Returns current concurrency limit of the given plan class.
+   */
+  public int getLimit(final String planClass) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    return limit != null ? limit._limit : _initialLimit;
+  }
+
+  /**
+   * Returns number of plans of the given plan class that hold a permit.
+   */
+  public int getInFlight(final String planClass) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    return limit != null ? limit._inFlight.get() : 0;
+  }
+
+  /**
+   * Returns number of requests for a permit for the given plan class that have been rejected.
+   */
+  public long getRejectedCount(final String planClass) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    return limit != null ? limit._rejected.sum() : 0;
+  }
+
+  private PlanClassLimit limitFor(final String planClass) {
+    final PlanClassLimit limit = _limits.get(planClass);
+    return limit != null ? limit : _limits.computeIfAbsent(planClass, key -> new PlanClassLimit(_initialLimit));
+  }
+
+  private class PlanClassLimit {
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private final LongAdder _rejected = new LongAdder();
+    private volatile int _limit;
+
+    // modified only when holding the monitor
+    private volatile int _waiters = 0;
+
+    // guarded by this
+    private double _estimatedLimit;
+    private double _longLatency = 0;
+    private double _windowLatencySum = 0;
+    private int _windowCount = 0;
+    private int _windowMaxInFlight = 0;
+
+    private PlanClassLimit(final int initialLimit) {
+      _limit = initialLimit;
+      _estimatedLimit = initialLimit;
+    }
+
+    private boolean tryAcquire() {
+      for (;;) {
+        final int inFlight = _inFlight.get();
+        if (inFlight >= _limit) {
+          return false;
+        }
+        if (_inFlight.compareAndSet(inFlight, inFlight + 1)) {
+          return true;
+        }
+      }
+    }
+
+    private void release() {
+      _inFlight.decrementAndGet();
+      // waiter increments _waiters before it tries to acquire a permit, so either it sees
+      // the above decrement or it is seen here
+      if (_waiters > 0) {
+        synchronized (this) {
+          notifyAll();
+        }
+      }
+    }
+
+    private synchronized void sample(final long latencyNano) {
+      _windowLatencySum += latencyNano;
+      _windowCount++;
+      // the plan being released is still counted as in flight
+      _windowMaxInFlight = Math.max(_windowMaxInFlight, _inFlight.get());
+      if (_windowCount < WINDOW_SIZE) {
+        return;
+      }
+      final double shortLatency = Math.max(_windowLatencySum / _windowCount, 1);
+      final int maxInFlight = _windowMaxInFlight;
+      _windowLatencySum = 0;
+      _windowCount = 0;
+      _windowMaxInFlight = 0;
+
+      if (_longLatency == 0) {
+        _longLatency = shortLatency;
+      } else {
+        _longLatency += (shortLatency - _longLatency) * 2 / (LONG_WINDOW_SIZE + 1);
+        if (_longLatency / shortLatency > 2) {
+          // load has dropped, let long term latency catch up faster
+          _longLatency *= 0.95;
+        }
+      }
+
+      if (maxInFlight < _estimatedLimit / 2) {
+        // plan class does not use its limit, latency says nothing about the limit
+        return;
+      }
+
+      final double gradient = Math.max(0.5, Math.min(1.0, _tolerance * _longLatency / shortLatency));
+      final double newLimit = _estimatedLimit * gradient + Math.sqrt(_estimatedLimit);
+      _estimatedLimit = Math.max(_minLimit, Math.min(_maxLimit,
+          _estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+      _limit = (int) _estimatedLimit;
+      if (_waiters > 0) {
+        notifyAll();
+      }
+    }
+  }
+}
@@ -41,4 +41,10 @@ public class ArgumentUtil {
       throw new IllegalArgumentException(name + " must be a positive integer numebr, but is: " + n);
     }
   }
+
+  public static void requirePositive(final long n, final String name) {
+    if (n <= 0) {
+      throw new IllegalArgumentException(name + " must be a positive integer number, but is: " + n);
+    }
+  }
 }
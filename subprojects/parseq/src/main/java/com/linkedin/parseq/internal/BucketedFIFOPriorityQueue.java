@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import com.linkedin.parseq.internal.SerialExecutor.TaskQueue;
+
+/**
+ * {@link TaskQueue} implementation that polls elements in the same order as {@link FIFOPriorityQueue}:
+ * elements with higher priority first and elements with equal priority in FIFO order.
+ * <p>
+ * Elements are kept in buckets, one per distinct priority, and each bucket is an array based
+ * ring buffer. Buckets are sorted by priority and are reused for the lifetime of the queue.
+ * Tasks use only a handful of distinct priorities (typically {@code Priority.DEFAULT_PRIORITY}
+ * and {@code Priority.MAX_PRIORITY} used by timeouts) so both {@link #add(Prioritizable)} and
+ * {@link #poll()} take constant time, as opposed to {@code O(log n)} in {@link FIFOPriorityQueue}.
+ * Unlike {@link FIFOPriorityQueue} this queue does not wrap elements and does not need a
+ * sequence number to provide FIFO order.
+ * <p>
+ * This class is thread-safe. All operations hold the queue's monitor for a few instructions,
+ * which is cheap because the queue is almost never contended: it is polled by a single
+ * thread and most elements are added by that same thread.
+ */
+public class BucketedFIFOPriorityQueue<T extends Prioritizable> implements SerialExecutor.TaskQueue<T> {
+
+  private static final int INITIAL_BUCKETS = 4;
+  private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+  // sorted in descending order of priority, allocated when first element is added
+  private int[] _priorities;
+  private Bucket[] _buckets;
+  private int _bucketCount = 0;
+
+  // index of the bucket with highest priority that may be non-empty, all buckets before it are empty
+  private int _top = 0;
+
+  // bucket used by the last add, most elements have the same priority
+  private int _lastAdded = 0;
+
+  @Override
+  public synchronized void add(final T value) {
+    final int priority = value.getPriority();
+    int index = _lastAdded;
+    if (index >= _bucketCount || _priorities[index] != priority) {
+      index = bucketIndex(priority);
+      _lastAdded = index;
+    }
+    _buckets[index].add(value);
+    if (index < _top) {
+      _top = index;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized T poll() {
+    while (_top < _bucketCount) {
+      final Bucket bucket = _buckets[_top];
+      if (bucket._size > 0) {
+        return (T) bucket.poll();
+      }
+      _top++;
+    }
+    return null;
+  }
+
+  /**
+   * Returns index of a bucket for given priority, creating the bucket if it does not exist.
+   */
+  private int bucketIndex(final int priority) {
+    int index = 0;
+    while (index < _bucketCount && _priorities[index] > priority) {
+      index++;
+    }
+    if (index < _bucketCount && _priorities[index] == priority) {
+      return index;
+    }
+    if (_buckets == null) {
+      _priorities = new int[INITIAL_BUCKETS];
+      _buckets = new Bucket[INITIAL_BUCKETS];
+    } else if (_bucketCount == _buckets.length) {
+      final int[] priorities = new int[_bucketCount * 2];
+      final Bucket[] buckets = new Bucket[_bucketCount * 2];
+      System.arraycopy(_priorities, 0, priorities, 0, _bucketCount);
+      System.arraycopy(_buckets, 0, buckets, 0, _bucketCount);
+      _priorities = priorities;
+      _buckets = buckets;
+    }
+    System.arraycopy(_priorities, index, _priorities, index + 1, _bucketCount - index);
+    System.arraycopy(_buckets, index, _buckets, index + 1, _bucketCount - index);
+    _priorities[index] = priority;
+    _buckets[index] = new Bucket();
+    _bucketCount++;
+    if (index < _top) {
+      // keep pointing at the bucket that was at _top before insertion
+      _top++;
+    }
+    return index;
+  }
+
+  /**
+   * FIFO ring buffer with capacity being a power of two.
+   */
+  private static class Bucket {
+    private Object[] _elements = new Object[INITIAL_BUCKET_CAPACITY];
+    private int _head = 0;
+    private int _size = 0;
+
+    private void add(final Object value) {
+      if (_size == _elements.length) {
+        grow();
+      }
+      _elements[(_head + _size) & (_elements.length - 1)] = value;
+      _size++;
+    }
+
+    private Object poll() {
+      final Object value = _elements[_head];
+      _elements[_head] = null;
+      _head = (_head + 1) & (_elements.length - 1);
+      _size--;
+      return value;
+    }
+
+    private void grow() {
+      final Object[] elements = new Object[_elements.length * 2];
+      final int firstPart = _elements.length - _head;
+      System.arraycopy(_elements, _head, elements, 0, firstPart);
+      System.arraycopy(_elements, 0, elements, firstPart, _head);
+      _elements = elements;
+      _head = 0;
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import com.linkedin.parseq.Priority;
+import com.linkedin.parseq.internal.SerialExecutor.TaskQueue;
+
+/**
+ * Multi-producer single-consumer {@link TaskQueue} implementation that polls elements in the same
+ * order as {@link LIFOBiPriorityQueue}: elements with priority greater than {@link Priority#DEFAULT_PRIORITY}
+ * in FIFO order, followed by remaining elements in LIFO order.
+ * <p>
+ * Unlike {@link LIFOBiPriorityQueue} it does not allocate a node per element and does not allocate
+ * anything until a second element is added:
+ * <ul>
+ * <li>the first element ever added is stored in a dedicated field,</li>
+ * <li>subsequent elements are appended to linked chunks of slots; producers claim a slot
+ * with a single atomic increment,</li>
+ * <li>the consumer moves elements from chunks to private array based deques, which are created
+ * only if more than one element is waiting at the same time.</li>
+ * </ul>
+ * <p>
+ * {@link #add(Prioritizable)} can be called by any thread but {@link #poll()} must only be called
+ * by one thread at a time and there has to be a happens-before relation between consecutive calls
+ * to {@link #poll()}. {@link SerialExecutor} provides those guarantees.
+ * <p>
+ * To use this queue set {@code Engine.DEFAULT_TASK_QUEUE} engine property to the name of this class or
+ * pass {@code ChunkedLIFOBiPriorityQueue::new} to {@code EngineBuilder.setTaskQueueFactory()}.
+ */
+public class ChunkedLIFOBiPriorityQueue<T extends Prioritizable> implements SerialExecutor.TaskQueue<T> {
+
+  public static final int DEFAULT_CHUNK_SIZE = 32;
+
+  private static final Object TAKEN = new Object();
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<ChunkedLIFOBiPriorityQueue, Object> FIRST =
+      AtomicReferenceFieldUpdater.newUpdater(ChunkedLIFOBiPriorityQueue.class, Object.class, "_first");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<ChunkedLIFOBiPriorityQueue, Chunk> TAIL =
+      AtomicReferenceFieldUpdater.newUpdater(ChunkedLIFOBiPriorityQueue.class, Chunk.class, "_tail");
+
+  private final int _chunkSize;
+
+  // written by producers
+  private volatile Object _first;
+  private volatile Chunk<T> _tail;
+  // written once by the producer that created the first chunk, cleared by the consumer
+  private volatile Chunk<T> _head;
+
+  // accessed only by the consumer
+  private boolean _firstTaken = false;
+  private Chunk<T> _consumerChunk;
+  private int _consumerIndex;
+  private ArrayDeque<T> _highPriority;
+  private ArrayDeque<T> _lowPriority;
+
+  public ChunkedLIFOBiPriorityQueue() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  public ChunkedLIFOBiPriorityQueue(final int chunkSize) {
+    ArgumentUtil.requirePositive(chunkSize, "chunkSize");
+    _chunkSize = chunkSize;
+  }
+
+  @Override
+  public void add(final T value) {
+    ArgumentUtil.requireNotNull(value, "value");
+    if (_first == null && FIRST.compareAndSet(this, null, value)) {
+      return;
+    }
+    Chunk<T> chunk = _tail;
+    if (chunk == null) {
+      final Chunk<T> created = new Chunk<>(_chunkSize);
+      if (TAIL.compareAndSet(this, null, created)) {
+        _head = created;
+      }
+      chunk = _tail;
+    }
+    for (;;) {
+      final int index = Chunk.CLAIMED.getAndIncrement(chunk);
+      if (index < _chunkSize) {
+        chunk._slots.lazySet(index, value);
+        return;
+      }
+      Chunk<T> next = chunk._next;
+      if (next == null) {
+        Chunk.NEXT.compareAndSet(chunk, null, new Chunk<>(_chunkSize));
+        next = chunk._next;
+      }
+      TAIL.compareAndSet(this, chunk, next);
+      chunk = next;
+    }
+  }
+
+  @Override
+  public T poll() {
+    // wait for an element that is being added only if there is nothing else to return
+    final T next = take(!isBufferEmpty());
+    if (next == null) {
+      return pollBuffered();
+    }
+    T following = take(true);
+    if (following == null && isBufferEmpty()) {
+      // most common case: there is only one element waiting, no need to buffer it
+      return next;
+    }
+    buffer(next);
+    while (following != null) {
+      buffer(following);
+      following = take(true);
+    }
+    return pollBuffered();
+  }
+
+  /**
+   * Takes the oldest element added by producers that has not been taken yet.
+   * If a producer claimed a slot but has not stored an element in it yet then this
+   * method either returns null, if {@code skipInProgress} is true, or waits for the element.
+   */
+  @SuppressWarnings("unchecked")
+  private T take(final boolean skipInProgress) {
+    if (!_firstTaken) {
+      final Object first = _first;
+      if (first == null) {
+        return null;
+      }
+      _firstTaken = true;
+      _first = TAKEN;
+      return (T) first;
+    }
+    Chunk<T> chunk = _consumerChunk;
+    if (chunk == null) {
+      if (_tail == null) {
+        return null;
+      }
+      while ((chunk = _head) == null) {
+        // producer that created the first chunk is about to publish it
+        Thread.yield();
+      }
+      _head = null;
+      _consumerChunk = chunk;
+    }
+    if (_consumerIndex == _chunkSize) {
+      chunk = chunk._next;
+      if (chunk == null) {
+        return null;
+      }
+      _consumerChunk = chunk;
+      _consumerIndex = 0;
+    }
+    if (_consumerIndex >= chunk._claimed) {
+      return null;
+    }
+    T value;
+    while ((value = chunk._slots.get(_consumerIndex)) == null) {
+      if (skipInProgress) {
+        return null;
+      }
+      Thread.yield();
+    }
+    chunk._slots.lazySet(_consumerIndex, null);
+    _consumerIndex++;
+    return value;
+  }
+
+  private void buffer(final T value) {
+    if (value.getPriority() > Priority.DEFAULT_PRIORITY) {
+      if (_highPriority == null) {
+        _highPriority = new ArrayDeque<>();
+      }
+      _highPriority.addLast(value);
+    } else {
+      if (_lowPriority == null) {
+        _lowPriority = new ArrayDeque<>();
+      }
+      _lowPriority.addFirst(value);
+    }
+  }
+
+  private boolean isBufferEmpty() {
+    return (_highPriority == null || _highPriority.isEmpty()) && (_lowPriority == null || _lowPriority.isEmpty());
+  }
+
+  private T pollBuffered() {
+    final T highPriority = _highPriority != null ? _highPriority.pollFirst() : null;
+    if (highPriority != null) {
+      return highPriority;
+    }
+    return _lowPriority != null ? _lowPriority.pollFirst() : null;
+  }
+
+  private static class Chunk<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Chunk> CLAIMED =
+        AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "_claimed");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "_next");
+
+    private final AtomicReferenceArray<T> _slots;
+    private volatile int _claimed;
+    private volatile Chunk<T> _next;
+
+    private Chunk(final int size) {
+      _slots = new AtomicReferenceArray<>(size);
+    }
+  }
+}
@@ -32,6 +32,7 @@ import com.linkedin.parseq.After;
 import com.linkedin.parseq.Cancellable;
 import com.linkedin.parseq.Context;
 import com.linkedin.parseq.Exceptions;
+import com.linkedin.parseq.SubTaskRunner;
 import com.linkedin.parseq.Task;
 
 
@@ -42,6 +43,7 @@ import com.linkedin.parseq.Task;
 public class ContextImpl implements Context, Cancellable {
   private static final Task<?> NO_PARENT = null;
   private static final List<Task<?>> NO_PREDECESSORS = Collections.emptyList();
+  private static final Cancellable COLLAPSED_DEADLINE = reason -> false;
 
   /**
    * Plan level configuration and facilities.
@@ -60,16 +62,23 @@ public class ContextImpl implements Context, Cancellable {
 
   private final ConcurrentLinkedQueue<Cancellable> _cancellables = new ConcurrentLinkedQueue<Cancellable>();
 
+  // Deadline of this context, inherited from the parent context and possibly
+  // made earlier by createDeadline(). _deadlineNano is valid only if _hasDeadline is true.
+  private volatile boolean _hasDeadline;
+  private volatile long _deadlineNano;
+
   public ContextImpl(final PlanContext planContext, final Task<?> task) {
-    this(planContext, task, NO_PARENT, NO_PREDECESSORS);
+    this(planContext, task, NO_PARENT, NO_PREDECESSORS, false, 0);
   }
 
   private ContextImpl(final PlanContext planContext, final Task<?> task, final Task<?> parent,
-      final List<Task<?>> predecessorTasks) {
+      final List<Task<?>> predecessorTasks, final boolean hasDeadline, final long deadlineNano) {
     _planContext = planContext;
     _task = InternalUtil.unwildcardTask(task);
     _parent = parent;
     _predecessorTasks = predecessorTasks;
+    _deadlineNano = deadlineNano;
+    _hasDeadline = hasDeadline;
   }
 
   public void runTask() {
@@ -113,6 +122,34 @@ public class ContextImpl implements Context, Cancellable {
     return cancellable;
   }
 
+  @Override
+  public Cancellable createDeadline(final long time, final TimeUnit unit, final Task<?> task) {
+    checkInTask();
+    final long deadlineNano = System.nanoTime() + Math.max(0, Math.min(unit.toNanos(time), Long.MAX_VALUE >> 1));
+    if (_hasDeadline && _deadlineNano - deadlineNano <= 0) {
+      // inherited deadline expires first and cancels this task, no need for another timer
+      return COLLAPSED_DEADLINE;
+    }
+    _deadlineNano = deadlineNano;
+    _hasDeadline = true;
+    final Cancellable cancellable = _planContext.scheduleDeadline(deadlineNano, () -> runSubTask(task, NO_PREDECESSORS));
+    _cancellables.add(cancellable);
+    return cancellable;
+  }
+
+  @Override
+  public boolean hasDeadline() {
+    return _hasDeadline;
+  }
+
+  @Override
+  public long getRemainingTime(final TimeUnit unit) {
+    if (!_hasDeadline) {
+      return Long.MAX_VALUE;
+    }
+    return unit.convert(Math.max(0, _deadlineNano - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
   @Override
   public void run(final Task<?>... tasks) {
     checkInTask();
@@ -160,6 +197,28 @@ public class ContextImpl implements Context, Cancellable {
     };
   }
 
+  @Override
+  public SubTaskRunner createSubTaskRunner() {
+    checkInTask();
+    return task -> {
+      final ContextImpl subContext = createSubContext(task, NO_PREDECESSORS);
+      if (!isDone()) {
+        _cancellables.add(subContext);
+        // release the sub-context once the sub-task is done, runner may be used for many sub-tasks
+        task.addListener(resolvedPromise -> _cancellables.remove(subContext));
+        subContext.runTask();
+      } else {
+        subContext.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> Task<T> memoize(final Object key, final Supplier<Task<T>> supplier) {
+    return (Task<T>) _planContext.memoize(key, supplier);
+  }
+
   @Override
   public boolean cancel(Exception reason) {
     boolean result = _task.cancel(reason);
@@ -174,7 +233,7 @@ public class ContextImpl implements Context, Cancellable {
   }
 
   private ContextImpl createSubContext(final Task<?> task, final List<Task<?>> predecessors) {
-    return new ContextImpl(_planContext, task, _task, predecessors);
+    return new ContextImpl(_planContext, task, _task, predecessors, _hasDeadline, _deadlineNano);
   }
 
   private void runSubTask(final Task<?> task, final List<Task<?>> predecessors) {
@@ -190,7 +249,8 @@ public class ContextImpl implements Context, Cancellable {
   private void runSideEffectSubTask(final Task<?> taskWrapper, final List<Task<?>> predecessors) {
     PlanContext subPlan = _planContext.fork(taskWrapper);
     if (subPlan != null) {
-      new ContextImpl(subPlan, taskWrapper, _task, predecessors).runTask();
+      // side effects are not cancelled together with the parent, so they do not inherit its deadline
+      new ContextImpl(subPlan, taskWrapper, _task, predecessors, false, 0).runTask();
     } else {
       taskWrapper.cancel(new IllegalStateException("Plan is already completed"));
     }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.internal.PlanPermits.Admission;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+/**
+ * Bounded FIFO queue of plans waiting for a permit to run. The number of queued plans is
+ * limited globally and per plan class.
+ * <p>
+ * Plans are taken from the queue by {@link #poll(Permits)} in FIFO order, with one exception:
+ * if the plan class of the oldest plan is rate limited then the oldest plan of a class that is
+ * not limited is taken, so that one rate limited class does not block all other classes.
+ * <p>
+ * The queue is guarded by its monitor. It is accessed only when the engine runs out of
+ * permits, {@link #isEmpty()} can be called without holding the monitor.
+ */
+public class PlanAdmissionQueue {
+
+  /**
+   * Permits that need to be acquired before a queued plan can start.
+   */
+  public interface Permits {
+
+    /**
+     * Tries to acquire engine level permit.
+     */
+    Admission tryAcquire();
+
+    /**
+     * Tries to acquire plan class level permit. Called only after engine level permit has been acquired.
+     */
+    boolean tryAcquire(String planClass);
+
+    /**
+     * Returns engine level permit if no plan class level permit could be acquired.
+     */
+    void release();
+  }
+
+  /**
+   * A plan waiting for admission.
+   */
+  public static class QueuedPlan {
+    private final Task<?> _task;
+    private final String _planClass;
+    private final SettablePromise<Void> _admission;
+    private final long _enqueuedNano;
+
+    private QueuedPlan(final Task<?> task, final String planClass, final SettablePromise<Void> admission,
+        final long enqueuedNano) {
+      _task = task;
+      _planClass = planClass;
+      _admission = admission;
+      _enqueuedNano = enqueuedNano;
+    }
+
+    public Task<?> getTask() {
+      return _task;
+    }
+
+    public String getPlanClass() {
+      return _planClass;
+    }
+
+    public SettablePromise<Void> getAdmission() {
+      return _admission;
+    }
+  }
+
+  /**
+   * Plan taken from the queue together with the result of admission.
+   */
+  public static class AdmittedPlan {
+    private final QueuedPlan _plan;
+    private final Admission _admission;
+
+    private AdmittedPlan(final QueuedPlan plan, final Admission admission) {
+      _plan = plan;
+      _admission = admission;
+    }
+
+    public QueuedPlan getPlan() {
+      return _plan;
+    }
+
+    /**
+     * Returns either {@link Admission#ADMITTED} or {@link Admission#SHUTDOWN}.
+     */
+    public Admission getAdmission() {
+      return _admission;
+    }
+  }
+
+  /**
+   * Point in time snapshot of queue metrics.
+   */
+  public static class Stats {
+    private final int _queuedCount;
+    private final long _admittedCount;
+    private final long _rejectedCount;
+    private final long _totalWaitNano;
+    private final long _maxWaitNano;
+
+    private Stats(final int queuedCount, final long admittedCount, final long rejectedCount,
+        final long totalWaitNano, final long maxWaitNano) {
+      _queuedCount = queuedCount;
+      _admittedCount = admittedCount;
+      _rejectedCount = rejectedCount;
+      _totalWaitNano = totalWaitNano;
+      _maxWaitNano = maxWaitNano;
+    }
+
+    /**
+     * Returns number of plans currently waiting in the queue.
+     */
+    public int getQueuedCount() {
+      return _queuedCount;
+    }
+
+    /**
+     * Returns number of plans that left the queue, either started or cancelled because of shutdown.
+     */
+    public long getAdmittedCount() {
+      return _admittedCount;
+    }
+
+    /**
+     * Returns number of plans that were not queued because the queue was full.
+     */
+    public long getRejectedCount() {
+      return _rejectedCount;
+    }
+
+    /**
+     * Returns sum of times spent in the queue by plans that left the queue.
+     */
+    public long getTotalWaitNano() {
+      return _totalWaitNano;
+    }
+
+    /**
+     * Returns maximum time spent in the queue by a plan.
+     */
+    public long getMaxWaitNano() {
+      return _maxWaitNano;
+    }
+
+    /**
+     * Returns average time spent in the queue by plans that left the queue.
+     */
+    public long getMeanWaitNano() {
+      return _admittedCount == 0 ? 0 : _totalWaitNano / _admittedCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats [queuedCount=" + _queuedCount + ", admittedCount=" + _admittedCount + ", rejectedCount="
+          + _rejectedCount + ", totalWaitNano=" + _totalWaitNano + ", maxWaitNano=" + _maxWaitNano + "]";
+    }
+  }
+
+  private final int _maxQueuedPlans;
+  private final int _maxQueuedPlansPerPlanClass;
+
+  private final ArrayDeque<QueuedPlan> _queue = new ArrayDeque<>();
+  private final Map<String, Integer> _queuedPerPlanClass = new HashMap<>();
+  private volatile int _size = 0;
+
+  private long _admittedCount = 0;
+  private long _rejectedCount = 0;
+  private long _totalWaitNano = 0;
+  private long _maxWaitNano = 0;
+
+  public PlanAdmissionQueue(final int maxQueuedPlans, final int maxQueuedPlansPerPlanClass) {
+    ArgumentUtil.requirePositive(maxQueuedPlans, "maxQueuedPlans");
+    ArgumentUtil.requirePositive(maxQueuedPlansPerPlanClass, "maxQueuedPlansPerPlanClass");
+    _maxQueuedPlans = maxQueuedPlans;
+    _maxQueuedPlansPerPlanClass = maxQueuedPlansPerPlanClass;
+  }
+
+  /**
+   * Adds plan to the queue.
+   *
+   * @return {@code false} if the queue or the plan class quota is full
+   */
+  public synchronized boolean offer(final Task<?> task, final String planClass, final SettablePromise<Void> admission) {
+    final Integer queuedForPlanClass = _queuedPerPlanClass.get(planClass);
+    if (_size >= _maxQueuedPlans
+        || (queuedForPlanClass != null && queuedForPlanClass >= _maxQueuedPlansPerPlanClass)) {
+      _rejectedCount++;
+      return false;
+    }
+    _queue.addLast(new QueuedPlan(task, planClass, admission, System.nanoTime()));
+    _queuedPerPlanClass.put(planClass, queuedForPlanClass == null ? 1 : queuedForPlanClass + 1);
+    _size++;
+    return true;
+  }
+
+  /**
+   * Takes a plan that can be started from the queue.
+   *
+   * @return plan that acquired permits or a plan that can't be started because of shutdown,
+   * {@code null} if no plan can be started
+   */
+  public synchronized AdmittedPlan poll(final Permits permits) {
+    if (_size == 0) {
+      return null;
+    }
+    final Admission admission = permits.tryAcquire();
+    switch (admission) {
+      case REJECTED:
+        return null;
+      case SHUTDOWN:
+        return new AdmittedPlan(removed(_queue.pollFirst()), Admission.SHUTDOWN);
+      default:
+        final Iterator<QueuedPlan> it = _queue.iterator();
+        while (it.hasNext()) {
+          final QueuedPlan plan = it.next();
+          if (permits.tryAcquire(plan._planClass)) {
+            it.remove();
+            removed(plan);
+            return new AdmittedPlan(plan, Admission.ADMITTED);
+          }
+        }
+        permits.release();
+        return null;
+    }
+  }
+
+  /**
+   * Returns {@code true} if there are no queued plans. The result may be stale.
+   */
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  public synchronized Stats getStats() {
+    return new Stats(_size, _admittedCount, _rejectedCount, _totalWaitNano, _maxWaitNano);
+  }
+
+  private QueuedPlan removed(final QueuedPlan plan) {
+    _size--;
+    final int queuedForPlanClass = _queuedPerPlanClass.get(plan._planClass);
+    if (queuedForPlanClass == 1) {
+      _queuedPerPlanClass.remove(plan._planClass);
+    } else {
+      _queuedPerPlanClass.put(plan._planClass, queuedForPlanClass - 1);
+    }
+    final long waitNano = System.nanoTime() - plan._enqueuedNano;
+    _admittedCount++;
+    _totalWaitNano += waitNano;
+    _maxWaitNano = Math.max(_maxWaitNano, waitNano);
+    return plan;
+  }
+}
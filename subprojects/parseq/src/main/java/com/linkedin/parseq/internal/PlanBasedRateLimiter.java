@@ -39,4 +39,15 @@ public interface PlanBasedRateLimiter {
    * @param planClass plan class name
    */
   void release(String planClass);
+
+  /**
+   * Release a rate limit permit for the given plan class after the plan has completed.
+   * Engine calls this method instead of {@link #release(String)} so that implementations can
+   * adapt to observed plan latency. Default implementation calls {@link #release(String)}.
+   * @param planClass plan class name
+   * @param planDurationNano time elapsed between start and completion of the plan
+   */
+  default void release(String planClass, long planDurationNano) {
+    release(planClass);
+  }
 }
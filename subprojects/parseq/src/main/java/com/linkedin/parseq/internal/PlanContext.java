@@ -1,9 +1,12 @@
 package com.linkedin.parseq.internal;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,19 +50,44 @@ public class PlanContext {
 
   private final TraceBuilder _relationshipsBuilder;
 
+  /** Decides whether trace of this plan is retained, null for plans forked from another plan. */
+  private final TraceSampler _traceSampler;
+
+  /** Whether this plan is traced regardless of its outcome. */
+  private final boolean _traceSampled;
+
   private final PlanCompletionListener _planCompletionListener;
 
   /** The number of uncompleted plans forked from this plan (including itself). */
   private final AtomicInteger _pending;
 
+  /** Value of {@code System.nanoTime()} when this plan context was created. */
+  private final long _startNano = System.nanoTime();
+
+  /** Plan context that owns deadlines and memoized tasks shared by this plan and all plans forked from it. */
+  private final PlanContext _owner;
+
+  /** Deadlines of this plan, created when the first deadline is added. Used only by {@link #_owner}. */
+  private volatile PlanDeadlines _deadlines;
+
+  /**
+   * Tasks memoized in this plan, created when the first task is memoized and released when the plan completes.
+   * Used only by {@link #_owner}.
+   */
+  private volatile ConcurrentMap<Object, Task<?>> _memoized;
+
   public PlanContext(final Engine engine, final Executor taskExecutor, final DelayedExecutor timerExecutor,
       final ILoggerFactory loggerFactory, final Logger allLogger, final Logger rootLogger, final String planClass,
-      Task<?> root, final int maxRelationshipsPerTrace, final PlanDeactivationListener planDeactivationListener,
+      Task<?> root, final int maxRelationshipsPerTrace, final TraceSampler traceSampler,
+      final PlanDeactivationListener planDeactivationListener,
       PlanCompletionListener planCompletionListener, final SerialExecutor.TaskQueue<PrioritizableRunnable> taskQueue,
-      final boolean drainSerialExecutorQueue, ExecutionMonitor executionMonitor) {
+      final boolean drainSerialExecutorQueue, final int maxRunnablesPerDrain, final long maxNanosPerDrain,
+      ExecutionMonitor executionMonitor) {
     _id = IdGenerator.getNextId();
     _root = root;
-    _relationshipsBuilder = new TraceBuilder(maxRelationshipsPerTrace, planClass, _id);
+    _traceSampler = traceSampler;
+    _traceSampled = traceSampler.sample();
+    _relationshipsBuilder = traceSampler.createTraceBuilder(_traceSampled, maxRelationshipsPerTrace, planClass, _id);
     _engine = engine;
     _taskExecutor = new SerialExecutor(taskExecutor, new CancellingPlanExceptionHandler(root), () -> {
       try {
@@ -67,13 +95,14 @@ public class PlanContext {
       } catch (Throwable t) {
         LOG.error("Failed to notify deactivation listener " + planDeactivationListener, t);
       }
-    }, taskQueue, drainSerialExecutorQueue, executionMonitor);
+    }, taskQueue, drainSerialExecutorQueue, maxRunnablesPerDrain, maxNanosPerDrain, executionMonitor);
     _timerScheduler = timerExecutor;
     final Logger planLogger = loggerFactory.getLogger(Engine.LOGGER_BASE + ":planClass=" + planClass);
     _taskLogger = new TaskLogger(_id, root.getId(), allLogger, rootLogger, planLogger);
     _planClass = planClass;
     _planCompletionListener = planCompletionListener;
     _pending = new AtomicInteger(1);
+    _owner = this;
     _root.addListener(p -> done());
   }
 
@@ -85,7 +114,8 @@ public class PlanContext {
       String planClass,
       TaskLogger taskLogger,
       TraceBuilder relationshipsBuilder,
-      PlanCompletionListener planCompletionListener) {
+      PlanCompletionListener planCompletionListener,
+      PlanContext owner) {
     _root = root;
     _id = id;
     _engine = engine;
@@ -94,8 +124,11 @@ public class PlanContext {
     _planClass = planClass;
     _taskLogger = taskLogger;
     _relationshipsBuilder = relationshipsBuilder;
+    _traceSampler = null;
+    _traceSampled = false;
     _planCompletionListener = planCompletionListener;
     _pending = new AtomicInteger(1);
+    _owner = owner;
     _root.addListener(p -> done());
   }
 
@@ -111,6 +144,57 @@ public class PlanContext {
     return _timerScheduler.schedule(time, unit, runnable);
   }
 
+  /**
+   * Adds a deadline to this plan. All deadlines of a plan, including plans forked from it,
+   * share a single timer that fires at the earliest deadline.
+   *
+   * @param deadlineNano value of {@code System.nanoTime()} at which the deadline expires
+   * @param runnable invoked once the deadline expires unless it has been cancelled
+   * @return a handle that can be used to cancel the deadline
+   */
+  public Cancellable scheduleDeadline(long deadlineNano, Runnable runnable) {
+    return deadlines().add(deadlineNano, runnable);
+  }
+
+  private PlanDeadlines deadlines() {
+    final PlanContext owner = _owner;
+    PlanDeadlines deadlines = owner._deadlines;
+    if (deadlines == null) {
+      synchronized (owner) {
+        deadlines = owner._deadlines;
+        if (deadlines == null) {
+          deadlines = new PlanDeadlines(_timerScheduler);
+          owner._deadlines = deadlines;
+        }
+      }
+    }
+    return deadlines;
+  }
+
+  /**
+   * Returns the task memoized under the given key in this plan or in any plan forked from it. If there is no such task
+   * then the task returned by the supplier is memoized and returned. Memoized tasks are released when the plan,
+   * including all plans forked from it, completes.
+   *
+   * @param key key of the task
+   * @param supplier supplier of the task, invoked only if there is no task memoized under the key
+   * @return memoized task or {@code null} if supplier returned {@code null}
+   */
+  public Task<?> memoize(Object key, Supplier<? extends Task<?>> supplier) {
+    final PlanContext owner = _owner;
+    ConcurrentMap<Object, Task<?>> memoized = owner._memoized;
+    if (memoized == null) {
+      synchronized (owner) {
+        memoized = owner._memoized;
+        if (memoized == null) {
+          memoized = new ConcurrentHashMap<>();
+          owner._memoized = memoized;
+        }
+      }
+    }
+    return memoized.computeIfAbsent(key, k -> supplier.get());
+  }
+
   public Object getEngineProperty(String key) {
     return _engine.getProperty(key);
   }
@@ -119,6 +203,11 @@ public class PlanContext {
     return _taskLogger;
   }
 
+  /**
+   * Returns trace builder of this plan. Trace builder is disabled if this plan is not traced, see
+   * {@link TraceBuilder#isEnabled()}. By the time plan completion listener is notified the trace of
+   * a plan that has not been retained is already discarded.
+   */
   public TraceBuilder getRelationshipsBuilder() {
     return _relationshipsBuilder;
   }
@@ -131,6 +220,22 @@ public class PlanContext {
     return _root;
   }
 
+  /**
+   * Returns value of {@code System.nanoTime()} at the time this plan context was created.
+   */
+  public long getStartNano() {
+    return _startNano;
+  }
+
+  /**
+   * Returns number of times execution of this plan yielded to other plans because it ran out of its
+   * drain budget, see {@link com.linkedin.parseq.Engine#DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES} and
+   * {@link com.linkedin.parseq.Engine#DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO}.
+   */
+  public long getYieldCount() {
+    return _taskExecutor.getYieldCount();
+  }
+
   /**
    * Creates a new {@link PlanContext} from the current plan for the given root
    * {@link Task}. The new plan can be completed independently from the current plan.
@@ -143,7 +248,7 @@ public class PlanContext {
     while ((pending = _pending.get()) > 0) {
       if (_pending.compareAndSet(pending, pending + 1)) {
         return new PlanContext(root, _id, _engine, _taskExecutor,
-            _timerScheduler, _planClass, _taskLogger, _relationshipsBuilder, p -> done());
+            _timerScheduler, _planClass, _taskLogger, _relationshipsBuilder, p -> done(), _owner);
       }
     }
     return null;
@@ -155,6 +260,11 @@ public class PlanContext {
    */
   private void done() {
     if (_pending.decrementAndGet() == 0) {
+      _memoized = null;
+      if (_traceSampler != null && !_traceSampled && _relationshipsBuilder.isEnabled()
+          && !_traceSampler.retain(_planClass, System.nanoTime() - _startNano, _root.isFailed())) {
+        _relationshipsBuilder.discard();
+      }
       _planCompletionListener.onPlanCompleted(this);
     }
   }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.linkedin.parseq.Cancellable;
+import com.linkedin.parseq.DelayedExecutor;
+import com.linkedin.parseq.Exceptions;
+
+
+/**
+ * Deadlines of tasks that belong to one plan, including plans forked from it by side effects,
+ * see {@link com.linkedin.parseq.Context#createDeadline(long, TimeUnit, com.linkedin.parseq.Task)}.
+ * <p>
+ * All deadlines share a single timer which is scheduled for the earliest deadline. The timer is
+ * rescheduled only when a deadline earlier than the scheduled one is added or when the timer fires.
+ * Cancelled deadlines are removed lazily, the timer is cancelled as soon as there are no deadlines left.
+ * <p>
+ * This class is thread safe, all state is guarded by its monitor.
+ */
+class PlanDeadlines {
+
+  private static final int PURGE_THRESHOLD = 64;
+
+  private final DelayedExecutor _timerScheduler;
+
+  private final PriorityQueue<Deadline> _deadlines = new PriorityQueue<>();
+  private int _cancelledCount = 0;
+  private long _sequence = 0;
+
+  private Cancellable _timer;
+  private long _timerDeadlineNano;
+  // incremented every time the timer is rescheduled, identifies the current timer
+  private long _timerGeneration = 0;
+
+  PlanDeadlines(final DelayedExecutor timerScheduler) {
+    _timerScheduler = timerScheduler;
+  }
+
+  /**
+   * Adds a deadline.
+   *
+   * @param deadlineNano value of {@code System.nanoTime()} at which the deadline expires
+   * @param onExpired invoked once the deadline expires, on the timer's thread
+   * @return a handle that can be used to cancel the deadline
+   */
+  synchronized Cancellable add(final long deadlineNano, final Runnable onExpired) {
+    final Deadline deadline = new Deadline(deadlineNano, _sequence++, onExpired);
+    _deadlines.add(deadline);
+    if (_timer == null || deadlineNano - _timerDeadlineNano < 0) {
+      scheduleTimer(deadlineNano);
+    }
+    return deadline;
+  }
+
+  /**
+   * Returns number of deadlines that have neither expired nor been cancelled.
+   */
+  synchronized int size() {
+    return _deadlines.size() - _cancelledCount;
+  }
+
+  private void scheduleTimer(final long deadlineNano) {
+    if (_timer != null) {
+      _timer.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+    }
+    final long generation = ++_timerGeneration;
+    _timerDeadlineNano = deadlineNano;
+    _timer = _timerScheduler.schedule(Math.max(0, deadlineNano - System.nanoTime()), TimeUnit.NANOSECONDS,
+        () -> expire(generation));
+  }
+
+  private void cancelTimer() {
+    if (_timer != null) {
+      _timer.cancel(Exceptions.EARLY_FINISH_EXCEPTION);
+      _timer = null;
+      _timerGeneration++;
+    }
+  }
+
+  private void expire(final long generation) {
+    final List<Runnable> expired = new ArrayList<>(1);
+    synchronized (this) {
+      if (generation != _timerGeneration) {
+        // timer has been rescheduled or cancelled after it started firing
+        return;
+      }
+      _timer = null;
+      final long now = System.nanoTime();
+      Deadline head;
+      while ((head = _deadlines.peek()) != null) {
+        if (head._cancelled) {
+          _deadlines.poll();
+          _cancelledCount--;
+        } else if (head._deadlineNano - now <= 0) {
+          _deadlines.poll();
+          head._expired = true;
+          expired.add(head._onExpired);
+        } else {
+          scheduleTimer(head._deadlineNano);
+          break;
+        }
+      }
+    }
+    for (Runnable onExpired : expired) {
+      onExpired.run();
+    }
+  }
+
+  private class Deadline implements Cancellable, Comparable<Deadline> {
+    private final long _deadlineNano;
+    private final long _sequence;
+    private final Runnable _onExpired;
+
+    // guarded by the monitor of enclosing PlanDeadlines
+    private boolean _cancelled = false;
+    private boolean _expired = false;
+
+    private Deadline(final long deadlineNano, final long sequence, final Runnable onExpired) {
+      _deadlineNano = deadlineNano;
+      _sequence = sequence;
+      _onExpired = onExpired;
+    }
+
+    @Override
+    public boolean cancel(final Exception reason) {
+      synchronized (PlanDeadlines.this) {
+        if (_cancelled || _expired) {
+          return false;
+        }
+        _cancelled = true;
+        _cancelledCount++;
+        if (_cancelledCount == _deadlines.size()) {
+          _deadlines.clear();
+          _cancelledCount = 0;
+          cancelTimer();
+        } else if (_cancelledCount > PURGE_THRESHOLD && _cancelledCount > _deadlines.size() / 2) {
+          _deadlines.removeIf(deadline -> deadline._cancelled);
+          _cancelledCount = 0;
+        }
+        return true;
+      }
+    }
+
+    @Override
+    public int compareTo(final Deadline other) {
+      final long diff = _deadlineNano - other._deadlineNano;
+      if (diff != 0) {
+        return diff < 0 ? -1 : 1;
+      }
+      return Long.compare(_sequence, other._sequence);
+    }
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Keeps track of plans running on an Engine. It combines the count of pending plans
+ * with a limit on the number of concurrently running plans.
+ * <p>
+ * The count is split into stripes, each of them living on its own cache line, so that
+ * threads starting and completing plans do not contend on a single memory location and
+ * nothing is allocated when plans start or complete. Each stripe holds up to
+ * {@code maxConcurrentPlans / stripes} permits. A thread first tries its own stripe and
+ * then the remaining ones, so a permit is denied only if every stripe was full when it
+ * was visited. Permits can be returned to any stripe.
+ * <p>
+ * Every stripe carries a shutdown bit. Once {@link #shutdown()} has marked all stripes no
+ * permit can be acquired anymore, the total count can only decrease and, as a consequence,
+ * observing a sum of zero means that all plans have completed.
+ * <p>
+ * Threads waiting for a permit in {@link #acquire()} or {@link #tryAcquire(long, TimeUnit)}
+ * park on a condition that is signalled only when there are waiters.
+ */
+public class PlanPermits {
+
+  /**
+   * Result of an attempt to acquire a permit.
+   */
+  public enum Admission {
+    /** Permit has been acquired and has to be returned using {@link PlanPermits#release()}. */
+    ADMITTED,
+    /** There is no capacity to run another plan. */
+    REJECTED,
+    /** Plans are not accepted anymore because of shutdown. */
+    SHUTDOWN
+  }
+
+  private static final long SHUTDOWN_BIT = 1L;
+  private static final long ONE_PLAN = 2L;
+
+  // 16 longs = 128 bytes between stripes, which covers adjacent cache line prefetching
+  private static final int STRIPE_SHIFT = 4;
+
+  private final AtomicLongArray _stripes;
+  private final int _mask;
+  private final long _stripeCapacity;
+  private final int _stripesWithExtraPermit;
+
+  private final AtomicInteger _waiters = new AtomicInteger();
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Condition _permitReleased = _lock.newCondition();
+
+  private volatile boolean _shutdown = false;
+
+  public PlanPermits(final int maxConcurrentPlans) {
+    this(maxConcurrentPlans, Runtime.getRuntime().availableProcessors());
+  }
+
+  public PlanPermits(final int maxConcurrentPlans, final int concurrencyLevel) {
+    ArgumentUtil.requirePositive(maxConcurrentPlans, "maxConcurrentPlans");
+    ArgumentUtil.requirePositive(concurrencyLevel, "concurrencyLevel");
+    final int stripes = Math.min(ceilingPowerOfTwo(concurrencyLevel), Integer.highestOneBit(maxConcurrentPlans));
+    _stripes = new AtomicLongArray(stripes << STRIPE_SHIFT);
+    _mask = stripes - 1;
+    _stripeCapacity = maxConcurrentPlans / stripes;
+    _stripesWithExtraPermit = maxConcurrentPlans % stripes;
+  }
+
+  /**
+   * Tries to acquire a permit without blocking.
+   */
+  public Admission tryAcquire() {
+    final int home = homeStripe();
+    for (int i = 0; i <= _mask; i++) {
+      final int stripe = (home + i) & _mask;
+      final int index = stripe << STRIPE_SHIFT;
+      final long capacity = capacity(stripe);
+      for (;;) {
+        final long current = _stripes.get(index);
+        if ((current & SHUTDOWN_BIT) != 0) {
+          return Admission.SHUTDOWN;
+        }
+        if ((current >>> 1) >= capacity) {
+          break;
+        }
+        if (_stripes.compareAndSet(index, current, current + ONE_PLAN)) {
+          return Admission.ADMITTED;
+        }
+      }
+    }
+    return Admission.REJECTED;
+  }
+
+  /**
+   * Acquires a permit, blocking until one is available or until shutdown.
+   * This method never returns {@link Admission#REJECTED}.
+   */
+  public Admission acquire() throws InterruptedException {
+    Admission admission = tryAcquire();
+    if (admission != Admission.REJECTED) {
+      return admission;
+    }
+    _waiters.incrementAndGet();
+    try {
+      _lock.lockInterruptibly();
+      try {
+        while ((admission = tryAcquire()) == Admission.REJECTED) {
+          _permitReleased.await();
+        }
+        return admission;
+      } finally {
+        _lock.unlock();
+      }
+    } finally {
+      _waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Acquires a permit, blocking up to the given amount of time until one is available
+   * or until shutdown. Returns {@link Admission#REJECTED} if the time elapsed.
+   */
+  public Admission tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+    Admission admission = tryAcquire();
+    if (admission != Admission.REJECTED) {
+      return admission;
+    }
+    long nanos = unit.toNanos(timeout);
+    _waiters.incrementAndGet();
+    try {
+      if (!_lock.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+        return Admission.REJECTED;
+      }
+      try {
+        while ((admission = tryAcquire()) == Admission.REJECTED) {
+          if (nanos <= 0) {
+            return Admission.REJECTED;
+          }
+          nanos = _permitReleased.awaitNanos(nanos);
+        }
+        return admission;
+      } finally {
+        _lock.unlock();
+      }
+    } finally {
+      _waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a permit acquired by one of the acquire methods.
+   *
+   * @return {@code true} if shutdown was requested and there are no pending plans left
+   * @throws IllegalStateException if no permit is held
+   */
+  public boolean release() {
+    int stripe = homeStripe();
+    int emptyStripes = 0;
+    for (;;) {
+      final int index = stripe << STRIPE_SHIFT;
+      final long current = _stripes.get(index);
+      if ((current >>> 1) == 0) {
+        // permit is accounted for in another stripe
+        if (++emptyStripes > _mask) {
+          // stripes are not read atomically, recheck the total before giving up
+          if (pendingCount() == 0) {
+            throw new IllegalStateException("Permit released without matching acquire");
+          }
+          emptyStripes = 0;
+        }
+        stripe = (stripe + 1) & _mask;
+      } else if (_stripes.compareAndSet(index, current, current - ONE_PLAN)) {
+        break;
+      } else {
+        emptyStripes = 0;
+      }
+    }
+    if (_waiters.get() > 0) {
+      signalWaiters();
+    }
+    // If shutdown() did not see the above decrement then it must have set _shutdown before we read it
+    return _shutdown && pendingCount() == 0;
+  }
+
+  /**
+   * Stops granting permits and wakes up all threads waiting for a permit.
+   *
+   * @return {@code true} if there are no pending plans
+   */
+  public boolean shutdown() {
+    for (int stripe = 0; stripe <= _mask; stripe++) {
+      final int index = stripe << STRIPE_SHIFT;
+      long current;
+      do {
+        current = _stripes.get(index);
+      } while ((current & SHUTDOWN_BIT) == 0 && !_stripes.compareAndSet(index, current, current | SHUTDOWN_BIT));
+    }
+    _shutdown = true;
+    signalWaiters();
+    return pendingCount() == 0;
+  }
+
+  /**
+   * Returns number of permits currently held. The value is exact only when there are
+   * no concurrent updates or after {@link #shutdown()}.
+   */
+  public long pendingCount() {
+    long sum = 0;
+    for (int stripe = 0; stripe <= _mask; stripe++) {
+      sum += _stripes.get(stripe << STRIPE_SHIFT) >>> 1;
+    }
+    return sum;
+  }
+
+  private void signalWaiters() {
+    _lock.lock();
+    try {
+      _permitReleased.signalAll();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private long capacity(final int stripe) {
+    return stripe < _stripesWithExtraPermit ? _stripeCapacity + 1 : _stripeCapacity;
+  }
+
+  private int homeStripe() {
+    final long id = Thread.currentThread().getId();
+    int h = (int) (id ^ (id >>> 32));
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    return h & _mask;
+  }
+
+  private static int ceilingPowerOfTwo(final int value) {
+    final int highestOneBit = Integer.highestOneBit(value);
+    return highestOneBit == value ? value : Math.min(highestOneBit << 1, 1 << 30);
+  }
+}
@@ -37,6 +37,12 @@ import com.linkedin.parseq.internal.ExecutionMonitor.ExecutionMonitorState;
  * {@link java.util.concurrent.ThreadPoolExecutor.AbortPolicy}. If this occurs
  * the executor will run the {@code rejectionHandler} to signal this failure
  * to a layer that can more appropriate handle this event.
+ * <p>
+ * When the executor drains its queue it keeps running Runnables on the same thread of the
+ * underlying executor for as long as there are any. A drain can be limited to a number of
+ * Runnables and to an amount of time, whichever runs out first. When the limit is reached
+ * the executor yields: it re-submits itself to the underlying executor, giving other executors
+ * sharing the same threads a chance to run. Number of yields is returned by {@link #getYieldCount()}.
  *
  * @author Chris Pettitt (cpettitt@linkedin.com)
  * @author Jaroslaw Odzga (jodzga@linkedin.com)
@@ -66,6 +72,9 @@ public class SerialExecutor {
    * thread executing SerialExecutor.execute invoked _pendingCount.getAndIncrement, and got the value 0, it means
    * that there is a happens-before relationship between the thread completing last Runnable and the current thread
    * executing SerialExecutor.execute. Combined with HB1 this means that P is true.
+   *
+   * DrainingExecutorLoop that yields after running out of its budget invokes tryExecuteLoop after completion of
+   * a Runnable, which is equivalent to case 1).
    */
 
   private final Executor _executor;
@@ -75,6 +84,11 @@ public class SerialExecutor {
   private final AtomicInteger _pendingCount = new AtomicInteger();
   private final DeactivationListener _deactivationListener;
   private final ExecutionMonitor _executionMonitor;
+  private final int _maxRunnablesPerDrain;
+  private final long _maxNanosPerDrain;
+
+  // incremented only by the executor loop, see P
+  private volatile long _yieldCount = 0;
 
   public SerialExecutor(final Executor executor,
       final UncaughtExceptionHandler uncaughtExecutionHandler,
@@ -82,9 +96,29 @@ public class SerialExecutor {
       final TaskQueue<PrioritizableRunnable> taskQueue,
       final boolean drainSerialExecutorQueue,
       final ExecutionMonitor executionMonitor) {
+    this(executor, uncaughtExecutionHandler, deactivationListener, taskQueue, drainSerialExecutorQueue,
+        Integer.MAX_VALUE, Long.MAX_VALUE, executionMonitor);
+  }
+
+  /**
+   * @param maxRunnablesPerDrain maximum number of Runnables executed by a drain before it yields,
+   * {@code Integer.MAX_VALUE} means unlimited
+   * @param maxNanosPerDrain maximum amount of time in nanoseconds spent by a drain before it yields,
+   * {@code Long.MAX_VALUE} means unlimited
+   */
+  public SerialExecutor(final Executor executor,
+      final UncaughtExceptionHandler uncaughtExecutionHandler,
+      final DeactivationListener deactivationListener,
+      final TaskQueue<PrioritizableRunnable> taskQueue,
+      final boolean drainSerialExecutorQueue,
+      final int maxRunnablesPerDrain,
+      final long maxNanosPerDrain,
+      final ExecutionMonitor executionMonitor) {
     ArgumentUtil.requireNotNull(executor, "executor");
     ArgumentUtil.requireNotNull(uncaughtExecutionHandler, "uncaughtExecutionHandler" );
     ArgumentUtil.requireNotNull(deactivationListener, "deactivationListener" );
+    ArgumentUtil.requirePositive(maxRunnablesPerDrain, "maxRunnablesPerDrain");
+    ArgumentUtil.requirePositive(maxNanosPerDrain, "maxNanosPerDrain");
 
     _executor = executor;
     _uncaughtExecutionHandler = uncaughtExecutionHandler;
@@ -92,6 +126,8 @@ public class SerialExecutor {
     _deactivationListener = deactivationListener;
     _executorLoop = drainSerialExecutorQueue ? new DrainingExecutorLoop() : new NonDrainingExecutorLoop();
     _executionMonitor = executionMonitor;
+    _maxRunnablesPerDrain = maxRunnablesPerDrain;
+    _maxNanosPerDrain = maxNanosPerDrain;
   }
 
   public void execute(final PrioritizableRunnable runnable) {
@@ -124,6 +160,9 @@ public class SerialExecutor {
       // - _pendingCount.get() > 0
 
       final ExecutionMonitorState executionState = _executionMonitor != null ? _executionMonitor.getLocalMonitorState() : null;
+      final boolean timeLimited = _maxNanosPerDrain != Long.MAX_VALUE;
+      final long startNano = timeLimited ? System.nanoTime() : 0;
+      int executed = 0;
       for (;;) {
         if (executionState != null) {
           executionState.activate();
@@ -151,6 +190,14 @@ public class SerialExecutor {
             break;
           }
         }
+        executed++;
+        if (executed >= _maxRunnablesPerDrain || (timeLimited && System.nanoTime() - startNano >= _maxNanosPerDrain)) {
+          // Budget has run out, let other executors sharing underlying executor run before
+          // continuing the drain. Makes sure that all memory effects are visible to the next Runnable.
+          _yieldCount++;
+          tryExecuteLoop();
+          break;
+        }
       }
       if (executionState != null) {
         executionState.deactivate();
@@ -199,6 +246,13 @@ public class SerialExecutor {
     }
   }
 
+  /**
+   * Returns number of times the executor yielded because a drain ran out of its budget.
+   */
+  public long getYieldCount() {
+    return _yieldCount;
+  }
+
   /**
    * A priority queue which stores runnables to be executed within a {@link SerialExecutor}.
    * The implementation has to make sure runnables are sorted in the descending order based
@@ -21,7 +21,7 @@ import java.util.function.Function;
 import com.linkedin.parseq.Exceptions;
 import com.linkedin.parseq.Task;
 import com.linkedin.parseq.trace.ResultType;
-import com.linkedin.parseq.trace.ShallowTrace;
+import com.linkedin.parseq.trace.ShallowTraceBuilder;
 
 import org.slf4j.Logger;
 
@@ -120,7 +120,10 @@ public class TaskLogger {
   }
 
   private long elapsedMillis(final Task<?> task) {
-    final ShallowTrace trace = task.getShallowTrace();
-    return (trace.getEndNanos() - trace.getStartNanos()) / 1000000;
+    // read times directly from the builder, building shallow trace would render value of the task
+    final ShallowTraceBuilder trace = task.getShallowTraceBuilder();
+    final Long startNanos = trace.getStartNanos();
+    final Long endNanos = trace.getEndNanos();
+    return startNanos != null && endNanos != null ? (endNanos - startNanos) / 1000000 : 0;
   }
 }
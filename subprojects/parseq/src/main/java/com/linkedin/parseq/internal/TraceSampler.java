@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.linkedin.parseq.trace.TraceBuilder;
+
+
+/**
+ * Decides which plans are traced.
+ * <p>
+ * A fixed fraction of plans, selected when a plan starts, is traced. Trace of other plans is either not
+ * recorded at all or, if tail based retention is enabled, recorded and retained only if the plan failed or
+ * its duration exceeded latency threshold of its plan class. Traces that are not retained are discarded
+ * when the plan completes.
+ *
+ * @see com.linkedin.parseq.Engine#TRACE_SAMPLING_RATE
+ * @see com.linkedin.parseq.Engine#TRACE_TAIL_RETENTION
+ */
+public class TraceSampler {
+
+  /**
+   * Traces all plans.
+   */
+  public static final TraceSampler ALWAYS = new TraceSampler(1.0, false, Long.MAX_VALUE, Collections.emptyMap());
+
+  private final double _samplingRate;
+  private final boolean _tailRetention;
+  private final long _latencyThresholdNano;
+  private final Map<String, Long> _latencyThresholdsNano;
+
+  /**
+   * @param samplingRate fraction of plans that are traced, between 0 and 1
+   * @param tailRetention whether traces of plans that are not sampled are recorded and retained if the plan
+   * failed or was slow
+   * @param latencyThresholdNano duration of a plan above which its trace is retained
+   * @param latencyThresholdsNano latency thresholds of individual plan classes, override latencyThresholdNano
+   */
+  public TraceSampler(final double samplingRate, final boolean tailRetention, final long latencyThresholdNano,
+      final Map<String, Long> latencyThresholdsNano) {
+    if (!(samplingRate >= 0 && samplingRate <= 1)) {
+      throw new IllegalArgumentException("samplingRate must be between 0 and 1, but is: " + samplingRate);
+    }
+    ArgumentUtil.requireNotNull(latencyThresholdsNano, "latencyThresholdsNano");
+    _samplingRate = samplingRate;
+    _tailRetention = tailRetention;
+    _latencyThresholdNano = latencyThresholdNano;
+    _latencyThresholdsNano = new HashMap<>(latencyThresholdsNano);
+  }
+
+  /**
+   * Returns {@code true} if plan that is about to start should be traced regardless of its outcome.
+   */
+  public boolean sample() {
+    return _samplingRate >= 1 || (_samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < _samplingRate);
+  }
+
+  /**
+   * Creates trace builder of a plan that is about to start.
+   *
+   * @param sampled result of {@link #sample()}
+   */
+  public TraceBuilder createTraceBuilder(final boolean sampled, final int maxRelationshipsPerTrace,
+      final String planClass, final Long planId) {
+    if (sampled || _tailRetention) {
+      return new TraceBuilder(maxRelationshipsPerTrace, planClass, planId);
+    } else {
+      return TraceBuilder.disabled(planClass, planId);
+    }
+  }
+
+  /**
+   * Returns {@code true} if trace of a plan that was not sampled should be retained.
+   *
+   * @param planClass plan class of the completed plan
+   * @param durationNano duration of the completed plan
+   * @param failed whether root task of the completed plan failed
+   */
+  public boolean retain(final String planClass, final long durationNano, final boolean failed) {
+    if (!_tailRetention) {
+      return false;
+    }
+    if (failed) {
+      return true;
+    }
+    final Long threshold = _latencyThresholdsNano.get(planClass);
+    return durationNano > (threshold != null ? threshold : _latencyThresholdNano);
+  }
+}
@@ -16,10 +16,9 @@
 
 package com.linkedin.parseq.promise;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +27,20 @@ import com.linkedin.parseq.internal.Continuations;
 
 
 /**
+ * Lock-free implementation of {@link SettablePromise}.
+ * <p>
+ * State of the promise is kept in a single volatile field which holds, in this order:
+ * <ul>
+ * <li>{@code null} or listeners registered so far - the only listener or a stack of
+ * {@link ListenerNode}s with the most recently added listener on top,</li>
+ * <li>{@code RESOLVING} while the thread that resolves the promise sets its result,</li>
+ * <li>{@code RESOLVED} once the result is set and listeners are being notified,</li>
+ * <li>{@code NOTIFIED} once all listeners have been notified and threads blocked in
+ * {@link #await()} can be released.</li>
+ * </ul>
+ * A promise with at most one listener does not allocate anything besides itself. Latch used
+ * by {@link #await()} is created only if a thread actually waits for the promise.
+ *
  * @author Chris Pettitt (cpettitt@linkedin.com)
  * @author Chi Chan (ckchan@linkedin.com)
  * @author Jaroslaw Odzga (jodzga@linkedin.com)
@@ -37,14 +50,24 @@ import com.linkedin.parseq.internal.Continuations;
 
   private static final Continuations CONTINUATIONS = new Continuations();
 
-  private final Object _lock = new Object();
-  private final List<PromiseListener<T>> _listeners = new ArrayList<PromiseListener<T>>();
+  private static final Object RESOLVING = new Object();
+  private static final Object RESOLVED = new Object();
+  private static final Object NOTIFIED = new Object();
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<SettablePromiseImpl, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(SettablePromiseImpl.class, Object.class, "_state");
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<SettablePromiseImpl, CountDownLatch> AWAIT_LATCH =
+      AtomicReferenceFieldUpdater.newUpdater(SettablePromiseImpl.class, CountDownLatch.class, "_awaitLatch");
 
-  private final CountDownLatch _valueLatch = new CountDownLatch(1);
-  private final CountDownLatch _awaitLatch = new CountDownLatch(1);
+  private volatile Object _state;
+  private volatile CountDownLatch _awaitLatch;
 
-  private volatile T _value;
-  private volatile Throwable _error;
+  // published by the write of RESOLVED to _state
+  private T _value;
+  private Throwable _error;
 
   @Override
   public void done(final T value) throws PromiseResolvedException {
@@ -82,29 +105,39 @@ import com.linkedin.parseq.internal.Continuations;
 
   @Override
   public void await() throws InterruptedException {
-    _awaitLatch.await();
+    if (_state != NOTIFIED) {
+      awaitLatch().await();
+    }
   }
 
   @Override
   public boolean await(final long time, final TimeUnit unit) throws InterruptedException {
-    return _awaitLatch.await(time, unit);
+    return _state == NOTIFIED || awaitLatch().await(time, unit);
   }
 
   @Override
   public void addListener(final PromiseListener<T> listener) {
-    synchronized (_lock) {
-      if (!isDone()) {
-        _listeners.add(listener);
+    while (true) {
+      final Object state = _state;
+      if (state == RESOLVED || state == NOTIFIED) {
+        notifyListener(listener);
         return;
+      } else if (state == RESOLVING) {
+        // result is being set by another thread, this takes only a couple of instructions
+        Thread.yield();
+      } else {
+        final Object listeners = state == null && listener != null ? listener : new ListenerNode(listener, state);
+        if (STATE.compareAndSet(this, state, listeners)) {
+          return;
+        }
       }
     }
-
-    notifyListener(listener);
   }
 
   @Override
   public boolean isDone() {
-    return _valueLatch.getCount() == 0;
+    final Object state = _state;
+    return state == RESOLVED || state == NOTIFIED;
   }
 
   @Override
@@ -113,27 +146,36 @@ import com.linkedin.parseq.internal.Continuations;
   }
 
   private void doFinish(final T value, final Throwable error) throws PromiseResolvedException {
-    final List<PromiseListener<T>> listeners = finalizeResult(value, error);
+    final Object listeners = finalizeResult(value, error);
     CONTINUATIONS.submit(() -> notifyListeners(listeners));
-    CONTINUATIONS.submit(_awaitLatch::countDown);
-  }
-
-  private List<PromiseListener<T>> finalizeResult(T value, Throwable error) {
-    final List<PromiseListener<T>> listeners;
-    synchronized (_lock) {
-      ensureNotDone();
-      _value = value;
-      _error = error;
-      _valueLatch.countDown();
-      listeners = new ArrayList<PromiseListener<T>>(_listeners);
-      _listeners.clear();
-    }
+    CONTINUATIONS.submit(this::releaseAwaiting);
+  }
+
+  private Object finalizeResult(final T value, final Throwable error) {
+    Object listeners;
+    do {
+      listeners = _state;
+      if (listeners == RESOLVING || listeners == RESOLVED || listeners == NOTIFIED) {
+        throw new PromiseResolvedException("Promise has already been satisfied");
+      }
+    } while (!STATE.compareAndSet(this, listeners, RESOLVING));
+    _value = value;
+    _error = error;
+    _state = RESOLVED;
     return listeners;
   }
 
-  private void notifyListeners(final List<PromiseListener<T>> listeners) {
-    for (int i = listeners.size() - 1; i >= 0; i--) {
-      notifyListener(listeners.get(i));
+  @SuppressWarnings("unchecked")
+  private void notifyListeners(final Object listeners) {
+    // most recently added listeners are notified first
+    Object next = listeners;
+    while (next instanceof ListenerNode) {
+      final ListenerNode node = (ListenerNode) next;
+      notifyListener((PromiseListener<T>) node._listener);
+      next = node._next;
+    }
+    if (next != null) {
+      notifyListener((PromiseListener<T>) next);
     }
   }
 
@@ -151,15 +193,43 @@ import com.linkedin.parseq.internal.Continuations;
     }
   }
 
-  private void ensureNotDone() throws PromiseResolvedException {
-    if (isDone()) {
-      throw new PromiseResolvedException("Promise has already been satisfied");
+  private void releaseAwaiting() {
+    _state = NOTIFIED;
+    final CountDownLatch latch = _awaitLatch;
+    if (latch != null) {
+      latch.countDown();
     }
   }
 
+  private CountDownLatch awaitLatch() {
+    CountDownLatch latch = _awaitLatch;
+    if (latch == null) {
+      latch = new CountDownLatch(1);
+      if (!AWAIT_LATCH.compareAndSet(this, null, latch)) {
+        latch = _awaitLatch;
+      }
+    }
+    // releaseAwaiting() might have missed the latch if it has just been created
+    if (_state == NOTIFIED) {
+      latch.countDown();
+    }
+    return latch;
+  }
+
   private void ensureDone() throws PromiseUnresolvedException {
     if (!isDone()) {
       throw new PromiseUnresolvedException("Promise has not yet been satisfied");
     }
   }
+
+  private static final class ListenerNode {
+    private final PromiseListener<?> _listener;
+    // either another ListenerNode or the first listener that has been added
+    private final Object _next;
+
+    private ListenerNode(final PromiseListener<?> listener, final Object next) {
+      _listener = listener;
+      _next = next;
+    }
+  }
 }
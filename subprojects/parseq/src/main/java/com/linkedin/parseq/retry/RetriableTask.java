@@ -116,6 +116,10 @@ public final class RetriableTask<T> {
       // Retry policy commands that no more retries should be done.
       LOGGER.debug(String.format("Too many exceptions after attempt %s of %s, aborting: %s", attempt, _name, error.getMessage()));
       recoveryResult.fail(error);
+    } else if (recoveryContext.getRemainingTime(TimeUnit.MILLISECONDS) <= backoffTime) {
+      // Plan deadline would expire before the retry could even start.
+      LOGGER.debug(String.format("Deadline expires before attempt %s of %s, aborting: %s", attempt, _name, error.getMessage()));
+      recoveryResult.fail(error);
     } else {
       // Schedule a new retry task after a computed backoff timeout.
       LOGGER.debug(String.format("Attempt %s of %s failed and will be retried after %s millis: %s", attempt, _name, backoffTime, error.getMessage()));
@@ -19,7 +19,9 @@ package com.linkedin.parseq.trace;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
+import com.linkedin.parseq.Exceptions;
 import com.linkedin.parseq.internal.ArgumentUtil;
 
 
@@ -38,6 +40,8 @@ public class ShallowTraceBuilder {
   private volatile String _name;
   private volatile boolean _hidden;
   private volatile String _value;
+  // renders value set by setValue(T, Function), null once the value has been rendered
+  private volatile LazyValue<?> _lazyValue;
   private volatile ResultType _resultType;
   private volatile Long _startNanos;
   private volatile Long _pendingNanos;
@@ -93,10 +97,26 @@ public class ShallowTraceBuilder {
   }
 
   public ShallowTraceBuilder setValue(final String value) {
+    _lazyValue = null;
     _value = value;
     return this;
   }
 
+  /**
+   * Sets value that is rendered with the given serializer only when it is needed, that is when
+   * {@link #getValue()} or {@link #build()} is invoked. Serializer is never invoked for tasks whose
+   * trace is not built, e.g. tasks of plans that are not traced. If serializer throws an exception
+   * the value is rendered as a description of that exception.
+   *
+   * @param value value of the task
+   * @param serializer serializer of the value
+   */
+  public <T> ShallowTraceBuilder setValue(final T value, final Function<T, String> serializer) {
+    ArgumentUtil.requireNotNull(serializer, "serializer");
+    _lazyValue = new LazyValue<>(value, serializer);
+    return this;
+  }
+
   public ShallowTraceBuilder setResultType(final ResultType resultType) {
     ArgumentUtil.requireNotNull(resultType, "resultType");
     if (resultType != ResultType.UNFINISHED) {
@@ -144,6 +164,13 @@ public class ShallowTraceBuilder {
   }
 
   public String getValue() {
+    final LazyValue<?> lazyValue = _lazyValue;
+    if (lazyValue != null) {
+      final String value = lazyValue.render();
+      _value = value;
+      _lazyValue = null;
+      return value;
+    }
     return _value;
   }
 
@@ -203,7 +230,7 @@ public class ShallowTraceBuilder {
      * For example it is important to read _resultType before _endNanos because
      * ShallowTraceImpl expects _endNanos to be set for certain types of _resultType.
      */
-    final String value = _value;
+    final String value = getValue();
     final ResultType resultType = _resultType;
     Long endNanos = _endNanos;
     final Long pendingNanos = _pendingNanos;
@@ -214,4 +241,22 @@ public class ShallowTraceBuilder {
     return new ShallowTraceImp(_id, _name, _hidden, _systemHidden, resultType, value, startNanos, pendingNanos,
         endNanos, getAttributes(), _taskType);
   }
+
+  private static class LazyValue<T> {
+    private final T _value;
+    private final Function<T, String> _serializer;
+
+    private LazyValue(final T value, final Function<T, String> serializer) {
+      _value = value;
+      _serializer = serializer;
+    }
+
+    private String render() {
+      try {
+        return _serializer.apply(_value);
+      } catch (Exception e) {
+        return Exceptions.failureToString(e);
+      }
+    }
+  }
 }
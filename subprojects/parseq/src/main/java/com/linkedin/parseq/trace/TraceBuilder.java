@@ -17,6 +17,7 @@
 package com.linkedin.parseq.trace;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -24,6 +25,13 @@ import java.util.Set;
 
 
 /**
+ * Collects shallow traces and relationships between them for a single plan.
+ * <p>
+ * A trace builder can be disabled, see {@link #disabled(String, Long)}, in which case it does not
+ * record anything and does not allocate when shallow traces or relationships are added. A trace builder
+ * can also be disabled after it has recorded a trace with {@link #discard()}, which drops everything
+ * recorded so far.
+ *
  * @author Jaroslaw Odzga (jodzga@linkedin.com)
  */
 public class TraceBuilder {
@@ -39,9 +47,12 @@ public class TraceBuilder {
 
   private final Long _planId;
 
+  // both are null if this trace builder is disabled
   private final ArrayList<TraceRelationship> _relationships;
   private final ArrayList<ShallowTraceBuilder> _traceBuilders;
 
+  private volatile boolean _discarded = false;
+
   // TODO: this constructor should be removed.
   // Need to fix in the next major version release.
   public TraceBuilder(int maxRelationshipsCount) {
@@ -56,21 +67,83 @@ public class TraceBuilder {
     _planId = planId;
   }
 
-  public synchronized void addShallowTrace(final ShallowTraceBuilder shallowTrace) {
-    if (_traceBuilders.size() < _maxTraceBuildersPerTrace) {
-      _traceBuilders.add(shallowTrace);
+  private TraceBuilder(String planClass, Long planId) {
+    _relationships = null;
+    _traceBuilders = null;
+    _maxTraceBuildersPerTrace = 0;
+    _planClass = planClass;
+    _planId = planId;
+  }
+
+  /**
+   * Returns a trace builder that ignores all shallow traces and relationships added to it.
+   * It is used for plans that are not traced, see {@link com.linkedin.parseq.Engine#TRACE_SAMPLING_RATE}.
+   */
+  public static TraceBuilder disabled(String planClass, Long planId) {
+    return new TraceBuilder(planClass, planId);
+  }
+
+  /**
+   * Returns {@code true} if this trace builder records shallow traces and relationships,
+   * {@code false} if it is disabled or its trace has been discarded.
+   */
+  public boolean isEnabled() {
+    return _traceBuilders != null && !_discarded;
+  }
+
+  /**
+   * Drops shallow traces and relationships recorded so far and disables this trace builder.
+   */
+  public synchronized void discard() {
+    _discarded = true;
+    if (_traceBuilders != null) {
+      _traceBuilders.clear();
+      _traceBuilders.trimToSize();
+      _relationships.clear();
+      _relationships.trimToSize();
+    }
+  }
+
+  public String getPlanClass() {
+    return _planClass;
+  }
+
+  public Long getPlanId() {
+    return _planId;
+  }
+
+  public void addShallowTrace(final ShallowTraceBuilder shallowTrace) {
+    if (_traceBuilders == null) {
+      return;
+    }
+    synchronized (this) {
+      if (!_discarded && _traceBuilders.size() < _maxTraceBuildersPerTrace) {
+        _traceBuilders.add(shallowTrace);
+      }
     }
   }
 
-  public synchronized void addRelationship(final Relationship relationship, final ShallowTraceBuilder from,
+  public void addRelationship(final Relationship relationship, final ShallowTraceBuilder from,
       final ShallowTraceBuilder to) {
-    if (_relationships.size() < _maxTraceBuildersPerTrace) {
-      TraceRelationship rel = new TraceRelationship(from, to, relationship);
-      _relationships.add(rel);
+    if (_relationships == null) {
+      return;
+    }
+    synchronized (this) {
+      if (!_discarded && _relationships.size() < _maxTraceBuildersPerTrace) {
+        TraceRelationship rel = new TraceRelationship(from, to, relationship);
+        _relationships.add(rel);
+      }
     }
   }
 
+  /**
+   * Builds trace from shallow traces and relationships recorded so far. Returns an empty trace
+   * if this trace builder is disabled.
+   */
   public synchronized Trace build() {
+    if (!isEnabled()) {
+      return new Trace(Collections.emptyMap(), Collections.emptySet(), _planClass, _planId);
+    }
 
     final Map<Long, ShallowTrace> traceMap = new HashMap<>();
     final Set<TraceRelationship> relationships = new HashSet<>();
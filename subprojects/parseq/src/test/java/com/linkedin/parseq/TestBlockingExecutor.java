@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.trace.ShallowTraceBuilder;
+
+
+public class TestBlockingExecutor extends BaseEngineTest {
+
+  private final TracingExecutor _blockingExecutor = new TracingExecutor();
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setBlockingExecutor(_blockingExecutor);
+  }
+
+  @Test
+  public void testBlockingOnEngineExecutor() {
+    final int countBefore = _blockingExecutor.getCount();
+    final Thread parseqThread = Thread.currentThread();
+    Task<Thread> task = Task.blocking("currentThread", Thread::currentThread);
+    runAndWait("TestBlockingExecutor.testBlockingOnEngineExecutor", task);
+    assertNotEquals(task.get(), parseqThread);
+    assertEquals(_blockingExecutor.getCount(), countBefore + 1);
+    assertEquals(task.getShallowTrace().getTaskType(), TaskType.BLOCKING.getName());
+    assertEquals(task.getShallowTrace().getAttributes().get(TracingExecutor.ATTRIBUTE), "true");
+  }
+
+  @Test
+  public void testBlockingFailureOnEngineExecutor() {
+    Task<String> task = Task.blocking("fail", () -> {
+      throw new IllegalArgumentException("expected");
+    });
+    runAndWaitException("TestBlockingExecutor.testBlockingFailureOnEngineExecutor", task, IllegalArgumentException.class);
+    assertEquals(task.getError().getMessage(), "expected");
+  }
+
+  @Test
+  public void testExplicitBlockingExecutorReceivesTrace() {
+    final TracingExecutor executor = new TracingExecutor();
+    Task<String> task = Task.blocking("explicit", () -> "done", executor);
+    runAndWait("TestBlockingExecutor.testExplicitBlockingExecutorReceivesTrace", task);
+    assertEquals(task.get(), "done");
+    assertEquals(executor.getCount(), 1);
+    assertEquals(task.getShallowTrace().getAttributes().get(TracingExecutor.ATTRIBUTE), "true");
+  }
+
+  private static class TracingExecutor implements BlockingExecutor {
+
+    private static final String ATTRIBUTE = "tracingExecutor";
+
+    private final ExecutorService _delegate = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "TestBlockingExecutor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    private final AtomicInteger _count = new AtomicInteger();
+
+    @Override
+    public void execute(Runnable command) {
+      _count.incrementAndGet();
+      _delegate.execute(command);
+    }
+
+    @Override
+    public void execute(Runnable command, ShallowTraceBuilder shallowTraceBuilder) {
+      shallowTraceBuilder.addAttribute(ATTRIBUTE, "true");
+      execute(command);
+    }
+
+    private int getCount() {
+      return _count.get();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+import com.linkedin.parseq.trace.Relationship;
+import com.linkedin.parseq.trace.TraceRelationship;
+
+
+public class TestBoundedParTask extends BaseEngineTest {
+
+  @Test
+  public void testEmpty() {
+    final ParTask<String> par = Task.parBounded(2, Collections.<Task<String>>emptyList());
+    assertEquals(runAndWait("TestBoundedParTask.testEmpty", par), Collections.emptyList());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidMaxInFlight() {
+    Task.parBounded(0, Collections.singletonList(Task.value("value")));
+  }
+
+  @Test
+  public void testMaxInFlight() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final List<Task<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      final int value = i;
+      tasks.add(Task.async("task", () -> {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        final SettablePromise<Integer> promise = Promises.settable();
+        getScheduler().schedule(() -> {
+          inFlight.decrementAndGet();
+          promise.done(value);
+        }, 1, TimeUnit.MILLISECONDS);
+        return promise;
+      }));
+    }
+    final ParTask<Integer> par = Task.parBounded(4, tasks);
+
+    final List<Integer> result = runAndWait("TestBoundedParTask.testMaxInFlight", par);
+    assertEquals(result.size(), 50);
+    for (int i = 0; i < 50; i++) {
+      assertEquals(result.get(i), (Integer) i);
+    }
+    assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+  }
+
+  @Test
+  public void testCompletionOrder() {
+    final List<Task<Integer>> tasks = Arrays.asList(
+        delayedValue(0, 100, TimeUnit.MILLISECONDS),
+        delayedValue(1, 10, TimeUnit.MILLISECONDS),
+        delayedValue(2, 10, TimeUnit.MILLISECONDS));
+    final ParTask<Integer> par = Task.parBounded("par", 2, ParTask.ResultOrder.COMPLETION_ORDER, false, tasks);
+
+    assertEquals(runAndWait("TestBoundedParTask.testCompletionOrder", par), Arrays.asList(1, 2, 0));
+  }
+
+  @Test
+  public void testPartialResults() {
+    final List<Task<Integer>> tasks = Arrays.asList(
+        Task.value(0),
+        Task.failure(new IllegalStateException()),
+        delayedValue(2, 10, TimeUnit.MILLISECONDS),
+        delayedFailure(new IllegalStateException(), 10, TimeUnit.MILLISECONDS),
+        Task.value(4));
+
+    final ParTask<Integer> inTaskOrder = Task.parBounded("par", 2, ParTask.ResultOrder.TASK_ORDER, true, tasks);
+    assertEquals(runAndWait("TestBoundedParTask.testPartialResults", inTaskOrder), Arrays.asList(0, 2, 4));
+
+    final ParTask<Integer> inCompletionOrder =
+        Task.parBounded("par", 2, ParTask.ResultOrder.COMPLETION_ORDER, true, tasks);
+    assertEquals(runAndWait("TestBoundedParTask.testPartialResults", inCompletionOrder).size(), 3);
+  }
+
+  @Test
+  public void testFastFail() throws InterruptedException {
+    final Task<Integer> running = Task.async("running", () -> Promises.<Integer>settable());
+    final Task<Integer> failing = delayedFailure(new IllegalStateException("expected"), 10, TimeUnit.MILLISECONDS);
+    final AtomicInteger started = new AtomicInteger();
+    final List<Task<Integer>> tasks = new ArrayList<>(Arrays.asList(running, failing));
+    for (int i = 0; i < 10; i++) {
+      tasks.add(Task.callable("notStarted", started::incrementAndGet));
+    }
+    final ParTask<Integer> par = Task.parBounded(2, tasks);
+
+    runAndWaitException("TestBoundedParTask.testFastFail", par, IllegalStateException.class);
+    assertEquals(par.getError().getMessage(), "expected");
+    for (Task<Integer> task : tasks) {
+      assertTrue(task.await(5, TimeUnit.SECONDS));
+      assertTrue(task.isFailed());
+    }
+    assertTrue(Exceptions.isCancellation(running.getError()));
+    assertEquals(started.get(), 0);
+  }
+
+  @Test
+  public void testTrace() {
+    final List<Task<Integer>> tasks = Arrays.asList(Task.value(0), Task.value(1), Task.value(2));
+    final ParTask<Integer> par = Task.parBounded(1, tasks);
+    runAndWait("TestBoundedParTask.testTrace", par);
+
+    assertEquals(par.getShallowTrace().getAttributes().get("maxInFlight"), "1");
+    for (Task<Integer> task : tasks) {
+      assertTrue(par.getTrace().getRelationships().contains(
+          new TraceRelationship(par.getShallowTraceBuilder(), task.getShallowTraceBuilder(), Relationship.PARENT_OF)));
+    }
+    assertFalse(par.getTrace().getTraceMap().isEmpty());
+  }
+}
@@ -90,6 +90,13 @@ public class TestContext extends BaseEngineTest {
       }
     });
 
+    TestUtil.assertThrows(IllegalStateException.class, new ThrowingRunnable() {
+      @Override
+      public void run() throws Exception {
+        context.createSubTaskRunner();
+      }
+    });
+
     stopTaskLatch.countDown();
   }
 
@@ -130,6 +137,47 @@ public class TestContext extends BaseEngineTest {
     assertEquals(value, task.get());
   }
 
+  @Test
+  public void testSubTaskRunner() throws InterruptedException {
+    final Task<String> firstTask = Task.callable("firstTask", () -> "first");
+    final Task<String> secondTask = Task.callable("secondTask", () -> "second");
+
+    final Task<String> task = new BaseTask<String>() {
+      @Override
+      public Promise<String> run(final Context context) throws Exception {
+        final SubTaskRunner runner = context.createSubTaskRunner();
+        final SettablePromise<String> result = Promises.settable();
+        // second task is started from a callback, after run() has returned
+        firstTask.addListener(p -> runner.run(secondTask));
+        secondTask.addListener(p -> result.done(firstTask.get() + " " + secondTask.get()));
+        runner.run(firstTask);
+        return result;
+      }
+    };
+
+    runAndWait("TestContext.testSubTaskRunner", task);
+    assertEquals("first second", task.get());
+  }
+
+  @Test
+  public void testSubTaskRunnerAfterParentDone() throws InterruptedException {
+    final AtomicReference<SubTaskRunner> runnerRef = new AtomicReference<SubTaskRunner>();
+
+    final Task<String> task = new BaseTask<String>() {
+      @Override
+      public Promise<String> run(final Context context) throws Exception {
+        runnerRef.set(context.createSubTaskRunner());
+        return Promises.value("done");
+      }
+    };
+    runAndWait("TestContext.testSubTaskRunnerAfterParentDone", task);
+
+    final Task<String> lateTask = Task.callable("lateTask", () -> "late");
+    runnerRef.get().run(lateTask);
+    assertTrue(lateTask.await(5, TimeUnit.SECONDS));
+    assertTrue(Exceptions.isCancellation(lateTask.getError()));
+  }
+
   @Test
   public void testAfter() throws InterruptedException {
     final String predecessorValue = "predecessor done";
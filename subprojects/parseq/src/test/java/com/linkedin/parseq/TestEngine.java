@@ -247,6 +247,20 @@ public class TestEngine {
     }
   }
 
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNonPositiveDrainMaxRunnablesFailsFast() {
+    new EngineBuilder().setTaskExecutor(_scheduler).setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_RUNNABLES, 0)
+        .build();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNonPositiveDrainMaxNanoFailsFast() {
+    new EngineBuilder().setTaskExecutor(_scheduler).setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.DRAIN_SERIAL_EXECUTOR_QUEUE_MAX_NANO, -1L)
+        .build();
+  }
+
   /**
    * A task that blocks forever when it is executed, tying up whatever thread
    * executes it.
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.internal.DefaultPlanBasedRateLimiter;
+import com.linkedin.parseq.internal.PlanAdmissionQueue;
+import com.linkedin.parseq.promise.Promise;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+public class TestEngineAdmissionQueue {
+  private Engine _engine;
+  private ScheduledExecutorService _scheduler;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    _scheduler = Executors.newScheduledThreadPool(2);
+    _engine = engineBuilder().build();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    _engine.shutdown();
+    _engine.awaitTermination(50, TimeUnit.MILLISECONDS);
+    _engine = null;
+    _scheduler.shutdownNow();
+    _scheduler = null;
+  }
+
+  private EngineBuilder engineBuilder() {
+    return new EngineBuilder().setTaskExecutor(_scheduler).setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.MAX_CONCURRENT_PLANS, 2)
+        .setEngineProperty(Engine.MAX_QUEUED_PLANS, 3)
+        .setEngineProperty(Engine.MAX_QUEUED_PLANS_PER_PLAN_CLASS, 2);
+  }
+
+  @Test
+  public void testSubmitWithinCapacity() throws InterruptedException {
+    Task<String> task = Task.value("done");
+    Promise<Void> admission = _engine.submit(task, "test");
+    assertTrue(admission.isDone());
+    assertFalse(admission.isFailed());
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    assertEquals(task.get(), "done");
+    assertEquals(_engine.getAdmissionQueueStats().getAdmittedCount(), 0);
+  }
+
+  @Test
+  public void testQueuedPlanStartsWhenPermitIsReleased() throws InterruptedException {
+    SettablePromise<String> first = Promises.settable();
+    SettablePromise<String> second = Promises.settable();
+    Task<String> running1 = Task.async(() -> first);
+    Task<String> running2 = Task.async(() -> second);
+    assertTrue(_engine.tryRun(running1));
+    assertTrue(_engine.tryRun(running2));
+
+    Task<String> queued = Task.value("queued");
+    Promise<Void> admission = _engine.submit(queued, "test");
+    assertFalse(admission.isDone());
+    assertEquals(_engine.getAdmissionQueueStats().getQueuedCount(), 1);
+
+    first.done("first");
+    assertTrue(admission.await(5, TimeUnit.SECONDS));
+    assertFalse(admission.isFailed());
+    assertTrue(queued.await(5, TimeUnit.SECONDS));
+    assertEquals(queued.get(), "queued");
+
+    PlanAdmissionQueue.Stats stats = _engine.getAdmissionQueueStats();
+    assertEquals(stats.getQueuedCount(), 0);
+    assertEquals(stats.getAdmittedCount(), 1);
+    assertTrue(stats.getMaxWaitNano() > 0);
+    assertEquals(stats.getMeanWaitNano(), stats.getTotalWaitNano());
+    second.done("second");
+  }
+
+  @Test
+  public void testQueuedPlansStartInFifoOrder() throws InterruptedException {
+    SettablePromise<String> first = Promises.settable();
+    SettablePromise<String> second = Promises.settable();
+    assertTrue(_engine.tryRun(Task.async(() -> first)));
+    assertTrue(_engine.tryRun(Task.async(() -> second)));
+
+    SettablePromise<String> blocker = Promises.settable();
+    Task<String> queued1 = Task.async(() -> blocker);
+    Task<String> queued2 = Task.value("queued2");
+    Promise<Void> admission1 = _engine.submit(queued1, "a");
+    Promise<Void> admission2 = _engine.submit(queued2, "b");
+
+    first.done("first");
+    assertTrue(admission1.await(5, TimeUnit.SECONDS));
+    assertFalse(admission2.isDone());
+
+    second.done("second");
+    assertTrue(admission2.await(5, TimeUnit.SECONDS));
+    assertTrue(queued2.await(5, TimeUnit.SECONDS));
+    blocker.done("blocker");
+  }
+
+  @Test
+  public void testSubmitRejectedWhenQueueIsFull() throws InterruptedException {
+    SettablePromise<String> blocker = Promises.settable();
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+
+    assertFalse(_engine.submit(Task.value(1), "a").isDone());
+    assertFalse(_engine.submit(Task.value(2), "b").isDone());
+    assertFalse(_engine.submit(Task.value(3), "c").isDone());
+
+    Task<Integer> rejected = Task.value(4);
+    Promise<Void> admission = _engine.submit(rejected, "d");
+    assertTrue(admission.isFailed());
+    assertTrue(admission.getError() instanceof IllegalStateException);
+    assertFalse(rejected.isDone());
+    assertEquals(_engine.getAdmissionQueueStats().getRejectedCount(), 1);
+    blocker.done("done");
+  }
+
+  @Test
+  public void testSubmitRejectedWhenPlanClassQuotaIsFull() throws InterruptedException {
+    SettablePromise<String> blocker = Promises.settable();
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+
+    assertFalse(_engine.submit(Task.value(1), "a").isDone());
+    assertFalse(_engine.submit(Task.value(2), "a").isDone());
+
+    Promise<Void> rejected = _engine.submit(Task.value(3), "a");
+    assertTrue(rejected.isFailed());
+    assertTrue(rejected.getError() instanceof IllegalStateException);
+
+    assertFalse(_engine.submit(Task.value(4), "b").isDone());
+    assertEquals(_engine.getAdmissionQueueStats().getQueuedCount(), 3);
+    blocker.done("done");
+  }
+
+  @Test
+  public void testShutdownCancelsQueuedPlans() throws InterruptedException {
+    SettablePromise<String> blocker = Promises.settable();
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+    assertTrue(_engine.tryRun(Task.async(() -> blocker)));
+
+    Task<Integer> queued = Task.value(1);
+    Promise<Void> admission = _engine.submit(queued, "a");
+    assertFalse(admission.isDone());
+
+    _engine.shutdown();
+    assertTrue(admission.isFailed());
+    assertTrue(admission.getError() instanceof EngineShutdownException);
+    assertTrue(queued.isFailed());
+
+    blocker.done("done");
+    assertTrue(_engine.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSubmitAfterShutdown() {
+    _engine.shutdown();
+    Task<Integer> task = Task.value(1);
+    Promise<Void> admission = _engine.submit(task, "a");
+    assertTrue(admission.isFailed());
+    assertTrue(admission.getError() instanceof EngineShutdownException);
+    assertTrue(task.isFailed());
+  }
+
+  @Test
+  public void testRateLimitedPlanClassDoesNotBlockOtherClasses() throws Exception {
+    _engine.shutdown();
+    Map<String, Integer> planConcurrencyConfig = new HashMap<>();
+    planConcurrencyConfig.put("limited", 1);
+    _engine = engineBuilder().setEngineProperty(Engine.MAX_CONCURRENT_PLANS, 3)
+        .setPlanClassRateLimiter(new DefaultPlanBasedRateLimiter(planConcurrencyConfig)).build();
+
+    SettablePromise<String> limited = Promises.settable();
+    SettablePromise<String> other = Promises.settable();
+    assertTrue(_engine.tryRun(Task.async(() -> limited), "limited"));
+    assertTrue(_engine.tryRun(Task.async(() -> other), "other"));
+    assertTrue(_engine.tryRun(Task.async(() -> other), "other"));
+
+    Promise<Void> limitedAdmission = _engine.submit(Task.value(1), "limited");
+    Promise<Void> otherAdmission = _engine.submit(Task.value(2), "other");
+    assertFalse(limitedAdmission.isDone());
+    assertFalse(otherAdmission.isDone());
+
+    // frees engine permits, "limited" plan class is still at its limit
+    other.done("other");
+    assertTrue(otherAdmission.await(5, TimeUnit.SECONDS));
+    assertFalse(limitedAdmission.isDone());
+
+    limited.done("limited");
+    assertTrue(limitedAdmission.await(5, TimeUnit.SECONDS));
+    assertFalse(limitedAdmission.isFailed());
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.linkedin.parseq;
 
+import com.linkedin.parseq.internal.AdaptivePlanBasedRateLimiter;
 import com.linkedin.parseq.internal.DefaultPlanBasedRateLimiter;
 import com.linkedin.parseq.internal.PlanBasedRateLimiter;
 import java.util.HashMap;
@@ -277,4 +278,36 @@ public class TestEnginePlanBasedRateLimit {
     assertTrue(blockedTaskLatch.await(5, TimeUnit.SECONDS));
   }
 
+  @Test
+  public void testAdaptiveRateLimiter() throws InterruptedException {
+    _engine.shutdown();
+    AdaptivePlanBasedRateLimiter rateLimiter = new AdaptivePlanBasedRateLimiter(2, 1, 10, 2.0);
+    _engine = new EngineBuilder().setTaskExecutor(_scheduler).setTimerScheduler(_scheduler)
+        .setEngineProperty(Engine.MAX_CONCURRENT_PLANS, 12).setPlanClassRateLimiter(rateLimiter).build();
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    Task<?>[] tasks = new Task<?>[2];
+    for (int i = 0; i < 2; i++) {
+      tasks[i] = Task.action(latch::await);
+      assertTrue(_engine.tryRun(tasks[i], "adaptivePlan"));
+    }
+
+    //limit of plan class is reached
+    assertFalse(_engine.tryRun(Task.action(() -> { }), "adaptivePlan"));
+    assertEquals(2, rateLimiter.getInFlight("adaptivePlan"));
+    assertEquals(1L, rateLimiter.getRejectedCount("adaptivePlan"));
+
+    //release tasks
+    latch.countDown();
+    assertTrue(awaitAll(tasks));
+
+    //permits are returned after plans complete
+    long deadline = System.currentTimeMillis() + 5000;
+    while (rateLimiter.getInFlight("adaptivePlan") > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, rateLimiter.getInFlight("adaptivePlan"));
+    assertTrue(_engine.tryRun(Task.action(() -> { }), "adaptivePlan"));
+  }
+
 }
@@ -0,0 +1,151 @@
+package com.linkedin.parseq;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.trace.Trace;
+import com.linkedin.parseq.trace.TraceBuilder;
+
+
+public class TestEngineTraceSampling {
+  private ScheduledExecutorService _scheduler;
+  private Engine _engine;
+  private final Map<Long, TraceBuilder> _completedTraces = new ConcurrentHashMap<>();
+
+  @BeforeMethod
+  public void setUp() {
+    _scheduler = Executors.newScheduledThreadPool(2);
+    _completedTraces.clear();
+  }
+
+  @AfterMethod
+  public void tearDown() throws InterruptedException {
+    if (_engine != null) {
+      _engine.shutdown();
+      _engine.awaitTermination(1, TimeUnit.SECONDS);
+      _engine = null;
+    }
+    _scheduler.shutdownNow();
+  }
+
+  private void buildEngine(final Map<String, Object> properties) {
+    final EngineBuilder builder = new EngineBuilder().setTaskExecutor(_scheduler).setTimerScheduler(_scheduler)
+        .setPlanCompletionListener(planContext ->
+            _completedTraces.put(planContext.getRootTask().getId(), planContext.getRelationshipsBuilder()));
+    properties.forEach(builder::setEngineProperty);
+    _engine = builder.build();
+  }
+
+  private TraceBuilder runAndAwaitCompletion(final Task<?> task, final String planClass) throws InterruptedException {
+    _engine.run(task, planClass);
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!_completedTraces.containsKey(task.getId()) && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(_completedTraces.containsKey(task.getId()));
+    return _completedTraces.get(task.getId());
+  }
+
+  private static Task<String> plan() {
+    return Task.value("value").map("toUpperCase", String::toUpperCase).flatMap("length", s -> Task.value(s + "!"));
+  }
+
+  @Test
+  public void testAllPlansTracedByDefault() throws InterruptedException {
+    buildEngine(Collections.emptyMap());
+    final Task<String> task = plan();
+    final TraceBuilder traceBuilder = runAndAwaitCompletion(task, "test");
+
+    assertTrue(traceBuilder.isEnabled());
+    assertTrue(task.getTrace().getTraceMap().size() > 1);
+  }
+
+  @Test
+  public void testNotSampledPlansAreNotTraced() throws InterruptedException {
+    buildEngine(Collections.singletonMap(Engine.TRACE_SAMPLING_RATE, 0.0));
+    final AtomicInteger serialized = new AtomicInteger();
+    final Task<String> inner = Task.value("value");
+    inner.setTraceValueSerializer(value -> {
+      serialized.incrementAndGet();
+      return value;
+    });
+    final Task<String> task = inner.map("toUpperCase", String::toUpperCase);
+    final TraceBuilder traceBuilder = runAndAwaitCompletion(task, "test");
+
+    assertEquals("VALUE", task.get());
+    assertFalse(traceBuilder.isEnabled());
+    final Trace trace = task.getTrace();
+    assertEquals(1, trace.getTraceMap().size());
+    assertTrue(trace.getTraceMap().containsKey(task.getId()));
+    assertEquals("test", trace.getPlanClass());
+    // value serializer is not invoked if trace is not built
+    assertEquals(0, serialized.get());
+  }
+
+  @Test
+  public void testTailRetentionKeepsFailedPlans() throws InterruptedException {
+    final Map<String, Object> properties = new ConcurrentHashMap<>();
+    properties.put(Engine.TRACE_SAMPLING_RATE, 0.0);
+    properties.put(Engine.TRACE_TAIL_RETENTION, true);
+    buildEngine(properties);
+
+    final Task<String> succeeded = plan();
+    assertFalse(runAndAwaitCompletion(succeeded, "test").isEnabled());
+    assertEquals(1, succeeded.getTrace().getTraceMap().size());
+
+    final Task<String> failed = plan().map("fail", s -> {
+      throw new IllegalStateException(s);
+    });
+    assertTrue(runAndAwaitCompletion(failed, "test").isEnabled());
+    assertTrue(failed.getTrace().getTraceMap().size() > 1);
+  }
+
+  @Test
+  public void testTailRetentionKeepsSlowPlans() throws InterruptedException {
+    final Map<String, Object> properties = new ConcurrentHashMap<>();
+    properties.put(Engine.TRACE_SAMPLING_RATE, 0.0);
+    properties.put(Engine.TRACE_TAIL_RETENTION, true);
+    properties.put(Engine.TRACE_TAIL_RETENTION_LATENCY_THRESHOLD_NANO, TimeUnit.MILLISECONDS.toNanos(20));
+    properties.put(Engine.TRACE_TAIL_RETENTION_LATENCY_THRESHOLDS_NANO,
+        Collections.singletonMap("lenient", TimeUnit.SECONDS.toNanos(10)));
+    buildEngine(properties);
+
+    assertFalse(runAndAwaitCompletion(plan(), "test").isEnabled());
+    assertTrue(runAndAwaitCompletion(delayed(50), "test").isEnabled());
+    // plan class with its own threshold
+    assertFalse(runAndAwaitCompletion(delayed(50), "lenient").isEnabled());
+  }
+
+  @Test
+  public void testSamplingRate() throws InterruptedException {
+    buildEngine(Collections.singletonMap(Engine.TRACE_SAMPLING_RATE, 0.5));
+    int traced = 0;
+    for (int i = 0; i < 200; i++) {
+      if (runAndAwaitCompletion(plan(), "test").isEnabled()) {
+        traced++;
+      }
+    }
+    assertTrue("traced: " + traced, traced > 50 && traced < 150);
+  }
+
+  private static Task<String> delayed(final long delayMs) {
+    return Task.callable("sleep", () -> {
+      Thread.sleep(delayMs);
+      return "value";
+    });
+  }
+}
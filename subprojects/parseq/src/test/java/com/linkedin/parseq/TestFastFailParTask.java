@@ -0,0 +1,77 @@
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.promise.Promises;
+
+
+public class TestFastFailParTask extends BaseEngineTest {
+
+  @Test
+  public void testEmpty() {
+    final ParTask<String> par = Task.parFastFail(Collections.<Task<String>>emptyList());
+    assertEquals(runAndWait("TestFastFailParTask.testEmpty", par), Collections.emptyList());
+  }
+
+  @Test
+  public void testResultsInOrder() {
+    final int size = FastFailParTask.CHUNK_SIZE * 3 + 7;
+    final List<Task<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      final int value = i;
+      tasks.add(i % 2 == 0 ? Task.value("value", value) : delayedValue(value, 1, TimeUnit.MILLISECONDS));
+    }
+    final ParTask<Integer> par = Task.parFastFail(tasks);
+
+    final List<Integer> result = runAndWait("TestFastFailParTask.testResultsInOrder", par);
+    assertEquals(result.size(), size);
+    for (int i = 0; i < size; i++) {
+      assertEquals(result.get(i), (Integer) i);
+    }
+    assertEquals(par.getSuccessful(), result);
+    assertEquals(par.getTasks(), tasks);
+  }
+
+  @Test
+  public void testLargeFanOut() {
+    final AtomicInteger counter = new AtomicInteger();
+    final List<Task<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 50000; i++) {
+      tasks.add(Task.callable("task", counter::incrementAndGet));
+    }
+    assertEquals(runAndWait("TestFastFailParTask.testLargeFanOut", Task.parFastFail(tasks)).size(), 50000);
+    assertEquals(counter.get(), 50000);
+  }
+
+  @Test
+  public void testFastFail() throws InterruptedException {
+    final List<Task<String>> tasks = new ArrayList<>();
+    final Task<String> never = Task.async("never", () -> Promises.<String>settable());
+    tasks.add(never);
+    for (int i = 0; i < FastFailParTask.CHUNK_SIZE * 4; i++) {
+      tasks.add(Task.async("never", () -> Promises.<String>settable()));
+    }
+    tasks.add(Task.failure("failure", new IllegalStateException("expected")));
+
+    final ParTask<String> par = Task.parFastFail(tasks);
+    runAndWaitException("TestFastFailParTask.testFastFail", par, IllegalStateException.class);
+    assertEquals(par.getError().getMessage(), "expected");
+    assertTrue(par.getSuccessful().isEmpty());
+
+    // all remaining tasks are cancelled
+    for (Task<String> task : tasks) {
+      assertTrue(task.await(5, TimeUnit.SECONDS));
+      assertTrue(task.isFailed());
+    }
+    assertTrue(Exceptions.isCancellation(never.getError()));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.function.Success;
+import com.linkedin.parseq.trace.ResultType;
+import com.linkedin.parseq.trace.ShallowTrace;
+
+
+/**
+ * Tests execution of chains of fused transformations compiled into {@link FusionPipeline}.
+ * Pipeline runs both traced and not traced plans, these tests disable trace sampling so that they cover
+ * the path without trace bookkeeping. Trace of chains run in traced plans is tested in
+ * {@link com.linkedin.parseq.trace.TestTaskToTrace}.
+ */
+public class TestFusionPipeline extends BaseEngineTest {
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    engineBuilder.setEngineProperty(Engine.TRACE_SAMPLING_RATE, 0.0);
+  }
+
+  @Test
+  public void testChain() {
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final AtomicReference<String> consumed = new AtomicReference<>();
+    final Task<String> first = Task.value("value", "a");
+    final Task<String> second = first.map("upper", String::toUpperCase);
+    final Task<String> task = second
+        .<String>map("fail", s -> {
+          throw new IllegalStateException(s);
+        })
+        .onFailure("onFailure", failure::set)
+        .recover("recover", e -> e.getMessage() + "b")
+        .andThen("andThen", consumed::set)
+        .transform("transform", t -> Success.of(t.get() + "c"));
+
+    assertEquals(runAndWait("TestFusionPipeline.testChain", task), "Abc");
+    assertEquals(failure.get().getMessage(), "A");
+    assertEquals(consumed.get(), "Ab");
+    // intermediate tasks are completed with results of their transformations
+    assertEquals(first.get(), "a");
+    assertEquals(second.get(), "A");
+    final ShallowTrace secondTrace = second.getShallowTrace();
+    assertEquals(secondTrace.getResultType(), ResultType.SUCCESS);
+    assertNotNull(secondTrace.getPendingNanos());
+    assertTrue(secondTrace.getEndNanos() >= secondTrace.getStartNanos());
+    // trace of intermediate transformations is not recorded
+    assertEquals(task.getTrace().getTraceMap().size(), 1);
+  }
+
+  @Test
+  public void testFailure() {
+    final Task<String> failing = Task.value("value", "a").<String>map("fail", s -> {
+      throw new IllegalStateException(s);
+    });
+    final Task<Integer> task = failing.map("length", String::length);
+
+    runAndWaitException("TestFusionPipeline.testFailure", task, IllegalStateException.class);
+    assertTrue(failing.isFailed());
+    assertEquals(failing.getError().getMessage(), "a");
+    assertEquals(failing.getShallowTrace().getResultType(), ResultType.ERROR);
+    assertNotNull(failing.getShallowTrace().getEndNanos());
+  }
+
+  @Test
+  public void testLongChain() {
+    Task<Integer> task = Task.value("value", 0);
+    for (int i = 0; i < 10000; i++) {
+      task = task.map("increment", x -> x + 1);
+    }
+    assertEquals(runAndWait("TestFusionPipeline.testLongChain", task), (Integer) 10000);
+  }
+
+  @Test
+  public void testAsyncPredecessor() {
+    final Task<Integer> task = delayedValue("value", 10, TimeUnit.MILLISECONDS)
+        .map("length", String::length)
+        .map("double", x -> x * 2);
+    assertEquals(runAndWait("TestFusionPipeline.testAsyncPredecessor", task), (Integer) 10);
+  }
+
+  @Test
+  public void testIntermediateTaskRunOnce() {
+    final AtomicInteger count = new AtomicInteger();
+    final Task<Integer> shared = Task.value("value", 1).map("count", x -> x + count.incrementAndGet());
+
+    assertEquals(runAndWait("TestFusionPipeline.testIntermediateTaskRunOnce-1", shared), (Integer) 2);
+    final Task<Integer> task = shared.map("double", x -> x * 2);
+    assertEquals(runAndWait("TestFusionPipeline.testIntermediateTaskRunOnce-2", task), (Integer) 4);
+    assertEquals(count.get(), 1);
+  }
+
+  @Test
+  public void testAsynchronousPropagator() {
+    final Task<Integer> task = Task.value("value", 1)
+        .<Integer>apply("async", (src, dst) -> {
+          final int value = src.get();
+          getScheduler().schedule(() -> dst.done(value + 1), 10, TimeUnit.MILLISECONDS);
+        })
+        .map("double", x -> x * 2);
+    assertEquals(runAndWait("TestFusionPipeline.testAsynchronousPropagator", task), (Integer) 4);
+  }
+}
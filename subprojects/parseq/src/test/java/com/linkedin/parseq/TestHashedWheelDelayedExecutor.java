@@ -0,0 +1,171 @@
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.promise.Promises;
+
+
+public class TestHashedWheelDelayedExecutor {
+  private HashedWheelDelayedExecutor _executor;
+
+  @BeforeMethod
+  public void setUp() {
+    _executor = new HashedWheelDelayedExecutor(1, TimeUnit.MILLISECONDS, 8);
+  }
+
+  @AfterMethod
+  public void tearDown() throws InterruptedException {
+    _executor.shutdown();
+    assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testSchedule() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.nanoTime();
+    final Cancellable cancellable = _executor.schedule(50, TimeUnit.MILLISECONDS, latch::countDown);
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+    // Should not be able to cancel now
+    assertFalse(cancellable.cancel(new Exception()));
+  }
+
+  @Test
+  public void testScheduleWithoutDelay() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(2);
+    _executor.schedule(0, TimeUnit.MILLISECONDS, latch::countDown);
+    _executor.schedule(-1, TimeUnit.MILLISECONDS, latch::countDown);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCancel() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Cancellable cancellable = _executor.schedule(50, TimeUnit.MILLISECONDS, latch::countDown);
+
+    assertTrue(cancellable.cancel(new Exception()));
+    assertFalse(cancellable.cancel(new Exception()));
+    assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testCancelAfterTimerIsInBucket() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Cancellable cancellable = _executor.schedule(100, TimeUnit.MILLISECONDS, latch::countDown);
+
+    // let the worker move the timer to its bucket
+    Thread.sleep(20);
+    assertTrue(cancellable.cancel(new Exception()));
+    assertFalse(latch.await(150, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testDelayLongerThanWheelRevolution() throws InterruptedException {
+    // wheel of 8 ticks, 1ms each, timers have to survive several revolutions
+    final CountDownLatch early = new CountDownLatch(1);
+    final CountDownLatch late = new CountDownLatch(1);
+    final long start = System.nanoTime();
+    _executor.schedule(30, TimeUnit.MILLISECONDS, early::countDown);
+    _executor.schedule(60, TimeUnit.MILLISECONDS, late::countDown);
+
+    assertTrue(early.await(5, TimeUnit.SECONDS));
+    final long earlyNano = System.nanoTime() - start;
+    assertTrue(earlyNano >= TimeUnit.MILLISECONDS.toNanos(30));
+    assertTrue(late.await(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+  }
+
+  @Test
+  public void testTimersWithEqualDelayExpireInOrder() throws InterruptedException {
+    final List<Integer> expired = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch latch = new CountDownLatch(100);
+    final HashedWheelDelayedExecutor executor = new HashedWheelDelayedExecutor(1, TimeUnit.SECONDS, 8);
+    try {
+      for (int i = 0; i < 100; i++) {
+        final int index = i;
+        executor.schedule(0, TimeUnit.MILLISECONDS, () -> {
+          expired.add(index);
+          latch.countDown();
+        });
+      }
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 100; i++) {
+        assertEquals((int) expired.get(i), i);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailingCommandDoesNotStopTimer() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    _executor.schedule(1, TimeUnit.MILLISECONDS, () -> {
+      throw new IllegalStateException("expected");
+    });
+    _executor.schedule(10, TimeUnit.MILLISECONDS, latch::countDown);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testManyCancelledTimers() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Cancellable> cancellables = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      cancellables.add(_executor.schedule(10000 + i % 100, TimeUnit.MILLISECONDS, latch::countDown));
+    }
+    for (Cancellable cancellable : cancellables) {
+      assertTrue(cancellable.cancel(new Exception()));
+    }
+    final CountDownLatch survivor = new CountDownLatch(1);
+    _executor.schedule(50, TimeUnit.MILLISECONDS, survivor::countDown);
+    assertTrue(survivor.await(5, TimeUnit.SECONDS));
+    assertEquals(latch.getCount(), 1);
+  }
+
+  @Test(expectedExceptions = RejectedExecutionException.class)
+  public void testScheduleAfterShutdown() {
+    _executor.shutdown();
+    _executor.schedule(1, TimeUnit.MILLISECONDS, () -> { });
+  }
+
+  @Test
+  public void testEngineTimeout() throws InterruptedException {
+    final ScheduledExecutorService taskExecutor = Executors.newScheduledThreadPool(2);
+    final Engine engine = new EngineBuilder().setTaskExecutor(taskExecutor).setTimerScheduler(_executor).build();
+    try {
+      final Task<String> timedOut = Task.async(() -> Promises.<String>settable())
+          .withTimeout(50, TimeUnit.MILLISECONDS);
+      final Task<String> completed = Task.value("value").withTimeout(5, TimeUnit.SECONDS);
+      engine.run(timedOut);
+      engine.run(completed);
+
+      assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+      assertTrue(timedOut.getError() instanceof TimeoutException);
+      assertTrue(completed.await(5, TimeUnit.SECONDS));
+      assertEquals(completed.get(), "value");
+    } finally {
+      engine.shutdown();
+      engine.awaitTermination(1, TimeUnit.SECONDS);
+      taskExecutor.shutdownNow();
+    }
+  }
+}
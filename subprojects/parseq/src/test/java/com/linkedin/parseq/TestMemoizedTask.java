@@ -0,0 +1,94 @@
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.trace.Relationship;
+import com.linkedin.parseq.trace.TraceRelationship;
+
+
+public class TestMemoizedTask extends BaseEngineTest {
+
+  private Task<String> fetch(final AtomicInteger fetches, final String key) {
+    return Task.memoized("fetch:" + key, () -> {
+      fetches.incrementAndGet();
+      return delayedValue(key, 10, TimeUnit.MILLISECONDS);
+    });
+  }
+
+  @Test
+  public void testSameKeyRunsOnce() {
+    final AtomicInteger fetches = new AtomicInteger();
+    final Task<String> task = Task.par(fetch(fetches, "a"), fetch(fetches, "a"), fetch(fetches, "b"))
+        .map("concat", (a1, a2, b) -> a1 + a2 + b)
+        .flatMap("again", s -> fetch(fetches, "a").map("append", a -> s + a));
+
+    assertEquals(runAndWait("TestMemoizedTask.testSameKeyRunsOnce", task), "aaba");
+    assertEquals(fetches.get(), 2);
+  }
+
+  @Test
+  public void testPlanScoped() {
+    final AtomicInteger fetches = new AtomicInteger();
+    runAndWait("TestMemoizedTask.testPlanScoped", fetch(fetches, "a"));
+    runAndWait("TestMemoizedTask.testPlanScoped", fetch(fetches, "a"));
+    assertEquals(fetches.get(), 2);
+  }
+
+  @Test
+  public void testSharedWithSideEffects() {
+    final AtomicInteger fetches = new AtomicInteger();
+    final Task<String> task = fetch(fetches, "a").withSideEffect(a -> fetch(fetches, "a"));
+    runAndWait("TestMemoizedTask.testSharedWithSideEffects", task);
+    assertEquals(fetches.get(), 1);
+  }
+
+  @Test
+  public void testCancellationDoesNotAffectMemoizedTask() {
+    final AtomicInteger fetches = new AtomicInteger();
+    final Task<String> memoized = delayedValue("value", 200, TimeUnit.MILLISECONDS);
+    final Task<String> first = Task.memoized("key", () -> {
+      fetches.incrementAndGet();
+      return memoized;
+    }).withTimeout(20, TimeUnit.MILLISECONDS).recover(e -> e instanceof TimeoutException ? "timeout" : "error");
+    final Task<String> second = Task.memoized("key", () -> {
+      fetches.incrementAndGet();
+      return Task.value("other");
+    });
+
+    assertEquals(runAndWait("TestMemoizedTask.testCancellationDoesNotAffectMemoizedTask",
+        first.flatMap("concat", a -> second.map(b -> a + " " + b))), "timeout value");
+    assertEquals(fetches.get(), 1);
+    assertFalse(memoized.isFailed());
+  }
+
+  @Test
+  public void testTrace() {
+    final Task<String> memoized = Task.value("value");
+    final Task<String> first = Task.memoized("key", () -> memoized);
+    final Task<String> second = Task.memoized("key", () -> Task.value("other"));
+    runAndWait("TestMemoizedTask.testTrace", first.andThen(second));
+
+    assertEquals(second.get(), "value");
+    assertEquals(first.getShallowTrace().getTaskType(), TaskType.MEMOIZED.getName());
+    assertTrue(first.getTrace().getRelationships().contains(
+        new TraceRelationship(first.getShallowTraceBuilder(), memoized.getShallowTraceBuilder(),
+            Relationship.PARENT_OF)));
+    assertTrue(second.getTrace().getRelationships().contains(
+        new TraceRelationship(second.getShallowTraceBuilder(), memoized.getShallowTraceBuilder(),
+            Relationship.POTENTIAL_PARENT_OF)));
+  }
+
+  @Test
+  public void testNullTask() {
+    final Task<String> task = Task.memoized("key", () -> null);
+    runAndWaitException("TestMemoizedTask.testNullTask", task, NullPointerException.class);
+  }
+}
@@ -0,0 +1,128 @@
+package com.linkedin.parseq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.promise.Promises;
+
+
+public class TestTaskDeadline extends BaseEngineTest {
+
+  private final AtomicInteger _scheduledTimers = new AtomicInteger();
+
+  @Override
+  protected void customizeEngine(EngineBuilder engineBuilder) {
+    final DelayedExecutor scheduler = new DelayedExecutorAdapter(getScheduler());
+    engineBuilder.setTimerScheduler((delay, unit, command) -> {
+      _scheduledTimers.incrementAndGet();
+      return scheduler.schedule(delay, unit, command);
+    });
+  }
+
+  @BeforeMethod
+  public void resetTimers() {
+    _scheduledTimers.set(0);
+  }
+
+  @Test
+  public void testDeadlineExpires() throws InterruptedException {
+    final Task<String> task = Task.async("never", () -> Promises.<String>settable());
+    final Task<String> withDeadline = task.withDeadline(50, TimeUnit.MILLISECONDS);
+
+    runAndWaitException("TestTaskDeadline.testDeadlineExpires", withDeadline, TimeoutException.class);
+    assertEquals(withDeadline.getError().getMessage(), "task: 'never' withDeadline 50ms");
+    assertTrue(task.await(5, TimeUnit.SECONDS));
+    assertTrue(Exceptions.isCancellation(task.getError()));
+  }
+
+  @Test
+  public void testCompletesBeforeDeadline() {
+    final Task<String> withDeadline = Task.value("value").withDeadline(5, TimeUnit.SECONDS);
+    assertEquals(runAndWait("TestTaskDeadline.testCompletesBeforeDeadline", withDeadline), "value");
+  }
+
+  @Test
+  public void testRemainingTime() {
+    final Task<Long> remaining = Task.async("remaining", ctx -> {
+      assertTrue(ctx.hasDeadline());
+      return Promises.value(ctx.getRemainingTime(TimeUnit.MILLISECONDS));
+    });
+    // deadline is inherited by tasks run by the task with deadline
+    final Task<Long> task = Task.value("value").flatMap(v -> remaining).withDeadline(1, TimeUnit.SECONDS);
+    final long remainingMs = runAndWait("TestTaskDeadline.testRemainingTime", task);
+    assertTrue(remainingMs > 0 && remainingMs <= 1000, "remaining: " + remainingMs);
+  }
+
+  @Test
+  public void testNoDeadline() {
+    final Task<Boolean> task = Task.async("hasDeadline", ctx -> {
+      assertEquals(ctx.getRemainingTime(TimeUnit.MILLISECONDS), Long.MAX_VALUE);
+      return Promises.value(ctx.hasDeadline());
+    });
+    assertFalse(runAndWait("TestTaskDeadline.testNoDeadline", task));
+  }
+
+  @Test
+  public void testNestedDeadlinesCollapse() {
+    final Task<Long> remaining = Task.async("remaining", ctx -> Promises.value(ctx.getRemainingTime(TimeUnit.MILLISECONDS)));
+    final Task<Long> task = remaining.withDeadline(10, TimeUnit.SECONDS).withDeadline(1, TimeUnit.SECONDS);
+
+    final long remainingMs = runAndWait("TestTaskDeadline.testNestedDeadlinesCollapse", task);
+    assertTrue(remainingMs <= 1000, "remaining: " + remainingMs);
+    // inner deadline did not need a timer
+    assertEquals(_scheduledTimers.get(), 1);
+  }
+
+  @Test
+  public void testEnclosingDeadlineCancelsNestedTask() throws InterruptedException {
+    final Task<String> inner = Task.async("never", () -> Promises.<String>settable());
+    final Task<String> task = inner.withDeadline(10, TimeUnit.SECONDS).withDeadline(50, TimeUnit.MILLISECONDS);
+
+    runAndWaitException("TestTaskDeadline.testEnclosingDeadlineCancelsNestedTask", task, TimeoutException.class);
+    assertTrue(inner.await(5, TimeUnit.SECONDS));
+    assertTrue(Exceptions.isCancellation(inner.getError()));
+  }
+
+  @Test
+  public void testEarlierNestedDeadline() {
+    final Task<String> inner = Task.async("never", () -> Promises.<String>settable())
+        .withDeadline(50, TimeUnit.MILLISECONDS)
+        .recover(e -> e instanceof TimeoutException ? "recovered" : "unexpected");
+    final Task<String> task = inner.withDeadline(10, TimeUnit.SECONDS);
+
+    assertEquals(runAndWait("TestTaskDeadline.testEarlierNestedDeadline", task), "recovered");
+  }
+
+  @Test
+  public void testDeadlinesShareTimer() {
+    final List<Task<String>> tasks = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      tasks.add(delayedValue("value", 10, TimeUnit.MILLISECONDS).withDeadline(5, TimeUnit.SECONDS));
+    }
+    final Task<List<String>> task = Task.par(tasks);
+
+    assertEquals(runAndWait("TestTaskDeadline.testDeadlinesShareTimer", task).size(), 100);
+    // later deadlines do not reschedule the timer of the plan
+    assertEquals(_scheduledTimers.get(), 1);
+  }
+
+  @Test
+  public void testSideEffectDoesNotInheritDeadline() throws InterruptedException {
+    final Task<Boolean> sideEffect = Task.async("hasDeadline", ctx -> Promises.value(ctx.hasDeadline()));
+    final Task<String> task = Task.value("value").withSideEffect(v -> sideEffect).withDeadline(5, TimeUnit.SECONDS);
+
+    runAndWait("TestTaskDeadline.testSideEffectDoesNotInheritDeadline", task);
+    assertTrue(sideEffect.await(5, TimeUnit.SECONDS));
+    assertFalse(sideEffect.get());
+  }
+}
@@ -106,6 +106,14 @@ public class TestTaskFactoryMethods extends BaseEngineTest {
     }
   }
 
+  @Test
+  public void testBlockingWithoutEngineExecutor() {
+    Task<String> task = Task.blocking(() -> "from blocking");
+    runAndWaitException("TestTaskFactoryMethods.testBlockingWithoutEngineExecutor", task, IllegalStateException.class);
+
+    assertEquals(countTasks(task.getTrace()), 1);
+  }
+
   @Test
   public void testPar2AndThen() {
     AtomicInteger value = new AtomicInteger();
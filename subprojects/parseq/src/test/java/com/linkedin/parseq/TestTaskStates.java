@@ -177,6 +177,26 @@ public class TestTaskStates {
     assertDone(task, result);
   }
 
+  @Test
+  public void testPriorityIsKeptAcrossTransitions() throws InterruptedException {
+    for (int priority : new int[] {Priority.MIN_PRIORITY, -1, Priority.MAX_PRIORITY}) {
+      final SettablePromise<String> promise = Promises.settable();
+      final Task<String> task = Task.async("task", () -> promise);
+
+      assertTrue(task.setPriority(priority));
+      assertEquals(priority, task.getPriority());
+
+      runTask(task);
+      assertRunOrPending(task);
+      assertEquals(priority, task.getPriority());
+
+      promise.done("result");
+      assertTrue(task.await(5, TimeUnit.SECONDS));
+      assertDone(task, "result");
+      assertEquals(priority, task.getPriority());
+    }
+  }
+
   @Test
   public void testCancelAfterRun() throws InterruptedException {
     final String result = "result";
@@ -0,0 +1,247 @@
+package com.linkedin.parseq.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.BaseEngineTest;
+import com.linkedin.parseq.Task;
+import com.linkedin.parseq.promise.Promises;
+import com.linkedin.parseq.promise.SettablePromise;
+
+
+public class TestTaskCache extends BaseEngineTest {
+
+  @Test
+  public void testLoadAndHit() {
+    final AtomicInteger loads = new AtomicInteger();
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>()
+        .build(key -> Task.callable("load", () -> key + ":" + loads.incrementAndGet()));
+
+    assertEquals(runAndWait("TestTaskCache.testLoadAndHit", cache.get(1)), "1:1");
+    assertEquals(runAndWait("TestTaskCache.testLoadAndHit", cache.get(1)), "1:1");
+    assertEquals(runAndWait("TestTaskCache.testLoadAndHit", cache.get(2)), "2:2");
+    assertEquals(cache.getIfPresent(1), "1:1");
+    assertEquals(cache.size(), 2);
+
+    final TaskCacheStats stats = cache.getStats();
+    assertEquals(stats.getHitCount(), 1);
+    assertEquals(stats.getMissCount(), 2);
+    assertEquals(stats.getLoadSuccessCount(), 2);
+    assertEquals(stats.getHitRate(), 1.0 / 3);
+  }
+
+  @Test
+  public void testConcurrentMissesCoalesce() throws InterruptedException {
+    final AtomicInteger loads = new AtomicInteger();
+    final SettablePromise<String> promise = Promises.settable();
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>()
+        .build(key -> Task.async("load", () -> {
+          loads.incrementAndGet();
+          return promise;
+        }));
+
+    final Task<String> first = cache.get(1);
+    final Task<String> second = cache.get(1);
+    getEngine().run(first);
+    getEngine().run(second);
+    while (cache.getStats().getCoalescedLoadCount() == 0) {
+      Thread.sleep(1);
+    }
+    promise.done("value");
+
+    assertTrue(first.await(5, TimeUnit.SECONDS));
+    assertTrue(second.await(5, TimeUnit.SECONDS));
+    assertEquals(first.get(), "value");
+    assertEquals(second.get(), "value");
+    assertEquals(loads.get(), 1);
+    assertEquals(cache.getStats().getCoalescedLoadCount(), 1);
+  }
+
+  @Test
+  public void testCancelledLookupDoesNotCancelLoad() throws InterruptedException {
+    final SettablePromise<String> promise = Promises.settable();
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>()
+        .build(key -> Task.async("load", () -> promise));
+
+    final Task<String> cancelled = cache.get(1);
+    getEngine().run(cancelled);
+    final Task<String> waiting = cache.get(1);
+    getEngine().run(waiting);
+    while (cache.getStats().getCoalescedLoadCount() == 0) {
+      Thread.sleep(1);
+    }
+    cancelled.cancel(new Exception());
+    promise.done("value");
+
+    assertTrue(waiting.await(5, TimeUnit.SECONDS));
+    assertEquals(waiting.get(), "value");
+    assertEquals(cache.getIfPresent(1), "value");
+  }
+
+  @Test
+  public void testFailedLoadIsNotCached() {
+    final AtomicInteger loads = new AtomicInteger();
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>()
+        .build(key -> loads.incrementAndGet() == 1 ? Task.failure(new IllegalStateException()) : Task.value("value"));
+
+    runAndWaitException("TestTaskCache.testFailedLoadIsNotCached", cache.get(1), IllegalStateException.class);
+    assertNull(cache.getIfPresent(1));
+    assertEquals(runAndWait("TestTaskCache.testFailedLoadIsNotCached", cache.get(1)), "value");
+    assertEquals(cache.getStats().getLoadFailureCount(), 1);
+    assertEquals(cache.getStats().getLoadSuccessCount(), 1);
+  }
+
+  @Test
+  public void testLoaderReturnsNull() {
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>().build(key -> null);
+    runAndWaitException("TestTaskCache.testLoaderReturnsNull", cache.get(1), NullPointerException.class);
+  }
+
+  @Test
+  public void testExpireAfterWrite() {
+    final AtomicLong ticker = new AtomicLong();
+    final AtomicInteger loads = new AtomicInteger();
+    final TaskCache<Integer, Integer> cache = new TaskCacheBuilder<Integer, Integer>()
+        .setExpireAfterWrite(10, TimeUnit.NANOSECONDS)
+        .setTicker(ticker::get)
+        .build(key -> Task.callable("load", loads::incrementAndGet));
+
+    assertEquals(runAndWait("TestTaskCache.testExpireAfterWrite", cache.get(1)), (Integer) 1);
+    ticker.set(9);
+    assertEquals(runAndWait("TestTaskCache.testExpireAfterWrite", cache.get(1)), (Integer) 1);
+    ticker.set(10);
+    assertNull(cache.getIfPresent(1));
+    assertEquals(runAndWait("TestTaskCache.testExpireAfterWrite", cache.get(1)), (Integer) 2);
+  }
+
+  @Test
+  public void testExpiredEntriesAreReleased() {
+    final AtomicLong ticker = new AtomicLong();
+    final TaskCache<Integer, Integer> cache = new TaskCacheBuilder<Integer, Integer>()
+        .setExpireAfterWrite(10, TimeUnit.NANOSECONDS)
+        .setTicker(ticker::get)
+        .build(key -> Task.value("load", key));
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(runAndWait("TestTaskCache.testExpiredEntriesAreReleased", cache.get(i)), (Integer) i);
+    }
+    /* read some of the entries again so that they are promoted to the protected segment */
+    for (int i = 0; i < 10; i++) {
+      assertEquals(runAndWait("TestTaskCache.testExpiredEntriesAreReleased", cache.get(i)), (Integer) i);
+    }
+    assertEquals(cache.size(), 100);
+
+    ticker.set(10);
+    assertEquals(runAndWait("TestTaskCache.testExpiredEntriesAreReleased", cache.get(100)), (Integer) 100);
+    assertEquals(cache.size(), 1);
+    assertEquals(cache.weightedSize(), 1);
+    assertEquals(cache.getStats().getEvictionCount(), 0);
+  }
+
+  @Test
+  public void testRefreshAhead() {
+    final AtomicLong ticker = new AtomicLong();
+    final AtomicInteger loads = new AtomicInteger();
+    final TaskCache<Integer, Integer> cache = new TaskCacheBuilder<Integer, Integer>()
+        .setExpireAfterWrite(10, TimeUnit.NANOSECONDS)
+        .setRefreshAfterWrite(8, TimeUnit.NANOSECONDS)
+        .setTicker(ticker::get)
+        .build(key -> Task.callable("load", loads::incrementAndGet));
+
+    assertEquals(runAndWait("TestTaskCache.testRefreshAhead", cache.get(1)), (Integer) 1);
+    ticker.set(8);
+    // current value is returned while a new one is loaded as a side effect
+    assertEquals(runAndWaitForPlanToComplete("TestTaskCache.testRefreshAhead", cache.get(1), 5, TimeUnit.SECONDS),
+        (Integer) 1);
+    // refreshed value outlives expiration of the original one
+    ticker.set(12);
+    assertEquals(runAndWait("TestTaskCache.testRefreshAhead", cache.get(1)), (Integer) 2);
+
+    final TaskCacheStats stats = cache.getStats();
+    assertEquals(stats.getRefreshCount(), 1);
+    assertEquals(stats.getHitCount(), 2);
+    assertEquals(stats.getMissCount(), 1);
+  }
+
+  @Test
+  public void testInvalidRefreshAfterWrite() {
+    try {
+      new TaskCacheBuilder<Integer, Integer>()
+          .setExpireAfterWrite(5, TimeUnit.SECONDS)
+          .setRefreshAfterWrite(5, TimeUnit.SECONDS)
+          .build(key -> Task.value(key));
+      throw new AssertionError("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSegmentedEviction() {
+    final TaskCache<Integer, Integer> cache = new TaskCacheBuilder<Integer, Integer>()
+        .setMaximumSize(10)
+        .build(key -> Task.value(key));
+
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+    // entries read again are protected from entries that are read only once
+    for (int i = 0; i < 5; i++) {
+      assertEquals(runAndWait("TestTaskCache.testSegmentedEviction", cache.get(i)), (Integer) i);
+    }
+    for (int i = 10; i < 30; i++) {
+      cache.put(i, i);
+    }
+
+    assertEquals(cache.size(), 10);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(cache.getIfPresent(i), (Integer) i);
+    }
+    for (int i = 5; i < 25; i++) {
+      assertNull(cache.getIfPresent(i));
+    }
+    assertEquals(cache.getStats().getEvictionCount(), 20);
+  }
+
+  @Test
+  public void testMaximumWeight() {
+    final TaskCache<Integer, String> cache = new TaskCacheBuilder<Integer, String>()
+        .setMaximumWeight(10, (key, value) -> value.length())
+        .build(key -> Task.value("value"));
+
+    cache.put(1, "aaaa");
+    cache.put(2, "bbbb");
+    assertEquals(cache.weightedSize(), 8);
+    cache.put(3, "cccc");
+    assertEquals(cache.weightedSize(), 8);
+    assertNull(cache.getIfPresent(1));
+    cache.put(2, "b");
+    assertEquals(cache.weightedSize(), 5);
+
+    final TaskCacheStats stats = cache.getStats();
+    assertEquals(stats.getEvictionCount(), 1);
+    assertEquals(stats.getEvictionWeight(), 4);
+  }
+
+  @Test
+  public void testInvalidate() {
+    final AtomicInteger loads = new AtomicInteger();
+    final TaskCache<Integer, Integer> cache = new TaskCacheBuilder<Integer, Integer>()
+        .build(key -> Task.callable("load", loads::incrementAndGet));
+
+    assertEquals(runAndWait("TestTaskCache.testInvalidate", cache.get(1)), (Integer) 1);
+    cache.invalidate(1);
+    assertEquals(runAndWait("TestTaskCache.testInvalidate", cache.get(1)), (Integer) 2);
+    cache.put(2, 0);
+    cache.invalidateAll();
+    assertEquals(cache.size(), 0);
+    assertEquals(cache.weightedSize(), 0);
+  }
+}
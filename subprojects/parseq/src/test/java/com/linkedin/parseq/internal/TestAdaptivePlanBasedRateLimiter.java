@@ -0,0 +1,156 @@
+package com.linkedin.parseq.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+
+public class TestAdaptivePlanBasedRateLimiter {
+
+  private static final String PLAN_CLASS = "test";
+
+  @Test
+  public void testInitialLimit() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(3, 1, 10, 2.0);
+    assertEquals(limiter.getLimit(PLAN_CLASS), 3);
+    assertTrue(limiter.tryAcquire(PLAN_CLASS));
+    assertTrue(limiter.tryAcquire(PLAN_CLASS));
+    assertTrue(limiter.tryAcquire(PLAN_CLASS));
+    assertFalse(limiter.tryAcquire(PLAN_CLASS));
+    assertEquals(limiter.getInFlight(PLAN_CLASS), 3);
+    assertEquals(limiter.getRejectedCount(PLAN_CLASS), 1);
+
+    limiter.release(PLAN_CLASS);
+    assertEquals(limiter.getInFlight(PLAN_CLASS), 2);
+    assertTrue(limiter.tryAcquire(PLAN_CLASS));
+  }
+
+  @Test
+  public void testPlanClassesAreIndependent() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(1, 1, 10, 2.0);
+    assertTrue(limiter.tryAcquire("a"));
+    assertFalse(limiter.tryAcquire("a"));
+    assertTrue(limiter.tryAcquire("b"));
+    assertEquals(limiter.getRejectedCount("b"), 0);
+  }
+
+  @Test
+  public void testLimitGrowsWhileLatencyIsStable() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(10, 1, 100, 2.0);
+    for (int i = 0; i < 20; i++) {
+      saturate(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertTrue(limiter.getLimit(PLAN_CLASS) > 10, "limit: " + limiter.getLimit(PLAN_CLASS));
+    assertTrue(limiter.getLimit(PLAN_CLASS) <= 100);
+  }
+
+  @Test
+  public void testLimitDoesNotExceedMaxLimit() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(10, 1, 15, 2.0);
+    for (int i = 0; i < 100; i++) {
+      saturate(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertEquals(limiter.getLimit(PLAN_CLASS), 15);
+  }
+
+  @Test
+  public void testLimitDoesNotGrowWhenNotUsed() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(10, 1, 100, 2.0);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.tryAcquire(PLAN_CLASS));
+      limiter.release(PLAN_CLASS, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertEquals(limiter.getLimit(PLAN_CLASS), 10);
+  }
+
+  @Test
+  public void testLimitDecreasesWhenLatencyGrows() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(20, 10, 20, 2.0);
+    for (int i = 0; i < 10; i++) {
+      saturate(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertEquals(limiter.getLimit(PLAN_CLASS), 20);
+
+    saturate(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+    final int limit = limiter.getLimit(PLAN_CLASS);
+    assertTrue(limit < 20, "limit: " + limit);
+
+    for (int i = 0; i < 20; i++) {
+      saturate(limiter, TimeUnit.SECONDS.toNanos(1));
+    }
+    assertEquals(limiter.getLimit(PLAN_CLASS), 10);
+  }
+
+  @Test
+  public void testTryAcquireWithTimeout() throws InterruptedException {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(1, 1, 10, 2.0);
+    assertTrue(limiter.tryAcquire(PLAN_CLASS, 10, TimeUnit.MILLISECONDS));
+    assertFalse(limiter.tryAcquire(PLAN_CLASS, 10, TimeUnit.MILLISECONDS));
+    assertEquals(limiter.getRejectedCount(PLAN_CLASS), 1);
+  }
+
+  @Test
+  public void testAcquireWaitsForRelease() throws InterruptedException {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter(1, 1, 10, 2.0);
+    limiter.acquire(PLAN_CLASS);
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    final Thread waiter = new Thread(() -> {
+      try {
+        limiter.acquire(PLAN_CLASS);
+        acquired.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+
+    limiter.release(PLAN_CLASS, TimeUnit.MILLISECONDS.toNanos(1));
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertEquals(limiter.getInFlight(PLAN_CLASS), 1);
+    waiter.join();
+  }
+
+  @Test
+  public void testReleaseOfUnknownPlanClassIsIgnored() {
+    final AdaptivePlanBasedRateLimiter limiter = new AdaptivePlanBasedRateLimiter();
+    limiter.release("unknown");
+    limiter.release("unknown", 1);
+    assertEquals(limiter.getInFlight("unknown"), 0);
+    assertEquals(limiter.getLimit("unknown"), AdaptivePlanBasedRateLimiter.DEFAULT_INITIAL_LIMIT);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInitialLimitOutOfRange() {
+    new AdaptivePlanBasedRateLimiter(20, 1, 10, 2.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMaxLimitLowerThanMinLimit() {
+    new AdaptivePlanBasedRateLimiter(5, 5, 4, 2.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testToleranceLowerThanOne() {
+    new AdaptivePlanBasedRateLimiter(5, 1, 10, 0.5);
+  }
+
+  /**
+   * Acquires all available permits and releases them reporting given latency.
+   */
+  private static void saturate(final AdaptivePlanBasedRateLimiter limiter, final long latencyNano) {
+    int acquired = 0;
+    while (limiter.tryAcquire(PLAN_CLASS)) {
+      acquired++;
+    }
+    for (int i = 0; i < acquired; i++) {
+      limiter.release(PLAN_CLASS, latencyNano);
+    }
+  }
+}
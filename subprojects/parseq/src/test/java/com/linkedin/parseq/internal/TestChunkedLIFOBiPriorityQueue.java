@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.linkedin.parseq.Priority;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+
+public class TestChunkedLIFOBiPriorityQueue {
+  @Test
+  public void testPollOnEmpty() {
+    final ChunkedLIFOBiPriorityQueue<?> queue = new ChunkedLIFOBiPriorityQueue<>();
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testPollOnUnprioritizedSequence() {
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>();
+    queue.add(new PrioritizableInt(1));
+    queue.add(new PrioritizableInt(2));
+    queue.add(new PrioritizableInt(3));
+
+    assertEquals(3, queue.poll().getValue());
+    assertEquals(2, queue.poll().getValue());
+    assertEquals(1, queue.poll().getValue());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testPollWithPriority() {
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>();
+    queue.add(new PrioritizableInt(Priority.DEFAULT_PRIORITY, 1));
+    queue.add(new PrioritizableInt(Priority.MAX_PRIORITY, 2));
+    queue.add(new PrioritizableInt(-5, 3));
+
+    assertEquals(2, queue.poll().getValue());
+    assertEquals(3, queue.poll().getValue());
+    assertEquals(1, queue.poll().getValue());
+  }
+
+  @Test
+  public void testPollWithOverlappingPriorities() {
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>();
+    queue.add(new PrioritizableInt(-5, 1));
+    queue.add(new PrioritizableInt(10, 2));
+    queue.add(new PrioritizableInt(0, 3));
+    queue.add(new PrioritizableInt(10, 4));
+    queue.add(new PrioritizableInt(0, 5));
+    queue.add(new PrioritizableInt(-5, 6));
+
+    assertEquals(2, queue.poll().getValue());
+    assertEquals(4, queue.poll().getValue());
+    assertEquals(6, queue.poll().getValue());
+    assertEquals(5, queue.poll().getValue());
+    assertEquals(3, queue.poll().getValue());
+    assertEquals(1, queue.poll().getValue());
+  }
+
+  @Test
+  public void testInterleavedAddAndPoll() {
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>();
+    queue.add(new PrioritizableInt(1));
+    queue.add(new PrioritizableInt(2));
+    assertEquals(2, queue.poll().getValue());
+    queue.add(new PrioritizableInt(3));
+    queue.add(new PrioritizableInt(Priority.MAX_PRIORITY, 4));
+    assertEquals(4, queue.poll().getValue());
+    assertEquals(3, queue.poll().getValue());
+    assertEquals(1, queue.poll().getValue());
+    assertNull(queue.poll());
+    queue.add(new PrioritizableInt(5));
+    assertEquals(5, queue.poll().getValue());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testSpanningMultipleChunks() {
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>(4);
+    for (int i = 0; i < 100; i++) {
+      queue.add(new PrioritizableInt(i));
+      if (i % 10 == 9) {
+        assertEquals(i, queue.poll().getValue());
+      }
+    }
+    for (int i = 99; i >= 0; i--) {
+      if (i % 10 != 9) {
+        assertEquals(i, queue.poll().getValue());
+      }
+    }
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 10000;
+    final ChunkedLIFOBiPriorityQueue<PrioritizableInt> queue = new ChunkedLIFOBiPriorityQueue<>(8);
+    final CountDownLatch start = new CountDownLatch(1);
+    final Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      threads[p] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < perProducer; i++) {
+          queue.add(new PrioritizableInt(producer * perProducer + i));
+        }
+      });
+      threads[p].start();
+    }
+    start.countDown();
+
+    final boolean[] seen = new boolean[producers * perProducer];
+    int polled = 0;
+    while (polled < seen.length) {
+      final PrioritizableInt value = queue.poll();
+      if (value != null) {
+        assertTrue(!seen[value.getValue()]);
+        seen[value.getValue()] = true;
+        polled++;
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(queue.poll());
+  }
+
+  private static class Int {
+    private final int _value;
+
+    private Int(final int value) {
+      _value = value;
+    }
+
+    public int getValue() {
+      return _value;
+    }
+  }
+
+  private static class PrioritizableInt extends Int implements Prioritizable {
+    private final int _priority;
+
+    private PrioritizableInt(final int value) {
+      this(Priority.DEFAULT_PRIORITY, value);
+    }
+
+    private PrioritizableInt(final int priority, final int value) {
+      super(value);
+      _priority = priority;
+    }
+
+    public int getPriority() {
+      return _priority;
+    }
+  }
+}
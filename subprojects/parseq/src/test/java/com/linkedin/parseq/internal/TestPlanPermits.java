@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.parseq.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.parseq.internal.PlanPermits.Admission;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+
+public class TestPlanPermits {
+
+  @Test
+  public void testCapacityIsSpreadAcrossStripes() {
+    final PlanPermits permits = new PlanPermits(10, 4);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    }
+    assertEquals(Admission.REJECTED, permits.tryAcquire());
+    assertEquals(10, permits.pendingCount());
+
+    assertFalse(permits.release());
+    assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    assertEquals(Admission.REJECTED, permits.tryAcquire());
+  }
+
+  @Test
+  public void testPermitsReleasedFromOtherThreads() throws InterruptedException {
+    final PlanPermits permits = new PlanPermits(3, 8);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    }
+    final Thread releaser = new Thread(() -> {
+      for (int i = 0; i < 3; i++) {
+        permits.release();
+      }
+    });
+    releaser.start();
+    releaser.join();
+    assertEquals(0, permits.pendingCount());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    }
+    assertEquals(Admission.REJECTED, permits.tryAcquire());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testReleaseWithoutAcquire() {
+    final PlanPermits permits = new PlanPermits(8, 4);
+    assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    permits.release();
+    permits.release();
+  }
+
+  @Test
+  public void testShutdownWithoutPendingPlans() {
+    final PlanPermits permits = new PlanPermits(Integer.MAX_VALUE);
+    assertTrue(permits.shutdown());
+    assertEquals(Admission.SHUTDOWN, permits.tryAcquire());
+  }
+
+  @Test
+  public void testShutdownWithPendingPlans() {
+    final PlanPermits permits = new PlanPermits(Integer.MAX_VALUE, 4);
+    assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    assertEquals(Admission.ADMITTED, permits.tryAcquire());
+    assertFalse(permits.shutdown());
+    assertEquals(Admission.SHUTDOWN, permits.tryAcquire());
+    assertFalse(permits.release());
+    assertTrue(permits.release());
+  }
+
+  @Test
+  public void testAcquireBlocksUntilRelease() throws InterruptedException {
+    final PlanPermits permits = new PlanPermits(1);
+    assertEquals(Admission.ADMITTED, permits.acquire());
+    assertEquals(Admission.REJECTED, permits.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+    final AtomicReference<Admission> admission = new AtomicReference<>();
+    final CountDownLatch acquired = new CountDownLatch(1);
+    new Thread(() -> {
+      try {
+        admission.set(permits.acquire());
+        acquired.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }).start();
+
+    assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+    permits.release();
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertEquals(Admission.ADMITTED, admission.get());
+  }
+
+  @Test
+  public void testShutdownWakesUpWaiters() throws InterruptedException {
+    final PlanPermits permits = new PlanPermits(1);
+    assertEquals(Admission.ADMITTED, permits.tryAcquire());
+
+    final AtomicReference<Admission> admission = new AtomicReference<>();
+    final CountDownLatch done = new CountDownLatch(1);
+    new Thread(() -> {
+      try {
+        admission.set(permits.tryAcquire(5, TimeUnit.SECONDS));
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }).start();
+
+    assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+    permits.shutdown();
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertEquals(Admission.SHUTDOWN, admission.get());
+  }
+}
@@ -0,0 +1,125 @@
+package com.linkedin.parseq.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class TestSerialExecutorDrainBudget {
+  private ExecutorService _executorService;
+  private List<String> _executed;
+
+  @BeforeMethod
+  public void setUp() {
+    _executorService = Executors.newSingleThreadExecutor();
+    _executed = Collections.synchronizedList(new ArrayList<>());
+  }
+
+  @AfterMethod
+  public void tearDown() throws InterruptedException {
+    _executorService.shutdownNow();
+    _executorService.awaitTermination(1, TimeUnit.SECONDS);
+    _executorService = null;
+  }
+
+  @Test
+  public void testUnlimitedBudgetDoesNotYield() throws InterruptedException {
+    final SerialExecutor executor = newSerialExecutor(Integer.MAX_VALUE, Long.MAX_VALUE);
+    final CountDownLatch latch = new CountDownLatch(5);
+    executor.execute(() -> {
+      for (int i = 0; i < 4; i++) {
+        executor.execute(latch::countDown);
+      }
+      latch.countDown();
+    });
+    awaitCompletion(latch);
+    assertEquals(executor.getYieldCount(), 0);
+  }
+
+  @Test
+  public void testYieldsAfterMaxRunnables() throws InterruptedException {
+    final SerialExecutor executor = newSerialExecutor(2, Long.MAX_VALUE);
+    final CountDownLatch latch = new CountDownLatch(5);
+    executor.execute(() -> {
+      for (int i = 0; i < 4; i++) {
+        executor.execute(latch::countDown);
+      }
+      latch.countDown();
+    });
+    awaitCompletion(latch);
+    // yields after 2nd and 4th runnable, the 5th one empties the queue
+    assertEquals(executor.getYieldCount(), 2);
+  }
+
+  @Test
+  public void testYieldsAfterMaxNanos() throws InterruptedException {
+    final SerialExecutor executor = newSerialExecutor(Integer.MAX_VALUE, 1);
+    final CountDownLatch latch = new CountDownLatch(3);
+    executor.execute(() -> {
+      executor.execute(latch::countDown);
+      executor.execute(latch::countDown);
+      latch.countDown();
+    });
+    awaitCompletion(latch);
+    assertEquals(executor.getYieldCount(), 2);
+  }
+
+  @Test
+  public void testYieldLetsOtherExecutorRun() throws InterruptedException {
+    final SerialExecutor first = newSerialExecutor(2, Long.MAX_VALUE);
+    final SerialExecutor second = newSerialExecutor(2, Long.MAX_VALUE);
+    final CountDownLatch latch = new CountDownLatch(5);
+    first.execute(() -> {
+      first.execute(recording("first-2", latch));
+      first.execute(recording("first-3", latch));
+      first.execute(recording("first-4", latch));
+      second.execute(recording("second-1", latch));
+      recording("first-1", latch).run();
+    });
+    awaitCompletion(latch);
+    assertEquals(_executed, Arrays.asList("first-1", "first-2", "second-1", "first-3", "first-4"));
+    assertEquals(first.getYieldCount(), 1);
+    assertEquals(second.getYieldCount(), 0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidMaxRunnables() {
+    newSerialExecutor(0, Long.MAX_VALUE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidMaxNanos() {
+    newSerialExecutor(Integer.MAX_VALUE, 0);
+  }
+
+  private SerialExecutor newSerialExecutor(int maxRunnablesPerDrain, long maxNanosPerDrain) {
+    return new SerialExecutor(_executorService, error -> {}, () -> {}, new FIFOPriorityQueue<>(), true,
+        maxRunnablesPerDrain, maxNanosPerDrain, null);
+  }
+
+  private PrioritizableRunnable recording(String name, CountDownLatch latch) {
+    return () -> {
+      _executed.add(name);
+      latch.countDown();
+    };
+  }
+
+  private void awaitCompletion(CountDownLatch latch) throws InterruptedException {
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    // wait for the executor loop that ran the last runnable to finish
+    _executorService.shutdown();
+    assertTrue(_executorService.awaitTermination(5, TimeUnit.SECONDS));
+  }
+}
@@ -20,10 +20,16 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.linkedin.parseq.TestUtil.withDisabledLogging;
@@ -340,4 +346,100 @@ public class TestSettablePromise {
       }
     });
   }
+
+  @Test
+  public void testListenersAreNotifiedInReverseOrder() {
+    final SettablePromise<String> promise = Promises.settable();
+    final List<Integer> notified = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      final int index = i;
+      promise.addListener(p -> notified.add(index));
+    }
+    promise.done("done!");
+    assertEquals(Arrays.asList(4, 3, 2, 1, 0), notified);
+  }
+
+  @Test
+  public void testAwaitReturnsAfterListenersAreNotified() throws InterruptedException {
+    final SettablePromise<String> promise = Promises.settable();
+    final CountDownLatch listenerStarted = new CountDownLatch(1);
+    final CountDownLatch listenerFinished = new CountDownLatch(1);
+    final AtomicInteger notified = new AtomicInteger();
+    promise.addListener(p -> {
+      listenerStarted.countDown();
+      try {
+        listenerFinished.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      notified.incrementAndGet();
+    });
+    _scheduler.execute(() -> promise.done("done!"));
+
+    assertTrue(listenerStarted.await(5, TimeUnit.SECONDS));
+    assertTrue(promise.isDone());
+    assertFalse(promise.await(50, TimeUnit.MILLISECONDS));
+    listenerFinished.countDown();
+    assertTrue(promise.await(5, TimeUnit.SECONDS));
+    assertEquals(1, notified.get());
+  }
+
+  @Test
+  public void testConcurrentListenersAndResolution() throws Exception {
+    final int threads = 4;
+    final int listenersPerThread = 1000;
+    final ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads + 2);
+    try {
+      for (int round = 0; round < 20; round++) {
+        final SettablePromise<String> promise = Promises.settable();
+        final AtomicInteger notified = new AtomicInteger();
+        final AtomicInteger resolved = new AtomicInteger();
+        final List<String> values = Collections.synchronizedList(new ArrayList<>());
+        final CyclicBarrier barrier = new CyclicBarrier(threads + 2);
+        final CountDownLatch finished = new CountDownLatch(threads + 2);
+        for (int t = 0; t < threads; t++) {
+          executor.execute(() -> {
+            try {
+              barrier.await();
+              for (int i = 0; i < listenersPerThread; i++) {
+                promise.addListener(p -> {
+                  values.add(p.get());
+                  notified.incrementAndGet();
+                });
+              }
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            } finally {
+              finished.countDown();
+            }
+          });
+        }
+        for (int t = 0; t < 2; t++) {
+          final String value = "value" + t;
+          executor.execute(() -> {
+            try {
+              barrier.await();
+              promise.done(value);
+              resolved.incrementAndGet();
+            } catch (PromiseResolvedException e) {
+              // expected for one of the threads
+            } catch (Exception e) {
+              throw new RuntimeException(e);
+            } finally {
+              finished.countDown();
+            }
+          });
+        }
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(promise.await(5, TimeUnit.SECONDS));
+        assertEquals(1, resolved.get());
+        assertEquals(threads * listenersPerThread, notified.get());
+        for (String value : values) {
+          assertEquals(promise.get(), value);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
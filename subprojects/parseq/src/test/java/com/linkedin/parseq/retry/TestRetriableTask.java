@@ -5,6 +5,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
@@ -57,6 +58,17 @@ public class TestRetriableTask extends BaseEngineTest {
     assertEquals(task2.getError().getMessage(), "current attempt: 0");
   }
 
+  @Test
+  public void testRetriesStopWhenDeadlineExpiresBeforeBackoff()
+  {
+    Task<Void> task = withRetryPolicy("testRetriesStopWhenDeadlineExpiresBeforeBackoff", RetryPolicy.attempts(10, 200),
+        attempt -> Task.<Void>failure(new RuntimeException("current attempt: " + attempt))).withDeadline(300, TimeUnit.MILLISECONDS);
+    runAndWaitException(task, RuntimeException.class);
+    assertTrue(task.isDone());
+    // second attempt fails with less than 200ms left, so there is no third attempt
+    assertEquals(task.getError().getMessage(), "current attempt: 1");
+  }
+
   @Test
   public void testFailingTaskSupplier()
   {
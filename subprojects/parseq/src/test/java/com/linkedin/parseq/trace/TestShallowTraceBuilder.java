@@ -16,12 +16,15 @@
 
 package com.linkedin.parseq.trace;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.testng.annotations.Test;
 
 import com.linkedin.parseq.internal.IdGenerator;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
 
@@ -120,4 +123,33 @@ public class TestShallowTraceBuilder {
     builderCopy.setResultType(ResultType.ERROR);
     assertFalse(builder.build().equals(builderCopy.build()));
   }
+
+  @Test
+  public void testLazyValue() {
+    final AtomicInteger serialized = new AtomicInteger();
+    final ShallowTraceBuilder builder = new ShallowTraceBuilder(IdGenerator.getNextId());
+    builder.setName("test");
+    builder.setResultType(ResultType.SUCCESS);
+    builder.setValue(42, value -> {
+      serialized.incrementAndGet();
+      return "value: " + value;
+    });
+    assertEquals(0, serialized.get());
+
+    assertEquals("value: 42", builder.build().getValue());
+    assertEquals("value: 42", builder.getValue());
+    assertEquals(1, serialized.get());
+  }
+
+  @Test
+  public void testLazyValueSerializerFailure() {
+    final ShallowTraceBuilder builder = new ShallowTraceBuilder(IdGenerator.getNextId());
+    builder.setName("test");
+    builder.setResultType(ResultType.SUCCESS);
+    builder.setValue(42, value -> {
+      throw new IllegalStateException("serializer failed");
+    });
+
+    assertTrue(builder.getValue().startsWith("java.lang.IllegalStateException: serializer failed"));
+  }
 }
@@ -208,6 +208,28 @@ public class TestTaskToTrace extends BaseEngineTest {
             predecessor.getShallowTraceBuilder(), Relationship.SUCCESSOR_OF)));
   }
 
+  @Test
+  public void testFusedChainTrace() throws InterruptedException {
+    final Task<String> first = value("first", "a");
+    final Task<String> second = first.map("upper", String::toUpperCase);
+    final Task<String> task = second.map("twice", s -> s + s);
+    runAndWait("TestTaskToTrace.testFusedChainTrace", task);
+
+    verifyShallowTrace(first);
+    verifyShallowTrace(second);
+    assertEquals(ResultType.SUCCESS, second.getShallowTrace().getResultType());
+    assertNotNull(second.getShallowTrace().getPendingNanos());
+    assertNotNull(second.getShallowTrace().getEndNanos());
+
+    //intermediate tasks are children of the fused task and successors of their predecessors
+    assertEquals("fused", task.getShallowTrace().getName());
+    final Set<TraceRelationship> relationships = task.getTrace().getRelationships();
+    assertTrue(relationships.contains(new TraceRelationship(task.getShallowTraceBuilder(),
+        second.getShallowTraceBuilder(), Relationship.PARENT_OF)));
+    assertTrue(relationships.contains(new TraceRelationship(second.getShallowTraceBuilder(),
+        first.getShallowTraceBuilder(), Relationship.SUCCESSOR_OF)));
+  }
+
   @Test
   public void testSideEffectsPredecessorTrace() throws InterruptedException, IOException {
     final Task<String> baseTask = value("base", "baseValue");
@@ -17,6 +17,7 @@
 package com.linkedin.parseq.trace;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.ArrayList;
@@ -94,4 +95,37 @@ public class TestTraceBuilder {
     }
   }
 
+  @Test
+  public void testDisabled() {
+    final ShallowTraceBuilder trace1 =
+        new ShallowTraceBuilder(IdGenerator.getNextId()).setName("task1").setResultType(ResultType.UNFINISHED);
+    final ShallowTraceBuilder trace2 =
+        new ShallowTraceBuilder(IdGenerator.getNextId()).setName("task2").setResultType(ResultType.UNFINISHED);
+    final TraceBuilder builder = TraceBuilder.disabled("test", 0L);
+    assertFalse(builder.isEnabled());
+    builder.addShallowTrace(trace1);
+    builder.addRelationship(Relationship.SUCCESSOR_OF, trace1, trace2);
+    Trace trace = builder.build();
+    assertTrue(trace.getTraceMap().isEmpty());
+    assertTrue(trace.getRelationships().isEmpty());
+    assertEquals("test", trace.getPlanClass());
+  }
+
+  @Test
+  public void testDiscard() {
+    final ShallowTraceBuilder trace1 =
+        new ShallowTraceBuilder(IdGenerator.getNextId()).setName("task1").setResultType(ResultType.UNFINISHED);
+    final ShallowTraceBuilder trace2 =
+        new ShallowTraceBuilder(IdGenerator.getNextId()).setName("task2").setResultType(ResultType.UNFINISHED);
+    final TraceBuilder builder = new TraceBuilder(1024, "test", 0L);
+    assertTrue(builder.isEnabled());
+    builder.addRelationship(Relationship.SUCCESSOR_OF, trace1, trace2);
+    builder.discard();
+    assertFalse(builder.isEnabled());
+    builder.addShallowTrace(trace1);
+    builder.addRelationship(Relationship.SUCCESSOR_OF, trace1, trace2);
+    Trace trace = builder.build();
+    assertTrue(trace.getTraceMap().isEmpty());
+    assertTrue(trace.getRelationships().isEmpty());
+  }
 }